@@ -2,9 +2,11 @@ package uit.carbon_shop.config;
 
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class AppConfig {
 }
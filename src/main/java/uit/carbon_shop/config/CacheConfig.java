@@ -0,0 +1,65 @@
+package uit.carbon_shop.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.TypedJsonJacksonCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uit.carbon_shop.model.AppUserDTO;
+import uit.carbon_shop.model.CompanyDTO;
+import uit.carbon_shop.model.PrincipalCacheEntry;
+import uit.carbon_shop.model.ProjectDTO;
+import uit.carbon_shop.util.TwoTierCache;
+
+
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public TwoTierCache<PrincipalCacheEntry> principalCache(final RedissonClient redissonClient,
+            final ObjectMapper objectMapper, final MeterRegistry meterRegistry,
+            @Value("${user.principal-cache.max-size:10000}") final int maxSize,
+            @Value("${user.principal-cache.ttl:5m}") final Duration ttl) {
+        return new TwoTierCache<>("principal", redissonClient,
+                new TypedJsonJacksonCodec(String.class, PrincipalCacheEntry.class,
+                        JacksonConfig.withoutFileUrls(objectMapper)),
+                meterRegistry, maxSize, ttl, ttl);
+    }
+
+    @Bean
+    public TwoTierCache<ProjectDTO> projectCache(final RedissonClient redissonClient,
+            final ObjectMapper objectMapper, final MeterRegistry meterRegistry,
+            @Value("${app.cache.project.max-size:2000}") final int maxSize,
+            @Value("${app.cache.project.ttl:10m}") final Duration ttl) {
+        return new TwoTierCache<>("project", redissonClient,
+                new TypedJsonJacksonCodec(String.class, ProjectDTO.class,
+                        JacksonConfig.withoutFileUrls(objectMapper)),
+                meterRegistry, maxSize, ttl, ttl);
+    }
+
+    @Bean
+    public TwoTierCache<CompanyDTO> companyCache(final RedissonClient redissonClient,
+            final ObjectMapper objectMapper, final MeterRegistry meterRegistry,
+            @Value("${app.cache.company.max-size:2000}") final int maxSize,
+            @Value("${app.cache.company.ttl:30m}") final Duration ttl) {
+        return new TwoTierCache<>("company", redissonClient,
+                new TypedJsonJacksonCodec(String.class, CompanyDTO.class,
+                        JacksonConfig.withoutFileUrls(objectMapper)),
+                meterRegistry, maxSize, ttl, ttl);
+    }
+
+    @Bean
+    public TwoTierCache<AppUserDTO> appUserCache(final RedissonClient redissonClient,
+            final ObjectMapper objectMapper, final MeterRegistry meterRegistry,
+            @Value("${app.cache.app-user.max-size:5000}") final int maxSize,
+            @Value("${app.cache.app-user.ttl:5m}") final Duration ttl) {
+        return new TwoTierCache<>("appUser", redissonClient,
+                new TypedJsonJacksonCodec(String.class, AppUserDTO.class,
+                        JacksonConfig.withoutFileUrls(objectMapper)),
+                meterRegistry, maxSize, ttl, ttl);
+    }
+
+}
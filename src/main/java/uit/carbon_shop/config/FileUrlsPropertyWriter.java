@@ -0,0 +1,57 @@
+package uit.carbon_shop.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.VirtualBeanPropertyWriter;
+import com.fasterxml.jackson.databind.util.Annotations;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import uit.carbon_shop.model.FileReferencing;
+import uit.carbon_shop.service.FileUrlService;
+
+
+/**
+ * Writes the {@code fileUrls} of a {@link FileReferencing} DTO. Spring's object mapper creates it
+ * with the {@link FileUrlService}; mappers outside the context, like the one storing JSON columns,
+ * and those of {@link JacksonConfig#withoutFileUrls} use the no-argument constructor and leave the
+ * property out.
+ */
+public class FileUrlsPropertyWriter extends VirtualBeanPropertyWriter {
+
+    private final FileUrlService fileUrlService;
+
+    public FileUrlsPropertyWriter() {
+        this.fileUrlService = null;
+    }
+
+    @Autowired
+    public FileUrlsPropertyWriter(final FileUrlService fileUrlService) {
+        this.fileUrlService = fileUrlService;
+    }
+
+    private FileUrlsPropertyWriter(final BeanPropertyDefinition propDef, final Annotations contextAnnotations,
+            final JavaType declaredType, final FileUrlService fileUrlService) {
+        super(propDef, contextAnnotations, declaredType);
+        this.fileUrlService = fileUrlService;
+    }
+
+    @Override
+    protected Object value(final Object bean, final JsonGenerator gen, final SerializerProvider prov) {
+        if (fileUrlService == null) {
+            return null;
+        }
+        final Map<Long, String> urls = fileUrlService.signedUrls(((FileReferencing) bean).fileIds().toList());
+        return urls.isEmpty() ? null : urls;
+    }
+
+    @Override
+    public VirtualBeanPropertyWriter withConfig(final MapperConfig<?> config, final AnnotatedClass declaringClass,
+            final BeanPropertyDefinition propDef, final JavaType type) {
+        return new FileUrlsPropertyWriter(propDef, declaringClass.getAnnotations(), type, fileUrlService);
+    }
+
+}
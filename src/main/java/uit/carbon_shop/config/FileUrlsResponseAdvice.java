@@ -0,0 +1,58 @@
+package uit.carbon_shop.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import uit.carbon_shop.model.CursorPagedModel;
+import uit.carbon_shop.model.FileReferencing;
+import uit.carbon_shop.service.FileUrlService;
+
+
+/**
+ * Loads what signing the {@code fileUrls} of a page or list of {@link FileReferencing} DTOs needs
+ * with one query before the response is written, as {@link FileUrlsPropertyWriter} only sees one
+ * DTO at a time.
+ */
+@ControllerAdvice
+public class FileUrlsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private final FileUrlService fileUrlService;
+
+    public FileUrlsResponseAdvice(final FileUrlService fileUrlService) {
+        this.fileUrlService = fileUrlService;
+    }
+
+    @Override
+    public boolean supports(final MethodParameter returnType,
+            final Class<? extends HttpMessageConverter<?>> converterType) {
+        return AbstractJackson2HttpMessageConverter.class.isAssignableFrom(converterType);
+    }
+
+    @Override
+    public Object beforeBodyWrite(final Object body, final MethodParameter returnType,
+            final MediaType selectedContentType,
+            final Class<? extends HttpMessageConverter<?>> selectedConverterType, final ServerHttpRequest request,
+            final ServerHttpResponse response) {
+        final Iterable<?> items = body instanceof CursorPagedModel<?> cursorPage ? cursorPage.getContent()
+                : body instanceof Iterable<?> iterable ? iterable : null;
+        if (items == null) {
+            return body;
+        }
+        final List<Long> fileIds = new ArrayList<>();
+        for (final Object item : items) {
+            if (item instanceof FileReferencing fileReferencing) {
+                fileReferencing.fileIds().forEach(fileIds::add);
+            }
+        }
+        fileUrlService.prefetch(fileIds);
+        return body;
+    }
+
+}
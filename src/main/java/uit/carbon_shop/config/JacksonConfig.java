@@ -1,6 +1,7 @@
 package uit.carbon_shop.config;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
@@ -24,4 +25,15 @@ public class JacksonConfig {
                 );
     }
 
+    /**
+     * A copy of Spring's object mapper for JSON stored in Redis or sent to other nodes. Without the
+     * handler instantiator, {@link FileUrlsPropertyWriter} has no {@code FileUrlService} and leaves
+     * out the {@code fileUrls}, which expire and are signed when a response is written instead.
+     */
+    public static ObjectMapper withoutFileUrls(final ObjectMapper objectMapper) {
+        final ObjectMapper copy = objectMapper.copy();
+        copy.setHandlerInstantiator(null);
+        return copy;
+    }
+
 }
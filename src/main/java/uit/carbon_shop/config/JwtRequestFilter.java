@@ -19,8 +19,8 @@ import uit.carbon_shop.service.UserUserDetailsService;
 
 /**
  * Filter for authorizing requests based on the "Authorization: Bearer ..." header. When
- * a valid JWT has been found, load the user details from the database and set the
- * authenticated principal for the duration of this request.
+ * a valid JWT has been found, load the user details from the principal cache (falling back
+ * to the database) and set the authenticated principal for the duration of this request.
  */
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
@@ -55,7 +55,7 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         final UserDetails userDetails;
         try {
-            userDetails = userUserDetailsService.loadUserByUsername(username);
+            userDetails = userUserDetailsService.loadCachedUserByUsername(username);
         } catch (final UsernameNotFoundException userNotFoundEx) {
             // user not found
             chain.doFilter(request, response);
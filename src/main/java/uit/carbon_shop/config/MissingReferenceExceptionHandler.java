@@ -0,0 +1,35 @@
+package uit.carbon_shop.config;
+
+import io.github.wimdeblauwe.errorhandlingspringbootstarter.ApiErrorResponse;
+import io.github.wimdeblauwe.errorhandlingspringbootstarter.ApiExceptionHandler;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Foreign keys are set from ids with {@code getReferenceById}, without loading the referenced row,
+ * so a missing one only shows when the insert or update violates the constraint. Answer that with
+ * 404 like an id that isn't found. Deleting a still referenced row stays a 409 conflict.
+ */
+@Component
+public class MissingReferenceExceptionHandler implements ApiExceptionHandler {
+
+    @Override
+    public boolean canHandle(final Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException constraintViolation
+                    && constraintViolation.getKind() == ConstraintViolationException.ConstraintKind.FOREIGN_KEY) {
+                final String sql = constraintViolation.getSQL();
+                return sql != null && !sql.stripLeading().regionMatches(true, 0, "delete", 0, 6);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public ApiErrorResponse handle(final Throwable exception) {
+        return new ApiErrorResponse(HttpStatus.NOT_FOUND, "NOT_FOUND", "referenced entity not found");
+    }
+
+}
@@ -11,6 +11,8 @@ import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.util.ContentCachingRequestWrapper;
@@ -26,6 +28,19 @@ public class RequestResponseLogging extends OncePerRequestFilter {
             final HttpServletResponse response, final FilterChain chain) throws IOException,
             ServletException {
 
+        if (isStreaming(request)) {
+            // caching wrappers would hold back the streamed body until the request completes and
+            // keep whole file downloads and uploads on the heap
+            final long startTime = System.currentTimeMillis();
+            chain.doFilter(request, response);
+            log.info("REQUEST: [{}] {} - RESPONSE: Status: {} Duration: {}ms (streamed)",
+                    request.getMethod(),
+                    request.getRequestURI(),
+                    response.getStatus(),
+                    System.currentTimeMillis() - startTime);
+            return;
+        }
+
         // Create wrapper to cache response content
         ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
         // Create wrapper to cache request content
@@ -65,6 +80,13 @@ public class RequestResponseLogging extends OncePerRequestFilter {
         }
     }
 
+    private boolean isStreaming(final HttpServletRequest request) {
+        final String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return (accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE))
+                || request.getRequestURI().endsWith("/chat/stream")
+                || request.getRequestURI().startsWith("/api/file/");
+    }
+
     private Map<String, String> getHeaders(HttpServletRequest request) {
         Map<String, String> headers = new HashMap<>();
         Collections.list(request.getHeaderNames())
@@ -30,7 +30,7 @@ import uit.carbon_shop.model.UserStatus;
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
-public class AppUser {
+public class AppUser implements AssignedIdEntity {
 
     @Id
     @Column(nullable = false, updatable = false)
@@ -0,0 +1,22 @@
+package uit.carbon_shop.domain;
+
+import java.time.OffsetDateTime;
+import org.springframework.data.domain.Persistable;
+
+
+/**
+ * Entity with an id assigned by the application before the first save. Without this, Spring Data
+ * sees the non-null id as an existing row and merges, which costs a SELECT per insert. The
+ * creation timestamp is only set by the auditing listener on persist, so its absence marks a new
+ * entity.
+ */
+public interface AssignedIdEntity extends Persistable<Long> {
+
+    OffsetDateTime getCreatedAt();
+
+    @Override
+    default boolean isNew() {
+        return getCreatedAt() == null;
+    }
+
+}
@@ -25,7 +25,7 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
-public class ChatMessage {
+public class ChatMessage implements AssignedIdEntity {
 
     @Id
     @Column(nullable = false, updatable = false)
@@ -1,6 +1,7 @@
 package uit.carbon_shop.domain;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
@@ -9,6 +10,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.SequenceGenerator;
@@ -24,11 +26,14 @@ import uit.carbon_shop.model.CompanyStatus;
 
 
 @Entity
-@Table(name = "Companies")
+@Table(
+        name = "Companies",
+        indexes = @Index(name = "idx_companies_rating_average", columnList = "rating_average")
+)
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
-public class Company {
+public class Company implements AssignedIdEntity {
 
     @Id
     @Column(nullable = false, updatable = false)
@@ -62,6 +67,9 @@ public class Company {
     @OneToMany(mappedBy = "company")
     private Set<CompanyReview> comparnyReviews;
 
+    @Embedded
+    private RatingAggregate rating = new RatingAggregate();
+
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private OffsetDateTime createdAt;
@@ -0,0 +1,40 @@
+package uit.carbon_shop.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.OffsetDateTime;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Stored file content, keyed by the hex SHA-256 of its bytes, so identical uploads share one copy.
+ * {@code refCount} counts the {@link FileDocument}s pointing at it; unreferenced blobs are removed
+ * by {@link uit.carbon_shop.service.ContentBlobService} after a grace period. Rows are written with
+ * conditional statements of {@link uit.carbon_shop.repos.ContentBlobRepository} only.
+ */
+@Entity
+@Table(name = "ContentBlobs")
+@Getter
+@Setter
+public class ContentBlob {
+
+    @Id
+    @Column(nullable = false, updatable = false, length = 64)
+    private String id;
+
+    @Column(nullable = false, updatable = false)
+    private Long length;
+
+    @Column(nullable = false)
+    private long refCount;
+
+    @Column(nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @Column(nullable = false)
+    private OffsetDateTime updatedAt;
+
+}
@@ -0,0 +1,71 @@
+package uit.carbon_shop.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+
+/**
+ * Inbox entry of one participant of a conversation, maintained whenever a {@link ChatMessage} is
+ * created.
+ */
+@Entity
+@Table(
+        name = "Conversations",
+        indexes = @Index(name = "idx_conversations_owner_activity", columnList = "owner_id, last_activity_at"),
+        uniqueConstraints = @UniqueConstraint(name = "uk_conversations_owner_conversation",
+                columnNames = {"owner_id", "conversation_id"})
+)
+@EntityListeners(AuditingEntityListener.class)
+@Getter
+@Setter
+public class Conversation implements AssignedIdEntity {
+
+    @Id
+    @Column(nullable = false, updatable = false)
+    private Long id;
+
+    @Column(nullable = false)
+    private UUID conversationId;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "owner_id", nullable = false)
+    private AppUser owner;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "peer_id", nullable = false)
+    private AppUser peer;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "last_message_id")
+    private ChatMessage lastMessage;
+
+    @Column(nullable = false)
+    private OffsetDateTime lastActivityAt;
+
+    @Column(nullable = false)
+    private int unreadCount;
+
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(nullable = false)
+    private OffsetDateTime updatedAt;
+
+}
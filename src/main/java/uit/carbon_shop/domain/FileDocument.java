@@ -25,7 +25,7 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
-public class FileDocument {
+public class FileDocument implements AssignedIdEntity {
 
     @Id
     @Column(nullable = false, updatable = false)
@@ -47,6 +47,10 @@ public class FileDocument {
     @ContentLength
     private Long contentLength;
 
+    // set for content stored by ContentBlobService, which also serves it; contentId is the hash then
+    @Column(length = 64)
+    private String contentHash;
+
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private OffsetDateTime createdAt;
@@ -7,9 +7,11 @@ import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -24,11 +26,15 @@ import uit.carbon_shop.model.OrderStatus;
 
 
 @Entity
-@Table(name = "Orders")
+@Table(
+        name = "Orders",
+        indexes = @Index(name = "idx_orders_seller_company_status_created",
+                columnList = "seller_company_id, status, created_at")
+)
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
-public class Order {
+public class Order implements AssignedIdEntity {
 
     @Id
     @Column(nullable = false, updatable = false)
@@ -46,6 +52,15 @@ public class Order {
     @Column
     private String total;
 
+    @Column(precision = 19, scale = 4)
+    private BigDecimal unitPrice;
+
+    @Column(length = 3)
+    private String currency;
+
+    @Column(precision = 19, scale = 4)
+    private BigDecimal totalAmount;
+
     @Column
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
@@ -73,6 +88,14 @@ public class Order {
     @JoinColumn(name = "project_id")
     private Project project;
 
+    /**
+     * Owner company of {@link #project} when the order was placed, copied so that seller listings
+     * don't need to join projects. Never changes after creation.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "seller_company_id", updatable = false)
+    private Company sellerCompany;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "process_by_id")
     private AppUser processBy;
@@ -0,0 +1,34 @@
+package uit.carbon_shop.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import uit.carbon_shop.model.OrderStatus;
+
+
+/**
+ * Read-only listing row of {@link Order} with foreign keys as plain ids, selected through a
+ * constructor expression so no managed entity is created.
+ */
+public record OrderListProjection(
+        Long id,
+        Long creditAmount,
+        String unit,
+        String price,
+        String total,
+        BigDecimal unitPrice,
+        String currency,
+        BigDecimal totalAmount,
+        OrderStatus status,
+        Long paymentBillFile,
+        Long contractFile,
+        List<Long> certImages,
+        LocalDateTime contractSignDate,
+        LocalDateTime payDate,
+        LocalDateTime deliveryDate,
+        Long projectId,
+        Long sellerCompanyId,
+        Long processById,
+        Long createdById
+) {
+}
@@ -1,16 +1,19 @@
 package uit.carbon_shop.domain;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -26,11 +29,18 @@ import uit.carbon_shop.model.ProjectStatus;
 
 
 @Entity
-@Table(name = "Projects")
+@Table(
+        name = "Projects",
+        indexes = {
+                @Index(name = "idx_projects_status_currency_unit_price", columnList = "status, currency, unit_price"),
+                @Index(name = "idx_projects_status_credit_amount", columnList = "status, credit_amount"),
+                @Index(name = "idx_projects_status_rating_average", columnList = "status, rating_average")
+        }
+)
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
-public class Project {
+public class Project implements AssignedIdEntity {
 
     @Id
     @Column(nullable = false, updatable = false)
@@ -69,6 +79,12 @@ public class Project {
     @Column
     private String price;
 
+    @Column(precision = 19, scale = 4)
+    private BigDecimal unitPrice;
+
+    @Column(length = 3)
+    private String currency;
+
     @Column
     private String methodPayment;
 
@@ -94,6 +110,9 @@ public class Project {
     @OneToMany(mappedBy = "project")
     private Set<ProjectReview> projectReviews;
 
+    @Embedded
+    private RatingAggregate rating = new RatingAggregate();
+
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private OffsetDateTime createdAt;
@@ -0,0 +1,92 @@
+package uit.carbon_shop.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
+import uit.carbon_shop.model.ProjectCardDTO;
+import uit.carbon_shop.model.ProjectStatus;
+
+
+/**
+ * Denormalized listing row of a project, keyed by the project id and maintained by
+ * {@link uit.carbon_shop.service.ProjectCardService}. The complete card is kept as JSON; status,
+ * owner and the sortable figures are copied into columns for filtering and ordering.
+ */
+@Entity
+@Table(
+        name = "ProjectCards",
+        indexes = {
+                @Index(name = "idx_project_cards_status_id", columnList = "status, id"),
+                @Index(name = "idx_project_cards_owner_company", columnList = "owner_company_id")
+        }
+)
+@Getter
+@Setter
+public class ProjectCard implements Persistable<Long> {
+
+    @Id
+    @Column(nullable = false, updatable = false)
+    private Long id;
+
+    @Column
+    @Enumerated(EnumType.STRING)
+    private ProjectStatus status;
+
+    @Column
+    private Long ownerCompanyId;
+
+    @Column(precision = 19, scale = 4)
+    private BigDecimal unitPrice;
+
+    @Column
+    private Long creditAmount;
+
+    @Column
+    private Double averageRating;
+
+    @Column(nullable = false)
+    private long reviewCount;
+
+    @Column(nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false)
+    private long favoriteCount;
+
+    @Column(nullable = false)
+    @JdbcTypeCode(SqlTypes.JSON)
+    private ProjectCardDTO card;
+
+    @Column(nullable = false)
+    private OffsetDateTime refreshedAt;
+
+    // cards are written by id, so a new one is persisted without the SELECT of a merge
+    @Transient
+    private boolean stored;
+
+    @Override
+    public boolean isNew() {
+        return !stored;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markStored() {
+        stored = true;
+    }
+
+}
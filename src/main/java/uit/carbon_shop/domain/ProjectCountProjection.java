@@ -0,0 +1,10 @@
+package uit.carbon_shop.domain;
+
+/**
+ * Number of rows referencing a project, e.g. its orders or the users keeping it as a favorite.
+ */
+public record ProjectCountProjection(
+        Long projectId,
+        Long count
+) {
+}
@@ -0,0 +1,35 @@
+package uit.carbon_shop.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import uit.carbon_shop.model.ProjectStatus;
+
+
+/**
+ * Read-only listing row of {@link Project} with foreign keys as plain ids, selected through a
+ * constructor expression so no managed entity is created.
+ */
+public record ProjectListProjection(
+        Long id,
+        String name,
+        String address,
+        String size,
+        LocalDateTime timeStart,
+        LocalDateTime timeEnd,
+        String produceCarbonRate,
+        String partner,
+        String auditByOrg,
+        Long creditAmount,
+        String cert,
+        String price,
+        BigDecimal unitPrice,
+        String currency,
+        String methodPayment,
+        List<Long> projectImages,
+        ProjectStatus status,
+        Long ownerCompanyId,
+        Long auditById,
+        RatingAggregate rating
+) {
+}
@@ -17,6 +17,8 @@ import java.util.List;
 import java.util.Set;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 import org.springframework.data.annotation.CreatedDate;
@@ -26,10 +28,11 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @Entity
 @Table(name = "ProjectReviews")
+@DynamicUpdate
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
-public class ProjectReview {
+public class ProjectReview implements AssignedIdEntity {
 
     @Id
     @Column(nullable = false, updatable = false)
@@ -56,6 +59,13 @@ public class ProjectReview {
     @ManyToMany(mappedBy = "likeProjectReviews")
     private Set<AppUser> likeBy;
 
+    /**
+     * Denormalized size of {@link #likeBy}, maintained by {@link uit.carbon_shop.service.ReviewLikeService}.
+     */
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private int likeCount;
+
     @CreatedDate
     @Column(nullable = false, updatable = false)
     private OffsetDateTime createdAt;
@@ -24,7 +24,7 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @EntityListeners(AuditingEntityListener.class)
 @Getter
 @Setter
-public class Question {
+public class Question implements AssignedIdEntity {
 
     @Id
     @Column(nullable = false, updatable = false)
@@ -0,0 +1,46 @@
+package uit.carbon_shop.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Running totals of the 1 to 5 star rates given to a company or project. The columns are only
+ * written by the {@code addRating} and {@code reconcileRatings} repository updates, never by saving
+ * the owning entity, so a stale entity can't overwrite a concurrent change.
+ */
+@Embeddable
+@Getter
+@Setter
+public class RatingAggregate {
+
+    @Column(name = "rating_count", nullable = false, updatable = false)
+    private long reviewCount;
+
+    @Column(name = "rating_sum", nullable = false, updatable = false)
+    private long rateSum;
+
+    @Column(name = "rating_star1", nullable = false, updatable = false)
+    private long stars1;
+
+    @Column(name = "rating_star2", nullable = false, updatable = false)
+    private long stars2;
+
+    @Column(name = "rating_star3", nullable = false, updatable = false)
+    private long stars3;
+
+    @Column(name = "rating_star4", nullable = false, updatable = false)
+    private long stars4;
+
+    @Column(name = "rating_star5", nullable = false, updatable = false)
+    private long stars5;
+
+    /**
+     * {@link #rateSum} divided by {@link #reviewCount}, stored so that listings can sort by it.
+     */
+    @Column(name = "rating_average", updatable = false)
+    private Double average;
+
+}
@@ -0,0 +1,15 @@
+package uit.carbon_shop.domain;
+
+/**
+ * Row of a ranked full-text search over projects or companies.
+ */
+public interface SearchHit {
+
+    Long getId();
+
+    /**
+     * HTML escaped fragments of the matched document with {@code <mark>} around the hits.
+     */
+    String getHighlight();
+
+}
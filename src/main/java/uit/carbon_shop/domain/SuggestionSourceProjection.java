@@ -0,0 +1,11 @@
+package uit.carbon_shop.domain;
+
+/**
+ * Name of a project or company with its popularity, the source of the type-ahead suggestions.
+ */
+public record SuggestionSourceProjection(
+        Long id,
+        String name,
+        Long weight
+) {
+}
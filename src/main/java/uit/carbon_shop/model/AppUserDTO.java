@@ -5,8 +5,8 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
-import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 import lombok.Getter;
 import lombok.Setter;
 import uit.carbon_shop.util.WebUtils;
@@ -14,7 +14,7 @@ import uit.carbon_shop.util.WebUtils;
 
 @Getter
 @Setter
-public class AppUserDTO {
+public class AppUserDTO implements FileReferencing {
 
     private Long userId;
 
@@ -23,13 +23,6 @@ public class AppUserDTO {
     @Schema(hidden = true)
     private String password;
 
-    @Size(max = 255)
-    @Schema(hidden = true)
-    private String resetPasswordUid;
-
-    @Schema(hidden = true)
-    private OffsetDateTime resetPasswordStart;
-
     @Size(max = 255)
     private String name;
 
@@ -60,4 +53,9 @@ public class AppUserDTO {
 
     private List<Long> likeProjectReviews;
 
+    @Override
+    public Stream<Long> fileIds() {
+        return Stream.ofNullable(avatar);
+    }
+
 }
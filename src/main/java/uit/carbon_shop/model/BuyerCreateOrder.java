@@ -1,5 +1,6 @@
 package uit.carbon_shop.model;
 
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
@@ -10,6 +11,8 @@ import lombok.Setter;
 public class BuyerCreateOrder {
 
     private Long projectId;
+
+    @Positive
     private Long creditAmount;
 
 }
@@ -1,5 +1,7 @@
 package uit.carbon_shop.model;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Size;
 import java.util.List;
 import lombok.Getter;
@@ -13,6 +15,8 @@ public class BuyerReviewCompanyDTO {
     @Size(max = 255)
     private String message;
 
+    @Min(1)
+    @Max(5)
     private Integer rate;
 
     private List<Long> images;
@@ -3,14 +3,16 @@ package uit.carbon_shop.model;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.stream.Stream;
 import lombok.Getter;
 import lombok.Setter;
 
 
 @Getter
 @Setter
-public class ChatMessageDTO {
+public class ChatMessageDTO implements FileReferencing {
 
     private Long id;
 
@@ -34,4 +36,9 @@ public class ChatMessageDTO {
 
     private LocalDateTime createdAt;
 
+    @Override
+    public Stream<Long> fileIds() {
+        return Stream.of(fileId, imageId, videoId, audioId).filter(Objects::nonNull);
+    }
+
 }
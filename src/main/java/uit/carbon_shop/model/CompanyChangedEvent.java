@@ -0,0 +1,9 @@
+package uit.carbon_shop.model;
+
+/**
+ * Published when a company is created, changed or deleted, inside the transaction if there is one.
+ */
+public record CompanyChangedEvent(
+        Long companyId
+) {
+}
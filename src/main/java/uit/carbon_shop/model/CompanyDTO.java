@@ -1,5 +1,6 @@
 package uit.carbon_shop.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
@@ -28,4 +29,12 @@ public class CompanyDTO {
 
     private CompanyStatus status;
 
+    private RatingDTO rating;
+
+    /**
+     * Matched fragments with {@code <mark>} around the hits, only set on full-text search results.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String highlight;
+
 }
@@ -1,20 +1,25 @@
 package uit.carbon_shop.model;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Size;
 import java.util.List;
+import java.util.stream.Stream;
 import lombok.Getter;
 import lombok.Setter;
 
 
 @Getter
 @Setter
-public class CompanyReviewDTO {
+public class CompanyReviewDTO implements FileReferencing {
 
     private Long id;
 
     @Size(max = 255)
     private String message;
 
+    @Min(1)
+    @Max(5)
     private Integer rate;
 
     private List<Long> images;
@@ -25,4 +30,9 @@ public class CompanyReviewDTO {
 
     private int likeCount;
 
+    @Override
+    public Stream<Long> fileIds() {
+        return images == null ? Stream.empty() : images.stream();
+    }
+
 }
@@ -14,4 +14,6 @@ public class ContactItemDTO {
 
     private ChatMessageDTO latestMessage;
 
+    private int unreadCount;
+
 }
@@ -0,0 +1,63 @@
+package uit.carbon_shop.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import lombok.Getter;
+
+
+/**
+ * Page of a keyset scroll. {@code next} is passed as {@code after} and {@code previous} as
+ * {@code before} to continue; no total count is computed.
+ */
+@Getter
+public class CursorPagedModel<T> {
+
+    private final List<T> content;
+    private final int size;
+    private final String next;
+    private final String previous;
+
+    public CursorPagedModel(final List<T> content, final int size, final String next, final String previous) {
+        this.content = content;
+        this.size = size;
+        this.next = next;
+        this.previous = previous;
+    }
+
+    /**
+     * Build the page from rows read with {@link CursorRequest#pageable}.
+     */
+    public static <T> CursorPagedModel<T> of(final List<T> rows, final CursorRequest request,
+            final Function<T, String> cursorOf) {
+        final boolean more = rows.size() > request.size();
+        final List<T> content = new ArrayList<>(more ? rows.subList(0, request.size()) : rows);
+        if (content.isEmpty()) {
+            return new CursorPagedModel<>(List.of(), request.size(), null, null);
+        }
+        if (request.isBackward()) {
+            Collections.reverse(content);
+        }
+        final String first = cursorOf.apply(content.getFirst());
+        final String last = cursorOf.apply(content.getLast());
+        if (request.isBackward()) {
+            return new CursorPagedModel<>(content, request.size(), last, more ? first : null);
+        }
+        return new CursorPagedModel<>(content, request.size(), more ? last : null,
+                request.hasCursor() ? first : null);
+    }
+
+    public <U> CursorPagedModel<U> map(final Function<? super T, ? extends U> converter) {
+        return new CursorPagedModel<>(content.stream().<U>map(converter).toList(), size, next, previous);
+    }
+
+    public boolean isHasNext() {
+        return next != null;
+    }
+
+    public boolean isHasPrevious() {
+        return previous != null;
+    }
+
+}
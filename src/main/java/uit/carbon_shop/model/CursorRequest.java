@@ -0,0 +1,62 @@
+package uit.carbon_shop.model;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import uit.carbon_shop.util.CursorToken;
+import uit.carbon_shop.util.InvalidCursorException;
+
+
+/**
+ * Keyset page request. {@code after} continues with the rows following a cursor, {@code before}
+ * with the rows preceding it; without either the first page is returned.
+ */
+public record CursorRequest(String after, String before, int size) {
+
+    public static final int MAX_SIZE = 100;
+
+    public CursorRequest {
+        if (after != null && before != null) {
+            throw new InvalidCursorException("after and before are mutually exclusive");
+        }
+        size = Math.clamp(size, 1, MAX_SIZE);
+    }
+
+    public boolean isBackward() {
+        return before != null;
+    }
+
+    public boolean hasCursor() {
+        return after != null || before != null;
+    }
+
+    public long[] keys(final int keyCount) {
+        return CursorToken.decode(isBackward() ? before : after, keyCount);
+    }
+
+    /**
+     * Exclusive lower id bound for id ordered scrolling.
+     */
+    public long lowerId() {
+        return after == null ? Long.MIN_VALUE : CursorToken.decode(after, 1)[0];
+    }
+
+    /**
+     * Exclusive upper id bound for id ordered scrolling.
+     */
+    public long upperId() {
+        return before == null ? Long.MAX_VALUE : CursorToken.decode(before, 1)[0];
+    }
+
+    /**
+     * One row more than requested, so the presence of a further page is known without counting.
+     * Backward requests are read in reverse order and flipped by {@link CursorPagedModel}.
+     */
+    public Pageable pageable(final Sort.Direction direction, final String... properties) {
+        final Sort.Direction readDirection = isBackward()
+                ? (direction == Sort.Direction.ASC ? Sort.Direction.DESC : Sort.Direction.ASC)
+                : direction;
+        return PageRequest.of(0, size + 1, Sort.by(readDirection, properties));
+    }
+
+}
@@ -0,0 +1,19 @@
+package uit.carbon_shop.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonAppend;
+import java.util.stream.Stream;
+import uit.carbon_shop.config.FileUrlsPropertyWriter;
+
+
+/**
+ * A DTO holding ids of uploaded files. Its JSON gets a {@code fileUrls} object next to the ids,
+ * mapping each to a signed download URL.
+ */
+@JsonAppend(props = @JsonAppend.Prop(value = FileUrlsPropertyWriter.class, name = "fileUrls",
+        include = JsonInclude.Include.NON_NULL))
+public interface FileReferencing {
+
+    Stream<Long> fileIds();
+
+}
@@ -0,0 +1,56 @@
+package uit.carbon_shop.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+
+/**
+ * Downscaled renditions of uploaded images, requested as {@code ?variant=<param>}.
+ */
+public enum ImageVariant {
+
+    THUMB(320),
+    ;
+
+    /**
+     * Image formats variants are encoded in.
+     */
+    public static final List<String> FORMATS = List.of("jpeg", "png");
+
+    // longest edge in pixels
+    private final int size;
+
+    ImageVariant(final int size) {
+        this.size = size;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String param() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public String fileName(final String format) {
+        return param() + "." + format;
+    }
+
+    /**
+     * Stored names of every variant in every format.
+     */
+    public static List<String> fileNames() {
+        return Arrays.stream(values())
+                .flatMap(variant -> FORMATS.stream().map(variant::fileName))
+                .toList();
+    }
+
+    public static Optional<ImageVariant> fromParam(final String param) {
+        return Arrays.stream(values())
+                .filter(variant -> variant.param().equalsIgnoreCase(param))
+                .findFirst();
+    }
+
+}
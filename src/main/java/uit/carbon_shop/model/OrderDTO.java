@@ -1,15 +1,18 @@
 package uit.carbon_shop.model;
 
 import jakarta.validation.constraints.Size;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
 import lombok.Getter;
 import lombok.Setter;
 
 
 @Getter
 @Setter
-public class OrderDTO {
+public class OrderDTO implements FileReferencing {
 
     private Long orderId;
 
@@ -24,6 +27,13 @@ public class OrderDTO {
     @Size(max = 255)
     private String total;
 
+    private BigDecimal unitPrice;
+
+    @Size(max = 3)
+    private String currency;
+
+    private BigDecimal totalAmount;
+
     private OrderStatus status;
 
     private Long paymentBillFile;
@@ -34,6 +44,8 @@ public class OrderDTO {
 
     private Long project;
 
+    private Long sellerCompany;
+
     private Long processBy;
 
     private Long createdBy;
@@ -44,4 +56,10 @@ public class OrderDTO {
 
     private LocalDateTime deliveryDate;
 
+    @Override
+    public Stream<Long> fileIds() {
+        return Stream.concat(Stream.of(paymentBillFile, contractFile).filter(Objects::nonNull),
+                certImages == null ? Stream.empty() : certImages.stream());
+    }
+
 }
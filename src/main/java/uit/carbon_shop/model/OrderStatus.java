@@ -1,5 +1,8 @@
 package uit.carbon_shop.model;
 
+import java.util.Arrays;
+import java.util.List;
+
 
 public enum OrderStatus {
 
@@ -17,4 +20,13 @@ public enum OrderStatus {
         };
     }
 
+    /**
+     * Statuses from which {@link #canUpdateTo} allows the transition to this one.
+     */
+    public List<OrderStatus> updatableFrom() {
+        return Arrays.stream(values())
+                .filter(from -> from.canUpdateTo(this))
+                .toList();
+    }
+
 }
@@ -0,0 +1,11 @@
+package uit.carbon_shop.model;
+
+import org.springframework.data.domain.Page;
+
+public class PagedProjectCardDTO extends PagedModel<ProjectCardDTO> {
+
+    public PagedProjectCardDTO(Page<ProjectCardDTO> delegate) {
+        super(delegate);
+    }
+
+}
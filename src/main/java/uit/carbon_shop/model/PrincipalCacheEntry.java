@@ -0,0 +1,19 @@
+package uit.carbon_shop.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Cached subset of an approved user needed to build the authenticated principal. The password
+ * hash is intentionally not part of it.
+ */
+@Getter
+@Setter
+public class PrincipalCacheEntry {
+
+    private Long userId;
+    private String username;
+    private UserRole role;
+
+}
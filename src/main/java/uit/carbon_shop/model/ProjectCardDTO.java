@@ -0,0 +1,33 @@
+package uit.carbon_shop.model;
+
+import java.time.OffsetDateTime;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Everything a project card shows, read from the {@code project_cards} read model. The figures
+ * were current at {@link #refreshedAt}.
+ */
+@EqualsAndHashCode
+@Getter
+@Setter
+public class ProjectCardDTO {
+
+    private ProjectDTO project;
+
+    private String ownerCompanyName;
+
+    private Double averageRating;
+
+    private long reviewCount;
+
+    private long orderCount;
+
+    private long favoriteCount;
+
+    @EqualsAndHashCode.Exclude
+    private OffsetDateTime refreshedAt;
+
+}
@@ -0,0 +1,9 @@
+package uit.carbon_shop.model;
+
+/**
+ * Published inside the transaction that creates, changes or deletes a project.
+ */
+public record ProjectChangedEvent(
+        Long projectId
+) {
+}
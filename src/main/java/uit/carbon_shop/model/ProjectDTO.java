@@ -1,15 +1,20 @@
 package uit.carbon_shop.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.Size;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 
 
+@EqualsAndHashCode
 @Getter
 @Setter
-public class ProjectDTO {
+public class ProjectDTO implements FileReferencing {
 
     private Long projectId;
 
@@ -41,6 +46,11 @@ public class ProjectDTO {
     @Size(max = 255)
     private String price;
 
+    private BigDecimal unitPrice;
+
+    @Size(max = 3)
+    private String currency;
+
     @Size(max = 255)
     private String methodPayment;
 
@@ -52,4 +62,17 @@ public class ProjectDTO {
 
     private Long auditBy;
 
+    private RatingDTO rating;
+
+    /**
+     * Matched fragments with {@code <mark>} around the hits, only set on full-text search results.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String highlight;
+
+    @Override
+    public Stream<Long> fileIds() {
+        return projectImages == null ? Stream.empty() : projectImages.stream();
+    }
+
 }
@@ -0,0 +1,28 @@
+package uit.carbon_shop.model;
+
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Counts of the listed projects per facet value. The status counts ignore the status filter, the
+ * other facets hold at most the most frequent values.
+ */
+@Getter
+@Setter
+public class ProjectFacetsDTO {
+
+    private long total;
+
+    private Map<ProjectStatus, Long> status;
+
+    private Map<Long, Long> ownerCompany;
+
+    private Map<String, Long> auditByOrg;
+
+    private Map<String, Long> cert;
+
+    private Map<String, Long> priceBand;
+
+}
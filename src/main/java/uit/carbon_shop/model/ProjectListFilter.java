@@ -0,0 +1,43 @@
+package uit.carbon_shop.model;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.StringUtils;
+import uit.carbon_shop.util.StaticConstants;
+
+
+/**
+ * Optional bounds on the unit price and the credit amount of listed projects. Unit prices only
+ * compare within one currency, so price bounds without a currency apply to the default currency.
+ */
+public record ProjectListFilter(
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        Long minCredits,
+        String currency
+) {
+
+    public ProjectListFilter {
+        currency = StringUtils.hasText(currency) ? currency.trim().toUpperCase(Locale.ROOT) : null;
+        if (currency == null && (minPrice != null || maxPrice != null)) {
+            currency = StaticConstants.DEFAULT_CURRENCY;
+        }
+    }
+
+    /**
+     * This filter for a listing in the given order: sorting by unit price without a currency lists
+     * the default currency only.
+     */
+    public ProjectListFilter sortedBy(final Sort sort) {
+        if (currency != null || sort.getOrderFor("unitPrice") == null) {
+            return this;
+        }
+        return new ProjectListFilter(minPrice, maxPrice, minCredits, StaticConstants.DEFAULT_CURRENCY);
+    }
+
+    public boolean isEmpty() {
+        return minPrice == null && maxPrice == null && minCredits == null && currency == null;
+    }
+
+}
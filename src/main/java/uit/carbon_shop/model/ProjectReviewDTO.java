@@ -1,7 +1,10 @@
 package uit.carbon_shop.model;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Size;
 import java.util.List;
+import java.util.stream.Stream;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
@@ -10,13 +13,15 @@ import lombok.Setter;
 @Getter
 @Setter
 @Data
-public class ProjectReviewDTO {
+public class ProjectReviewDTO implements FileReferencing {
 
     private Long id;
 
     @Size(max = 255)
     private String message;
 
+    @Min(1)
+    @Max(5)
     private Integer rate;
 
     private List<Long> images;
@@ -27,4 +32,9 @@ public class ProjectReviewDTO {
 
     private int likeCount;
 
+    @Override
+    public Stream<Long> fileIds() {
+        return images == null ? Stream.empty() : images.stream();
+    }
+
 }
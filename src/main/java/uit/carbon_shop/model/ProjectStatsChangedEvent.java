@@ -0,0 +1,11 @@
+package uit.carbon_shop.model;
+
+/**
+ * Published inside the transaction that writes one of the orders, reviews and favorites counted on
+ * the card of a project. Only the project card follows it; listings and suggestions pick the
+ * figures up at their periodic rebuild.
+ */
+public record ProjectStatsChangedEvent(
+        Long projectId
+) {
+}
@@ -1,5 +1,8 @@
 package uit.carbon_shop.model;
 
+import java.util.Arrays;
+import java.util.List;
+
 
 public enum ProjectStatus {
 
@@ -15,4 +18,13 @@ public enum ProjectStatus {
         };
     }
 
+    /**
+     * Statuses from which {@link #canUpdateTo} allows the transition to this one.
+     */
+    public List<ProjectStatus> updatableFrom() {
+        return Arrays.stream(values())
+                .filter(from -> from.canUpdateTo(this))
+                .toList();
+    }
+
 }
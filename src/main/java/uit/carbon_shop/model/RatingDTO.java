@@ -0,0 +1,23 @@
+package uit.carbon_shop.model;
+
+import java.util.List;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+
+@EqualsAndHashCode
+@Getter
+@Setter
+public class RatingDTO {
+
+    private long count;
+
+    private Double average;
+
+    /**
+     * Number of 1 to 5 star rates, index 0 holding the 1 star count.
+     */
+    private List<Long> histogram;
+
+}
@@ -1,6 +1,8 @@
 package uit.carbon_shop.model;
 
+import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.validation.constraints.Size;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import lombok.Getter;
@@ -39,6 +41,12 @@ public class SellerRegisterProjectDTO {
     @Size(max = 255)
     private String price;
 
+    @PositiveOrZero
+    private BigDecimal unitPrice;
+
+    @Size(max = 3)
+    private String currency;
+
     @Size(max = 255)
     private String methodPayment;
 
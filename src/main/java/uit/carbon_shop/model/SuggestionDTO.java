@@ -0,0 +1,19 @@
+package uit.carbon_shop.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDTO {
+
+    private SuggestionType type;
+    private Long id;
+    private String name;
+
+}
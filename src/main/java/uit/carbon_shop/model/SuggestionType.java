@@ -0,0 +1,8 @@
+package uit.carbon_shop.model;
+
+public enum SuggestionType {
+
+    PROJECT,
+    COMPANY
+
+}
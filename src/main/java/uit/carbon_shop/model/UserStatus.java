@@ -1,5 +1,8 @@
 package uit.carbon_shop.model;
 
+import java.util.Arrays;
+import java.util.List;
+
 
 public enum UserStatus {
 
@@ -15,4 +18,13 @@ public enum UserStatus {
         };
     }
 
+    /**
+     * Statuses from which {@link #canUpdateTo} allows the transition to this one.
+     */
+    public List<UserStatus> updatableFrom() {
+        return Arrays.stream(values())
+                .filter(from -> from.canUpdateTo(this))
+                .toList();
+    }
+
 }
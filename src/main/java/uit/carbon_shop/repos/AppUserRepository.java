@@ -1,14 +1,20 @@
 package uit.carbon_shop.repos;
 
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import uit.carbon_shop.domain.AppUser;
 import uit.carbon_shop.domain.Company;
 import uit.carbon_shop.domain.CompanyReview;
 import uit.carbon_shop.domain.Project;
+import uit.carbon_shop.domain.ProjectCountProjection;
 import uit.carbon_shop.model.UserStatus;
 import uit.carbon_shop.domain.ProjectReview;
 
@@ -37,10 +43,26 @@ public interface AppUserRepository extends JpaRepository<AppUser, Long> {
 
     List<AppUser> findAllByLikeProjectReviews(ProjectReview projectReview);
 
+    @Query("select new uit.carbon_shop.domain.ProjectCountProjection(f.id, count(u)) from AppUser u "
+            + "join u.favoriteProjects f where f.id in :projectIds group by f.id")
+    List<ProjectCountProjection> countFavoritesByProjects(Collection<Long> projectIds);
+
     boolean existsByCompanyId(Long id);
 
     Optional<AppUser> findByCompany_Id(Long id);
 
     Page<AppUser> findByStatus(UserStatus status, Pageable pageable);
 
+    @Query("select u.email from AppUser u where u.id = :id")
+    String findEmailById(Long id);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update AppUser u set u.status = :status, "
+            + "u.approvedAt = coalesce(:approvedAt, u.approvedAt), "
+            + "u.rejectedAt = coalesce(:rejectedAt, u.rejectedAt), "
+            + "u.updatedAt = :updatedAt "
+            + "where u.id = :id and u.status in :from")
+    int updateStatus(Long id, Collection<UserStatus> from, UserStatus status, LocalDateTime approvedAt,
+            LocalDateTime rejectedAt, OffsetDateTime updatedAt);
+
 }
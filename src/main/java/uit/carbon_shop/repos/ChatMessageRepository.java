@@ -1,5 +1,6 @@
 package uit.carbon_shop.repos;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,10 +23,26 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
 
     Page<ChatMessage> findByConversationIdOrderByCreatedAtDesc(UUID conversationId, Pageable pageable);
 
+    List<ChatMessage> findByConversationId(UUID conversationId, Pageable pageable);
+
+    @Query("select m from ChatMessage m where m.conversationId = :conversationId "
+            + "and (m.createdAt < :createdAt or (m.createdAt = :createdAt and m.id < :id))")
+    List<ChatMessage> scrollOlder(UUID conversationId, OffsetDateTime createdAt, Long id, Pageable pageable);
+
+    @Query("select m from ChatMessage m where m.conversationId = :conversationId "
+            + "and (m.createdAt > :createdAt or (m.createdAt = :createdAt and m.id > :id))")
+    List<ChatMessage> scrollNewer(UUID conversationId, OffsetDateTime createdAt, Long id, Pageable pageable);
+
     Optional<ChatMessage> findFirstByConversationIdOrderByCreatedAtDesc(UUID conversationId);
 
+    Optional<ChatMessage> findFirstByConversationIdAndIdNotOrderByCreatedAtDesc(UUID conversationId, Long id);
+
     Optional<ChatMessage> findFirstBySender_IdAndReceiver_Id(Long id, Long id1);
 
+    @Query("select distinct m.conversationId from ChatMessage m where m.conversationId > :after "
+            + "order by m.conversationId")
+    List<UUID> findConversationIdsAfter(UUID after, Pageable pageable);
+
     ChatMessage findFirstBySender(AppUser appUser);
 
     ChatMessage findFirstByReceiver(AppUser appUser);
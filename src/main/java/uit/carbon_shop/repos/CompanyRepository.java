@@ -1,13 +1,89 @@
 package uit.carbon_shop.repos;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import uit.carbon_shop.domain.Company;
+import uit.carbon_shop.domain.SearchHit;
+import uit.carbon_shop.domain.SuggestionSourceProjection;
+import uit.carbon_shop.model.CompanyStatus;
 
 
 public interface CompanyRepository extends JpaRepository<Company, Long> {
 
+    // popularity: orders sold plus projects listed
+    String SUGGESTION_SELECT = "select new uit.carbon_shop.domain.SuggestionSourceProjection(c.id, c.name, "
+            + "(select count(o) from Order o where o.sellerCompany = c) "
+            + "+ (select count(p) from Project p where p.ownerCompany = c)) "
+            + "from Company c where c.status = :status ";
+
     Page<Company> findAllById(Long id, Pageable pageable);
 
+    @Modifying(flushAutomatically = true)
+    @Query("update Company c set c.rating.reviewCount = c.rating.reviewCount + :count, "
+            + "c.rating.rateSum = c.rating.rateSum + :sum, "
+            + "c.rating.stars1 = c.rating.stars1 + :stars1, c.rating.stars2 = c.rating.stars2 + :stars2, "
+            + "c.rating.stars3 = c.rating.stars3 + :stars3, c.rating.stars4 = c.rating.stars4 + :stars4, "
+            + "c.rating.stars5 = c.rating.stars5 + :stars5, "
+            + "c.rating.average = case when c.rating.reviewCount + :count = 0 then null "
+            + "else (c.rating.rateSum + :sum) * 1.0 / (c.rating.reviewCount + :count) end "
+            + "where c.id = :id")
+    int addRating(Long id, long count, long sum, long stars1, long stars2, long stars3, long stars4, long stars5);
+
+    @Query("select c.id from Company c where c.id > :lowerId order by c.id")
+    List<Long> findIdsAfter(Long lowerId, Pageable pageable);
+
+    /**
+     * Row lock the given rows in id order, so that reviews committed meanwhile wait for the
+     * reconciliation instead of being missed by it.
+     */
+    @Query(value = "select id from companies where id in :ids order by id for update", nativeQuery = true)
+    List<Long> lockForRatingReconcile(Collection<Long> ids);
+
+    /**
+     * Recompute the rating columns of the given rows from their reviews, touching only drifted rows.
+     *
+     * @return number of rows that had drifted
+     */
+    @Modifying
+    @Query(value = "update companies t set rating_count = a.rating_count, rating_sum = a.rating_sum, "
+            + "rating_star1 = a.star1, rating_star2 = a.star2, rating_star3 = a.star3, rating_star4 = a.star4, "
+            + "rating_star5 = a.star5, rating_average = a.average "
+            + "from (select x.id, count(r.rate) as rating_count, coalesce(sum(r.rate), 0) as rating_sum, "
+            + "count(*) filter (where r.rate = 1) as star1, count(*) filter (where r.rate = 2) as star2, "
+            + "count(*) filter (where r.rate = 3) as star3, count(*) filter (where r.rate = 4) as star4, "
+            + "count(*) filter (where r.rate = 5) as star5, cast(avg(r.rate) as double precision) as average "
+            + "from companies x left join company_reviews r on r.company_id = x.id and r.rate between 1 and 5 "
+            + "where x.id in :ids group by x.id) a "
+            + "where t.id = a.id and (t.rating_count <> a.rating_count or t.rating_sum <> a.rating_sum "
+            + "or t.rating_star1 <> a.star1 or t.rating_star2 <> a.star2 or t.rating_star3 <> a.star3 "
+            + "or t.rating_star4 <> a.star4 or t.rating_star5 <> a.star5 "
+            + "or t.rating_average is distinct from a.average)",
+            nativeQuery = true)
+    int reconcileRatings(Collection<Long> ids);
+
+    /**
+     * Companies matching {@code text} (web search syntax, or a name with typos), best match first.
+     * Any sort of the pageable is ignored. The search columns come from V5__search.sql.
+     */
+    @Query(value = "select c.id as id, search_headline(concat_ws(' ', c.name, c.industry, c.address), q) as highlight "
+            + "from companies c, websearch_to_tsquery('simple', :text) q "
+            + "where c.search_vector @@ q or lower(c.name) % lower(:text) "
+            + "order by ts_rank_cd(c.search_vector, q) + similarity(lower(c.name), lower(:text)) desc, c.id",
+            countQuery = "select count(*) from companies c, websearch_to_tsquery('simple', :text) q "
+                    + "where c.search_vector @@ q or lower(c.name) % lower(:text)",
+            nativeQuery = true)
+    Page<SearchHit> fullTextSearch(String text, Pageable pageable);
+
+    @Query(SUGGESTION_SELECT + "and c.id > :lowerId order by c.id")
+    List<SuggestionSourceProjection> scrollSuggestionSources(CompanyStatus status, Long lowerId, Pageable pageable);
+
+    @Query(SUGGESTION_SELECT + "and c.id = :id")
+    Optional<SuggestionSourceProjection> findSuggestionSource(Long id, CompanyStatus status);
+
 }
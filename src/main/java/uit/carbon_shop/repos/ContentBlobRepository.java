@@ -0,0 +1,53 @@
+package uit.carbon_shop.repos;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import uit.carbon_shop.domain.ContentBlob;
+
+
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+
+    /**
+     * Insert a blob with one reference; 0 when it exists already.
+     */
+    @Modifying
+    @Query(value = """
+            insert into content_blobs (id, length, ref_count, created_at, updated_at)
+            values (:id, :length, 1, now(), now())
+            on conflict (id) do nothing
+            """, nativeQuery = true)
+    int insertIfAbsent(String id, long length);
+
+    /**
+     * Add a reference to an existing blob, locking its row until commit.
+     */
+    @Modifying
+    @Query("update ContentBlob b set b.refCount = b.refCount + 1, b.updatedAt = current_timestamp where b.id = :id")
+    int retain(String id);
+
+    /**
+     * Lock the blob row against the sweep until commit; empty when the blob is gone.
+     */
+    @Query(value = "select id from content_blobs where id = :id for share", nativeQuery = true)
+    Optional<String> lockShared(String id);
+
+    @Modifying
+    @Query("""
+            update ContentBlob b set b.refCount = b.refCount - 1, b.updatedAt = current_timestamp
+            where b.id = :id and b.refCount > 0
+            """)
+    int release(String id);
+
+    @Query("select b.id from ContentBlob b where b.refCount = 0 and b.updatedAt < :before order by b.updatedAt")
+    List<String> findUnreferenced(OffsetDateTime before, Pageable pageable);
+
+    @Modifying
+    @Query("delete from ContentBlob b where b.id = :id and b.refCount = 0")
+    int deleteUnreferenced(String id);
+
+}
@@ -0,0 +1,34 @@
+package uit.carbon_shop.repos;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import uit.carbon_shop.domain.Conversation;
+
+
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+    @Query(value = "select c from Conversation c join fetch c.lastMessage where c.owner.id = :ownerId "
+            + "order by c.lastActivityAt desc",
+            countQuery = "select count(c) from Conversation c where c.owner.id = :ownerId")
+    Page<Conversation> findInbox(Long ownerId, Pageable pageable);
+
+    Optional<Conversation> findByOwner_IdAndConversationId(Long ownerId, UUID conversationId);
+
+    Optional<Conversation> findFirstByOwner_IdAndPeer_Id(Long ownerId, Long peerId);
+
+    boolean existsByConversationId(UUID conversationId);
+
+    List<Conversation> findByLastMessage_Id(Long chatMessageId);
+
+    @Modifying
+    @Query("update Conversation c set c.unreadCount = 0 where c.owner.id = :ownerId "
+            + "and c.conversationId = :conversationId")
+    int markRead(Long ownerId, UUID conversationId);
+
+}
@@ -1,7 +1,31 @@
 package uit.carbon_shop.repos;
 
+import java.util.Collection;
+import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import uit.carbon_shop.domain.FileDocument;
 
 public interface FileDocumentRepository extends JpaRepository<FileDocument, Long> {
+
+    /**
+     * Those of the given files still referenced by a user, project, order, review or chat message.
+     */
+    @Query(value = """
+            select f.id from file_documents f
+            where f.id in (:ids)
+              and (exists (select 1 from app_users u where u.avatar = f.id)
+                or exists (select 1 from projects p where p.project_images @> jsonb_build_array(f.id))
+                or exists (select 1 from orders o where o.payment_bill_file = f.id)
+                or exists (select 1 from orders o where o.contract_file = f.id)
+                or exists (select 1 from orders o where o.cert_images @> jsonb_build_array(f.id))
+                or exists (select 1 from company_reviews r where r.images @> jsonb_build_array(f.id))
+                or exists (select 1 from project_reviews r where r.images @> jsonb_build_array(f.id))
+                or exists (select 1 from chat_messages m where m.file_id = f.id)
+                or exists (select 1 from chat_messages m where m.image_id = f.id)
+                or exists (select 1 from chat_messages m where m.video_id = f.id)
+                or exists (select 1 from chat_messages m where m.audio_id = f.id))
+            """, nativeQuery = true)
+    List<Long> findReferenced(Collection<Long> ids);
+
 }
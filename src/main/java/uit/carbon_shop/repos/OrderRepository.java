@@ -1,29 +1,70 @@
 package uit.carbon_shop.repos;
 
+import jakarta.transaction.Transactional;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import uit.carbon_shop.domain.AppUser;
 import uit.carbon_shop.domain.Order;
+import uit.carbon_shop.domain.OrderListProjection;
 import uit.carbon_shop.domain.Project;
+import uit.carbon_shop.domain.ProjectCountProjection;
 import uit.carbon_shop.model.OrderStatus;
 
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
-    Page<Order> findAllById(Long orderId, Pageable pageable);
+    String LIST_SELECT = "select new uit.carbon_shop.domain.OrderListProjection(o.id, o.creditAmount, o.unit, "
+            + "o.price, o.total, o.unitPrice, o.currency, o.totalAmount, o.status, o.paymentBillFile, "
+            + "o.contractFile, o.certImages, o.contractSignDate, o.payDate, o.deliveryDate, o.project.id, "
+            + "o.sellerCompany.id, o.processBy.id, o.createdBy.id) "
+            + "from Order o ";
+    String LIST_COUNT = "select count(o) from Order o ";
+    String SCROLL_WHERE = "where o.id > :lowerId and o.id < :upperId and (:status is null or o.status = :status) ";
 
-    Page<Order> findByCreatedBy_Id(Long userId, Pageable pageable);
+    @Query(value = LIST_SELECT, countQuery = LIST_COUNT)
+    Page<OrderListProjection> listAll(Pageable pageable);
 
-    Page<Order> findByCreatedBy_IdAndStatus(Long userId, OrderStatus status, Pageable pageable);
+    @Query(value = LIST_SELECT + "where o.id = :id",
+            countQuery = LIST_COUNT + "where o.id = :id")
+    Page<OrderListProjection> listById(Long id, Pageable pageable);
 
-    @Query("select o from Order o where o.project.ownerCompany.id = ?1")
-    Page<Order> findByProject_OwnerCompany_Id(Long id, Pageable pageable);
+    @Query(value = LIST_SELECT + "where o.createdBy.id = :userId",
+            countQuery = LIST_COUNT + "where o.createdBy.id = :userId")
+    Page<OrderListProjection> listByCreatedBy(Long userId, Pageable pageable);
 
-    Page<Order> findByProject_OwnerCompany_IdAndStatus(Long id, OrderStatus status, Pageable pageable);
+    @Query(value = LIST_SELECT + "where o.createdBy.id = :userId and o.status = :status",
+            countQuery = LIST_COUNT + "where o.createdBy.id = :userId and o.status = :status")
+    Page<OrderListProjection> listByCreatedByAndStatus(Long userId, OrderStatus status, Pageable pageable);
 
-    Page<Order> findByStatus(OrderStatus status, Pageable pageable);
+    @Query(value = LIST_SELECT + "where o.sellerCompany.id = :companyId",
+            countQuery = LIST_COUNT + "where o.sellerCompany.id = :companyId")
+    Page<OrderListProjection> listBySellerCompany(Long companyId, Pageable pageable);
+
+    @Query(value = LIST_SELECT + "where o.sellerCompany.id = :companyId and o.status = :status",
+            countQuery = LIST_COUNT + "where o.sellerCompany.id = :companyId and o.status = :status")
+    Page<OrderListProjection> listBySellerCompanyAndStatus(Long companyId, OrderStatus status, Pageable pageable);
+
+    @Query(value = LIST_SELECT + "where o.status = :status",
+            countQuery = LIST_COUNT + "where o.status = :status")
+    Page<OrderListProjection> listByStatus(OrderStatus status, Pageable pageable);
+
+    @Query(LIST_SELECT + SCROLL_WHERE)
+    List<OrderListProjection> scroll(OrderStatus status, Long lowerId, Long upperId, Pageable pageable);
+
+    @Query(LIST_SELECT + SCROLL_WHERE + "and o.createdBy.id = :userId")
+    List<OrderListProjection> scrollByCreatedBy(Long userId, OrderStatus status, Long lowerId, Long upperId,
+            Pageable pageable);
+
+    @Query(LIST_SELECT + SCROLL_WHERE + "and o.sellerCompany.id = :companyId")
+    List<OrderListProjection> scrollBySellerCompany(Long companyId, OrderStatus status, Long lowerId,
+            Long upperId, Pageable pageable);
 
     Order findFirstByProject(Project project);
 
@@ -31,4 +72,31 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     Order findFirstByCreatedBy(AppUser appUser);
 
+    List<Order> findByUnitPriceIsNullAndPriceIsNotNullAndIdGreaterThanOrderById(Long id, Pageable pageable);
+
+    @Query("select o.id from Order o where o.sellerCompany is null and o.project is not null and o.id > :after "
+            + "order by o.id")
+    List<Long> findIdsWithoutSellerCompany(Long after, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update orders o set seller_company_id = p.owner_company_id from projects p "
+            + "where p.id = o.project_id and o.id in :ids and o.seller_company_id is null",
+            nativeQuery = true)
+    int fillSellerCompany(Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("update Order o set o.unitPrice = :unitPrice, o.currency = :currency, o.totalAmount = :totalAmount "
+            + "where o.id = :id")
+    int updatePrice(Long id, BigDecimal unitPrice, String currency, BigDecimal totalAmount);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Order o set o.status = :status, o.updatedAt = :updatedAt where o.id = :id and o.status in :from")
+    int updateStatus(Long id, Collection<OrderStatus> from, OrderStatus status, OffsetDateTime updatedAt);
+
+    @Query("select new uit.carbon_shop.domain.ProjectCountProjection(o.project.id, count(o)) from Order o "
+            + "where o.project.id in :projectIds group by o.project.id")
+    List<ProjectCountProjection> countByProjects(Collection<Long> projectIds);
+
 }
@@ -0,0 +1,37 @@
+package uit.carbon_shop.repos;
+
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import uit.carbon_shop.domain.ProjectCard;
+import uit.carbon_shop.model.ProjectStatus;
+
+
+public interface ProjectCardRepository extends JpaRepository<ProjectCard, Long> {
+
+    Page<ProjectCard> findByStatus(ProjectStatus status, Pageable pageable);
+
+    /**
+     * Locks the stored cards in id order, so concurrent refreshes of overlapping sets do not
+     * deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from ProjectCard c where c.id in :ids order by c.id")
+    List<ProjectCard> findAllForUpdate(Collection<Long> ids);
+
+    @Query("select c.id from ProjectCard c where c.ownerCompanyId = :companyId")
+    List<Long> findIdsByOwnerCompanyId(Long companyId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ProjectCard c where not exists (select p.id from Project p where p.id = c.id)")
+    int deleteOrphans();
+
+}
@@ -1,39 +1,184 @@
 package uit.carbon_shop.repos;
 
+import jakarta.transaction.Transactional;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import uit.carbon_shop.domain.AppUser;
 import uit.carbon_shop.domain.Company;
 import uit.carbon_shop.domain.Project;
+import uit.carbon_shop.domain.ProjectListProjection;
+import uit.carbon_shop.domain.SearchHit;
+import uit.carbon_shop.domain.SuggestionSourceProjection;
 import uit.carbon_shop.model.ProjectStatus;
 
-public interface ProjectRepository extends JpaRepository<Project, Long> {
+public interface ProjectRepository extends JpaRepository<Project, Long>, ProjectSearchRepository {
+
+    String LIST_SELECT = "select new uit.carbon_shop.domain.ProjectListProjection(p.id, p.name, p.address, "
+            + "p.size, p.timeStart, p.timeEnd, p.produceCarbonRate, p.partner, p.auditByOrg, p.creditAmount, "
+            + "p.cert, p.price, p.unitPrice, p.currency, p.methodPayment, p.projectImages, p.status, "
+            + "p.ownerCompany.id, p.auditBy.id, p.rating) "
+            + "from Project p ";
+    String LIST_COUNT = "select count(p) from Project p ";
+    String NAME_CONTAINS = "lower(p.name) like lower(concat('%', :name, '%'))";
+    String SCROLL_WHERE = "where p.id > :lowerId and p.id < :upperId and (:status is null or p.status = :status) "
+            + "and (:name is null or " + NAME_CONTAINS + ") "
+            + "and (:currency is null or p.currency = :currency) "
+            + "and (:minPrice is null or p.unitPrice >= :minPrice) "
+            + "and (:maxPrice is null or p.unitPrice <= :maxPrice) "
+            + "and (:minCredits is null or p.creditAmount >= :minCredits) ";
+    // search_vector, search_headline and the trigram index on lower(name) come from V5__search.sql
+    String FULL_TEXT_FROM = "from projects p, websearch_to_tsquery('simple', :text) q "
+            + "where (p.search_vector @@ q or lower(p.name) % lower(:text)) "
+            + "and (cast(:status as varchar) is null or p.status = cast(:status as varchar)) "
+            + "and (cast(:ownerCompanyId as bigint) is null or p.owner_company_id = cast(:ownerCompanyId as bigint)) "
+            + "and (cast(:excludedCompanyId as bigint) is null "
+            + "or p.owner_company_id <> cast(:excludedCompanyId as bigint)) "
+            + "and (cast(:currency as varchar) is null or p.currency = cast(:currency as varchar)) "
+            + "and (cast(:minPrice as numeric) is null or p.unit_price >= cast(:minPrice as numeric)) "
+            + "and (cast(:maxPrice as numeric) is null or p.unit_price <= cast(:maxPrice as numeric)) "
+            + "and (cast(:minCredits as bigint) is null or p.credit_amount >= cast(:minCredits as bigint)) ";
+    // popularity: orders placed plus users who keep the project as a favorite
+    String SUGGESTION_SELECT = "select new uit.carbon_shop.domain.SuggestionSourceProjection(p.id, p.name, "
+            + "(select count(o) from Order o where o.project = p) "
+            + "+ (select count(u) from AppUser u join u.favoriteProjects f where f = p)) "
+            + "from Project p where p.status = :status ";
+
+    @Query(value = LIST_SELECT, countQuery = LIST_COUNT)
+    Page<ProjectListProjection> listAll(Pageable pageable);
+
+    @Query(value = LIST_SELECT + "where p.id = :id",
+            countQuery = LIST_COUNT + "where p.id = :id")
+    Page<ProjectListProjection> listById(Long id, Pageable pageable);
+
+    @Query(value = LIST_SELECT + "where p.ownerCompany.id = :companyId",
+            countQuery = LIST_COUNT + "where p.ownerCompany.id = :companyId")
+    Page<ProjectListProjection> listByOwnerCompany(Long companyId, Pageable pageable);
+
+    @Query(value = LIST_SELECT + "where p.ownerCompany.id = :companyId and p.status = :status",
+            countQuery = LIST_COUNT + "where p.ownerCompany.id = :companyId and p.status = :status")
+    Page<ProjectListProjection> listByOwnerCompanyAndStatus(Long companyId, ProjectStatus status,
+            Pageable pageable);
+
+    @Query(value = LIST_SELECT + "where p.status = :status",
+            countQuery = LIST_COUNT + "where p.status = :status")
+    Page<ProjectListProjection> listByStatus(ProjectStatus status, Pageable pageable);
+
+    @Query(value = LIST_SELECT + "where p.ownerCompany.id <> :companyId",
+            countQuery = LIST_COUNT + "where p.ownerCompany.id <> :companyId")
+    Page<ProjectListProjection> listByOwnerCompanyNot(Long companyId, Pageable pageable);
+
+    @Query(value = LIST_SELECT + "where p.ownerCompany.id <> :companyId and p.status = :status",
+            countQuery = LIST_COUNT + "where p.ownerCompany.id <> :companyId and p.status = :status")
+    Page<ProjectListProjection> listByOwnerCompanyNotAndStatus(Long companyId, ProjectStatus status,
+            Pageable pageable);
+
+    /**
+     * Projects matching {@code text} (web search syntax, or a name with typos), best match first.
+     * Any sort of the pageable is ignored.
+     */
+    @Query(value = "select p.id as id, "
+            + "search_headline(concat_ws(' ', p.name, p.address, p.partner, p.audit_by_org, p.cert), q) as highlight "
+            + FULL_TEXT_FROM
+            + "order by ts_rank_cd(p.search_vector, q) + similarity(lower(p.name), lower(:text)) desc, p.id",
+            countQuery = "select count(*) " + FULL_TEXT_FROM,
+            nativeQuery = true)
+    Page<SearchHit> fullTextSearch(String text, String status, Long ownerCompanyId, Long excludedCompanyId,
+            String currency, BigDecimal minPrice, BigDecimal maxPrice, Long minCredits, Pageable pageable);
+
+    @Query(LIST_SELECT + "where p.id in :ids")
+    List<ProjectListProjection> listByIds(Collection<Long> ids);
+
+    @Query(LIST_SELECT + SCROLL_WHERE)
+    List<ProjectListProjection> scroll(ProjectStatus status, String name, String currency,
+            BigDecimal minPrice, BigDecimal maxPrice, Long minCredits, Long lowerId, Long upperId,
+            Pageable pageable);
+
+    @Query(LIST_SELECT + SCROLL_WHERE + "and p.ownerCompany.id = :companyId")
+    List<ProjectListProjection> scrollByOwnerCompany(Long companyId, ProjectStatus status, String name,
+            String currency, BigDecimal minPrice, BigDecimal maxPrice, Long minCredits, Long lowerId,
+            Long upperId, Pageable pageable);
+
+    @Query(LIST_SELECT + SCROLL_WHERE + "and p.ownerCompany.id <> :companyId")
+    List<ProjectListProjection> scrollByOwnerCompanyNot(Long companyId, ProjectStatus status, String name,
+            String currency, BigDecimal minPrice, BigDecimal maxPrice, Long minCredits, Long lowerId,
+            Long upperId, Pageable pageable);
+
+    @Query(SUGGESTION_SELECT + "and p.id > :lowerId order by p.id")
+    List<SuggestionSourceProjection> scrollSuggestionSources(ProjectStatus status, Long lowerId, Pageable pageable);
+
+    @Query(SUGGESTION_SELECT + "and p.id = :id")
+    Optional<SuggestionSourceProjection> findSuggestionSource(Long id, ProjectStatus status);
+
+    @Modifying(flushAutomatically = true)
+    @Query("update Project p set p.rating.reviewCount = p.rating.reviewCount + :count, "
+            + "p.rating.rateSum = p.rating.rateSum + :sum, "
+            + "p.rating.stars1 = p.rating.stars1 + :stars1, p.rating.stars2 = p.rating.stars2 + :stars2, "
+            + "p.rating.stars3 = p.rating.stars3 + :stars3, p.rating.stars4 = p.rating.stars4 + :stars4, "
+            + "p.rating.stars5 = p.rating.stars5 + :stars5, "
+            + "p.rating.average = case when p.rating.reviewCount + :count = 0 then null "
+            + "else (p.rating.rateSum + :sum) * 1.0 / (p.rating.reviewCount + :count) end "
+            + "where p.id = :id")
+    int addRating(Long id, long count, long sum, long stars1, long stars2, long stars3, long stars4, long stars5);
+
+    @Query("select p.id from Project p where p.id > :lowerId order by p.id")
+    List<Long> findIdsAfter(Long lowerId, Pageable pageable);
+
+    /**
+     * Row lock the given rows in id order, so that reviews committed meanwhile wait for the
+     * reconciliation instead of being missed by it.
+     */
+    @Query(value = "select id from projects where id in :ids order by id for update", nativeQuery = true)
+    List<Long> lockForRatingReconcile(Collection<Long> ids);
+
+    /**
+     * Recompute the rating columns of the given rows from their reviews, touching only drifted rows.
+     *
+     * @return number of rows that had drifted
+     */
+    @Modifying
+    @Query(value = "update projects t set rating_count = a.rating_count, rating_sum = a.rating_sum, "
+            + "rating_star1 = a.star1, rating_star2 = a.star2, rating_star3 = a.star3, rating_star4 = a.star4, "
+            + "rating_star5 = a.star5, rating_average = a.average "
+            + "from (select x.id, count(r.rate) as rating_count, coalesce(sum(r.rate), 0) as rating_sum, "
+            + "count(*) filter (where r.rate = 1) as star1, count(*) filter (where r.rate = 2) as star2, "
+            + "count(*) filter (where r.rate = 3) as star3, count(*) filter (where r.rate = 4) as star4, "
+            + "count(*) filter (where r.rate = 5) as star5, cast(avg(r.rate) as double precision) as average "
+            + "from projects x left join project_reviews r on r.project_id = x.id and r.rate between 1 and 5 "
+            + "where x.id in :ids group by x.id) a "
+            + "where t.id = a.id and (t.rating_count <> a.rating_count or t.rating_sum <> a.rating_sum "
+            + "or t.rating_star1 <> a.star1 or t.rating_star2 <> a.star2 or t.rating_star3 <> a.star3 "
+            + "or t.rating_star4 <> a.star4 or t.rating_star5 <> a.star5 "
+            + "or t.rating_average is distinct from a.average)",
+            nativeQuery = true)
+    int reconcileRatings(Collection<Long> ids);
 
-    Page<Project> findAllById(Long id, Pageable pageable);
-
-    Page<Project> findByOwnerCompany_Id(Long id, Pageable pageable);
-
-    Page<Project> findByOwnerCompany_IdAndStatus(Long id, ProjectStatus status, Pageable pageable);
-
-    Page<Project> findByOwnerCompany_IdAndNameContainsIgnoreCase(Long id, String name, Pageable pageable);
-
-    Page<Project> findByOwnerCompany_IdAndStatusAndNameContainsIgnoreCase(Long id, ProjectStatus status, String name, Pageable pageable);
-
-    Page<Project> findByStatus(ProjectStatus status, Pageable pageable);
-
-    Page<Project> findByStatusAndNameContainsIgnoreCase(ProjectStatus status, String name, Pageable pageable);
+    Project findFirstByOwnerCompany(Company company);
 
-    Page<Project> findByOwnerCompany_IdNotAndNameContainsIgnoreCase(Long id, String name, Pageable pageable);
+    Project findFirstByAuditBy(AppUser appUser);
 
-    Page<Project> findByOwnerCompany_IdNotAndStatusAndNameContainsIgnoreCase(Long id, ProjectStatus status, String name, Pageable pageable);
+    List<Project> findByUnitPriceIsNullAndPriceIsNotNullAndIdGreaterThanOrderById(Long id, Pageable pageable);
 
-    Page<Project> findByOwnerCompany_IdNotAndStatus(Long id, ProjectStatus status, Pageable pageable);
+    @Transactional
+    @Modifying
+    @Query("update Project p set p.unitPrice = :unitPrice, p.currency = :currency where p.id = :id")
+    int updatePrice(Long id, BigDecimal unitPrice, String currency);
 
-    Page<Project> findByOwnerCompany_IdNot(Long id, Pageable pageable);
+    @Modifying(clearAutomatically = true)
+    @Query("update Project p set p.status = :status, p.updatedAt = :updatedAt where p.id = :id and p.status in :from")
+    int updateStatus(Long id, Collection<ProjectStatus> from, ProjectStatus status, OffsetDateTime updatedAt);
 
-    Project findFirstByOwnerCompany(Company company);
-
-    Project findFirstByAuditBy(AppUser appUser);
+    @Modifying(clearAutomatically = true)
+    @Query("update Project p set p.status = :status, p.auditBy = :auditBy, p.updatedAt = :updatedAt "
+            + "where p.id = :id and p.status in :from")
+    int updateStatusAndAuditBy(Long id, Collection<ProjectStatus> from, ProjectStatus status, AppUser auditBy,
+            OffsetDateTime updatedAt);
 
 }
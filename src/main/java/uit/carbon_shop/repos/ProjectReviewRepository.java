@@ -1,8 +1,11 @@
 package uit.carbon_shop.repos;
 
+import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import uit.carbon_shop.domain.AppUser;
 import uit.carbon_shop.domain.Project;
 import uit.carbon_shop.domain.ProjectReview;
@@ -18,4 +21,34 @@ public interface ProjectReviewRepository extends JpaRepository<ProjectReview, Lo
 
     ProjectReview findFirstByReviewBy(AppUser appUser);
 
+    @Query("select r from ProjectReview r where r.project.id = :projectId and r.id > :lowerId and r.id < :upperId")
+    List<ProjectReview> scrollByProject(Long projectId, Long lowerId, Long upperId, Pageable pageable);
+
+    @Query("select r.likeCount from ProjectReview r where r.id = :id")
+    Integer findLikeCount(Long id);
+
+    @Query(value = "select count(*) from like_project_reviews where app_user_id = :userId and project_review_id = :reviewId",
+            nativeQuery = true)
+    int countLike(Long userId, Long reviewId);
+
+    @Modifying
+    @Query(value = "insert into like_project_reviews (app_user_id, project_review_id) values (:userId, :reviewId)",
+            nativeQuery = true)
+    int insertLike(Long userId, Long reviewId);
+
+    @Modifying
+    @Query(value = "delete from like_project_reviews where app_user_id = :userId and project_review_id = :reviewId",
+            nativeQuery = true)
+    int deleteLike(Long userId, Long reviewId);
+
+    @Modifying
+    @Query("update ProjectReview r set r.likeCount = r.likeCount + :delta where r.id = :id")
+    int addLikeCount(Long id, int delta);
+
+    @Modifying
+    @Query(value = "update project_reviews r set like_count = (select count(*) from like_project_reviews l where l.project_review_id = r.id) "
+            + "where like_count <> (select count(*) from like_project_reviews l where l.project_review_id = r.id)",
+            nativeQuery = true)
+    int reconcileLikeCounts();
+
 }
@@ -0,0 +1,19 @@
+package uit.carbon_shop.repos;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import uit.carbon_shop.domain.ProjectListProjection;
+import uit.carbon_shop.model.ProjectListFilter;
+import uit.carbon_shop.model.ProjectStatus;
+
+
+public interface ProjectSearchRepository {
+
+    /**
+     * Projects matching every given criterion; null arguments and unset filter bounds are left out
+     * of the query, so the planner can pick the index of the bound columns.
+     */
+    Page<ProjectListProjection> search(ProjectStatus status, Long ownerCompanyId, Long excludedCompanyId,
+            ProjectListFilter listFilter, Pageable pageable);
+
+}
@@ -0,0 +1,85 @@
+package uit.carbon_shop.repos;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import uit.carbon_shop.domain.Project;
+import uit.carbon_shop.domain.ProjectListProjection;
+import uit.carbon_shop.model.ProjectListFilter;
+import uit.carbon_shop.model.ProjectStatus;
+
+
+class ProjectSearchRepositoryImpl implements ProjectSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<ProjectListProjection> search(final ProjectStatus status, final Long ownerCompanyId,
+            final Long excludedCompanyId, final ProjectListFilter listFilter, final Pageable pageable) {
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<ProjectListProjection> query = builder.createQuery(ProjectListProjection.class);
+        final Root<Project> project = query.from(Project.class);
+        query.select(builder.construct(ProjectListProjection.class, project.get("id"), project.get("name"),
+                        project.get("address"), project.get("size"), project.get("timeStart"), project.get("timeEnd"),
+                        project.get("produceCarbonRate"), project.get("partner"), project.get("auditByOrg"),
+                        project.get("creditAmount"), project.get("cert"), project.get("price"),
+                        project.get("unitPrice"), project.get("currency"), project.get("methodPayment"),
+                        project.get("projectImages"), project.get("status"), project.get("ownerCompany").get("id"),
+                        project.get("auditBy").get("id"), project.get("rating")))
+                .where(predicates(builder, project, status, ownerCompanyId, excludedCompanyId, listFilter))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), project, builder));
+        final TypedQuery<ProjectListProjection> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> {
+            final CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
+            final Root<Project> counted = countQuery.from(Project.class);
+            countQuery.select(builder.count(counted))
+                    .where(predicates(builder, counted, status, ownerCompanyId, excludedCompanyId, listFilter));
+            return entityManager.createQuery(countQuery).getSingleResult();
+        });
+    }
+
+    private static Predicate[] predicates(final CriteriaBuilder builder, final Root<Project> project,
+            final ProjectStatus status, final Long ownerCompanyId, final Long excludedCompanyId,
+            final ProjectListFilter listFilter) {
+        final List<Predicate> predicates = new ArrayList<>();
+        if (status != null) {
+            predicates.add(builder.equal(project.get("status"), status));
+        }
+        if (ownerCompanyId != null) {
+            predicates.add(builder.equal(project.get("ownerCompany").get("id"), ownerCompanyId));
+        }
+        if (excludedCompanyId != null) {
+            predicates.add(builder.notEqual(project.get("ownerCompany").get("id"), excludedCompanyId));
+        }
+        if (listFilter.currency() != null) {
+            predicates.add(builder.equal(project.get("currency"), listFilter.currency()));
+        }
+        if (listFilter.minPrice() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(project.<BigDecimal>get("unitPrice"), listFilter.minPrice()));
+        }
+        if (listFilter.maxPrice() != null) {
+            predicates.add(builder.lessThanOrEqualTo(project.<BigDecimal>get("unitPrice"), listFilter.maxPrice()));
+        }
+        if (listFilter.minCredits() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(project.<Long>get("creditAmount"), listFilter.minCredits()));
+        }
+        return predicates.toArray(Predicate[]::new);
+    }
+
+}
@@ -1,8 +1,10 @@
 package uit.carbon_shop.repos;
 
+import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import uit.carbon_shop.domain.AppUser;
 import uit.carbon_shop.domain.Question;
 
@@ -23,4 +25,11 @@ public interface QuestionRepository extends JpaRepository<Question, Long> {
 
     Page<Question> findByAnswerNullAndAskedBy_Id(Long id, Pageable pageable);
 
+    @Query("select q from Question q where q.id > :lowerId and q.id < :upperId "
+            + "and (:askedBy is null or q.askedBy.id = :askedBy) "
+            + "and (:includeAnswered = true or q.answer is null) "
+            + "and (:includeUnanswered = true or q.answer is not null)")
+    List<Question> scroll(Long askedBy, boolean includeAnswered, boolean includeUnanswered, Long lowerId,
+            Long upperId, Pageable pageable);
+
 }
@@ -3,11 +3,13 @@ package uit.carbon_shop.rest;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
+import java.math.BigDecimal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.data.web.SortDefault;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -19,16 +21,21 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import uit.carbon_shop.model.BuyerCreateOrder;
 import uit.carbon_shop.model.BuyerReviewCompanyDTO;
 import uit.carbon_shop.model.BuyerReviewProjectDTO;
 import uit.carbon_shop.model.CompanyDTO;
 import uit.carbon_shop.model.CompanyReviewDTO;
+import uit.carbon_shop.model.CursorPagedModel;
+import uit.carbon_shop.model.CursorRequest;
 import uit.carbon_shop.model.OrderDTO;
 import uit.carbon_shop.model.OrderStatus;
 import uit.carbon_shop.model.PagedOrderDTO;
 import uit.carbon_shop.model.PagedProjectDTO;
 import uit.carbon_shop.model.ProjectDTO;
+import uit.carbon_shop.model.ProjectFacetsDTO;
+import uit.carbon_shop.model.ProjectListFilter;
 import uit.carbon_shop.model.ProjectReviewDTO;
 import uit.carbon_shop.model.ProjectStatus;
 import uit.carbon_shop.model.UserRole;
@@ -83,15 +90,53 @@ public class BuyerController {
     public ResponseEntity<PagedProjectDTO> viewAllProject(
             @RequestParam(name = "status", required = false) final ProjectStatus status,
             @RequestParam(name = "filter", required = false) final String filter,
+            @RequestParam(name = "minPrice", required = false) final BigDecimal minPrice,
+            @RequestParam(name = "maxPrice", required = false) final BigDecimal maxPrice,
+            @RequestParam(name = "minCredits", required = false) final Long minCredits,
+            @RequestParam(name = "currency", required = false) final String currency,
             @Parameter(hidden = true) @SortDefault(sort = "id") @PageableDefault(size = 20) final Pageable pageable,
             Authentication authentication) {
         var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
         var appUser = appUserService.get(userId);
-        Page<ProjectDTO> page = status == null ? projectService.findAllButNotCompany(appUser.getCompany(), filter, pageable)
-                : projectService.findByStatusButNotCompany(status, appUser.getCompany(), filter, pageable);
+        var listFilter = new ProjectListFilter(minPrice, maxPrice, minCredits, currency);
+        Page<ProjectDTO> page = status == null ? projectService.findAllButNotCompany(appUser.getCompany(), filter,
+                listFilter, pageable)
+                : projectService.findByStatusButNotCompany(status, appUser.getCompany(), filter, listFilter, pageable);
         return ResponseEntity.ok(new PagedProjectDTO(page));
     }
 
+    @GetMapping("/projects/facets")
+    public ResponseEntity<ProjectFacetsDTO> viewProjectFacets(
+            @RequestParam(name = "status", required = false) final ProjectStatus status,
+            @RequestParam(name = "minPrice", required = false) final BigDecimal minPrice,
+            @RequestParam(name = "maxPrice", required = false) final BigDecimal maxPrice,
+            @RequestParam(name = "minCredits", required = false) final Long minCredits,
+            @RequestParam(name = "currency", required = false) final String currency,
+            Authentication authentication) {
+        var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
+        var appUser = appUserService.get(userId);
+        return ResponseEntity.ok(projectService.facets(status, appUser.getCompany(),
+                new ProjectListFilter(minPrice, maxPrice, minCredits, currency)));
+    }
+
+    @GetMapping("/projects/scroll")
+    public ResponseEntity<CursorPagedModel<ProjectDTO>> scrollAllProject(
+            @RequestParam(name = "status", required = false) final ProjectStatus status,
+            @RequestParam(name = "filter", required = false) final String filter,
+            @RequestParam(name = "minPrice", required = false) final BigDecimal minPrice,
+            @RequestParam(name = "maxPrice", required = false) final BigDecimal maxPrice,
+            @RequestParam(name = "minCredits", required = false) final Long minCredits,
+            @RequestParam(name = "currency", required = false) final String currency,
+            @RequestParam(name = "after", required = false) final String after,
+            @RequestParam(name = "before", required = false) final String before,
+            @RequestParam(name = "size", defaultValue = "20") final int size,
+            Authentication authentication) {
+        var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
+        var appUser = appUserService.get(userId);
+        return ResponseEntity.ok(projectService.scrollButNotCompany(appUser.getCompany(), status, filter,
+                new ProjectListFilter(minPrice, maxPrice, minCredits, currency), new CursorRequest(after, before, size)));
+    }
+
     @GetMapping("/order/{orderId}")
     public ResponseEntity<OrderDTO> viewOrder(@PathVariable(name = "orderId") final Long orderId) {
         return ResponseEntity.ok(orderService.get(orderId));
@@ -102,16 +147,23 @@ public class BuyerController {
             @RequestBody @Valid final BuyerCreateOrder buyerCreateOrder,
             Authentication authentication) {
         final ProjectDTO project = projectService.get(buyerCreateOrder.getProjectId());
+        if (buyerCreateOrder.getCreditAmount() != null && (project.getCreditAmount() == null
+                || buyerCreateOrder.getCreditAmount() > project.getCreditAmount())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "creditAmount exceeds the " + project.getCreditAmount() + " credits of the project");
+        }
         OrderDTO orderDTO = new OrderDTO();
-        long orderId = idGeneratorService.generateId();
-        orderDTO.setOrderId(orderId);
+        orderDTO.setOrderId(idGeneratorService.generateId());
         orderDTO.setPrice(project.getPrice());
-        orderDTO.setCreditAmount(project.getCreditAmount());
+        orderDTO.setUnitPrice(project.getUnitPrice());
+        orderDTO.setCurrency(project.getCurrency());
+        orderDTO.setCreditAmount(buyerCreateOrder.getCreditAmount() == null ? project.getCreditAmount()
+                : buyerCreateOrder.getCreditAmount());
         orderDTO.setProject(project.getProjectId());
+        orderDTO.setSellerCompany(project.getOwnerCompany());
         orderDTO.setCreatedBy(((UserUserDetails) authentication.getPrincipal()).getUserId());
         orderDTO.setStatus(OrderStatus.INIT);
-        orderService.create(orderDTO);
-        return ResponseEntity.ok(orderService.get(orderId));
+        return ResponseEntity.ok(orderService.create(orderDTO));
     }
 
     @GetMapping("/orders")
@@ -125,6 +177,17 @@ public class BuyerController {
         return ResponseEntity.ok(new PagedOrderDTO(page));
     }
 
+    @GetMapping("/orders/scroll")
+    public ResponseEntity<CursorPagedModel<OrderDTO>> scrollAllOrders(
+            @RequestParam(name = "status", required = false) final OrderStatus status,
+            @RequestParam(name = "after", required = false) final String after,
+            @RequestParam(name = "before", required = false) final String before,
+            @RequestParam(name = "size", defaultValue = "20") final int size,
+            Authentication authentication) {
+        var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
+        return ResponseEntity.ok(orderService.scrollCreatedBy(userId, status, new CursorRequest(after, before, size)));
+    }
+
     @GetMapping("/company/{companyId}")
     public ResponseEntity<CompanyDTO> viewCompany(
             @PathVariable(name = "companyId") final Long companyId) {
@@ -1,6 +1,11 @@
 package uit.carbon_shop.rest;
 
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Objects;
 import java.util.Optional;
 import lombok.RequiredArgsConstructor;
@@ -9,24 +14,36 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.util.ResourceUtils;
 import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import uit.carbon_shop.domain.FileDocument;
+import uit.carbon_shop.model.ImageVariant;
 import uit.carbon_shop.model.UserRole;
 import uit.carbon_shop.repos.FileContentStore;
 import uit.carbon_shop.repos.FileDocumentRepository;
-import uit.carbon_shop.service.IdGeneratorService;
+import uit.carbon_shop.service.ContentBlobService;
+import uit.carbon_shop.service.FileContentCache;
+import uit.carbon_shop.service.FileContentCache.CachedFile;
+import uit.carbon_shop.service.FileContentCache.Metadata;
+import uit.carbon_shop.service.FileDocumentService;
+import uit.carbon_shop.service.FileUrlService;
+import uit.carbon_shop.service.FileUrlService.SignedFile;
+import uit.carbon_shop.service.ImageVariantService;
+import uit.carbon_shop.service.ImageVariantService.VariantContent;
 import uit.carbon_shop.util.StaticConstants;
 
 
@@ -38,46 +55,178 @@ public class FileController {
 
     private final FileDocumentRepository fileRepository;
     private final FileContentStore fileContentStore;
-    private final IdGeneratorService idGeneratorService;
+    private final FileDocumentService fileDocumentService;
+    private final ContentBlobService contentBlobService;
+    private final ImageVariantService imageVariantService;
+    private final FileContentCache fileContentCache;
+    private final FileUrlService fileUrlService;
+    private final byte[] defaultAvatar = loadDefaultAvatar();
+    private final String defaultAvatarETag = "default-avatar-" + defaultAvatar.length;
 
-    @PostMapping("/upload")
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @SneakyThrows
     @PreAuthorize("hasAnyAuthority('" + UserRole.Fields.SELLER_OR_BUYER + "', '" + UserRole.Fields.MEDIATOR + "')")
     @SecurityRequirement(name = "bearer-jwt")
     public ResponseEntity<Long> upload(@RequestParam("file") MultipartFile file) {
-        FileDocument fileDocument = new FileDocument();
-        fileDocument.setId(idGeneratorService.generateId());
-        fileDocument.setName(file.getOriginalFilename());
-        fileDocument.setContentType(file.getContentType());
-        fileRepository.save(fileDocument);
-        fileContentStore.setContent(fileDocument, file.getInputStream());
-        fileRepository.save(fileDocument);
-        return ResponseEntity.ok(fileDocument.getId());
+        return ResponseEntity.ok(fileDocumentService.upload(file.getInputStream(), file.getOriginalFilename(),
+                file.getContentType()));
     }
 
-    @GetMapping("/{fileId}")
+    /**
+     * Upload the request body as the file. Unlike a multipart upload, which the servlet container
+     * spools to a temporary file first, the body is hashed and stored while it is received.
+     */
+    @PostMapping(value = "/upload", consumes = "!" + MediaType.MULTIPART_FORM_DATA_VALUE)
     @SneakyThrows
-    public ResponseEntity<Resource> get(@PathVariable(name = "fileId") final Long fileId) {
+    @PreAuthorize("hasAnyAuthority('" + UserRole.Fields.SELLER_OR_BUYER + "', '" + UserRole.Fields.MEDIATOR + "')")
+    @SecurityRequirement(name = "bearer-jwt")
+    public ResponseEntity<Long> uploadStream(@RequestParam(name = "name", required = false) final String name,
+            @RequestHeader(name = HttpHeaders.CONTENT_TYPE, required = false) final String contentType,
+            final HttpServletRequest request) {
+        return ResponseEntity.ok(fileDocumentService.upload(request.getInputStream(), name, contentType));
+    }
+
+    /**
+     * Download a file. Range requests are answered with 206 partial content by the resource
+     * message converter, which streams the requested regions without buffering the file. The
+     * ETag derives from the content id and length, so {@code If-None-Match} and
+     * {@code If-Modified-Since} yield 304 without touching the content store.
+     * <p>
+     * With {@code variant}, e.g. {@code thumb}, a downscaled rendition of an image is served for
+     * a year, as the content of a file id never changes. Until it has been generated the original
+     * is served instead.
+     * <p>
+     * Small popular files are answered from the {@link FileContentCache} without a query.
+     */
+    @GetMapping("/{fileId}")
+    public ResponseEntity<Resource> get(@PathVariable(name = "fileId") final Long fileId,
+            @RequestParam(name = "variant", required = false) final String variant) {
+        final Optional<ImageVariant> imageVariant = ImageVariant.fromParam(variant);
+        if (variant != null && imageVariant.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
         if (Objects.equals(StaticConstants.DEFAULT_AVATAR_ID, fileId)) {
-            ClassPathResource imgFile = new ClassPathResource("default-avatar.png");
-            byte[] bytes = StreamUtils.copyToByteArray(imgFile.getInputStream());
             return ResponseEntity.ok()
                     .contentType(MediaType.IMAGE_PNG)
-                    .body(new ByteArrayResource(bytes));
+                    .eTag(defaultAvatarETag)
+                    .cacheControl(CacheControl.maxAge(Duration.ofDays(7)).cachePublic())
+                    .body(new ByteArrayResource(defaultAvatar));
         }
-        Optional<FileDocument> optionalDoc = fileRepository.findById(fileId);
+        final Optional<CachedFile> cached = fileContentCache.get(fileId, imageVariant.orElse(null));
+        if (cached.isPresent()) {
+            return respond(cached.get().metadata(), cached.get().body());
+        }
+        final Optional<FileDocument> optionalDoc = fileRepository.findById(fileId);
+        if (optionalDoc.isEmpty() || optionalDoc.get().getContentId() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        final FileDocument doc = optionalDoc.get();
+        if (imageVariant.isPresent() && doc.getContentHash() != null) {
+            final Optional<VariantContent> variantContent = imageVariantService.find(doc.getContentHash(),
+                    imageVariant.get());
+            if (variantContent.isPresent()) {
+                final Metadata metadata = new Metadata(variantContent.get().mediaType().toString(),
+                        doc.getContentHash() + "-" + imageVariant.get().param(), null, null);
+                final Resource resource = variantContent.get().resource();
+                return respond(metadata, fileContentCache.offer(fileId, imageVariant.get(), metadata, resource,
+                        contentLength(resource)));
+            }
+            // not generated yet, or dropped from a full queue
+            imageVariantService.submit(doc.getContentHash(), doc.getContentType());
+        }
+        final Metadata metadata = new Metadata(
+                doc.getContentType() == null ? MediaType.APPLICATION_OCTET_STREAM_VALUE : doc.getContentType(),
+                doc.getContentId() + "-" + doc.getContentLength(),
+                doc.getName() == null ? doc.getId().toString() : doc.getName(),
+                doc.getUpdatedAt() == null ? null : doc.getUpdatedAt().toInstant());
+        // only a handle - the content is read while writing the response, and not at all for a 304
+        final Resource resource = doc.getContentHash() != null ? contentBlobService.getResource(doc.getContentHash())
+                : fileContentStore.getResource(doc);
+        return respond(metadata, doc.getContentLength() == null ? resource
+                : fileContentCache.offer(fileId, null, metadata, resource, doc.getContentLength()));
+    }
 
-        if (optionalDoc.isPresent()) {
-            FileDocument doc = optionalDoc.get();
-            Resource resource = fileContentStore.getResource(doc);
+    /**
+     * Download through a URL signed by {@link FileUrlService}. The token names the content, so it
+     * is streamed from the store without a query; responses may be cached until the URL expires.
+     * A {@code variant} is served when it has been generated, otherwise the original.
+     */
+    @GetMapping("/signed/{token}")
+    public ResponseEntity<Resource> getSigned(@PathVariable(name = "token") final String token,
+            @RequestParam(name = "variant", required = false) final String variant) {
+        final Optional<ImageVariant> imageVariant = ImageVariant.fromParam(variant);
+        if (variant != null && imageVariant.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        final Optional<SignedFile> optionalSignedFile = fileUrlService.verify(token);
+        if (optionalSignedFile.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        final SignedFile signedFile = optionalSignedFile.get();
+        final CacheControl cacheControl = CacheControl.maxAge(
+                Duration.between(Instant.now(), signedFile.expiresAt())).cachePublic();
+        if (imageVariant.isPresent() && signedFile.hashed()) {
+            final Optional<VariantContent> variantContent = imageVariantService.find(signedFile.contentId(),
+                    imageVariant.get());
+            if (variantContent.isPresent()) {
+                return ResponseEntity.ok()
+                        .contentType(variantContent.get().mediaType())
+                        .eTag(signedFile.contentId() + "-" + imageVariant.get().param())
+                        .cacheControl(cacheControl)
+                        .body(variantContent.get().resource());
+            }
+            imageVariantService.submit(signedFile.contentId(), signedFile.contentType());
+        }
+        final Resource resource;
+        if (signedFile.hashed()) {
+            resource = contentBlobService.getResource(signedFile.contentId());
+        } else {
+            // the store only needs the content id to locate the content
+            final FileDocument doc = new FileDocument();
+            doc.setContentId(signedFile.contentId());
+            resource = fileContentStore.getResource(doc);
+        }
+        if (resource == null || !resource.exists()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(signedFile.contentType() == null ? MediaType.APPLICATION_OCTET_STREAM
+                        : MediaType.parseMediaType(signedFile.contentType()))
+                .eTag(signedFile.contentId())
+                .cacheControl(cacheControl)
+                .body(resource);
+    }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(doc.getContentType()))
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + doc.getName() + "\"")
-                    .body(resource);
+    private static ResponseEntity<Resource> respond(final Metadata metadata, final Resource body) {
+        final ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(metadata.contentType()))
+                .eTag(metadata.eTag());
+        if (metadata.fileName() == null) {
+            builder.cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic());
+        } else {
+            builder.cacheControl(CacheControl.maxAge(Duration.ofDays(1)).cachePrivate())
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(metadata.fileName(), StandardCharsets.UTF_8)
+                            .build()
+                            .toString());
+        }
+        if (metadata.lastModified() != null) {
+            builder.lastModified(metadata.lastModified());
         }
-        return ResponseEntity.notFound().build();
+        return builder.body(body);
+    }
+
+    private static long contentLength(final Resource resource) {
+        try {
+            return resource.contentLength();
+        } catch (final IOException ioException) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @SneakyThrows
+    private static byte[] loadDefaultAvatar() {
+        return StreamUtils.copyToByteArray(new ClassPathResource("default-avatar.png").getInputStream());
     }
 
 }
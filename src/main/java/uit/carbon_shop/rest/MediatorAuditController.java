@@ -3,6 +3,7 @@ package uit.carbon_shop.rest;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
+import java.math.BigDecimal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -16,12 +17,15 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import uit.carbon_shop.model.AppUserDTO;
 import uit.carbon_shop.model.CompanyDTO;
+import uit.carbon_shop.model.CursorPagedModel;
+import uit.carbon_shop.model.CursorRequest;
 import uit.carbon_shop.model.MediatorAnswerDTO;
 import uit.carbon_shop.model.MediatorDoneOrderDTO;
 import uit.carbon_shop.model.OrderDTO;
@@ -31,6 +35,7 @@ import uit.carbon_shop.model.PagedOrderDTO;
 import uit.carbon_shop.model.PagedProjectDTO;
 import uit.carbon_shop.model.PagedQuestionDTO;
 import uit.carbon_shop.model.ProjectDTO;
+import uit.carbon_shop.model.ProjectListFilter;
 import uit.carbon_shop.model.ProjectStatus;
 import uit.carbon_shop.model.QuestionDTO;
 import uit.carbon_shop.model.UserRole;
@@ -39,6 +44,7 @@ import uit.carbon_shop.model.UserUserDetails;
 import uit.carbon_shop.service.AppUserService;
 import uit.carbon_shop.service.CompanyService;
 import uit.carbon_shop.service.OrderService;
+import uit.carbon_shop.service.ProjectCardService;
 import uit.carbon_shop.service.ProjectService;
 import uit.carbon_shop.service.QuestionService;
 
@@ -54,6 +60,7 @@ public class MediatorAuditController {
     private final ProjectService projectService;
     private final QuestionService questionService;
     private final CompanyService companyService;
+    private final ProjectCardService projectCardService;
 
     @PatchMapping("/order/{orderId}/process")
     public ResponseEntity<OrderDTO> startProcessOrder(
@@ -93,6 +100,15 @@ public class MediatorAuditController {
         return ResponseEntity.ok(new PagedOrderDTO(page));
     }
 
+    @GetMapping("/orders/scroll")
+    public ResponseEntity<CursorPagedModel<OrderDTO>> scrollAllOrder(
+            @RequestParam(name = "status", required = false) final OrderStatus status,
+            @RequestParam(name = "after", required = false) final String after,
+            @RequestParam(name = "before", required = false) final String before,
+            @RequestParam(name = "size", defaultValue = "20") final int size) {
+        return ResponseEntity.ok(orderService.scroll(status, new CursorRequest(after, before, size)));
+    }
+
     @GetMapping("/users/init")
     public ResponseEntity<PagedAppUserDTO> viewAllUser(
             @RequestParam(name = "status", required = false) final UserStatus status,
@@ -126,12 +142,32 @@ public class MediatorAuditController {
     public ResponseEntity<PagedProjectDTO> viewAllProject(
             @RequestParam(name = "status", required = false) final ProjectStatus status,
             @RequestParam(name = "filter", required = false) final String filter,
+            @RequestParam(name = "minPrice", required = false) final BigDecimal minPrice,
+            @RequestParam(name = "maxPrice", required = false) final BigDecimal maxPrice,
+            @RequestParam(name = "minCredits", required = false) final Long minCredits,
+            @RequestParam(name = "currency", required = false) final String currency,
             @Parameter(hidden = true) @SortDefault(sort = "id") @PageableDefault(size = 20) final Pageable pageable) {
-        Page<ProjectDTO> page = status == null ? projectService.findAll(filter, pageable)
-                : projectService.findByStatus(status, filter, pageable);
+        final ProjectListFilter listFilter = new ProjectListFilter(minPrice, maxPrice, minCredits, currency);
+        Page<ProjectDTO> page = status == null ? projectService.findAll(filter, listFilter, pageable)
+                : projectService.findByStatus(status, filter, listFilter, pageable);
         return ResponseEntity.ok(new PagedProjectDTO(page));
     }
 
+    @GetMapping("/projects/scroll")
+    public ResponseEntity<CursorPagedModel<ProjectDTO>> scrollAllProject(
+            @RequestParam(name = "status", required = false) final ProjectStatus status,
+            @RequestParam(name = "filter", required = false) final String filter,
+            @RequestParam(name = "minPrice", required = false) final BigDecimal minPrice,
+            @RequestParam(name = "maxPrice", required = false) final BigDecimal maxPrice,
+            @RequestParam(name = "minCredits", required = false) final Long minCredits,
+            @RequestParam(name = "currency", required = false) final String currency,
+            @RequestParam(name = "after", required = false) final String after,
+            @RequestParam(name = "before", required = false) final String before,
+            @RequestParam(name = "size", defaultValue = "20") final int size) {
+        return ResponseEntity.ok(projectService.scroll(status, filter,
+                new ProjectListFilter(minPrice, maxPrice, minCredits, currency), new CursorRequest(after, before, size)));
+    }
+
     @PatchMapping("/project/{projectId}/approve")
     public ResponseEntity<Void> approveProject(
             @PathVariable(name = "projectId") final Long projectId,
@@ -148,6 +184,12 @@ public class MediatorAuditController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/project-cards/rebuild")
+    public ResponseEntity<Void> rebuildProjectCards() {
+        projectCardService.requestRebuild();
+        return ResponseEntity.accepted().build();
+    }
+
     @GetMapping("/project/{projectId}")
     public ResponseEntity<ProjectDTO> viewProject(
             @PathVariable(name = "projectId") final Long projectId) {
@@ -160,6 +202,14 @@ public class MediatorAuditController {
         return ResponseEntity.ok(new PagedQuestionDTO(questionService.findByAnswerIsNull(pageable)));
     }
 
+    @GetMapping("/questions/init/scroll")
+    public ResponseEntity<CursorPagedModel<QuestionDTO>> scrollAllQuestion(
+            @RequestParam(name = "after", required = false) final String after,
+            @RequestParam(name = "before", required = false) final String before,
+            @RequestParam(name = "size", defaultValue = "20") final int size) {
+        return ResponseEntity.ok(questionService.scroll(null, false, new CursorRequest(after, before, size)));
+    }
+
     @GetMapping("/question/{questionId}")
     public ResponseEntity<QuestionDTO> viewQuestion(
             @PathVariable(name = "questionId") final Long questionId) {
@@ -3,6 +3,7 @@ package uit.carbon_shop.rest;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
+import java.math.BigDecimal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -22,11 +23,14 @@ import org.springframework.web.bind.annotation.RestController;
 import uit.carbon_shop.model.AppUserDTO;
 import uit.carbon_shop.model.CompanyDTO;
 import uit.carbon_shop.model.CompanyReviewDTO;
+import uit.carbon_shop.model.CursorPagedModel;
+import uit.carbon_shop.model.CursorRequest;
 import uit.carbon_shop.model.OrderDTO;
 import uit.carbon_shop.model.OrderStatus;
 import uit.carbon_shop.model.PagedOrderDTO;
 import uit.carbon_shop.model.PagedProjectDTO;
 import uit.carbon_shop.model.ProjectDTO;
+import uit.carbon_shop.model.ProjectListFilter;
 import uit.carbon_shop.model.ProjectStatus;
 import uit.carbon_shop.model.SellerRegisterProjectDTO;
 import uit.carbon_shop.model.SellerReviewCompany;
@@ -72,12 +76,13 @@ public class SellerController {
         projectDTO.setCreditAmount(sellerRegisterProjectDTO.getCreditAmount());
         projectDTO.setCert(sellerRegisterProjectDTO.getCert());
         projectDTO.setPrice(sellerRegisterProjectDTO.getPrice());
+        projectDTO.setUnitPrice(sellerRegisterProjectDTO.getUnitPrice());
+        projectDTO.setCurrency(sellerRegisterProjectDTO.getCurrency());
         projectDTO.setMethodPayment(sellerRegisterProjectDTO.getMethodPayment());
         projectDTO.setProjectImages(sellerRegisterProjectDTO.getProjectImages());
         projectDTO.setOwnerCompany(appUser.getCompany());
         projectDTO.setStatus(ProjectStatus.INIT);
-        projectService.create(projectDTO);
-        return ResponseEntity.ok(projectService.get(projectDTO.getProjectId()));
+        return ResponseEntity.ok(projectService.create(projectDTO));
     }
 
     @GetMapping("/project/{projectId}")
@@ -90,16 +95,40 @@ public class SellerController {
     public ResponseEntity<PagedProjectDTO> viewAllProject(
             @RequestParam(name = "status", required = false) final ProjectStatus status,
             @RequestParam(name = "filter", required = false) final String filter,
+            @RequestParam(name = "minPrice", required = false) final BigDecimal minPrice,
+            @RequestParam(name = "maxPrice", required = false) final BigDecimal maxPrice,
+            @RequestParam(name = "minCredits", required = false) final Long minCredits,
+            @RequestParam(name = "currency", required = false) final String currency,
             @Parameter(hidden = true) @SortDefault(sort = "id") @PageableDefault(size = 20) final Pageable pageable,
             Authentication authentication) {
         long userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
         AppUserDTO appUser = appUserService.get(userId);
+        final ProjectListFilter listFilter = new ProjectListFilter(minPrice, maxPrice, minCredits, currency);
         Page<ProjectDTO> page =
-                status != null ? projectService.findAllByOwnerAndStatus(appUser.getCompany(), status, filter, pageable)
-                        : projectService.findAllByOwner(appUser.getCompany(), filter, pageable);
+                status != null ? projectService.findAllByOwnerAndStatus(appUser.getCompany(), status, filter,
+                        listFilter, pageable)
+                        : projectService.findAllByOwner(appUser.getCompany(), filter, listFilter, pageable);
         return ResponseEntity.ok(new PagedProjectDTO(page));
     }
 
+    @GetMapping("/projects/scroll")
+    public ResponseEntity<CursorPagedModel<ProjectDTO>> scrollAllProject(
+            @RequestParam(name = "status", required = false) final ProjectStatus status,
+            @RequestParam(name = "filter", required = false) final String filter,
+            @RequestParam(name = "minPrice", required = false) final BigDecimal minPrice,
+            @RequestParam(name = "maxPrice", required = false) final BigDecimal maxPrice,
+            @RequestParam(name = "minCredits", required = false) final Long minCredits,
+            @RequestParam(name = "currency", required = false) final String currency,
+            @RequestParam(name = "after", required = false) final String after,
+            @RequestParam(name = "before", required = false) final String before,
+            @RequestParam(name = "size", defaultValue = "20") final int size,
+            Authentication authentication) {
+        long userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
+        AppUserDTO appUser = appUserService.get(userId);
+        return ResponseEntity.ok(projectService.scrollByOwner(appUser.getCompany(), status, filter,
+                new ProjectListFilter(minPrice, maxPrice, minCredits, currency), new CursorRequest(after, before, size)));
+    }
+
     @GetMapping("/order/{orderId}")
     public ResponseEntity<OrderDTO> viewOrder(
             @PathVariable(name = "orderId") final Long orderId) {
@@ -119,6 +148,19 @@ public class SellerController {
         return ResponseEntity.ok(new PagedOrderDTO(page));
     }
 
+    @GetMapping("/orders/scroll")
+    public ResponseEntity<CursorPagedModel<OrderDTO>> scrollAllOrders(
+            @RequestParam(name = "status", required = false) final OrderStatus status,
+            @RequestParam(name = "after", required = false) final String after,
+            @RequestParam(name = "before", required = false) final String before,
+            @RequestParam(name = "size", defaultValue = "20") final int size,
+            Authentication authentication) {
+        long userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
+        AppUserDTO appUser = appUserService.get(userId);
+        return ResponseEntity.ok(orderService.scrollByOwnerCompany(appUser.getCompany(), status,
+                new CursorRequest(after, before, size)));
+    }
+
     @GetMapping("/company/{companyId}")
     public ResponseEntity<CompanyDTO> viewCompany(
             @PathVariable(name = "companyId") final Long companyId) {
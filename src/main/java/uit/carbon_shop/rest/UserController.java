@@ -3,7 +3,8 @@ package uit.carbon_shop.rest;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
-import java.util.ArrayList;
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -14,39 +15,55 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import uit.carbon_shop.model.AppUserDTO;
 import uit.carbon_shop.model.ChatMessageDTO;
 import uit.carbon_shop.model.CompanyDTO;
-import uit.carbon_shop.model.ContactItemDTO;
+import uit.carbon_shop.model.CompanyReviewDTO;
+import uit.carbon_shop.model.CursorPagedModel;
+import uit.carbon_shop.model.CursorRequest;
 import uit.carbon_shop.model.LikeResultDTO;
 import uit.carbon_shop.model.PagedChatMessageDTO;
 import uit.carbon_shop.model.PagedCompanyReviewDTO;
 import uit.carbon_shop.model.PagedContactItemDTO;
+import uit.carbon_shop.model.PagedProjectCardDTO;
 import uit.carbon_shop.model.PagedProjectDTO;
 import uit.carbon_shop.model.PagedProjectReviewDTO;
 import uit.carbon_shop.model.PagedQuestionDTO;
 import uit.carbon_shop.model.ProjectDTO;
+import uit.carbon_shop.model.ProjectFacetsDTO;
+import uit.carbon_shop.model.ProjectListFilter;
+import uit.carbon_shop.model.ProjectReviewDTO;
+import uit.carbon_shop.model.ProjectStatus;
 import uit.carbon_shop.model.QuestionDTO;
 import uit.carbon_shop.model.SendChatMessageDTO;
+import uit.carbon_shop.model.SuggestionDTO;
 import uit.carbon_shop.model.UserAskDTO;
 import uit.carbon_shop.model.UserRole;
 import uit.carbon_shop.model.UserUserDetails;
 import uit.carbon_shop.service.AppUserService;
 import uit.carbon_shop.service.ChatMessageService;
+import uit.carbon_shop.service.ChatPushService;
 import uit.carbon_shop.service.CompanyReviewService;
 import uit.carbon_shop.service.CompanyService;
+import uit.carbon_shop.service.ConversationService;
 import uit.carbon_shop.service.IdGeneratorService;
+import uit.carbon_shop.service.NameSuggestService;
+import uit.carbon_shop.service.ProjectCardService;
 import uit.carbon_shop.service.ProjectReviewService;
 import uit.carbon_shop.service.ProjectService;
 import uit.carbon_shop.service.QuestionService;
+import uit.carbon_shop.service.ReviewLikeService;
 
 
 @RestController
@@ -64,6 +81,11 @@ public class UserController {
     private final AppUserService appUserService;
     private final CompanyService companyService;
     private final ChatMessageService chatMessageService;
+    private final ConversationService conversationService;
+    private final ChatPushService chatPushService;
+    private final ReviewLikeService reviewLikeService;
+    private final NameSuggestService nameSuggestService;
+    private final ProjectCardService projectCardService;
 
     @PostMapping("/question")
     public ResponseEntity<QuestionDTO> newQuestion(@RequestBody @Valid final UserAskDTO userAskDTO,
@@ -100,12 +122,72 @@ public class UserController {
         return ResponseEntity.ok(new PagedQuestionDTO(page));
     }
 
+    @GetMapping("/questions/scroll")
+    public ResponseEntity<CursorPagedModel<QuestionDTO>> scrollQuestions(
+            @RequestParam(name = "self", required = false) final Boolean self,
+            @RequestParam(name = "answered", required = false) final Boolean answered,
+            @RequestParam(name = "after", required = false) final String after,
+            @RequestParam(name = "before", required = false) final String before,
+            @RequestParam(name = "size", defaultValue = "20") final int size,
+            Authentication authentication
+    ) {
+        var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
+        return ResponseEntity.ok(questionService.scroll(self == null || !self ? null : userId, answered,
+                new CursorRequest(after, before, size)));
+    }
+
     @GetMapping("/projects")
     public ResponseEntity<PagedProjectDTO> viewAllProject(
             @RequestParam(name = "filter", required = false) final String filter,
+            @RequestParam(name = "minPrice", required = false) final BigDecimal minPrice,
+            @RequestParam(name = "maxPrice", required = false) final BigDecimal maxPrice,
+            @RequestParam(name = "minCredits", required = false) final Long minCredits,
+            @RequestParam(name = "currency", required = false) final String currency,
             @Parameter(hidden = true) @SortDefault(sort = "id") @PageableDefault(size = 20) final Pageable pageable
     ) {
-        return ResponseEntity.ok(new PagedProjectDTO(projectService.findAll(filter, pageable)));
+        return ResponseEntity.ok(new PagedProjectDTO(projectService.findAll(filter, new ProjectListFilter(minPrice, maxPrice, minCredits, currency), pageable)));
+    }
+
+    @GetMapping("/projects/facets")
+    public ResponseEntity<ProjectFacetsDTO> viewProjectFacets(
+            @RequestParam(name = "minPrice", required = false) final BigDecimal minPrice,
+            @RequestParam(name = "maxPrice", required = false) final BigDecimal maxPrice,
+            @RequestParam(name = "minCredits", required = false) final Long minCredits,
+            @RequestParam(name = "currency", required = false) final String currency
+    ) {
+        return ResponseEntity.ok(projectService.facets(null, null, new ProjectListFilter(minPrice, maxPrice, minCredits, currency)));
+    }
+
+    @GetMapping("/project-cards")
+    public ResponseEntity<PagedProjectCardDTO> viewProjectCards(
+            @RequestParam(name = "status", required = false) final ProjectStatus status,
+            @Parameter(hidden = true) @SortDefault(sort = "id") @PageableDefault(size = 20) final Pageable pageable
+    ) {
+        return ResponseEntity.ok(new PagedProjectCardDTO(projectCardService.findAll(status, pageable)));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(
+            @RequestParam(name = "q") final String query,
+            @RequestParam(name = "limit", defaultValue = "10") final int limit
+    ) {
+        return ResponseEntity.ok(nameSuggestService.suggest(query,
+                Math.min(limit, NameSuggestService.MAX_LIMIT)));
+    }
+
+    @GetMapping("/projects/scroll")
+    public ResponseEntity<CursorPagedModel<ProjectDTO>> scrollAllProject(
+            @RequestParam(name = "filter", required = false) final String filter,
+            @RequestParam(name = "minPrice", required = false) final BigDecimal minPrice,
+            @RequestParam(name = "maxPrice", required = false) final BigDecimal maxPrice,
+            @RequestParam(name = "minCredits", required = false) final Long minCredits,
+            @RequestParam(name = "currency", required = false) final String currency,
+            @RequestParam(name = "after", required = false) final String after,
+            @RequestParam(name = "before", required = false) final String before,
+            @RequestParam(name = "size", defaultValue = "20") final int size
+    ) {
+        return ResponseEntity.ok(projectService.scroll(null, filter,
+                new ProjectListFilter(minPrice, maxPrice, minCredits, currency), new CursorRequest(after, before, size)));
     }
 
     @GetMapping("/project/{projectId}/reviews")
@@ -116,6 +198,16 @@ public class UserController {
         return ResponseEntity.ok(new PagedProjectReviewDTO(projectReviewService.findAllByProject(projectId, pageable)));
     }
 
+    @GetMapping("/project/{projectId}/reviews/scroll")
+    public ResponseEntity<CursorPagedModel<ProjectReviewDTO>> scrollProjectReviews(
+            @PathVariable(name = "projectId") final Long projectId,
+            @RequestParam(name = "after", required = false) final String after,
+            @RequestParam(name = "before", required = false) final String before,
+            @RequestParam(name = "size", defaultValue = "20") final int size
+    ) {
+        return ResponseEntity.ok(projectReviewService.scrollByProject(projectId, new CursorRequest(after, before, size)));
+    }
+
     @GetMapping("/company/{companyId}/reviews")
     public ResponseEntity<PagedCompanyReviewDTO> viewCompanyReviews(
             @PathVariable(name = "companyId") final Long companyId,
@@ -124,6 +216,16 @@ public class UserController {
         return ResponseEntity.ok(new PagedCompanyReviewDTO(companyReviewService.findAllByCompany(companyId, pageable)));
     }
 
+    @GetMapping("/company/{companyId}/reviews/scroll")
+    public ResponseEntity<CursorPagedModel<CompanyReviewDTO>> scrollCompanyReviews(
+            @PathVariable(name = "companyId") final Long companyId,
+            @RequestParam(name = "after", required = false) final String after,
+            @RequestParam(name = "before", required = false) final String before,
+            @RequestParam(name = "size", defaultValue = "20") final int size
+    ) {
+        return ResponseEntity.ok(companyReviewService.scrollByCompany(companyId, new CursorRequest(after, before, size)));
+    }
+
     @GetMapping("/project/{projectId}")
     public ResponseEntity<ProjectDTO> viewProject(
             @PathVariable(name = "projectId") final Long projectId) {
@@ -152,19 +254,26 @@ public class UserController {
     public ResponseEntity<PagedContactItemDTO> getConversations(Authentication authentication,
             @Parameter(hidden = true) @PageableDefault(size = 20) final Pageable pageable) {
         var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
-        return ResponseEntity.ok(new PagedContactItemDTO(
-                chatMessageService.findConversation(userId, pageable)
-                        .map(conversationId -> {
-                            var contactItem = new ContactItemDTO();
-                            var latestMessage = chatMessageService.getLatestMessage(conversationId);
-                            contactItem.setConversationId(conversationId);
-                            contactItem.setChatUserId(
-                                    latestMessage.getReceiver().equals(userId) ? latestMessage.getSender()
-                                            : latestMessage.getReceiver());
-                            contactItem.setLatestMessage(latestMessage);
-                            return contactItem;
-                        })
-        ));
+        return ResponseEntity.ok(new PagedContactItemDTO(conversationService.findInbox(userId, pageable)));
+    }
+
+    /**
+     * Server-sent event stream of new chat messages of the authenticated user. Polling the
+     * conversation endpoints is only needed after a reconnect.
+     */
+    @GetMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessages(Authentication authentication) {
+        var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
+        return chatPushService.subscribe(userId);
+    }
+
+    @PatchMapping("/chat/conversation/{conversationId}/read")
+    public ResponseEntity<Void> markConversationRead(
+            @PathVariable(name = "conversationId") final UUID conversationId,
+            Authentication authentication) {
+        var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
+        conversationService.markRead(userId, conversationId);
+        return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/chat/conversation/{conversationId}/latest")
@@ -181,6 +290,16 @@ public class UserController {
                 new PagedChatMessageDTO(chatMessageService.getConversationMessages(conversationId, pageable)));
     }
 
+    @GetMapping("/chat/conversation/{conversationId}/scroll")
+    public ResponseEntity<CursorPagedModel<ChatMessageDTO>> scrollConversationMessages(
+            @PathVariable(name = "conversationId") final UUID conversationId,
+            @RequestParam(name = "after", required = false) final String after,
+            @RequestParam(name = "before", required = false) final String before,
+            @RequestParam(name = "size", defaultValue = "20") final int size) {
+        return ResponseEntity.ok(chatMessageService.scrollConversationMessages(conversationId,
+                new CursorRequest(after, before, size)));
+    }
+
     @PostMapping("/chat")
     public ResponseEntity<ChatMessageDTO> sendMessage(@RequestBody @Valid final SendChatMessageDTO sendChatMessageDTO,
             Authentication authentication) {
@@ -197,66 +316,67 @@ public class UserController {
         chatMessage.setConversationId(conversationId);
         chatMessage.setSender(userId);
         chatMessage.setReceiver(sendChatMessageDTO.getReceiver());
-        var messageId = chatMessageService.create(chatMessage);
-        return ResponseEntity.ok(chatMessageService.get(messageId));
+        return ResponseEntity.ok(chatMessageService.create(chatMessage));
     }
 
+    /**
+     * Toggle the like of the current user on a company review.
+     */
     @PatchMapping("/company/review/{reviewId}/like")
     public ResponseEntity<LikeResultDTO> likeCompanyReview(
             @PathVariable(name = "reviewId") final Long reviewId,
             Authentication authentication
     ) {
-        LikeResultDTO resultDTO = new LikeResultDTO();
         var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
-        var appUser = appUserService.get(userId);
-        if (appUser.getLikedCompanyReviews() != null && appUser.getLikedCompanyReviews().contains(reviewId)) {
-            appUser.getLikedCompanyReviews().remove(reviewId);
-            appUserService.update(appUser.getUserId(), appUser);
-
-            var likeCount = companyReviewService.getLikeCount(reviewId);
-            resultDTO.setLikeCount(likeCount);
-            resultDTO.setLike(false);
-        } else {
-            if (appUser.getLikedCompanyReviews() == null) {
-                appUser.setLikedCompanyReviews(new ArrayList<>());
-            }
-            appUser.getLikedCompanyReviews().add(reviewId);
-            appUserService.update(appUser.getUserId(), appUser);
-
-            var likeCount = companyReviewService.getLikeCount(reviewId);
-            resultDTO.setLikeCount(likeCount);
-            resultDTO.setLike(true);
-        }
-        return ResponseEntity.ok(resultDTO);
+        return ResponseEntity.ok(reviewLikeService.likeCompanyReview(userId, reviewId, null));
+    }
+
+    @PutMapping("/company/review/{reviewId}/like")
+    public ResponseEntity<LikeResultDTO> putCompanyReviewLike(
+            @PathVariable(name = "reviewId") final Long reviewId,
+            Authentication authentication
+    ) {
+        var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
+        return ResponseEntity.ok(reviewLikeService.likeCompanyReview(userId, reviewId, true));
+    }
+
+    @DeleteMapping("/company/review/{reviewId}/like")
+    public ResponseEntity<LikeResultDTO> deleteCompanyReviewLike(
+            @PathVariable(name = "reviewId") final Long reviewId,
+            Authentication authentication
+    ) {
+        var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
+        return ResponseEntity.ok(reviewLikeService.likeCompanyReview(userId, reviewId, false));
     }
 
+    /**
+     * Toggle the like of the current user on a project review.
+     */
     @PatchMapping("/project/review/{reviewId}/like")
     public ResponseEntity<LikeResultDTO> likeProjectReview(
             @PathVariable(name = "reviewId") final Long reviewId,
             Authentication authentication
     ) {
-        LikeResultDTO resultDTO = new LikeResultDTO();
         var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
-        var appUser = appUserService.get(userId);
-        if (appUser.getLikeProjectReviews() != null && appUser.getLikeProjectReviews().contains(reviewId)) {
-            appUser.getLikeProjectReviews().remove(reviewId);
-            appUserService.update(appUser.getUserId(), appUser);
-
-            var likeCount = projectReviewService.getLikeCount(reviewId);
-            resultDTO.setLikeCount(likeCount);
-            resultDTO.setLike(false);
-        } else {
-            if (appUser.getLikeProjectReviews() == null) {
-                appUser.setLikeProjectReviews(new ArrayList<>());
-            }
-            appUser.getLikeProjectReviews().add(reviewId);
-            appUserService.update(appUser.getUserId(), appUser);
-
-            var likeCount = projectReviewService.getLikeCount(reviewId);
-            resultDTO.setLikeCount(likeCount);
-            resultDTO.setLike(true);
-        }
-        return ResponseEntity.ok(resultDTO);
+        return ResponseEntity.ok(reviewLikeService.likeProjectReview(userId, reviewId, null));
+    }
+
+    @PutMapping("/project/review/{reviewId}/like")
+    public ResponseEntity<LikeResultDTO> putProjectReviewLike(
+            @PathVariable(name = "reviewId") final Long reviewId,
+            Authentication authentication
+    ) {
+        var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
+        return ResponseEntity.ok(reviewLikeService.likeProjectReview(userId, reviewId, true));
+    }
+
+    @DeleteMapping("/project/review/{reviewId}/like")
+    public ResponseEntity<LikeResultDTO> deleteProjectReviewLike(
+            @PathVariable(name = "reviewId") final Long reviewId,
+            Authentication authentication
+    ) {
+        var userId = ((UserUserDetails) authentication.getPrincipal()).getUserId();
+        return ResponseEntity.ok(reviewLikeService.likeProjectReview(userId, reviewId, false));
     }
 
 }
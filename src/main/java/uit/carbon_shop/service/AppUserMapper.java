@@ -76,8 +76,7 @@ public interface AppUserMapper {
             @Context CompanyReviewRepository companyReviewRepository,
             @Context ProjectReviewRepository projectReviewRepository,
             @Context PasswordEncoder passwordEncoder) {
-        final Company company = appUserDTO.getCompany() == null ? null : companyRepository.findById(appUserDTO.getCompany())
-                .orElseThrow(() -> new NotFoundException("company not found"));
+        final Company company = appUserDTO.getCompany() == null ? null : companyRepository.getReferenceById(appUserDTO.getCompany());
         appUser.setCompany(company);
         final List<Project> favoriteProjects = projectRepository.findAllById(
                 appUserDTO.getFavoriteProjects() == null ? Collections.emptyList() : appUserDTO.getFavoriteProjects());
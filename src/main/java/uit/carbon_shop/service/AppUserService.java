@@ -2,10 +2,15 @@ package uit.carbon_shop.service;
 
 import jakarta.transaction.Transactional;
 import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -18,6 +23,7 @@ import uit.carbon_shop.domain.Project;
 import uit.carbon_shop.domain.ProjectReview;
 import uit.carbon_shop.domain.Question;
 import uit.carbon_shop.model.AppUserDTO;
+import uit.carbon_shop.model.ProjectStatsChangedEvent;
 import uit.carbon_shop.model.UserStatus;
 import uit.carbon_shop.repos.AppUserRepository;
 import uit.carbon_shop.repos.CompanyRepository;
@@ -26,8 +32,10 @@ import uit.carbon_shop.repos.OrderRepository;
 import uit.carbon_shop.repos.ProjectRepository;
 import uit.carbon_shop.repos.ProjectReviewRepository;
 import uit.carbon_shop.repos.QuestionRepository;
+import uit.carbon_shop.util.ConflictException;
 import uit.carbon_shop.util.NotFoundException;
 import uit.carbon_shop.util.ReferencedWarning;
+import uit.carbon_shop.util.TwoTierCache;
 
 
 @Service
@@ -45,7 +53,10 @@ public class AppUserService {
     private final AppUserMapper appUserMapper;
     private final OrderRepository orderRepository;
     private final QuestionRepository questionRepository;
-    private final RedissonClient redissonClient;
+    private final UserUserDetailsService userUserDetailsService;
+    private final TwoTierCache<AppUserDTO> appUserCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FileDocumentService fileDocumentService;
 
     public Page<AppUserDTO> findAll(final String filter, final Pageable pageable) {
         Page<AppUser> page;
@@ -82,10 +93,17 @@ public class AppUserService {
                 pageable, page.getTotalElements());
     }
 
+    /**
+     * Read through the user cache - the returned DTO is shared and must not be modified.
+     */
     public AppUserDTO get(final Long userId) {
-        return appUserRepository.findById(userId)
+        final AppUserDTO appUserDTO = appUserCache.get(userId.toString(), key -> appUserRepository.findById(userId)
                 .map(appUser -> appUserMapper.updateAppUserDTO(appUser, new AppUserDTO()))
-                .orElseThrow(NotFoundException::new);
+                .orElse(null));
+        if (appUserDTO == null) {
+            throw new NotFoundException();
+        }
+        return appUserDTO;
     }
 
     public Long create(final AppUserDTO appUserDTO) {
@@ -93,40 +111,46 @@ public class AppUserService {
         appUser.setId(appUserDTO.getUserId());
         appUserMapper.updateAppUser(appUserDTO, appUser, companyRepository, projectRepository, companyReviewRepository,
                 projectReviewRepository, passwordEncoder);
-        return appUserRepository.save(appUser).getId();
+        final Long id = appUserRepository.save(appUser).getId();
+        publishFavoritesChanged(favoriteProjectIds(appUser));
+        return id;
     }
 
     public void update(final Long userId, final AppUserDTO appUserDTO) {
         final AppUser appUser = appUserRepository.findById(userId)
                 .orElseThrow(NotFoundException::new);
+        userUserDetailsService.evictCachedUser(appUser.getEmail());
+        final Set<Long> previousFavorites = favoriteProjectIds(appUser);
+        final Long previousAvatar = appUser.getAvatar();
         appUserMapper.updateAppUser(appUserDTO, appUser, companyRepository, projectRepository, companyReviewRepository,
                 projectReviewRepository, passwordEncoder);
         appUserRepository.save(appUser);
+        fileDocumentService.deleteDropped(Collections.singletonList(previousAvatar),
+                Collections.singletonList(appUser.getAvatar()));
+        final Set<Long> favorites = favoriteProjectIds(appUser);
+        final Set<Long> changedFavorites = new HashSet<>(previousFavorites);
+        changedFavorites.addAll(favorites);
+        previousFavorites.retainAll(favorites);
+        changedFavorites.removeAll(previousFavorites);
+        publishFavoritesChanged(changedFavorites);
+        userUserDetailsService.evictCachedUser(appUser.getEmail());
+        appUserCache.evictOnCommit(userId.toString());
     }
 
     public void updateStatus(final Long userId, final UserStatus status) {
-        RLock appUserLock = redissonClient.getLock("APP_USER_LOCK:" + userId);
-        log.info("Start lock key APP_USER_LOCK:{} on threadId={}", userId, Thread.currentThread().threadId());
-        appUserLock.lock();
-        log.info("Locked key APP_USER_LOCK:{} on threadId={}", userId, Thread.currentThread().threadId());
-        try {
-            final AppUser appUser = appUserRepository.findById(userId)
-                    .orElseThrow(NotFoundException::new);
-            if (!appUser.getStatus().canUpdateTo(status)) {
-                throw new IllegalArgumentException(
-                        "Cannot update status from " + appUser.getStatus() + " to " + status);
+        final LocalDateTime now = LocalDateTime.now();
+        final int updated = appUserRepository.updateStatus(userId, status.updatableFrom(), status,
+                status == UserStatus.APPROVED ? now : null, status == UserStatus.REJECTED ? now : null,
+                OffsetDateTime.now());
+        if (updated == 0) {
+            if (!appUserRepository.existsById(userId)) {
+                throw new NotFoundException();
             }
-            appUser.setStatus(status);
-            if (status == UserStatus.APPROVED) {
-                appUser.setApprovedAt(LocalDateTime.now());
-            } else if (status == UserStatus.REJECTED) {
-                appUser.setRejectedAt(LocalDateTime.now());
-            }
-            appUserRepository.saveAndFlush(appUser);
-        } finally {
-            appUserLock.unlock();
-            log.info("Unlocked key APP_USER_LOCK:{} on threadId={}", userId, Thread.currentThread().threadId());
+            throw new ConflictException("Cannot update status to " + status);
         }
+        log.info("updated status of user {} to {}", userId, status);
+        userUserDetailsService.evictCachedUser(appUserRepository.findEmailById(userId));
+        appUserCache.evictOnCommit(userId.toString());
     }
 
     public void approve(final Long userId) {
@@ -138,7 +162,30 @@ public class AppUserService {
     }
 
     public void delete(final Long userId) {
+        final Optional<AppUser> appUser = appUserRepository.findById(userId);
+        appUser.ifPresent(deleted -> {
+            userUserDetailsService.evictCachedUser(deleted.getEmail());
+            publishFavoritesChanged(favoriteProjectIds(deleted));
+        });
         appUserRepository.deleteById(userId);
+        // once the user is gone, so that its own reference doesn't keep the avatar
+        appUser.ifPresent(deleted -> fileDocumentService.deleteDropped(
+                Collections.singletonList(deleted.getAvatar()), null));
+        appUserCache.evictOnCommit(userId.toString());
+    }
+
+    private static Set<Long> favoriteProjectIds(final AppUser appUser) {
+        return appUser.getFavoriteProjects() == null ? new HashSet<>() : appUser.getFavoriteProjects()
+                .stream()
+                .map(Project::getId)
+                .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    /**
+     * The favorite count is part of the project card.
+     */
+    private void publishFavoritesChanged(final Set<Long> projectIds) {
+        projectIds.forEach(projectId -> eventPublisher.publishEvent(new ProjectStatsChangedEvent(projectId)));
     }
 
     public boolean companyExists(final Long id) {
@@ -11,7 +11,6 @@ import uit.carbon_shop.domain.AppUser;
 import uit.carbon_shop.domain.ChatMessage;
 import uit.carbon_shop.model.ChatMessageDTO;
 import uit.carbon_shop.repos.AppUserRepository;
-import uit.carbon_shop.util.NotFoundException;
 
 
 @Mapper(
@@ -44,11 +43,9 @@ public interface ChatMessageMapper {
     @AfterMapping
     default void afterUpdateChatMessage(ChatMessageDTO chatMessageDTO,
             @MappingTarget ChatMessage chatMessage, @Context AppUserRepository appUserRepository) {
-        final AppUser sender = chatMessageDTO.getSender() == null ? null : appUserRepository.findById(chatMessageDTO.getSender())
-                .orElseThrow(() -> new NotFoundException("sender not found"));
+        final AppUser sender = chatMessageDTO.getSender() == null ? null : appUserRepository.getReferenceById(chatMessageDTO.getSender());
         chatMessage.setSender(sender);
-        final AppUser receiver = chatMessageDTO.getReceiver() == null ? null : appUserRepository.findById(chatMessageDTO.getReceiver())
-                .orElseThrow(() -> new NotFoundException("receiver not found"));
+        final AppUser receiver = chatMessageDTO.getReceiver() == null ? null : appUserRepository.getReferenceById(chatMessageDTO.getReceiver());
         chatMessage.setReceiver(receiver);
     }
 
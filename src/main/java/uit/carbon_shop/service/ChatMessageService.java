@@ -1,31 +1,48 @@
 package uit.carbon_shop.service;
 
+import jakarta.transaction.Transactional;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import uit.carbon_shop.domain.ChatMessage;
 import uit.carbon_shop.model.ChatMessageDTO;
+import uit.carbon_shop.model.CursorPagedModel;
+import uit.carbon_shop.model.CursorRequest;
 import uit.carbon_shop.repos.AppUserRepository;
-import uit.carbon_shop.domain.ChatMessageConversationIdProjection;
 import uit.carbon_shop.repos.ChatMessageRepository;
+import uit.carbon_shop.util.CursorToken;
 import uit.carbon_shop.util.NotFoundException;
 
 
 @Service
+@Transactional
 public class ChatMessageService {
 
     private final ChatMessageRepository chatMessageRepository;
     private final AppUserRepository appUserRepository;
     private final ChatMessageMapper chatMessageMapper;
+    private final ConversationService conversationService;
+    private final LockService lockService;
+    private final ChatPushService chatPushService;
+    private final TransactionTemplate transactionTemplate;
 
     public ChatMessageService(final ChatMessageRepository chatMessageRepository,
-            final AppUserRepository appUserRepository, final ChatMessageMapper chatMessageMapper) {
+            final AppUserRepository appUserRepository, final ChatMessageMapper chatMessageMapper,
+            final ConversationService conversationService, final LockService lockService,
+            final ChatPushService chatPushService, final TransactionTemplate transactionTemplate) {
         this.chatMessageRepository = chatMessageRepository;
         this.appUserRepository = appUserRepository;
         this.chatMessageMapper = chatMessageMapper;
+        this.conversationService = conversationService;
+        this.lockService = lockService;
+        this.chatPushService = chatPushService;
+        this.transactionTemplate = transactionTemplate;
     }
 
     public Page<ChatMessageDTO> findAll(final String filter, final Pageable pageable) {
@@ -48,12 +65,12 @@ public class ChatMessageService {
                 pageable, page.getTotalElements());
     }
 
-    public Page<UUID> findConversation(long userId, Pageable pageable) {
-        return chatMessageRepository.findDistinctBySender_IdOrReceiver_Id(userId, userId, pageable)
-                .map(ChatMessageConversationIdProjection::getConversationId);
-    }
-
     public Optional<UUID> findConversation(long senderId, long receiverId) {
+        final UUID conversationId = conversationService.findConversationId(senderId, receiverId);
+        if (conversationId != null) {
+            return Optional.of(conversationId);
+        }
+        // conversations not yet in the inbox table
         return chatMessageRepository.findFirstBySender_IdAndReceiver_Id(senderId, receiverId)
                 .or(() -> chatMessageRepository.findFirstBySender_IdAndReceiver_Id(receiverId, senderId))
                 .map(ChatMessage::getConversationId);
@@ -64,6 +81,28 @@ public class ChatMessageService {
                 .map(chatMessage -> chatMessageMapper.updateChatMessageDTO(chatMessage, new ChatMessageDTO()));
     }
 
+    /**
+     * Keyset scroll over a conversation, newest first. The cursor is (createdAt, id).
+     */
+    public CursorPagedModel<ChatMessageDTO> scrollConversationMessages(final UUID conversationId,
+            final CursorRequest cursor) {
+        final Pageable pageable = cursor.pageable(Sort.Direction.DESC, "createdAt", "id");
+        final List<ChatMessage> rows;
+        if (!cursor.hasCursor()) {
+            rows = chatMessageRepository.findByConversationId(conversationId, pageable);
+        } else {
+            final long[] keys = cursor.keys(2);
+            rows = cursor.isBackward()
+                    ? chatMessageRepository.scrollNewer(conversationId, CursorToken.fromEpochMicros(keys[0]), keys[1],
+                            pageable)
+                    : chatMessageRepository.scrollOlder(conversationId, CursorToken.fromEpochMicros(keys[0]), keys[1],
+                            pageable);
+        }
+        return CursorPagedModel.of(rows, cursor, chatMessage -> CursorToken.encode(
+                        CursorToken.toEpochMicros(chatMessage.getCreatedAt()), chatMessage.getId()))
+                .map(chatMessage -> chatMessageMapper.updateChatMessageDTO(chatMessage, new ChatMessageDTO()));
+    }
+
     public ChatMessageDTO getLatestMessage(UUID conversationId) {
         return chatMessageRepository.findFirstByConversationIdOrderByCreatedAtDesc(conversationId)
                 .map(chatMessage -> chatMessageMapper.updateChatMessageDTO(chatMessage, new ChatMessageDTO()))
@@ -76,11 +115,23 @@ public class ChatMessageService {
                 .orElseThrow(NotFoundException::new);
     }
 
-    public Long create(final ChatMessageDTO chatMessageDTO) {
-        final ChatMessage chatMessage = new ChatMessage();
-        chatMessage.setId(chatMessageDTO.getId());
-        chatMessageMapper.updateChatMessage(chatMessageDTO, chatMessage, appUserRepository);
-        return chatMessageRepository.save(chatMessage).getId();
+    /**
+     * Store the message and update the inbox in one transaction, committed while the conversation
+     * lock is still held, then push it to the participants.
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public ChatMessageDTO create(final ChatMessageDTO chatMessageDTO) {
+        final ChatMessageDTO savedDTO = lockService.withLock(conversationLock(chatMessageDTO.getConversationId()),
+                () -> transactionTemplate.execute(status -> {
+                    final ChatMessage chatMessage = new ChatMessage();
+                    chatMessage.setId(chatMessageDTO.getId());
+                    chatMessageMapper.updateChatMessage(chatMessageDTO, chatMessage, appUserRepository);
+                    final ChatMessage saved = chatMessageRepository.save(chatMessage);
+                    conversationService.recordMessage(saved);
+                    return chatMessageMapper.updateChatMessageDTO(saved, new ChatMessageDTO());
+                }));
+        chatPushService.publish(savedDTO);
+        return savedDTO;
     }
 
     public void update(final Long id, final ChatMessageDTO chatMessageDTO) {
@@ -90,8 +141,23 @@ public class ChatMessageService {
         chatMessageRepository.save(chatMessage);
     }
 
+    /**
+     * Delete the message and repoint the inbox rows that showed it, in one transaction under the
+     * conversation lock.
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public void delete(final Long id) {
-        chatMessageRepository.deleteById(id);
+        chatMessageRepository.findById(id).ifPresent(chatMessage -> lockService.withLock(
+                conversationLock(chatMessage.getConversationId()),
+                () -> transactionTemplate.execute(status -> {
+                    conversationService.detachMessage(id);
+                    chatMessageRepository.deleteById(id);
+                    return null;
+                })));
+    }
+
+    private static String conversationLock(final UUID conversationId) {
+        return "CONVERSATION_LOCK:" + conversationId;
     }
 
 }
@@ -0,0 +1,176 @@
+package uit.carbon_shop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.TypedJsonJacksonCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import uit.carbon_shop.config.JacksonConfig;
+import uit.carbon_shop.model.ChatMessageDTO;
+
+
+/**
+ * Pushes chat messages to connected clients over server-sent events. Every node keeps the
+ * emitters of its own connections; messages are fanned out to all nodes through a Redisson topic
+ * and written to the local emitters of sender and receiver by a bounded executor, so a slow client
+ * can't stall the topic listener.
+ */
+@Service
+@Slf4j
+public class ChatPushService {
+
+    private static final long EMITTER_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private final Map<Long, Set<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final RTopic chatTopic;
+    private final ThreadPoolExecutor deliveryExecutor;
+    private final int maxConnectionsPerUser;
+    private final Counter delivered;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Counter rejected;
+
+    public ChatPushService(final RedissonClient redissonClient, final ObjectMapper objectMapper,
+            final MeterRegistry meterRegistry,
+            @Value("${app.chat-push.max-connections-per-user:5}") final int maxConnectionsPerUser,
+            @Value("${app.chat-push.delivery-threads:8}") final int deliveryThreads,
+            @Value("${app.chat-push.delivery-queue:10000}") final int deliveryQueue) {
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.deliveryExecutor = new ThreadPoolExecutor(deliveryThreads, deliveryThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(deliveryQueue), Thread.ofPlatform().name("chat-push-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.chatTopic = redissonClient.getTopic("CHAT_PUSH",
+                new TypedJsonJacksonCodec(ChatMessageDTO.class, JacksonConfig.withoutFileUrls(objectMapper)));
+        this.chatTopic.addListener(ChatMessageDTO.class, (channel, message) -> deliverLocally(message));
+        Gauge.builder("app.chat.push.connections", connections, AtomicInteger::get)
+                .register(meterRegistry);
+        Gauge.builder("app.chat.push.queue", deliveryExecutor, executor -> executor.getQueue().size())
+                .register(meterRegistry);
+        this.delivered = Counter.builder("app.chat.push.events").tag("result", "delivered").register(meterRegistry);
+        this.failed = Counter.builder("app.chat.push.events").tag("result", "failed").register(meterRegistry);
+        this.dropped = Counter.builder("app.chat.push.events").tag("result", "dropped").register(meterRegistry);
+        this.rejected = Counter.builder("app.chat.push.rejected.connections").register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(final Long userId) {
+        final SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        final Set<SseEmitter> userEmitters = emitters.compute(userId, (key, value) -> {
+            final Set<SseEmitter> current = value == null ? new CopyOnWriteArraySet<>() : value;
+            if (current.size() < maxConnectionsPerUser) {
+                current.add(emitter);
+            }
+            return current;
+        });
+        if (!userEmitters.contains(emitter)) {
+            rejected.increment();
+            emitter.completeWithError(new IllegalStateException("Too many chat connections"));
+            return emitter;
+        }
+        connections.incrementAndGet();
+        final Runnable remove = () -> remove(userId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(throwable -> remove.run());
+        try {
+            emitter.send(SseEmitter.event().name("connected").data(userId));
+        } catch (final IOException ioException) {
+            remove.run();
+        }
+        return emitter;
+    }
+
+    /**
+     * Publish a persisted message to every node; the nodes holding a connection of the sender or
+     * receiver deliver it.
+     */
+    public void publish(final ChatMessageDTO chatMessageDTO) {
+        try {
+            chatTopic.publish(chatMessageDTO);
+        } catch (final RuntimeException runtimeException) {
+            // clients fall back to polling
+            log.warn("chat push publish of {} failed: {}", chatMessageDTO.getId(), runtimeException.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelay = 25_000, initialDelay = 25_000)
+    public void heartbeat() {
+        emitters.forEach((userId, userEmitters) -> userEmitters.forEach(emitter -> submit(userId, emitter,
+                SseEmitter.event().comment("ping"))));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deliveryExecutor.shutdownNow();
+        emitters.values().forEach(userEmitters -> userEmitters.forEach(SseEmitter::complete));
+    }
+
+    private void deliverLocally(final ChatMessageDTO chatMessageDTO) {
+        deliverTo(chatMessageDTO.getReceiver(), chatMessageDTO);
+        if (chatMessageDTO.getSender() != null && !chatMessageDTO.getSender().equals(chatMessageDTO.getReceiver())) {
+            // other sessions of the sender
+            deliverTo(chatMessageDTO.getSender(), chatMessageDTO);
+        }
+    }
+
+    private void deliverTo(final Long userId, final ChatMessageDTO chatMessageDTO) {
+        if (userId == null) {
+            return;
+        }
+        final Set<SseEmitter> userEmitters = emitters.get(userId);
+        if (userEmitters == null) {
+            return;
+        }
+        for (final SseEmitter emitter : userEmitters) {
+            submit(userId, emitter, SseEmitter.event()
+                    .name("message")
+                    .id(String.valueOf(chatMessageDTO.getId()))
+                    .data(chatMessageDTO, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private void submit(final Long userId, final SseEmitter emitter, final SseEmitter.SseEventBuilder event) {
+        try {
+            deliveryExecutor.execute(() -> {
+                try {
+                    emitter.send(event);
+                    delivered.increment();
+                } catch (final IOException | IllegalStateException exception) {
+                    failed.increment();
+                    remove(userId, emitter);
+                }
+            });
+        } catch (final RejectedExecutionException rejectedExecutionException) {
+            dropped.increment();
+        }
+    }
+
+    private void remove(final Long userId, final SseEmitter emitter) {
+        emitters.computeIfPresent(userId, (key, value) -> {
+            if (value.remove(emitter)) {
+                connections.decrementAndGet();
+            }
+            return value.isEmpty() ? null : value;
+        });
+    }
+
+}
@@ -11,13 +11,15 @@ import uit.carbon_shop.model.CompanyDTO;
 
 @Mapper(
         componentModel = MappingConstants.ComponentModel.SPRING,
-        unmappedTargetPolicy = ReportingPolicy.IGNORE
+        unmappedTargetPolicy = ReportingPolicy.IGNORE,
+        uses = RatingMapper.class
 )
 public interface CompanyMapper {
 
     CompanyDTO updateCompanyDTO(Company company, @MappingTarget CompanyDTO companyDTO);
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "rating", ignore = true)
     Company updateCompany(CompanyDTO companyDTO, @MappingTarget Company company);
 
 }
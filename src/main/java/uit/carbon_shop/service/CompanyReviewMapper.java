@@ -13,7 +13,6 @@ import uit.carbon_shop.domain.CompanyReview;
 import uit.carbon_shop.model.CompanyReviewDTO;
 import uit.carbon_shop.repos.AppUserRepository;
 import uit.carbon_shop.repos.CompanyRepository;
-import uit.carbon_shop.util.NotFoundException;
 
 
 @Mapper(
@@ -24,7 +23,6 @@ public interface CompanyReviewMapper {
 
     @Mapping(target = "company", ignore = true)
     @Mapping(target = "reviewBy", ignore = true)
-    @Mapping(target = "likeCount", ignore = true)
     CompanyReviewDTO updateCompanyReviewDTO(CompanyReview companyReview,
             @MappingTarget CompanyReviewDTO companyReviewDTO);
 
@@ -33,10 +31,10 @@ public interface CompanyReviewMapper {
             @MappingTarget CompanyReviewDTO companyReviewDTO) {
         companyReviewDTO.setCompany(companyReview.getCompany() == null ? null : companyReview.getCompany().getId());
         companyReviewDTO.setReviewBy(companyReview.getReviewBy() == null ? null : companyReview.getReviewBy().getId());
-        companyReviewDTO.setLikeCount(companyReview.getLikedBy().size());
     }
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "likeCount", ignore = true)
     @Mapping(target = "company", ignore = true)
     @Mapping(target = "reviewBy", ignore = true)
     CompanyReview updateCompanyReview(CompanyReviewDTO companyReviewDTO,
@@ -49,11 +47,9 @@ public interface CompanyReviewMapper {
             @MappingTarget CompanyReview companyReview,
             @Context CompanyRepository companyRepository,
             @Context AppUserRepository appUserRepository) {
-        final Company company = companyReviewDTO.getCompany() == null ? null : companyRepository.findById(companyReviewDTO.getCompany())
-                .orElseThrow(() -> new NotFoundException("company not found"));
+        final Company company = companyReviewDTO.getCompany() == null ? null : companyRepository.getReferenceById(companyReviewDTO.getCompany());
         companyReview.setCompany(company);
-        final AppUser reviewBy = companyReviewDTO.getReviewBy() == null ? null : appUserRepository.findById(companyReviewDTO.getReviewBy())
-                .orElseThrow(() -> new NotFoundException("reviewBy not found"));
+        final AppUser reviewBy = companyReviewDTO.getReviewBy() == null ? null : appUserRepository.getReferenceById(companyReviewDTO.getReviewBy());
         companyReview.setReviewBy(reviewBy);
     }
 
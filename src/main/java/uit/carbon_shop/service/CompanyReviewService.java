@@ -1,16 +1,24 @@
 package uit.carbon_shop.service;
 
 import jakarta.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import uit.carbon_shop.domain.CompanyReview;
+import uit.carbon_shop.model.AppUserDTO;
 import uit.carbon_shop.model.CompanyReviewDTO;
+import uit.carbon_shop.model.CursorPagedModel;
+import uit.carbon_shop.model.CursorRequest;
 import uit.carbon_shop.repos.AppUserRepository;
 import uit.carbon_shop.repos.CompanyRepository;
 import uit.carbon_shop.repos.CompanyReviewRepository;
+import uit.carbon_shop.util.CursorToken;
 import uit.carbon_shop.util.NotFoundException;
+import uit.carbon_shop.util.TwoTierCache;
 
 
 @Service
@@ -21,14 +29,20 @@ public class CompanyReviewService {
     private final CompanyRepository companyRepository;
     private final AppUserRepository appUserRepository;
     private final CompanyReviewMapper companyReviewMapper;
+    private final TwoTierCache<AppUserDTO> appUserCache;
+    private final RatingService ratingService;
+    private final FileDocumentService fileDocumentService;
 
     public CompanyReviewService(final CompanyReviewRepository companyReviewRepository,
             final CompanyRepository companyRepository, final AppUserRepository appUserRepository,
-            final CompanyReviewMapper companyReviewMapper) {
+            final CompanyReviewMapper companyReviewMapper, final TwoTierCache<AppUserDTO> appUserCache,
+            final RatingService ratingService) {
         this.companyReviewRepository = companyReviewRepository;
         this.companyRepository = companyRepository;
         this.appUserRepository = appUserRepository;
         this.companyReviewMapper = companyReviewMapper;
+        this.appUserCache = appUserCache;
+        this.ratingService = ratingService;
     }
 
     public Page<CompanyReviewDTO> findAll(final String filter, final Pageable pageable) {
@@ -60,8 +74,19 @@ public class CompanyReviewService {
                 pageable, page.getTotalElements());
     }
 
+    public CursorPagedModel<CompanyReviewDTO> scrollByCompany(final Long companyId, final CursorRequest cursor) {
+        final List<CompanyReview> rows = companyReviewRepository.scrollByCompany(companyId, cursor.lowerId(), cursor.upperId(),
+                cursor.pageable(Sort.Direction.ASC, "id"));
+        return CursorPagedModel.of(rows, cursor, companyReview -> CursorToken.encode(companyReview.getId()))
+                .map(companyReview -> companyReviewMapper.updateCompanyReviewDTO(companyReview, new CompanyReviewDTO()));
+    }
+
     public int getLikeCount(final Long id) {
-        return companyReviewRepository.findById(id).map(CompanyReview::getLikedBy).orElseThrow(NotFoundException::new).size();
+        final Integer likeCount = companyReviewRepository.findLikeCount(id);
+        if (likeCount == null) {
+            throw new NotFoundException();
+        }
+        return likeCount;
     }
 
     public CompanyReviewDTO get(final Long id) {
@@ -74,14 +99,24 @@ public class CompanyReviewService {
         final CompanyReview companyReview = new CompanyReview();
         companyReview.setId(companyReviewDTO.getId());
         companyReviewMapper.updateCompanyReview(companyReviewDTO, companyReview, companyRepository, appUserRepository);
-        return companyReviewRepository.save(companyReview).getId();
+        final Long id = companyReviewRepository.save(companyReview).getId();
+        ratingService.companyReviewChanged(null, null, companyId(companyReview), companyReview.getRate());
+        return id;
     }
 
     public void update(final Long id, final CompanyReviewDTO companyReviewDTO) {
         final CompanyReview companyReview = companyReviewRepository.findById(id)
                 .orElseThrow(NotFoundException::new);
+        final Long previousCompany = companyId(companyReview);
+        final Integer previousRate = companyReview.getRate();
+        // the mapper refills the image list in place
+        final List<Long> previousImages = companyReview.getImages() == null ? null
+                : new ArrayList<>(companyReview.getImages());
         companyReviewMapper.updateCompanyReview(companyReviewDTO, companyReview, companyRepository, appUserRepository);
         companyReviewRepository.save(companyReview);
+        fileDocumentService.deleteDropped(previousImages, companyReview.getImages());
+        ratingService.companyReviewChanged(previousCompany, previousRate, companyId(companyReview),
+                companyReview.getRate());
     }
 
     public void delete(final Long id) {
@@ -89,8 +124,17 @@ public class CompanyReviewService {
                 .orElseThrow(NotFoundException::new);
         // remove many-to-many relations at owning side
         appUserRepository.findAllByLikedCompanyReviews(companyReview)
-                .forEach(appUser -> appUser.getLikedCompanyReviews().remove(companyReview));
+                .forEach(appUser -> {
+                    appUser.getLikedCompanyReviews().remove(companyReview);
+                    appUserCache.evictOnCommit(appUser.getId().toString());
+                });
         companyReviewRepository.delete(companyReview);
+        fileDocumentService.deleteDropped(companyReview.getImages(), null);
+        ratingService.companyReviewChanged(companyId(companyReview), companyReview.getRate(), null, null);
+    }
+
+    private static Long companyId(final CompanyReview companyReview) {
+        return companyReview.getCompany() == null ? null : companyReview.getCompany().getId();
     }
 
 }
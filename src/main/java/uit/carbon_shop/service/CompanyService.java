@@ -1,13 +1,21 @@
 package uit.carbon_shop.service;
 
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import uit.carbon_shop.domain.AppUser;
 import uit.carbon_shop.domain.Company;
 import uit.carbon_shop.domain.CompanyReview;
 import uit.carbon_shop.domain.Project;
+import uit.carbon_shop.domain.SearchHit;
+import uit.carbon_shop.model.CompanyChangedEvent;
 import uit.carbon_shop.model.CompanyDTO;
 import uit.carbon_shop.repos.AppUserRepository;
 import uit.carbon_shop.repos.CompanyRepository;
@@ -15,6 +23,7 @@ import uit.carbon_shop.repos.CompanyReviewRepository;
 import uit.carbon_shop.repos.ProjectRepository;
 import uit.carbon_shop.util.NotFoundException;
 import uit.carbon_shop.util.ReferencedWarning;
+import uit.carbon_shop.util.TwoTierCache;
 
 
 @Service
@@ -25,16 +34,21 @@ public class CompanyService {
     private final AppUserRepository appUserRepository;
     private final ProjectRepository projectRepository;
     private final CompanyReviewRepository companyReviewRepository;
+    private final TwoTierCache<CompanyDTO> companyCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     public CompanyService(final CompanyRepository companyRepository,
             final CompanyMapper companyMapper, final AppUserRepository appUserRepository,
             final ProjectRepository projectRepository,
-            final CompanyReviewRepository companyReviewRepository) {
+            final CompanyReviewRepository companyReviewRepository,
+            final TwoTierCache<CompanyDTO> companyCache, final ApplicationEventPublisher eventPublisher) {
         this.companyRepository = companyRepository;
         this.companyMapper = companyMapper;
         this.appUserRepository = appUserRepository;
         this.projectRepository = projectRepository;
         this.companyReviewRepository = companyReviewRepository;
+        this.companyCache = companyCache;
+        this.eventPublisher = eventPublisher;
     }
 
     public Page<CompanyDTO> findAll(final String filter, final Pageable pageable) {
@@ -44,7 +58,9 @@ public class CompanyService {
             try {
                 longFilter = Long.parseLong(filter);
             } catch (final NumberFormatException numberFormatException) {
-                // keep null - no parseable input
+                if (StringUtils.hasText(filter)) {
+                    return fullTextSearch(filter.trim(), pageable);
+                }
             }
             page = companyRepository.findAllById(longFilter, pageable);
         } else {
@@ -57,17 +73,49 @@ public class CompanyService {
                 pageable, page.getTotalElements());
     }
 
+    /**
+     * Ranked search over company name, industry and address. Results come best match first, so the
+     * sort of the pageable is ignored.
+     */
+    private Page<CompanyDTO> fullTextSearch(final String text, final Pageable pageable) {
+        final Page<SearchHit> hits = companyRepository.fullTextSearch(text,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        final Map<Long, Company> companies = companyRepository.findAllById(hits.map(SearchHit::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Company::getId, Function.identity()));
+        return new PageImpl<>(hits.getContent()
+                .stream()
+                .filter(hit -> companies.containsKey(hit.getId()))
+                .map(hit -> {
+                    final CompanyDTO companyDTO = companyMapper.updateCompanyDTO(companies.get(hit.getId()),
+                            new CompanyDTO());
+                    companyDTO.setHighlight(hit.getHighlight());
+                    return companyDTO;
+                })
+                .toList(),
+                pageable, hits.getTotalElements());
+    }
+
+    /**
+     * Read through the company cache - the returned DTO is shared and must not be modified.
+     */
     public CompanyDTO get(final Long id) {
-        return companyRepository.findById(id)
+        final CompanyDTO companyDTO = companyCache.get(id.toString(), key -> companyRepository.findById(id)
                 .map(company -> companyMapper.updateCompanyDTO(company, new CompanyDTO()))
-                .orElseThrow(NotFoundException::new);
+                .orElse(null));
+        if (companyDTO == null) {
+            throw new NotFoundException();
+        }
+        return companyDTO;
     }
 
     public Long create(final CompanyDTO companyDTO) {
         final Company company = new Company();
         company.setId(companyDTO.getId());
         companyMapper.updateCompany(companyDTO, company);
-        return companyRepository.saveAndFlush(company).getId();
+        final Long id = companyRepository.saveAndFlush(company).getId();
+        eventPublisher.publishEvent(new CompanyChangedEvent(id));
+        return id;
     }
 
     public void update(final Long id, final CompanyDTO companyDTO) {
@@ -75,10 +123,14 @@ public class CompanyService {
                 .orElseThrow(NotFoundException::new);
         companyMapper.updateCompany(companyDTO, company);
         companyRepository.saveAndFlush(company);
+        companyCache.evictOnCommit(id.toString());
+        eventPublisher.publishEvent(new CompanyChangedEvent(id));
     }
 
     public void delete(final Long id) {
         companyRepository.deleteById(id);
+        companyCache.evictOnCommit(id.toString());
+        eventPublisher.publishEvent(new CompanyChangedEvent(id));
     }
 
     public ReferencedWarning getReferencedWarning(final Long id) {
@@ -0,0 +1,344 @@
+package uit.carbon_shop.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import uit.carbon_shop.domain.ContentBlob;
+import uit.carbon_shop.model.ImageVariant;
+import uit.carbon_shop.repos.ContentBlobRepository;
+import uit.carbon_shop.util.ByteBufferResource;
+import uit.carbon_shop.util.SegmentStore;
+
+
+/**
+ * Content addressed file storage. An upload is written once to a staging file while its SHA-256
+ * is computed, then stored under the hash or dropped when the same bytes are stored already.
+ * Content up to {@code app.content-blobs.small-blob-limit} is packed into the segment files of a
+ * {@link SegmentStore}, larger content is moved to {@code <root>/<2 hex>/<2 hex>/<hash>}.
+ * {@link ContentBlob} rows count the references; a scheduled sweep removes blobs that stayed
+ * unreferenced for {@code app.content-blobs.sweep-grace} and compacts the segments.
+ */
+@Service
+@Slf4j
+public class ContentBlobService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final double COMPACT_DEAD_SHARE = 0.5;
+
+    private final ContentBlobRepository contentBlobRepository;
+    private final RedissonClient redissonClient;
+    private final TransactionTemplate transactionTemplate;
+    private final Path root;
+    private final Path incoming;
+    private final SegmentStore segmentStore;
+    private final long smallBlobLimit;
+    private final long maxUploadSize;
+    private final Duration sweepGrace;
+    private final int sweepBatchSize;
+    private final Timer uploadTimer;
+    private final Counter uploadBytes;
+    private final DistributionSummary uploadThroughput;
+    private final Counter dedupSavedBytes;
+    private final Counter blobsRemoved;
+
+    public ContentBlobService(final ContentBlobRepository contentBlobRepository,
+            final RedissonClient redissonClient, final TransactionTemplate transactionTemplate,
+            final MeterRegistry meterRegistry, @Value("${app.content-blobs.root}") final Path root,
+            @Value("${spring.servlet.multipart.max-file-size:1MB}") final DataSize maxUploadSize,
+            @Value("${app.content-blobs.sweep-grace:PT1H}") final Duration sweepGrace,
+            @Value("${app.content-blobs.sweep-batch-size:500}") final int sweepBatchSize,
+            @Value("${app.content-blobs.small-blob-limit:64KB}") final DataSize smallBlobLimit,
+            @Value("${app.content-blobs.segment-size:64MB}") final DataSize segmentSize) throws IOException {
+        this.contentBlobRepository = contentBlobRepository;
+        this.redissonClient = redissonClient;
+        this.transactionTemplate = transactionTemplate;
+        this.root = root;
+        // staging files live below the root, so storing one is a rename on the same file system
+        this.incoming = Files.createDirectories(root.resolve("incoming"));
+        this.segmentStore = new SegmentStore(root.resolve("segments"), Math.toIntExact(segmentSize.toBytes()));
+        this.smallBlobLimit = Math.min(smallBlobLimit.toBytes(), segmentStore.maxLength());
+        this.maxUploadSize = maxUploadSize.toBytes();
+        this.sweepGrace = sweepGrace;
+        this.sweepBatchSize = sweepBatchSize;
+        this.uploadTimer = Timer.builder("app.files.upload")
+                .register(meterRegistry);
+        this.uploadBytes = Counter.builder("app.files.upload.bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.uploadThroughput = DistributionSummary.builder("app.files.upload.throughput")
+                .baseUnit("bytes per second")
+                .register(meterRegistry);
+        this.dedupSavedBytes = Counter.builder("app.files.dedup.saved")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.blobsRemoved = Counter.builder("app.files.blobs.removed")
+                .register(meterRegistry);
+        Gauge.builder("app.files.segments", segmentStore, SegmentStore::segmentCount)
+                .register(meterRegistry);
+        Gauge.builder("app.files.segments.used", segmentStore, SegmentStore::usedBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("app.files.segments.dead", segmentStore, SegmentStore::deadBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Content written to a staging file, not yet referenced.
+     */
+    public record StagedBlob(Path file, String hash, long length) {
+    }
+
+    /**
+     * Stream the content to a staging file, hashing it on the way. The caller passes the result to
+     * {@link #retain} and always {@link #discard}s it afterwards.
+     */
+    public StagedBlob stage(final InputStream inputStream) throws IOException {
+        final MessageDigest digest = sha256();
+        final Path file = Files.createTempFile(incoming, "upload-", ".part");
+        final long start = System.nanoTime();
+        long length = 0;
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                length += read;
+                if (length > maxUploadSize) {
+                    throw new MaxUploadSizeExceededException(maxUploadSize);
+                }
+                digest.update(buffer, 0, read);
+                outputStream.write(buffer, 0, read);
+            }
+        } catch (final IOException | RuntimeException exception) {
+            Files.deleteIfExists(file);
+            throw exception;
+        }
+        final long elapsed = System.nanoTime() - start;
+        uploadTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        uploadBytes.increment(length);
+        if (elapsed > 0) {
+            uploadThroughput.record(length * 1e9 / elapsed);
+        }
+        return new StagedBlob(file, HexFormat.of().formatHex(digest.digest()), length);
+    }
+
+    /**
+     * Add a reference to the staged content and store it unless the same bytes are stored already.
+     * The blob row stays locked until the caller's transaction commits, so the sweep can't remove
+     * the content in between.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    @SneakyThrows
+    public void retain(final StagedBlob staged) {
+        while (contentBlobRepository.insertIfAbsent(staged.hash(), staged.length()) == 0) {
+            if (contentBlobRepository.retain(staged.hash()) == 1) {
+                break;
+            }
+            // swept between both statements, insert again
+        }
+        // look at the content itself, a sweep whose commit failed may have left the row without it
+        final Path target = path(staged.hash());
+        final byte[] key = HexFormat.of().parseHex(staged.hash());
+        if (segmentStore.contains(key) || Files.exists(target)) {
+            Files.delete(staged.file());
+            dedupSavedBytes.increment(staged.length());
+        } else if (staged.length() <= smallBlobLimit) {
+            segmentStore.put(key, ByteBuffer.wrap(Files.readAllBytes(staged.file())));
+        } else {
+            Files.createDirectories(target.getParent());
+            Files.move(staged.file(), target, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    public void discard(final StagedBlob staged) throws IOException {
+        Files.deleteIfExists(staged.file());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        segmentStore.close();
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void release(final String hash) {
+        contentBlobRepository.release(hash);
+    }
+
+    /**
+     * Content of small blobs is served straight from the mapped segment, without a file open.
+     */
+    public Resource getResource(final String hash) {
+        return segmentStore.get(HexFormat.of().parseHex(hash))
+                .<Resource>map(content -> new ByteBufferResource(content, hash))
+                .orElseGet(() -> new FileSystemResource(path(hash)));
+    }
+
+    /**
+     * Derived content of a blob, such as an image thumbnail. Variants are stored under the hash of
+     * {@code <hash>~<name>}, as a file next to the blob when large, and removed together with it.
+     */
+    public Resource getVariantResource(final String hash, final String name) {
+        return segmentStore.get(variantKey(hash, name))
+                .<Resource>map(content -> new ByteBufferResource(content, hash + "~" + name))
+                .orElseGet(() -> new FileSystemResource(variantPath(hash, name)));
+    }
+
+    /**
+     * Store a variant while holding a share lock on the blob row, so the sweep can't remove the
+     * blob, and with it its variants, in between.
+     *
+     * @return false when the blob is gone, nothing is stored then
+     */
+    public boolean storeVariant(final String hash, final String name, final byte[] content) throws IOException {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (contentBlobRepository.lockShared(hash).isEmpty()) {
+                    return false;
+                }
+                try {
+                    writeVariant(hash, name, content);
+                } catch (final IOException ioException) {
+                    throw new UncheckedIOException(ioException);
+                }
+                return true;
+            }));
+        } catch (final UncheckedIOException uncheckedIOException) {
+            throw uncheckedIOException.getCause();
+        }
+    }
+
+    private void writeVariant(final String hash, final String name, final byte[] content) throws IOException {
+        if (content.length <= smallBlobLimit) {
+            segmentStore.put(variantKey(hash, name), ByteBuffer.wrap(content));
+            return;
+        }
+        final Path staged = Files.createTempFile(incoming, "variant-", ".part");
+        try {
+            Files.write(staged, content);
+            final Path target = variantPath(hash, name);
+            Files.createDirectories(target.getParent());
+            Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.content-blobs.sweep-interval}",
+            initialDelayString = "${app.content-blobs.sweep-interval}")
+    public void sweep() {
+        final RLock sweepLock = redissonClient.getLock("CONTENT_BLOB_SWEEP_LOCK");
+        if (!sweepLock.tryLock()) {
+            return;
+        }
+        int removed = 0;
+        try {
+            while (true) {
+                final List<String> batch = contentBlobRepository.findUnreferenced(
+                        OffsetDateTime.now().minus(sweepGrace), PageRequest.of(0, sweepBatchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (final String hash : batch) {
+                    if (Boolean.TRUE.equals(transactionTemplate.execute(status -> remove(hash)))) {
+                        removed++;
+                    }
+                }
+            }
+            final int compacted = segmentStore.compact(COMPACT_DEAD_SHARE);
+            if (compacted > 0) {
+                log.info("content blob sweep compacted {} segments", compacted);
+            }
+        } catch (final IOException ioException) {
+            log.warn("content blob sweep stopped", ioException);
+        } catch (final UncheckedIOException uncheckedIOException) {
+            log.warn("content blob sweep stopped", uncheckedIOException);
+        } finally {
+            sweepLock.unlock();
+            blobsRemoved.increment(removed);
+        }
+        if (removed > 0) {
+            log.info("content blob sweep removed {} unreferenced blobs", removed);
+        }
+    }
+
+    /**
+     * Deletes the content before commit while the row delete blocks concurrent uploads of the same
+     * bytes; they store the content again once the row is gone.
+     */
+    private boolean remove(final String hash) {
+        if (contentBlobRepository.deleteUnreferenced(hash) == 0) {
+            return false;
+        }
+        segmentStore.delete(HexFormat.of().parseHex(hash));
+        ImageVariant.fileNames().forEach(name -> segmentStore.delete(variantKey(hash, name)));
+        final Path path = path(hash);
+        try {
+            Files.deleteIfExists(path);
+            if (Files.isDirectory(path.getParent())) {
+                try (DirectoryStream<Path> variants = Files.newDirectoryStream(path.getParent(), hash + "~*")) {
+                    for (final Path variant : variants) {
+                        Files.deleteIfExists(variant);
+                    }
+                }
+            }
+        } catch (final IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+        return true;
+    }
+
+    private Path path(final String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private Path variantPath(final String hash, final String name) {
+        return path(hash).resolveSibling(hash + "~" + name);
+    }
+
+    private static byte[] variantKey(final String hash, final String name) {
+        return sha256().digest((hash + "~" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException noSuchAlgorithmException) {
+            throw new IllegalStateException(noSuchAlgorithmException);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package uit.carbon_shop.service;
+
+import java.util.List;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import uit.carbon_shop.repos.ChatMessageRepository;
+
+
+/**
+ * Builds the {@link uit.carbon_shop.domain.Conversation} inbox from existing chat messages once,
+ * in batches of conversations. Only one node runs it; completion is remembered in Redis.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationBackfillService {
+
+    private static final String DONE_KEY = "CONVERSATION_BACKFILL_DONE";
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ConversationService conversationService;
+    private final RedissonClient redissonClient;
+
+    @Value("${app.conversation-backfill.batch-size:500}")
+    private int batchSize;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        final RBucket<Boolean> done = redissonClient.getBucket(DONE_KEY);
+        if (Boolean.TRUE.equals(done.get())) {
+            return;
+        }
+        final RLock backfillLock = redissonClient.getLock("CONVERSATION_BACKFILL_LOCK");
+        if (!backfillLock.tryLock()) {
+            return;
+        }
+        try {
+            backfill();
+            done.set(true);
+        } finally {
+            backfillLock.unlock();
+        }
+    }
+
+    public void backfill() {
+        UUID after = new UUID(0L, 0L);
+        int conversations = 0;
+        while (true) {
+            final List<UUID> batch = chatMessageRepository.findConversationIdsAfter(after,
+                    PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            conversations += conversationService.backfill(batch);
+            after = batch.getLast();
+        }
+        log.info("conversation inbox backfill finished, {} conversations added", conversations);
+    }
+
+}
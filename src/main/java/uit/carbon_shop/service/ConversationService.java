@@ -0,0 +1,139 @@
+package uit.carbon_shop.service;
+
+import jakarta.transaction.Transactional;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import uit.carbon_shop.domain.ChatMessage;
+import uit.carbon_shop.domain.Conversation;
+import uit.carbon_shop.model.ChatMessageDTO;
+import uit.carbon_shop.model.ContactItemDTO;
+import uit.carbon_shop.repos.AppUserRepository;
+import uit.carbon_shop.repos.ChatMessageRepository;
+import uit.carbon_shop.repos.ConversationRepository;
+
+
+/**
+ * Maintains the per participant inbox rows in {@link Conversation}.
+ */
+@Service
+@Transactional
+@RequiredArgsConstructor
+public class ConversationService {
+
+    private final ConversationRepository conversationRepository;
+    private final ChatMessageRepository chatMessageRepository;
+    private final AppUserRepository appUserRepository;
+    private final ChatMessageMapper chatMessageMapper;
+    private final IdGeneratorService idGeneratorService;
+
+    public Page<ContactItemDTO> findInbox(final Long userId, final Pageable pageable) {
+        return conversationRepository.findInbox(userId, pageable)
+                .map(conversation -> {
+                    final ContactItemDTO contactItem = new ContactItemDTO();
+                    contactItem.setConversationId(conversation.getConversationId());
+                    contactItem.setChatUserId(conversation.getPeer().getId());
+                    contactItem.setLatestMessage(chatMessageMapper.updateChatMessageDTO(
+                            conversation.getLastMessage(), new ChatMessageDTO()));
+                    contactItem.setUnreadCount(conversation.getUnreadCount());
+                    return contactItem;
+                });
+    }
+
+    public UUID findConversationId(final Long userId, final Long peerId) {
+        return conversationRepository.findFirstByOwner_IdAndPeer_Id(userId, peerId)
+                .map(Conversation::getConversationId)
+                .orElse(null);
+    }
+
+    /**
+     * Update the inbox rows of both participants for a newly stored message. The caller holds the
+     * conversation lock.
+     */
+    public void recordMessage(final ChatMessage chatMessage) {
+        if (chatMessage.getSender() == null || chatMessage.getReceiver() == null) {
+            return;
+        }
+        final Long senderId = chatMessage.getSender().getId();
+        final Long receiverId = chatMessage.getReceiver().getId();
+        final ChatMessage lastMessage = chatMessageRepository.getReferenceById(chatMessage.getId());
+        touch(senderId, receiverId, chatMessage.getConversationId(), lastMessage, chatMessage.getCreatedAt(), false);
+        if (!senderId.equals(receiverId)) {
+            touch(receiverId, senderId, chatMessage.getConversationId(), lastMessage, chatMessage.getCreatedAt(), true);
+        }
+    }
+
+    public void markRead(final Long userId, final UUID conversationId) {
+        conversationRepository.markRead(userId, conversationId);
+    }
+
+    /**
+     * Point inbox rows referencing the given message to the latest remaining message of the
+     * conversation, or drop them if none is left.
+     */
+    public void detachMessage(final Long chatMessageId) {
+        final List<Conversation> conversations = conversationRepository.findByLastMessage_Id(chatMessageId);
+        for (final Conversation conversation : conversations) {
+            chatMessageRepository.findFirstByConversationIdAndIdNotOrderByCreatedAtDesc(
+                            conversation.getConversationId(), chatMessageId)
+                    .ifPresentOrElse(previous -> {
+                        conversation.setLastMessage(previous);
+                        conversation.setLastActivityAt(previous.getCreatedAt());
+                        conversationRepository.save(conversation);
+                    }, () -> conversationRepository.delete(conversation));
+        }
+    }
+
+    /**
+     * Create the missing inbox rows for existing conversations from their latest message. Unread
+     * counters of backfilled rows start at zero.
+     */
+    public int backfill(final List<UUID> conversationIds) {
+        int created = 0;
+        for (final UUID conversationId : conversationIds) {
+            if (conversationRepository.existsByConversationId(conversationId)) {
+                continue;
+            }
+            final ChatMessage latest = chatMessageRepository.findFirstByConversationIdOrderByCreatedAtDesc(
+                    conversationId).orElse(null);
+            if (latest == null || latest.getSender() == null || latest.getReceiver() == null) {
+                continue;
+            }
+            final Long senderId = latest.getSender().getId();
+            final Long receiverId = latest.getReceiver().getId();
+            touch(senderId, receiverId, conversationId, latest, latest.getCreatedAt(), false);
+            if (!senderId.equals(receiverId)) {
+                touch(receiverId, senderId, conversationId, latest, latest.getCreatedAt(), false);
+            }
+            created++;
+        }
+        return created;
+    }
+
+    private void touch(final Long ownerId, final Long peerId, final UUID conversationId,
+            final ChatMessage lastMessage, final OffsetDateTime activityAt, final boolean incoming) {
+        final Conversation conversation = conversationRepository.findByOwner_IdAndConversationId(
+                        ownerId, conversationId)
+                .orElseGet(() -> {
+                    final Conversation newConversation = new Conversation();
+                    newConversation.setId(idGeneratorService.generateId());
+                    newConversation.setConversationId(conversationId);
+                    newConversation.setOwner(appUserRepository.getReferenceById(ownerId));
+                    newConversation.setPeer(appUserRepository.getReferenceById(peerId));
+                    return newConversation;
+                });
+        if (conversation.getLastActivityAt() == null || !activityAt.isBefore(conversation.getLastActivityAt())) {
+            conversation.setLastMessage(lastMessage);
+            conversation.setLastActivityAt(activityAt);
+        }
+        if (incoming) {
+            conversation.setUnreadCount(conversation.getUnreadCount() + 1);
+        }
+        conversationRepository.save(conversation);
+    }
+
+}
@@ -0,0 +1,103 @@
+package uit.carbon_shop.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import uit.carbon_shop.model.ImageVariant;
+import uit.carbon_shop.util.OffHeapCache;
+
+
+/**
+ * Keeps the bodies and response metadata of small, frequently downloaded files such as avatars and
+ * thumbnails in an {@link OffHeapCache}, so {@code FileController.get} serves them without a
+ * query or a read of the store. The content of a file id doesn't change; updates and deletes of
+ * documents evict it on every node through a Redisson topic.
+ */
+@Service
+@Slf4j
+public class FileContentCache {
+
+    private final OffHeapCache<Key, Metadata> cache;
+    private final RTopic evictionTopic;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public FileContentCache(final RedissonClient redissonClient, final MeterRegistry meterRegistry,
+            @Value("${app.file-cache.capacity:64MB}") final DataSize capacity,
+            @Value("${app.file-cache.max-entry-size:256KB}") final DataSize maxEntrySize) {
+        this.cache = new OffHeapCache<>("files", meterRegistry, Math.toIntExact(capacity.toBytes()),
+                Math.toIntExact(maxEntrySize.toBytes()));
+        this.evictionTopic = redissonClient.getTopic("FILE_CACHE_EVICTIONS", StringCodec.INSTANCE);
+        this.evictionTopic.addListener(String.class, (channel, message) -> {
+            final String[] parts = message.split(":", 2);
+            if (!parts[0].equals(nodeId)) {
+                evictLocally(Long.valueOf(parts[1]));
+            }
+        });
+    }
+
+    /**
+     * What a response needs besides the body; {@code fileName} is null for image variants, which
+     * are served inline and cached publicly.
+     */
+    public record Metadata(String contentType, String eTag, String fileName, Instant lastModified) {
+    }
+
+    public record CachedFile(Metadata metadata, Resource body) {
+    }
+
+    public Optional<CachedFile> get(final Long fileId, final ImageVariant variant) {
+        return cache.get(new Key(fileId, variant))
+                .map(hit -> new CachedFile(hit.metadata(), new ByteArrayResource(hit.content())));
+    }
+
+    /**
+     * Cache the body when it is small and popular enough, and return the body to respond with -
+     * the bytes just read when cached, otherwise the original resource.
+     */
+    public Resource offer(final Long fileId, final ImageVariant variant, final Metadata metadata,
+            final Resource body, final long length) {
+        final Key key = new Key(fileId, variant);
+        if (length > Integer.MAX_VALUE || !cache.admits(key, (int) length)) {
+            return body;
+        }
+        try {
+            final byte[] content = body.getContentAsByteArray();
+            cache.put(key, metadata, content);
+            return new ByteArrayResource(content);
+        } catch (final IOException ioException) {
+            // let the response report the missing content
+            return body;
+        }
+    }
+
+    public void evict(final Long fileId) {
+        evictLocally(fileId);
+        try {
+            evictionTopic.publish(nodeId + ":" + fileId);
+        } catch (final RuntimeException runtimeException) {
+            log.warn("publishing file cache eviction of {} failed: {}", fileId, runtimeException.getMessage());
+        }
+    }
+
+    private void evictLocally(final Long fileId) {
+        cache.invalidate(new Key(fileId, null));
+        for (final ImageVariant variant : ImageVariant.values()) {
+            cache.invalidate(new Key(fileId, variant));
+        }
+    }
+
+    private record Key(Long fileId, ImageVariant variant) {
+    }
+
+}
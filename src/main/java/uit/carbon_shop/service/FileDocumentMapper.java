@@ -19,6 +19,9 @@ public interface FileDocumentMapper {
             @MappingTarget FileDocumentDTO fileDocumentDTO);
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "contentId", ignore = true)
+    @Mapping(target = "contentLength", ignore = true)
+    @Mapping(target = "contentHash", ignore = true)
     FileDocument updateFileDocument(FileDocumentDTO fileDocumentDTO,
             @MappingTarget FileDocument fileDocument);
 
@@ -1,12 +1,24 @@
 package uit.carbon_shop.service;
 
+import jakarta.transaction.Transactional;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import uit.carbon_shop.domain.FileDocument;
 import uit.carbon_shop.model.FileDocumentDTO;
 import uit.carbon_shop.repos.FileDocumentRepository;
+import uit.carbon_shop.service.ContentBlobService.StagedBlob;
 import uit.carbon_shop.util.NotFoundException;
+import uit.carbon_shop.util.StaticConstants;
 
 
 @Service
@@ -14,11 +26,26 @@ public class FileDocumentService {
 
     private final FileDocumentRepository fileDocumentRepository;
     private final FileDocumentMapper fileDocumentMapper;
+    private final ContentBlobService contentBlobService;
+    private final IdGeneratorService idGeneratorService;
+    private final TransactionTemplate transactionTemplate;
+    private final ImageVariantService imageVariantService;
+    private final FileContentCache fileContentCache;
+    private final FileUrlService fileUrlService;
 
     public FileDocumentService(final FileDocumentRepository fileDocumentRepository,
-            final FileDocumentMapper fileDocumentMapper) {
+            final FileDocumentMapper fileDocumentMapper, final ContentBlobService contentBlobService,
+            final IdGeneratorService idGeneratorService, final TransactionTemplate transactionTemplate,
+            final ImageVariantService imageVariantService, final FileContentCache fileContentCache,
+            final FileUrlService fileUrlService) {
         this.fileDocumentRepository = fileDocumentRepository;
         this.fileDocumentMapper = fileDocumentMapper;
+        this.contentBlobService = contentBlobService;
+        this.idGeneratorService = idGeneratorService;
+        this.transactionTemplate = transactionTemplate;
+        this.imageVariantService = imageVariantService;
+        this.fileContentCache = fileContentCache;
+        this.fileUrlService = fileUrlService;
     }
 
     public List<FileDocumentDTO> findAll() {
@@ -38,18 +65,109 @@ public class FileDocumentService {
         final FileDocument fileDocument = new FileDocument();
         fileDocument.setId(fileDocumentDTO.getId());
         fileDocumentMapper.updateFileDocument(fileDocumentDTO, fileDocument);
+        fileDocument.setContentId(fileDocumentDTO.getContentId());
+        fileDocument.setContentLength(fileDocumentDTO.getContentLength());
         return fileDocumentRepository.save(fileDocument).getId();
     }
 
+    /**
+     * Store an upload in a single pass over its bytes. The content is shared with earlier uploads
+     * of the same bytes; the blob reference and the document are written in one transaction. The
+     * variants of an image are generated after commit.
+     */
+    public Long upload(final InputStream inputStream, final String name, final String contentType)
+            throws IOException {
+        final StagedBlob staged = contentBlobService.stage(inputStream);
+        final Long id;
+        try {
+            id = transactionTemplate.execute(status -> {
+                contentBlobService.retain(staged);
+                final FileDocument fileDocument = new FileDocument();
+                fileDocument.setId(idGeneratorService.generateId());
+                fileDocument.setName(name);
+                fileDocument.setContentType(contentType);
+                fileDocument.setContentId(staged.hash());
+                fileDocument.setContentHash(staged.hash());
+                fileDocument.setContentLength(staged.length());
+                return fileDocumentRepository.save(fileDocument).getId();
+            });
+        } finally {
+            contentBlobService.discard(staged);
+        }
+        imageVariantService.submit(staged.hash(), contentType);
+        return id;
+    }
+
+    /**
+     * Change name and content type; the content of a file id never changes.
+     */
     public void update(final Long id, final FileDocumentDTO fileDocumentDTO) {
         final FileDocument fileDocument = fileDocumentRepository.findById(id)
                 .orElseThrow(NotFoundException::new);
         fileDocumentMapper.updateFileDocument(fileDocumentDTO, fileDocument);
         fileDocumentRepository.save(fileDocument);
+        evictOnCommit(id);
     }
 
+    @Transactional
     public void delete(final Long id) {
-        fileDocumentRepository.deleteById(id);
+        fileDocumentRepository.findById(id).ifPresent(fileDocument -> {
+            fileDocumentRepository.delete(fileDocument);
+            if (fileDocument.getContentHash() != null) {
+                contentBlobService.release(fileDocument.getContentHash());
+            }
+            evictOnCommit(id);
+        });
+    }
+
+    /**
+     * Delete the files an entity no longer references, given its file ids before and after a
+     * change, and release their content. Ids come from clients, so the same file may be referenced
+     * by other entities as well; those files, and the shared default avatar, are kept. Call after
+     * the entity change, which is flushed first so it doesn't count as a reference itself.
+     */
+    @Transactional
+    public void deleteDropped(final Collection<Long> previous, final Collection<Long> current) {
+        if (previous == null) {
+            return;
+        }
+        final List<Long> dropped = previous.stream()
+                .filter(Objects::nonNull)
+                .filter(id -> current == null || !current.contains(id))
+                .filter(id -> !id.equals(StaticConstants.DEFAULT_AVATAR_ID))
+                .distinct()
+                .toList();
+        if (dropped.isEmpty()) {
+            return;
+        }
+        fileDocumentRepository.flush();
+        final Set<Long> referenced = new HashSet<>(fileDocumentRepository.findReferenced(dropped));
+        dropped.stream()
+                .filter(id -> !referenced.contains(id))
+                .forEach(this::delete);
+    }
+
+    /**
+     * Evict the cached content and signed url of a file once the change is committed. Evicted
+     * earlier, a concurrent read could still load and cache the old row; a rolled back change
+     * evicts nothing.
+     */
+    private void evictOnCommit(final Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(id);
+            }
+        });
+    }
+
+    private void evict(final Long id) {
+        fileContentCache.evict(id);
+        fileUrlService.evict(id);
     }
 
 }
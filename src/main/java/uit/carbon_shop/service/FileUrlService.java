@@ -0,0 +1,214 @@
+package uit.carbon_shop.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uit.carbon_shop.domain.FileDocument;
+import uit.carbon_shop.repos.FileDocumentRepository;
+import uit.carbon_shop.util.LruCache;
+import uit.carbon_shop.util.StaticConstants;
+
+
+/**
+ * Hands out short-lived download URLs which carry everything needed to serve the file: the token
+ * holds the file id, content id, content type and expiry, signed with HMAC-SHA256 under a server
+ * secret, so {@code FileController.getSigned} streams the content without a query. Expiries are
+ * rounded up to whole buckets, keeping the URL of a file stable for a while so browsers and CDNs
+ * can cache it. The content behind a file id never changes, so the id lookups done for signing
+ * are remembered; updates and deletes of documents evict them on every node through a Redisson
+ * topic.
+ */
+@Service
+@Slf4j
+public class FileUrlService {
+
+    public static final String SIGNED_PATH = "/api/file/signed/";
+
+    private static final String HMAC_SHA_256 = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final FileDocumentRepository fileDocumentRepository;
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final long bucketSeconds;
+    private final ThreadLocal<Mac> mac;
+    private final LruCache<Long, FileRef> fileRefs;
+    private final RTopic evictionTopic;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public FileUrlService(final FileDocumentRepository fileDocumentRepository, final RedissonClient redissonClient,
+            @Value("${app.file-urls.secret}") final String secret,
+            @Value("${app.file-urls.ttl:PT1H}") final Duration ttl,
+            @Value("${app.file-urls.bucket:PT10M}") final Duration bucket,
+            @Value("${app.file-urls.ref-cache-size:100000}") final int refCacheMaxSize) {
+        this.fileDocumentRepository = fileDocumentRepository;
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_SHA_256);
+        this.ttlSeconds = ttl.toSeconds();
+        this.bucketSeconds = Math.max(1, bucket.toSeconds());
+        this.fileRefs = new LruCache<>(refCacheMaxSize);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                final Mac instance = Mac.getInstance(HMAC_SHA_256);
+                instance.init(key);
+                return instance;
+            } catch (final GeneralSecurityException generalSecurityException) {
+                throw new IllegalStateException(generalSecurityException);
+            }
+        });
+        this.evictionTopic = redissonClient.getTopic("FILE_URL_EVICTIONS", StringCodec.INSTANCE);
+        this.evictionTopic.addListener(String.class, (channel, message) -> {
+            final String[] parts = message.split(":", 2);
+            if (!parts[0].equals(nodeId)) {
+                fileRefs.remove(Long.valueOf(parts[1]));
+            }
+        });
+    }
+
+    /**
+     * A file as encoded in a signed URL; {@code hashed} tells whether {@code contentId} is a
+     * {@link ContentBlobService} hash or an id of the content store.
+     */
+    public record SignedFile(Long fileId, String contentId, boolean hashed, String contentType,
+            Instant expiresAt) {
+    }
+
+    /**
+     * Load what signing the given files needs with one query, for those not signed before. Called
+     * with every file of a response before it is written, so the DTOs in it don't query one by one.
+     */
+    public void prefetch(final Collection<Long> fileIds) {
+        final List<Long> missing = fileIds.stream()
+                .filter(Objects::nonNull)
+                .filter(fileId -> !StaticConstants.DEFAULT_AVATAR_ID.equals(fileId) && fileRefs.get(fileId) == null)
+                .distinct()
+                .toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (final FileDocument fileDocument : fileDocumentRepository.findAllById(missing)) {
+            if (fileDocument.getContentId() != null) {
+                fileRefs.put(fileDocument.getId(), new FileRef(fileDocument.getContentId(),
+                        fileDocument.getContentHash() != null, fileDocument.getContentType()));
+            }
+        }
+    }
+
+    /**
+     * Signed URLs of the given files, in the order given; files without content are left out.
+     */
+    public Map<Long, String> signedUrls(final Collection<Long> fileIds) {
+        final Map<Long, String> urls = new LinkedHashMap<>();
+        if (fileIds.isEmpty()) {
+            return urls;
+        }
+        prefetch(fileIds);
+        final long expiresAt = expiresAt();
+        for (final Long fileId : fileIds) {
+            if (StaticConstants.DEFAULT_AVATAR_ID.equals(fileId)) {
+                // bundled and served from memory anyway
+                urls.put(fileId, "/api/file/" + fileId);
+                continue;
+            }
+            final FileRef fileRef = fileId == null ? null : fileRefs.get(fileId);
+            if (fileRef != null) {
+                urls.put(fileId, SIGNED_PATH + sign(fileId, fileRef, expiresAt));
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * The file of a signed URL token, unless the token was tampered with or has expired.
+     */
+    public Optional<SignedFile> verify(final String token) {
+        final int dot = token.indexOf('.');
+        if (dot < 0) {
+            return Optional.empty();
+        }
+        final byte[] payload;
+        final byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (final IllegalArgumentException illegalArgumentException) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(mac.get().doFinal(payload), signature)) {
+            return Optional.empty();
+        }
+        final SignedFile signedFile;
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload))) {
+            final Long fileId = input.readLong();
+            final boolean hashed = input.readBoolean();
+            final String contentId = input.readUTF();
+            final String contentType = input.readUTF();
+            final Instant expiresAt = Instant.ofEpochSecond(input.readLong());
+            signedFile = new SignedFile(fileId, contentId, hashed, contentType.isEmpty() ? null : contentType,
+                    expiresAt);
+        } catch (final IOException ioException) {
+            return Optional.empty();
+        }
+        return signedFile.expiresAt().isAfter(Instant.now()) ? Optional.of(signedFile) : Optional.empty();
+    }
+
+    /**
+     * Forget what was looked up for signing on every node, as the file changed or is gone.
+     */
+    public void evict(final Long fileId) {
+        fileRefs.remove(fileId);
+        try {
+            evictionTopic.publish(nodeId + ":" + fileId);
+        } catch (final RuntimeException runtimeException) {
+            log.warn("publishing file url eviction of {} failed: {}", fileId, runtimeException.getMessage());
+        }
+    }
+
+    private String sign(final Long fileId, final FileRef fileRef, final long expiresAt) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeLong(fileId);
+            output.writeBoolean(fileRef.hashed());
+            output.writeUTF(fileRef.contentId());
+            output.writeUTF(fileRef.contentType() == null ? "" : fileRef.contentType());
+            output.writeLong(expiresAt);
+        } catch (final IOException ioException) {
+            throw new IllegalStateException(ioException);
+        }
+        final byte[] payload = bytes.toByteArray();
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(mac.get().doFinal(payload));
+    }
+
+    // at least the ttl ahead, rounded up to the next bucket
+    private long expiresAt() {
+        final long earliest = Instant.now().getEpochSecond() + ttlSeconds;
+        return (earliest + bucketSeconds - 1) / bucketSeconds * bucketSeconds;
+    }
+
+    private record FileRef(String contentId, boolean hashed, String contentType) {
+    }
+
+}
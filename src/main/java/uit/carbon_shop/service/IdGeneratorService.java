@@ -1,13 +1,173 @@
 package uit.carbon_shop.service;
 
-import java.util.Random;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+
+/**
+ * Time ordered 64 bit ids: 41 bits of milliseconds since {@link #EPOCH_MILLIS}, 10 bits node id
+ * and 12 bits sequence. The node id is leased through Redis so replicas never share one. When
+ * the sequence of a millisecond is exhausted the next millisecond is borrowed, which keeps the
+ * generator lock-free and monotonic even if the wall clock steps back.
+ * <p>
+ * The lease is renewed on a thread of its own, so long scheduled jobs can't delay it past its
+ * expiry, and only while Redis still holds this instance's claim. Should renewals fail until the
+ * lease runs out, the next id re-leases first instead of minting with a node id that another
+ * replica may have taken meanwhile.
+ */
 @Service
+@Slf4j
 public class IdGeneratorService {
 
+    private static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int MAX_NODES = 1 << NODE_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final Duration NODE_LEASE_TTL = Duration.ofMinutes(1);
+    private static final Duration NODE_LEASE_RENEWAL = Duration.ofSeconds(20);
+    // extends the expiry only if the key still holds the given value
+    private static final String COMPARE_AND_EXPIRE = """
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('pexpire', KEYS[1], ARGV[2])
+            end
+            return 0
+            """;
+
+    private final RedissonClient redissonClient;
+    private final String instanceId = UUID.randomUUID().toString();
+    // (millis since epoch << SEQUENCE_BITS) | sequence of the last issued id
+    private final AtomicLong lastState = new AtomicLong();
+    private final boolean leased;
+    private final ScheduledExecutorService leaseRenewer;
+    private volatile long nodeId;
+    // System.nanoTime() after which the lease may have expired in Redis
+    private volatile long leaseDeadline;
+
+    public IdGeneratorService(final RedissonClient redissonClient,
+            @Value("${app.id-generator.node-id:-1}") final long configuredNodeId) {
+        this.redissonClient = redissonClient;
+        if (configuredNodeId >= 0) {
+            if (configuredNodeId >= MAX_NODES) {
+                throw new IllegalArgumentException("app.id-generator.node-id must be below " + MAX_NODES);
+            }
+            this.nodeId = configuredNodeId;
+            this.leased = false;
+            this.leaseRenewer = null;
+        } else {
+            this.nodeId = leaseNodeId();
+            this.leased = true;
+            this.leaseRenewer = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("id-node-lease").daemon().factory());
+            this.leaseRenewer.scheduleWithFixedDelay(this::renewNodeLeaseSafely, NODE_LEASE_RENEWAL.toMillis(),
+                    NODE_LEASE_RENEWAL.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        log.info("id generator uses node id {}", nodeId);
+    }
+
     public long generateId() {
-        return new Random().nextLong();
+        return toId(nextState(1));
+    }
+
+    /**
+     * Reserve {@code count} consecutive ids with a single CAS.
+     */
+    public long[] generateIds(final int count) {
+        if (count <= 0) {
+            return new long[0];
+        }
+        final long last = nextState(count);
+        final long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = toId(last - count + 1 + i);
+        }
+        return ids;
+    }
+
+    private synchronized void renewNodeLease() {
+        final long started = System.nanoTime();
+        final String key = nodeBucket(nodeId).getName();
+        final Long renewed = redissonClient.getScript(StringCodec.INSTANCE).eval(key, RScript.Mode.READ_WRITE,
+                COMPARE_AND_EXPIRE, RScript.ReturnType.INTEGER, List.<Object>of(key), instanceId,
+                String.valueOf(NODE_LEASE_TTL.toMillis()));
+        if (renewed == null || renewed == 0) {
+            log.warn("lease on id generator node {} was lost, leasing a new one", nodeId);
+            nodeId = leaseNodeId();
+        }
+        leaseDeadline = started + NODE_LEASE_TTL.toNanos();
+    }
+
+    @PreDestroy
+    public void releaseNodeLease() {
+        if (leased) {
+            leaseRenewer.shutdownNow();
+            nodeBucket(nodeId).compareAndSet(instanceId, null);
+        }
+    }
+
+    private void renewNodeLeaseSafely() {
+        try {
+            renewNodeLease();
+        } catch (final RuntimeException runtimeException) {
+            // retried on the next run, or by the next id once the lease has run out
+            log.warn("renewing id generator node {} failed: {}", nodeId, runtimeException.getMessage());
+        }
+    }
+
+    private synchronized void renewLapsedNodeLease() {
+        if (System.nanoTime() - leaseDeadline > 0) {
+            renewNodeLease();
+        }
+    }
+
+    private long nextState(final int count) {
+        if (leased && System.nanoTime() - leaseDeadline > 0) {
+            renewLapsedNodeLease();
+        }
+        while (true) {
+            final long previous = lastState.get();
+            final long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+            final long next = Math.max(previous + count, now + count - 1);
+            if (lastState.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    private long toId(final long state) {
+        return ((state >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                | (nodeId << SEQUENCE_BITS)
+                | (state & SEQUENCE_MASK);
+    }
+
+    private long leaseNodeId() {
+        final long started = System.nanoTime();
+        final int start = Math.floorMod(instanceId.hashCode(), MAX_NODES);
+        for (int i = 0; i < MAX_NODES; i++) {
+            final int candidate = (start + i) % MAX_NODES;
+            if (nodeBucket(candidate).setIfAbsent(instanceId, NODE_LEASE_TTL)) {
+                leaseDeadline = started + NODE_LEASE_TTL.toNanos();
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("No free id generator node id");
+    }
+
+    private RBucket<String> nodeBucket(final long candidate) {
+        return redissonClient.getBucket("ID_GENERATOR_NODE:" + candidate, StringCodec.INSTANCE);
     }
 
 }
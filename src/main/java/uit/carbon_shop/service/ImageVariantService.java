@@ -0,0 +1,227 @@
+package uit.carbon_shop.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import uit.carbon_shop.model.ImageVariant;
+import uit.carbon_shop.util.LruCache;
+
+
+/**
+ * Generates the {@link ImageVariant}s of uploaded images in the background. Uploads submit their
+ * content hash to a fixed number of virtual-thread workers behind a bounded queue; when the queue
+ * is full the work is dropped and redone on the first request of a missing variant, so bursts of
+ * uploads neither pile up in memory nor run on request threads. Opaque images are encoded as
+ * JPEG, images with transparency as PNG. Content that fails once is remembered and not retried, as
+ * the content of a hash never changes.
+ */
+@Service
+@Slf4j
+public class ImageVariantService {
+
+    private static final float JPEG_QUALITY = 0.8f;
+
+    private final ContentBlobService contentBlobService;
+    private final ThreadPoolExecutor workers;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final LruCache<String, Boolean> failedHashes;
+    private final long maxPixels;
+    private final Timer generation;
+    private final Counter generated;
+    private final Counter failed;
+    private final Counter rejected;
+
+    public ImageVariantService(final ContentBlobService contentBlobService, final MeterRegistry meterRegistry,
+            @Value("${app.image-variants.workers:2}") final int workers,
+            @Value("${app.image-variants.queue:1000}") final int queue,
+            @Value("${app.image-variants.max-pixels:40000000}") final long maxPixels,
+            @Value("${app.image-variants.failed-cache-size:10000}") final int failedCacheSize) {
+        this.contentBlobService = contentBlobService;
+        this.maxPixels = maxPixels;
+        this.failedHashes = new LruCache<>(failedCacheSize);
+        this.workers = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), Thread.ofVirtual().name("image-variant-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("app.images.variants.queue", this.workers, executor -> executor.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("app.images.variants.active", this.workers, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+        this.generation = Timer.builder("app.images.variants.generation").register(meterRegistry);
+        this.generated = Counter.builder("app.images.variants.jobs").tag("result", "generated").register(meterRegistry);
+        this.failed = Counter.builder("app.images.variants.jobs").tag("result", "failed").register(meterRegistry);
+        this.rejected = Counter.builder("app.images.variants.jobs").tag("result", "rejected").register(meterRegistry);
+    }
+
+    public record VariantContent(Resource resource, MediaType mediaType) {
+    }
+
+    /**
+     * Queue the variants of the content unless it isn't a readable image, failed before or is
+     * queued already.
+     */
+    public void submit(final String hash, final String contentType) {
+        if (contentType == null || !ImageIO.getImageReadersByMIMEType(contentType).hasNext()
+                || failedHashes.get(hash) != null || !pending.add(hash)) {
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    generation.record(() -> generate(hash));
+                } finally {
+                    pending.remove(hash);
+                }
+            });
+        } catch (final RejectedExecutionException rejectedExecutionException) {
+            pending.remove(hash);
+            rejected.increment();
+        }
+    }
+
+    public Optional<VariantContent> find(final String hash, final ImageVariant variant) {
+        for (final MediaType mediaType : new MediaType[] {MediaType.IMAGE_JPEG, MediaType.IMAGE_PNG}) {
+            final Resource resource = contentBlobService.getVariantResource(hash, name(variant, mediaType));
+            if (resource.exists()) {
+                return Optional.of(new VariantContent(resource, mediaType));
+            }
+        }
+        return Optional.empty();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void generate(final String hash) {
+        try {
+            for (final ImageVariant variant : ImageVariant.values()) {
+                if (find(hash, variant).isPresent()) {
+                    continue;
+                }
+                final BufferedImage source = read(contentBlobService.getResource(hash), variant.getSize());
+                if (source == null) {
+                    fail(hash, "not a readable image");
+                    return;
+                }
+                final BufferedImage scaled = scale(source, variant.getSize());
+                final boolean alpha = scaled.getColorModel().hasAlpha();
+                final MediaType mediaType = alpha ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG;
+                if (!contentBlobService.storeVariant(hash, name(variant, mediaType), encode(scaled, alpha))) {
+                    // the blob was swept meanwhile
+                    return;
+                }
+            }
+            generated.increment();
+        } catch (final IOException | RuntimeException exception) {
+            fail(hash, exception.getMessage());
+        }
+    }
+
+    private void fail(final String hash, final String reason) {
+        failedHashes.put(hash, Boolean.TRUE);
+        failed.increment();
+        log.warn("image variants of {} failed: {}", hash, reason);
+    }
+
+    /**
+     * Decode with source subsampling down to about twice the target size, so large photos are
+     * never held at full resolution. Returns null for content that isn't a readable image.
+     */
+    private BufferedImage read(final Resource resource, final int size) throws IOException {
+        try (InputStream inputStream = resource.getInputStream();
+                ImageInputStream input = new MemoryCacheImageInputStream(inputStream)) {
+            final Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            final ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                final int width = reader.getWidth(0);
+                final int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("image of " + width + "x" + height + " pixels is too large");
+                }
+                final int step = Math.max(1, Math.max(width, height) / (size * 2));
+                final ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(final BufferedImage source, final int size) {
+        final double factor = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        final int width = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        final int height = Math.max(1, (int) Math.round(source.getHeight() * factor));
+        final boolean alpha = source.getColorModel().hasAlpha();
+        final BufferedImage scaled = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static byte[] encode(final BufferedImage image, final boolean alpha) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (alpha) {
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        }
+        final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (MemoryCacheImageOutputStream imageOutput = new MemoryCacheImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            final ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private static String name(final ImageVariant variant, final MediaType mediaType) {
+        return variant.fileName(mediaType.getSubtype());
+    }
+
+}
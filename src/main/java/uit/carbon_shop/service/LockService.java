@@ -0,0 +1,60 @@
+package uit.carbon_shop.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uit.carbon_shop.util.ConflictException;
+
+
+/**
+ * Bounded distributed locks for operations spanning several rows, which can't be expressed as a
+ * single conditional update. Waiting is limited and the lock carries a lease, so a stalled holder
+ * delays others at most until the lease expires.
+ */
+@Service
+public class LockService {
+
+    private final RedissonClient redissonClient;
+    private final long waitMillis;
+    private final long leaseMillis;
+
+    public LockService(final RedissonClient redissonClient,
+            @Value("${app.lock.wait-time:5s}") final Duration waitTime,
+            @Value("${app.lock.lease-time:30s}") final Duration leaseTime) {
+        this.redissonClient = redissonClient;
+        this.waitMillis = waitTime.toMillis();
+        this.leaseMillis = leaseTime.toMillis();
+    }
+
+    /**
+     * Run the action while holding the named lock.
+     *
+     * @throws ConflictException when the lock isn't acquired within the wait time
+     */
+    public <T> T withLock(final String key, final Supplier<T> action) {
+        final RLock lock = redissonClient.getLock(key);
+        final boolean locked;
+        try {
+            locked = lock.tryLock(waitMillis, leaseMillis, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("interrupted while waiting for " + key);
+        }
+        if (!locked) {
+            throw new ConflictException("resource is busy, please retry");
+        }
+        try {
+            return action.get();
+        } finally {
+            // the lease may have expired during a slow action
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,634 @@
+package uit.carbon_shop.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import uit.carbon_shop.domain.SuggestionSourceProjection;
+import uit.carbon_shop.model.CompanyChangedEvent;
+import uit.carbon_shop.model.CompanyStatus;
+import uit.carbon_shop.model.ProjectChangedEvent;
+import uit.carbon_shop.model.ProjectStatus;
+import uit.carbon_shop.model.SuggestionDTO;
+import uit.carbon_shop.model.SuggestionType;
+import uit.carbon_shop.repos.CompanyRepository;
+import uit.carbon_shop.repos.ProjectRepository;
+
+
+/**
+ * Type-ahead over the names of approved projects and companies, answered from memory. Names are
+ * normalized (lower case, without diacritics and punctuation) and every word start of a name is a
+ * key, so "solar" finds "Green Solar Farm". The keys are kept as one sorted array of
+ * (name, offset) pairs with a max-popularity segment tree over it; the matches of a prefix are a
+ * contiguous key range whose most popular names are taken from the tree without visiting the
+ * whole range.
+ * <p>
+ * The sorted snapshot is immutable. {@link ProjectChangedEvent}s and {@link CompanyChangedEvent}s
+ * land in a small copy-on-write delta that is merged into a new snapshot once it outgrows
+ * {@code app.name-suggest.delta-limit}. Changes made on other nodes arrive over a Redisson topic,
+ * and a periodic rebuild picks up popularity changes and missed messages. Until the first build
+ * finishes there are no suggestions.
+ * <p>
+ * A snapshot keeps no object per name: ids, weights and offsets sit in primitive arrays and the
+ * texts are packed as UTF-8. Names of about 25 characters take about 140 bytes each, keys and
+ * tree included, and a rebuild holds the old snapshot next to the new one. That fits about a
+ * million names into the 512MB heap of {@code docker-compose.yml} beside the rest of the
+ * application; watch {@code app.suggest.bytes} when there are more.
+ */
+@Service
+@Slf4j
+public class NameSuggestService {
+
+    public static final int MAX_LIMIT = 20;
+    private static final int MAX_KEYS_PER_NAME = 8;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Comparator<Entry> BY_POPULARITY = Comparator.comparingLong(Entry::weight)
+            .reversed()
+            .thenComparing(Entry::normalized)
+            .thenComparingLong(entry -> entry.id().id());
+    // rough per name overhead of a delta entry: both records, two string headers and the map node
+    private static final int DELTA_ENTRY_BYTES = 32 + 24 + 2 * 40 + 48;
+
+    private final ProjectRepository projectRepository;
+    private final CompanyRepository companyRepository;
+    private final RTopic changeTopic;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final int rebuildBatchSize;
+    private final int deltaLimit;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final Object writeMonitor = new Object();
+    private volatile State state = new State(new SnapshotBuilder().build(), Map.of());
+    // guarded by writeMonitor, collects the names changed while a rebuild reads the tables
+    private Set<EntryId> changedDuringRebuild;
+
+    public NameSuggestService(final ProjectRepository projectRepository,
+            final CompanyRepository companyRepository, final RedissonClient redissonClient,
+            final MeterRegistry meterRegistry,
+            @Value("${app.name-suggest.rebuild-batch-size:1000}") final int rebuildBatchSize,
+            @Value("${app.name-suggest.delta-limit:1000}") final int deltaLimit) {
+        this.projectRepository = projectRepository;
+        this.companyRepository = companyRepository;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.deltaLimit = deltaLimit;
+        this.changeTopic = redissonClient.getTopic("NAME_SUGGEST_CHANGES", StringCodec.INSTANCE);
+        this.changeTopic.addListener(String.class, (channel, message) -> {
+            final String[] parts = message.split(":", 3);
+            if (!parts[0].equals(nodeId)) {
+                refresh(new EntryId(SuggestionType.valueOf(parts[1]), Long.parseLong(parts[2])));
+            }
+        });
+        Gauge.builder("app.suggest.names", this, service -> service.state.size())
+                .register(meterRegistry);
+        Gauge.builder("app.suggest.bytes", this, service -> service.state.estimatedBytes())
+                .description("Estimated heap footprint of the suggestion index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.name-suggest.rebuild-interval}",
+            initialDelayString = "${app.name-suggest.rebuild-interval}")
+    public void rebuild() {
+        if (rebuildLock.tryLock()) {
+            try {
+                build();
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProjectChanged(final ProjectChangedEvent event) {
+        refreshAndPublish(new EntryId(SuggestionType.PROJECT, event.projectId()));
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCompanyChanged(final CompanyChangedEvent event) {
+        refreshAndPublish(new EntryId(SuggestionType.COMPANY, event.companyId()));
+    }
+
+    /**
+     * Up to {@code limit} approved projects and companies with a name word starting with
+     * {@code query}, most popular first.
+     */
+    public List<SuggestionDTO> suggest(final String query, final int limit) {
+        final String prefix = normalize(query);
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        final State current = state;
+        final List<Entry> candidates = new ArrayList<>(current.base().top(prefix, limit,
+                current.delta()::containsKey));
+        current.delta()
+                .values()
+                .stream()
+                .filter(Objects::nonNull)
+                .filter(entry -> matches(entry.normalized(), prefix))
+                .forEach(candidates::add);
+        return candidates.stream()
+                .sorted(BY_POPULARITY)
+                .limit(limit)
+                .map(entry -> new SuggestionDTO(entry.id().type(), entry.id().id(), entry.name()))
+                .toList();
+    }
+
+    private void refreshAndPublish(final EntryId id) {
+        refresh(id);
+        try {
+            changeTopic.publish(nodeId + ":" + id.type() + ":" + id.id());
+        } catch (final RedisException redisException) {
+            log.warn("publishing name suggestion change of {} {} failed: {}", id.type(), id.id(),
+                    redisException.getMessage());
+        }
+    }
+
+    /**
+     * Reload one name from the database, or drop it when it no longer exists or isn't approved.
+     */
+    private void refresh(final EntryId id) {
+        final Optional<SuggestionSourceProjection> source = switch (id.type()) {
+            case PROJECT -> projectRepository.findSuggestionSource(id.id(), ProjectStatus.APPROVED);
+            case COMPANY -> companyRepository.findSuggestionSource(id.id(), CompanyStatus.APPROVED);
+        };
+        synchronized (writeMonitor) {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(id);
+            }
+            final Map<EntryId, Entry> delta = new HashMap<>(state.delta());
+            // a null value hides the name in the snapshot
+            delta.put(id, source.map(row -> entry(id.type(), row)).orElse(null));
+            if (delta.size() > deltaLimit) {
+                state = new State(state.base().merge(delta), Map.of());
+            } else {
+                state = new State(state.base(), Collections.unmodifiableMap(delta));
+            }
+        }
+    }
+
+    private void build() {
+        synchronized (writeMonitor) {
+            changedDuringRebuild = new HashSet<>();
+        }
+        final SnapshotBuilder builder = new SnapshotBuilder();
+        Set<EntryId> changed = Collections.emptySet();
+        Snapshot rebuilt = null;
+        try {
+            long lowerId = Long.MIN_VALUE;
+            while (true) {
+                final List<SuggestionSourceProjection> batch = projectRepository.scrollSuggestionSources(
+                        ProjectStatus.APPROVED, lowerId, PageRequest.of(0, rebuildBatchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                batch.forEach(row -> builder.add(entry(SuggestionType.PROJECT, row)));
+                lowerId = batch.getLast().id();
+            }
+            lowerId = Long.MIN_VALUE;
+            while (true) {
+                final List<SuggestionSourceProjection> batch = companyRepository.scrollSuggestionSources(
+                        CompanyStatus.APPROVED, lowerId, PageRequest.of(0, rebuildBatchSize));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                batch.forEach(row -> builder.add(entry(SuggestionType.COMPANY, row)));
+                lowerId = batch.getLast().id();
+            }
+            rebuilt = builder.build();
+        } finally {
+            synchronized (writeMonitor) {
+                if (rebuilt != null) {
+                    state = new State(rebuilt, Map.of());
+                    changed = changedDuringRebuild;
+                }
+                changedDuringRebuild = null;
+            }
+        }
+        // rows read before a concurrent change committed may be stale
+        changed.forEach(this::refresh);
+        log.info("name suggestions built with {} names, about {} bytes", rebuilt.size(),
+                rebuilt.estimatedBytes());
+    }
+
+    private static Entry entry(final SuggestionType type, final SuggestionSourceProjection row) {
+        final String name = row.name() == null ? "" : row.name();
+        return new Entry(new EntryId(type, row.id()), name, normalize(name),
+                row.weight() == null ? 0 : row.weight());
+    }
+
+    static String normalize(final String text) {
+        if (text == null) {
+            return "";
+        }
+        final String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        final String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("").replace('đ', 'd');
+        return SEPARATORS.matcher(stripped).replaceAll(" ").trim();
+    }
+
+    private static boolean matches(final String normalized, final String prefix) {
+        for (final int offset : wordStarts(normalized)) {
+            if (normalized.startsWith(prefix, offset)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] wordStarts(final String normalized) {
+        final int[] starts = new int[MAX_KEYS_PER_NAME];
+        int count = 0;
+        for (int i = 0; i < normalized.length() && count < starts.length; i++) {
+            if (i == 0 || normalized.charAt(i - 1) == ' ') {
+                starts[count++] = i;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    private static long stringBytes(final String text) {
+        final boolean latin1 = text.chars().allMatch(c -> c < 256);
+        return latin1 ? text.length() : 2L * text.length();
+    }
+
+    private record EntryId(SuggestionType type, long id) {
+    }
+
+    private record Entry(EntryId id, String name, String normalized, long weight) {
+    }
+
+    private record State(Snapshot base, Map<EntryId, Entry> delta) {
+
+        private long size() {
+            return base.size() + delta.values().stream().filter(Objects::nonNull).count();
+        }
+
+        private long estimatedBytes() {
+            return base.estimatedBytes() + delta.values()
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .mapToLong(entry -> DELTA_ENTRY_BYTES + stringBytes(entry.name()) + stringBytes(entry.normalized()))
+                    .sum();
+        }
+
+    }
+
+    /**
+     * Immutable key array and segment tree. Names are stored in parallel arrays, their texts packed
+     * as UTF-8 into one byte array each, so a snapshot holds no object per name. A key packs the
+     * name index into the high and the byte offset of a word start into the low 32 bits.
+     */
+    private static final class Snapshot {
+
+        private final long[] ids;
+        private final byte[] types;
+        private final long[] weights;
+        // name i is names[nameStarts[i]] up to nameStarts[i + 1], likewise for the normalized texts
+        private final byte[] names;
+        private final int[] nameStarts;
+        private final byte[] normalized;
+        private final int[] normalizedStarts;
+        private final long[] keys;
+        // tree[1] is the root, leaves start at leafBase; each node holds the most popular key below it
+        private final int[] tree;
+        private final int leafBase;
+
+        /**
+         * Takes over the names of the builder, trimming its arrays one at a time and dropping
+         * them from the builder, so at most one array exists twice.
+         */
+        private Snapshot(final SnapshotBuilder builder) {
+            final int size = builder.size;
+            ids = Arrays.copyOf(builder.ids, size);
+            builder.ids = null;
+            types = Arrays.copyOf(builder.types, size);
+            builder.types = null;
+            weights = Arrays.copyOf(builder.weights, size);
+            builder.weights = null;
+            names = Arrays.copyOf(builder.names, builder.nameStarts[size]);
+            builder.names = null;
+            nameStarts = Arrays.copyOf(builder.nameStarts, size + 1);
+            builder.nameStarts = null;
+            normalized = Arrays.copyOf(builder.normalized, builder.normalizedStarts[size]);
+            builder.normalized = null;
+            normalizedStarts = Arrays.copyOf(builder.normalizedStarts, size + 1);
+            builder.normalizedStarts = null;
+            keys = new long[builder.keyCount];
+            int key = 0;
+            for (int i = 0; i < size; i++) {
+                final int start = normalizedStarts[i];
+                final int end = normalizedStarts[i + 1];
+                int words = 0;
+                for (int offset = start; offset < end && words < MAX_KEYS_PER_NAME; offset++) {
+                    if (offset == start || normalized[offset - 1] == ' ') {
+                        keys[key++] = ((long) i << 32) | (offset - start);
+                        words++;
+                    }
+                }
+            }
+            sortKeys(new long[keys.length], 0, keys.length);
+            leafBase = Integer.highestOneBit(Math.max(1, keys.length - 1)) << 1;
+            tree = new int[2 * leafBase];
+            Arrays.fill(tree, -1);
+            for (int i = 0; i < keys.length; i++) {
+                tree[leafBase + i] = i;
+            }
+            for (int node = leafBase - 1; node > 0; node--) {
+                tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+
+        private int size() {
+            return ids.length;
+        }
+
+        /**
+         * The arrays, with 16 bytes of header each.
+         */
+        private long estimatedBytes() {
+            return 8L * ids.length + types.length + 8L * weights.length + names.length + 4L * nameStarts.length
+                    + normalized.length + 4L * normalizedStarts.length + 8L * keys.length + 4L * tree.length
+                    + 9 * 16;
+        }
+
+        /**
+         * The most popular names with a key starting with {@code prefix}, skipping hidden ones.
+         */
+        private List<Entry> top(final String prefix, final int limit, final Predicate<EntryId> hidden) {
+            final byte[] prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+            final List<Entry> top = new ArrayList<>(limit);
+            final PriorityQueue<int[]> ranges = new PriorityQueue<>((left, right) -> compareKeys(left[2], right[2]));
+            offerRange(ranges, lowerBound(prefixBytes, false), lowerBound(prefixBytes, true));
+            final Set<Integer> seen = new HashSet<>();
+            while (!ranges.isEmpty() && top.size() < limit) {
+                // range = {from, to, most popular key in between}
+                final int[] range = ranges.poll();
+                final int entryIndex = entryOf(range[2]);
+                if (seen.add(entryIndex)) {
+                    final Entry entry = entry(entryIndex);
+                    if (!hidden.test(entry.id())) {
+                        top.add(entry);
+                    }
+                }
+                offerRange(ranges, range[0], range[2]);
+                offerRange(ranges, range[2] + 1, range[1]);
+            }
+            return top;
+        }
+
+        /**
+         * New snapshot with the delta applied, null values removing names.
+         */
+        private Snapshot merge(final Map<EntryId, Entry> delta) {
+            final SnapshotBuilder builder = new SnapshotBuilder();
+            for (int i = 0; i < size(); i++) {
+                if (!delta.containsKey(entryId(i))) {
+                    builder.add(ids[i], types[i], weights[i], names, nameStarts[i], nameStarts[i + 1], normalized,
+                            normalizedStarts[i], normalizedStarts[i + 1]);
+                }
+            }
+            delta.values()
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .forEach(builder::add);
+            return builder.build();
+        }
+
+        private EntryId entryId(final int index) {
+            return new EntryId(SuggestionType.values()[types[index]], ids[index]);
+        }
+
+        private Entry entry(final int index) {
+            return new Entry(entryId(index),
+                    new String(names, nameStarts[index], nameStarts[index + 1] - nameStarts[index],
+                            StandardCharsets.UTF_8),
+                    new String(normalized, normalizedStarts[index],
+                            normalizedStarts[index + 1] - normalizedStarts[index], StandardCharsets.UTF_8),
+                    weights[index]);
+        }
+
+        private void offerRange(final PriorityQueue<int[]> ranges, final int from, final int to) {
+            if (from < to) {
+                ranges.add(new int[]{from, to, mostPopular(from, to)});
+            }
+        }
+
+        private int mostPopular(final int from, final int to) {
+            int best = -1;
+            for (int left = from + leafBase, right = to + leafBase; left < right; left >>= 1, right >>= 1) {
+                if ((left & 1) == 1) {
+                    best = better(best, tree[left++]);
+                }
+                if ((right & 1) == 1) {
+                    best = better(best, tree[--right]);
+                }
+            }
+            return best;
+        }
+
+        private int better(final int left, final int right) {
+            if (left < 0) {
+                return right;
+            }
+            if (right < 0) {
+                return left;
+            }
+            return compareKeys(left, right) <= 0 ? left : right;
+        }
+
+        /**
+         * Negative when key {@code left} is the more popular one. Names tie like in
+         * {@code BY_POPULARITY}, so the names cut off by a limit are the ones suggest would drop;
+         * keys of the same name go to the first key.
+         */
+        private int compareKeys(final int left, final int right) {
+            final int leftEntry = entryOf(left);
+            final int rightEntry = entryOf(right);
+            if (leftEntry != rightEntry) {
+                final int byWeight = Long.compare(weights[rightEntry], weights[leftEntry]);
+                if (byWeight != 0) {
+                    return byWeight;
+                }
+                final int byName = Arrays.compareUnsigned(normalized, normalizedStarts[leftEntry],
+                        normalizedStarts[leftEntry + 1], normalized, normalizedStarts[rightEntry],
+                        normalizedStarts[rightEntry + 1]);
+                if (byName != 0) {
+                    return byName;
+                }
+                final int byId = Long.compare(ids[leftEntry], ids[rightEntry]);
+                if (byId != 0) {
+                    return byId;
+                }
+            }
+            return Integer.compare(left, right);
+        }
+
+        private int entryOf(final int key) {
+            return (int) (keys[key] >>> 32);
+        }
+
+        /**
+         * First key whose suffix is not before {@code prefix}, or with {@code after} the first one
+         * that neither starts with it nor comes before it.
+         */
+        private int lowerBound(final byte[] prefix, final boolean after) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                final int comparison = comparePrefix(keys[middle], prefix);
+                if (comparison < 0 || (after && comparison == 0)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * UTF-8 bytes compared unsigned order like the code points they encode.
+         */
+        private int comparePrefix(final long key, final byte[] prefix) {
+            final int entry = (int) (key >>> 32);
+            final int from = normalizedStarts[entry] + (int) key;
+            final int available = normalizedStarts[entry + 1] - from;
+            final int comparison = Arrays.compareUnsigned(normalized, from, from + Math.min(available, prefix.length),
+                    prefix, 0, Math.min(available, prefix.length));
+            if (comparison != 0) {
+                return comparison;
+            }
+            return available < prefix.length ? -1 : 0;
+        }
+
+        private int compareSuffixes(final long left, final long right) {
+            final int leftEntry = (int) (left >>> 32);
+            final int rightEntry = (int) (right >>> 32);
+            return Arrays.compareUnsigned(normalized, normalizedStarts[leftEntry] + (int) left,
+                    normalizedStarts[leftEntry + 1], normalized, normalizedStarts[rightEntry] + (int) right,
+                    normalizedStarts[rightEntry + 1]);
+        }
+
+        /**
+         * Merge sort of {@code keys[from, to)} by suffix, without boxing the keys.
+         */
+        private void sortKeys(final long[] buffer, final int from, final int to) {
+            if (to - from < 2) {
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            sortKeys(buffer, from, middle);
+            sortKeys(buffer, middle, to);
+            if (compareSuffixes(keys[middle - 1], keys[middle]) <= 0) {
+                return;
+            }
+            System.arraycopy(keys, from, buffer, from, to - from);
+            for (int i = from, left = from, right = middle; i < to; i++) {
+                keys[i] = right >= to || (left < middle && compareSuffixes(buffer[left], buffer[right]) <= 0)
+                        ? buffer[left++] : buffer[right++];
+            }
+        }
+
+    }
+
+    /**
+     * Collects the names of a {@link Snapshot}, packing their texts as they are added. Used up by
+     * {@link #build}.
+     */
+    private static final class SnapshotBuilder {
+
+        private long[] ids = new long[1024];
+        private byte[] types = new byte[1024];
+        private long[] weights = new long[1024];
+        private byte[] names = new byte[16 * 1024];
+        private int[] nameStarts = new int[1025];
+        private byte[] normalized = new byte[16 * 1024];
+        private int[] normalizedStarts = new int[1025];
+        private int keyCount;
+        private int size;
+
+        private void add(final Entry entry) {
+            final byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+            final byte[] normalizedName = entry.normalized().getBytes(StandardCharsets.UTF_8);
+            add(entry.id().id(), (byte) entry.id().type().ordinal(), entry.weight(), name, 0, name.length,
+                    normalizedName, 0, normalizedName.length);
+        }
+
+        private void add(final long id, final byte type, final long weight, final byte[] name, final int nameFrom,
+                final int nameTo, final byte[] normalizedName, final int normalizedFrom, final int normalizedTo) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+                types = Arrays.copyOf(types, 2 * size);
+                weights = Arrays.copyOf(weights, 2 * size);
+                nameStarts = Arrays.copyOf(nameStarts, 2 * size + 1);
+                normalizedStarts = Arrays.copyOf(normalizedStarts, 2 * size + 1);
+            }
+            ids[size] = id;
+            types[size] = type;
+            weights[size] = weight;
+            names = append(names, nameStarts[size], name, nameFrom, nameTo);
+            nameStarts[size + 1] = nameStarts[size] + nameTo - nameFrom;
+            normalized = append(normalized, normalizedStarts[size], normalizedName, normalizedFrom, normalizedTo);
+            normalizedStarts[size + 1] = normalizedStarts[size] + normalizedTo - normalizedFrom;
+            int words = 0;
+            for (int offset = normalizedFrom; offset < normalizedTo && words < MAX_KEYS_PER_NAME; offset++) {
+                if (offset == normalizedFrom || normalizedName[offset - 1] == ' ') {
+                    words++;
+                }
+            }
+            keyCount += words;
+            size++;
+        }
+
+        private static byte[] append(final byte[] target, final int length, final byte[] source, final int from,
+                final int to) {
+            final byte[] grown = length + to - from > target.length
+                    ? Arrays.copyOf(target, Math.max(2 * target.length, length + to - from)) : target;
+            System.arraycopy(source, from, grown, length, to - from);
+            return grown;
+        }
+
+        private Snapshot build() {
+            return new Snapshot(this);
+        }
+
+    }
+
+}
@@ -1,5 +1,6 @@
 package uit.carbon_shop.service;
 
+import java.math.BigDecimal;
 import org.mapstruct.AfterMapping;
 import org.mapstruct.Context;
 import org.mapstruct.Mapper;
@@ -9,11 +10,11 @@ import org.mapstruct.MappingTarget;
 import org.mapstruct.ReportingPolicy;
 import uit.carbon_shop.domain.AppUser;
 import uit.carbon_shop.domain.Order;
+import uit.carbon_shop.domain.OrderListProjection;
 import uit.carbon_shop.domain.Project;
 import uit.carbon_shop.model.OrderDTO;
 import uit.carbon_shop.repos.AppUserRepository;
 import uit.carbon_shop.repos.ProjectRepository;
-import uit.carbon_shop.util.NotFoundException;
 
 
 @Mapper(
@@ -24,6 +25,7 @@ public interface OrderMapper {
 
     @Mapping(source = "id", target = "orderId")
     @Mapping(target = "project", ignore = true)
+    @Mapping(target = "sellerCompany", ignore = true)
     @Mapping(target = "processBy", ignore = true)
     @Mapping(target = "createdBy", ignore = true)
     OrderDTO updateOrderDTO(Order order, @MappingTarget OrderDTO orderDTO);
@@ -31,14 +33,24 @@ public interface OrderMapper {
     @AfterMapping
     default void afterUpdateOrderDTO(Order order, @MappingTarget OrderDTO orderDTO) {
         orderDTO.setProject(order.getProject() == null ? null : order.getProject().getId());
+        orderDTO.setSellerCompany(order.getSellerCompany() == null ? null : order.getSellerCompany().getId());
         orderDTO.setProcessBy(order.getProcessBy() == null ? null : order.getProcessBy().getId());
         orderDTO.setCreatedBy(order.getCreatedBy() == null ? null : order.getCreatedBy().getId());
     }
 
+    @Mapping(source = "id", target = "orderId")
+    @Mapping(source = "projectId", target = "project")
+    @Mapping(source = "sellerCompanyId", target = "sellerCompany")
+    @Mapping(source = "processById", target = "processBy")
+    @Mapping(source = "createdById", target = "createdBy")
+    OrderDTO updateOrderDTO(OrderListProjection projection, @MappingTarget OrderDTO orderDTO);
+
     @Mapping(source = "orderId", target = "id", ignore = true)
     @Mapping(target = "project", ignore = true)
+    @Mapping(target = "sellerCompany", ignore = true)
     @Mapping(target = "processBy", ignore = true)
     @Mapping(target = "createdBy", ignore = true)
+    @Mapping(target = "totalAmount", ignore = true)
     Order updateOrder(OrderDTO orderDTO, @MappingTarget Order order,
             @Context ProjectRepository projectRepository,
             @Context AppUserRepository appUserRepository);
@@ -47,15 +59,19 @@ public interface OrderMapper {
     default void afterUpdateOrder(OrderDTO orderDTO, @MappingTarget Order order,
             @Context ProjectRepository projectRepository,
             @Context AppUserRepository appUserRepository) {
-        final Project project = orderDTO.getProject() == null ? null : projectRepository.findById(orderDTO.getProject())
-                .orElseThrow(() -> new NotFoundException("project not found"));
+        final Project project = orderDTO.getProject() == null ? null : projectRepository.getReferenceById(orderDTO.getProject());
         order.setProject(project);
-        final AppUser processBy = orderDTO.getProcessBy() == null ? null : appUserRepository.findById(orderDTO.getProcessBy())
-                .orElseThrow(() -> new NotFoundException("processBy not found"));
+        final AppUser processBy = orderDTO.getProcessBy() == null ? null : appUserRepository.getReferenceById(orderDTO.getProcessBy());
         order.setProcessBy(processBy);
-        final AppUser createdBy = orderDTO.getCreatedBy() == null ? null : appUserRepository.findById(orderDTO.getCreatedBy())
-                .orElseThrow(() -> new NotFoundException("createdBy not found"));
+        final AppUser createdBy = orderDTO.getCreatedBy() == null ? null : appUserRepository.getReferenceById(orderDTO.getCreatedBy());
         order.setCreatedBy(createdBy);
+        // the total is always derived, never taken from the client
+        if (order.getUnitPrice() != null && order.getCreditAmount() != null) {
+            order.setTotalAmount(order.getUnitPrice().multiply(BigDecimal.valueOf(order.getCreditAmount())));
+            order.setTotal(order.getTotalAmount().toPlainString());
+        } else {
+            order.setTotalAmount(null);
+        }
     }
 
 }
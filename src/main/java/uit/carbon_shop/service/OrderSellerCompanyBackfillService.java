@@ -0,0 +1,71 @@
+package uit.carbon_shop.service;
+
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import uit.carbon_shop.repos.OrderRepository;
+
+
+/**
+ * Copies the owner company of the ordered project onto orders placed before
+ * {@link uit.carbon_shop.domain.Order#getSellerCompany()} existed. Each batch is its own short
+ * transaction so the backfill can run next to live traffic. Only one node runs it; completion is
+ * remembered in Redis.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderSellerCompanyBackfillService {
+
+    private static final String DONE_KEY = "ORDER_SELLER_COMPANY_BACKFILL_DONE";
+
+    private final OrderRepository orderRepository;
+    private final RedissonClient redissonClient;
+
+    @Value("${app.order-seller-company-backfill.batch-size:500}")
+    private int batchSize;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        final RBucket<Boolean> done = redissonClient.getBucket(DONE_KEY);
+        if (Boolean.TRUE.equals(done.get())) {
+            return;
+        }
+        final RLock backfillLock = redissonClient.getLock("ORDER_SELLER_COMPANY_BACKFILL_LOCK");
+        if (!backfillLock.tryLock()) {
+            return;
+        }
+        try {
+            backfill();
+            done.set(true);
+        } finally {
+            backfillLock.unlock();
+        }
+    }
+
+    public void backfill() {
+        long after = Long.MIN_VALUE;
+        int updated = 0;
+        while (true) {
+            final List<Long> batch = orderRepository.findIdsWithoutSellerCompany(after,
+                    PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            updated += orderRepository.fillSellerCompany(batch);
+            after = batch.getLast();
+        }
+        log.info("order seller company backfill finished, {} orders updated", updated);
+    }
+
+}
@@ -1,19 +1,32 @@
 package uit.carbon_shop.service;
 
+import jakarta.transaction.Transactional;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import uit.carbon_shop.domain.Order;
+import uit.carbon_shop.domain.OrderListProjection;
+import uit.carbon_shop.domain.Project;
+import uit.carbon_shop.model.CursorPagedModel;
+import uit.carbon_shop.model.CursorRequest;
 import uit.carbon_shop.model.MediatorDoneOrderDTO;
 import uit.carbon_shop.model.OrderDTO;
 import uit.carbon_shop.model.OrderStatus;
+import uit.carbon_shop.model.ProjectStatsChangedEvent;
 import uit.carbon_shop.repos.AppUserRepository;
+import uit.carbon_shop.repos.CompanyRepository;
 import uit.carbon_shop.repos.OrderRepository;
 import uit.carbon_shop.repos.ProjectRepository;
+import uit.carbon_shop.util.ConflictException;
+import uit.carbon_shop.util.CursorToken;
 import uit.carbon_shop.util.NotFoundException;
 
 
@@ -24,11 +37,13 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final ProjectRepository projectRepository;
     private final AppUserRepository appUserRepository;
+    private final CompanyRepository companyRepository;
     private final OrderMapper orderMapper;
-    private final RedissonClient redissonClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FileDocumentService fileDocumentService;
 
     public Page<OrderDTO> findAll(final String filter, final Pageable pageable) {
-        Page<Order> page;
+        Page<OrderListProjection> page;
         if (filter != null) {
             Long longFilter = null;
             try {
@@ -36,9 +51,9 @@ public class OrderService {
             } catch (final NumberFormatException numberFormatException) {
                 // keep null - no parseable input
             }
-            page = orderRepository.findAllById(longFilter, pageable);
+            page = orderRepository.listById(longFilter, pageable);
         } else {
-            page = orderRepository.findAll(pageable);
+            page = orderRepository.listAll(pageable);
         }
         return new PageImpl<>(page.getContent()
                 .stream()
@@ -48,7 +63,7 @@ public class OrderService {
     }
 
     public Page<OrderDTO> findAllCreatedBy(final Long userId, final Pageable pageable) {
-        final Page<Order> page = orderRepository.findByCreatedBy_Id(userId, pageable);
+        final Page<OrderListProjection> page = orderRepository.listByCreatedBy(userId, pageable);
         return new PageImpl<>(page.getContent()
                 .stream()
                 .map(order -> orderMapper.updateOrderDTO(order, new OrderDTO()))
@@ -58,7 +73,7 @@ public class OrderService {
 
     public Page<OrderDTO> findAllByStatusAndCreatedBy(final OrderStatus status, final Long userId,
             final Pageable pageable) {
-        final Page<Order> page = orderRepository.findByCreatedBy_IdAndStatus(userId, status, pageable);
+        final Page<OrderListProjection> page = orderRepository.listByCreatedByAndStatus(userId, status, pageable);
         return new PageImpl<>(page.getContent()
                 .stream()
                 .map(order -> orderMapper.updateOrderDTO(order, new OrderDTO()))
@@ -67,7 +82,7 @@ public class OrderService {
     }
 
     public Page<OrderDTO> findByOwnerCompany(final Long companyId, final Pageable pageable) {
-        final Page<Order> page = orderRepository.findByProject_OwnerCompany_Id(companyId, pageable);
+        final Page<OrderListProjection> page = orderRepository.listBySellerCompany(companyId, pageable);
         return new PageImpl<>(page.getContent()
                 .stream()
                 .map(order -> orderMapper.updateOrderDTO(order, new OrderDTO()))
@@ -77,7 +92,7 @@ public class OrderService {
 
     public Page<OrderDTO> findByStatusAndOwnerCompany(final OrderStatus status, final Long companyId,
             final Pageable pageable) {
-        final Page<Order> page = orderRepository.findByProject_OwnerCompany_IdAndStatus(companyId, status, pageable);
+        final Page<OrderListProjection> page = orderRepository.listBySellerCompanyAndStatus(companyId, status, pageable);
         return new PageImpl<>(page.getContent()
                 .stream()
                 .map(order -> orderMapper.updateOrderDTO(order, new OrderDTO()))
@@ -86,7 +101,7 @@ public class OrderService {
     }
 
     public Page<OrderDTO> findByStatus(OrderStatus status, Pageable pageable) {
-        final Page<Order> page = orderRepository.findByStatus(status, pageable);
+        final Page<OrderListProjection> page = orderRepository.listByStatus(status, pageable);
         return new PageImpl<>(page.getContent()
                 .stream()
                 .map(order -> orderMapper.updateOrderDTO(order, new OrderDTO()))
@@ -94,63 +109,123 @@ public class OrderService {
                 pageable, page.getTotalElements());
     }
 
+    public CursorPagedModel<OrderDTO> scroll(final OrderStatus status, final CursorRequest cursor) {
+        return toCursorPage(orderRepository.scroll(status, cursor.lowerId(), cursor.upperId(),
+                cursor.pageable(Sort.Direction.ASC, "id")), cursor);
+    }
+
+    public CursorPagedModel<OrderDTO> scrollCreatedBy(final Long userId, final OrderStatus status,
+            final CursorRequest cursor) {
+        return toCursorPage(orderRepository.scrollByCreatedBy(userId, status, cursor.lowerId(), cursor.upperId(),
+                cursor.pageable(Sort.Direction.ASC, "id")), cursor);
+    }
+
+    public CursorPagedModel<OrderDTO> scrollByOwnerCompany(final Long companyId, final OrderStatus status,
+            final CursorRequest cursor) {
+        return toCursorPage(orderRepository.scrollBySellerCompany(companyId, status, cursor.lowerId(),
+                cursor.upperId(), cursor.pageable(Sort.Direction.ASC, "id")), cursor);
+    }
+
+    private CursorPagedModel<OrderDTO> toCursorPage(final List<OrderListProjection> rows,
+            final CursorRequest cursor) {
+        return CursorPagedModel.of(rows, cursor, order -> CursorToken.encode(order.id()))
+                .map(order -> orderMapper.updateOrderDTO(order, new OrderDTO()));
+    }
+
     public OrderDTO get(final Long orderId) {
         return orderRepository.findById(orderId)
                 .map(order -> orderMapper.updateOrderDTO(order, new OrderDTO()))
                 .orElseThrow(NotFoundException::new);
     }
 
-    public Long create(final OrderDTO orderDTO) {
+    public OrderDTO create(final OrderDTO orderDTO) {
         final Order order = new Order();
         order.setId(orderDTO.getOrderId());
         orderMapper.updateOrder(orderDTO, order, projectRepository, appUserRepository);
-        return orderRepository.save(order).getId();
+        order.setSellerCompany(orderDTO.getSellerCompany() == null ? null
+                : companyRepository.getReferenceById(orderDTO.getSellerCompany()));
+        final OrderDTO created = orderMapper.updateOrderDTO(orderRepository.save(order), new OrderDTO());
+        publishStatsChanged(created.getProject());
+        return created;
     }
 
+    @Transactional
     public void update(final Long orderId, final OrderDTO orderDTO) {
         final Order order = orderRepository.findById(orderId)
                 .orElseThrow(NotFoundException::new);
+        final Long previousProject = order.getProject() == null ? null : order.getProject().getId();
+        final List<Long> previousFiles = fileIds(order);
         orderMapper.updateOrder(orderDTO, order, projectRepository, appUserRepository);
         orderRepository.save(order);
+        fileDocumentService.deleteDropped(previousFiles, fileIds(order));
+        publishStatsChanged(previousProject);
+        if (order.getProject() != null && !order.getProject().getId().equals(previousProject)) {
+            publishStatsChanged(order.getProject().getId());
+        }
     }
 
+    /**
+     * Apply the transition as a single conditional update, so concurrent transitions of the same
+     * order are serialized by the database row lock and only the first valid one wins.
+     */
+    @Transactional
     public void updateStatus(final Long orderId, final OrderStatus status) {
-        RLock orderLock = redissonClient.getLock("ORDER_LOCK:" + orderId);
-        orderLock.lock();
-        try {
-            final Order order = orderRepository.findById(orderId)
-                    .orElseThrow(NotFoundException::new);
-            if (!order.getStatus().canUpdateTo(status)) {
-                throw new IllegalArgumentException("Cannot update status from " + order.getStatus() + " to " + status);
-            }
-            order.setStatus(status);
-            orderRepository.save(order);
-        } finally {
-            orderLock.unlock();
+        if (orderRepository.updateStatus(orderId, status.updatableFrom(), status, OffsetDateTime.now()) == 0) {
+            throw statusConflict(orderId, status);
         }
     }
 
+    @Transactional
     public void doneOrder(final Long orderId, final MediatorDoneOrderDTO doneOrderDTO) {
-        RLock orderLock = redissonClient.getLock("ORDER_LOCK:" + orderId);
-        orderLock.lock();
-        try {
-            final Order order = orderRepository.findById(orderId)
-                    .orElseThrow(NotFoundException::new);
-            order.setStatus(OrderStatus.DONE);
-            order.setContractFile(doneOrderDTO.getContractFile());
-            order.setCertImages(doneOrderDTO.getCertImages());
-            order.setPaymentBillFile(doneOrderDTO.getPaymentBillFile());
-            order.setPayDate(doneOrderDTO.getPayDate());
-            order.setDeliveryDate(doneOrderDTO.getDeliveryDate());
-            order.setContractSignDate(doneOrderDTO.getContractSignDate());
-            orderRepository.save(order);
-        } finally {
-            orderLock.unlock();
+        updateStatus(orderId, OrderStatus.DONE);
+        // the row stays locked by the status update until commit
+        final Order order = orderRepository.findById(orderId)
+                .orElseThrow(NotFoundException::new);
+        final List<Long> previousFiles = fileIds(order);
+        order.setContractFile(doneOrderDTO.getContractFile());
+        order.setCertImages(doneOrderDTO.getCertImages());
+        order.setPaymentBillFile(doneOrderDTO.getPaymentBillFile());
+        order.setPayDate(doneOrderDTO.getPayDate());
+        order.setDeliveryDate(doneOrderDTO.getDeliveryDate());
+        order.setContractSignDate(doneOrderDTO.getContractSignDate());
+        orderRepository.save(order);
+        fileDocumentService.deleteDropped(previousFiles, fileIds(order));
+    }
+
+    private static List<Long> fileIds(final Order order) {
+        final List<Long> fileIds = new ArrayList<>();
+        fileIds.add(order.getContractFile());
+        fileIds.add(order.getPaymentBillFile());
+        if (order.getCertImages() != null) {
+            fileIds.addAll(order.getCertImages());
+        }
+        return fileIds;
+    }
+
+    private RuntimeException statusConflict(final Long orderId, final OrderStatus status) {
+        if (!orderRepository.existsById(orderId)) {
+            return new NotFoundException();
         }
+        return new ConflictException("Cannot update status to " + status);
     }
 
+    @Transactional
     public void delete(final Long orderId) {
+        final Optional<Order> order = orderRepository.findById(orderId);
         orderRepository.deleteById(orderId);
+        order.ifPresent(deleted -> fileDocumentService.deleteDropped(fileIds(deleted), null));
+        publishStatsChanged(order.map(Order::getProject)
+                .map(Project::getId)
+                .orElse(null));
+    }
+
+    /**
+     * The order count is part of the project card.
+     */
+    private void publishStatsChanged(final Long projectId) {
+        if (projectId != null) {
+            eventPublisher.publishEvent(new ProjectStatsChangedEvent(projectId));
+        }
     }
 
 }
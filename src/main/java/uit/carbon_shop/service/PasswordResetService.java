@@ -8,9 +8,11 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import uit.carbon_shop.domain.AppUser;
+import uit.carbon_shop.model.AppUserDTO;
 import uit.carbon_shop.model.PasswordResetCompleteRequest;
 import uit.carbon_shop.model.PasswordResetRequest;
 import uit.carbon_shop.repos.AppUserRepository;
+import uit.carbon_shop.util.TwoTierCache;
 import uit.carbon_shop.util.WebUtils;
 
 
@@ -21,12 +23,15 @@ public class PasswordResetService {
     private final MailService mailService;
     private final PasswordEncoder passwordEncoder;
     private final AppUserRepository appUserRepository;
+    private final TwoTierCache<AppUserDTO> appUserCache;
 
     public PasswordResetService(final MailService mailService,
-            final PasswordEncoder passwordEncoder, final AppUserRepository appUserRepository) {
+            final PasswordEncoder passwordEncoder, final AppUserRepository appUserRepository,
+            final TwoTierCache<AppUserDTO> appUserCache) {
         this.mailService = mailService;
         this.passwordEncoder = passwordEncoder;
         this.appUserRepository = appUserRepository;
+        this.appUserCache = appUserCache;
     }
 
     private boolean hasValidRequest(final AppUser appUser) {
@@ -49,6 +54,7 @@ public class PasswordResetService {
         }
         appUser.setResetPasswordStart(OffsetDateTime.now());
         appUserRepository.save(appUser);
+        appUserCache.evict(appUser.getId().toString());
 
         mailService.sendMail(passwordResetRequest.getEmail(), WebUtils.getMessage("passwordReset.mail.subject"),
                 WebUtils.renderTemplate("/mails/passwordReset", Collections.singletonMap("passwordResetUid", appUser.getResetPasswordUid())));
@@ -73,6 +79,7 @@ public class PasswordResetService {
         appUser.setResetPasswordUid(null);
         appUser.setResetPasswordStart(null);
         appUserRepository.save(appUser);
+        appUserCache.evict(appUser.getId().toString());
     }
 
 }
@@ -0,0 +1,100 @@
+package uit.carbon_shop.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import uit.carbon_shop.domain.Order;
+import uit.carbon_shop.domain.Project;
+import uit.carbon_shop.repos.OrderRepository;
+import uit.carbon_shop.repos.ProjectRepository;
+import uit.carbon_shop.util.PriceParser;
+
+
+/**
+ * Fills the numeric price columns of projects and orders stored before they existed by parsing
+ * the free-form price strings. Rows whose text holds no number keep a null unit price.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PriceBackfillService {
+
+    private final ProjectRepository projectRepository;
+    private final OrderRepository orderRepository;
+    private final RedissonClient redissonClient;
+
+    @Value("${app.price-backfill.batch-size:500}")
+    private int batchSize;
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        final RLock backfillLock = redissonClient.getLock("PRICE_BACKFILL_LOCK");
+        if (!backfillLock.tryLock()) {
+            return;
+        }
+        try {
+            backfillProjects();
+            backfillOrders();
+        } finally {
+            backfillLock.unlock();
+        }
+    }
+
+    public void backfillProjects() {
+        long after = Long.MIN_VALUE;
+        int updated = 0;
+        while (true) {
+            final List<Project> batch = projectRepository.findByUnitPriceIsNullAndPriceIsNotNullAndIdGreaterThanOrderById(
+                    after, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (final Project project : batch) {
+                final BigDecimal unitPrice = PriceParser.parseAmount(project.getPrice());
+                if (unitPrice != null) {
+                    updated += projectRepository.updatePrice(project.getId(), unitPrice,
+                            PriceParser.parseCurrency(project.getPrice()));
+                }
+            }
+            after = batch.getLast().getId();
+        }
+        log.info("project price backfill finished, {} projects updated", updated);
+    }
+
+    public void backfillOrders() {
+        long after = Long.MIN_VALUE;
+        int updated = 0;
+        while (true) {
+            final List<Order> batch = orderRepository.findByUnitPriceIsNullAndPriceIsNotNullAndIdGreaterThanOrderById(
+                    after, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (final Order order : batch) {
+                final BigDecimal unitPrice = PriceParser.parseAmount(order.getPrice());
+                if (unitPrice == null) {
+                    continue;
+                }
+                BigDecimal totalAmount = PriceParser.parseAmount(order.getTotal());
+                if (totalAmount == null && order.getCreditAmount() != null) {
+                    totalAmount = unitPrice.multiply(BigDecimal.valueOf(order.getCreditAmount()));
+                }
+                updated += orderRepository.updatePrice(order.getId(), unitPrice,
+                        PriceParser.parseCurrency(order.getPrice()), totalAmount);
+            }
+            after = batch.getLast().getId();
+        }
+        log.info("order price backfill finished, {} orders updated", updated);
+    }
+
+}
@@ -0,0 +1,217 @@
+package uit.carbon_shop.service;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import uit.carbon_shop.domain.ProjectCard;
+import uit.carbon_shop.domain.ProjectCountProjection;
+import uit.carbon_shop.domain.ProjectListProjection;
+import uit.carbon_shop.model.CompanyChangedEvent;
+import uit.carbon_shop.model.ProjectCardDTO;
+import uit.carbon_shop.model.ProjectChangedEvent;
+import uit.carbon_shop.model.ProjectDTO;
+import uit.carbon_shop.model.ProjectStatsChangedEvent;
+import uit.carbon_shop.model.ProjectStatus;
+import uit.carbon_shop.repos.AppUserRepository;
+import uit.carbon_shop.repos.CompanyRepository;
+import uit.carbon_shop.repos.OrderRepository;
+import uit.carbon_shop.repos.ProjectCardRepository;
+import uit.carbon_shop.repos.ProjectRepository;
+
+
+/**
+ * Maintains the {@link ProjectCard} read model. Cards are re-projected asynchronously after
+ * commit of every {@link ProjectChangedEvent} (project writes), {@link ProjectStatsChangedEvent}
+ * (order, review and favorite writes) and {@link CompanyChangedEvent} (owner name). A rebuild
+ * re-projects all projects and drops orphaned cards; it runs on startup when the table is empty,
+ * every {@code app.project-cards.reconcile-interval} and on request. A card is therefore behind
+ * its sources by the event delivery delay, and by at most one reconcile interval when an event was
+ * lost. Refreshes only write cards whose content changed, so a reconcile of an up to date table
+ * writes nothing.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProjectCardService {
+
+    private final ProjectCardRepository projectCardRepository;
+    private final ProjectRepository projectRepository;
+    private final CompanyRepository companyRepository;
+    private final OrderRepository orderRepository;
+    private final AppUserRepository appUserRepository;
+    private final ProjectMapper projectMapper;
+    private final RedissonClient redissonClient;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.project-cards.batch-size:500}")
+    private int batchSize;
+
+    public Page<ProjectCardDTO> findAll(final ProjectStatus status, final Pageable pageable) {
+        final Page<ProjectCard> page = status == null ? projectCardRepository.findAll(pageable)
+                : projectCardRepository.findByStatus(status, pageable);
+        return page.map(ProjectCard::getCard);
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (projectCardRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.project-cards.reconcile-interval}",
+            initialDelayString = "${app.project-cards.reconcile-interval}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild command, runs in the background. Ignored while a rebuild is running on any node.
+     */
+    @Async
+    public void requestRebuild() {
+        rebuild();
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProjectChanged(final ProjectChangedEvent event) {
+        refreshRetrying(List.of(event.projectId()));
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProjectStatsChanged(final ProjectStatsChangedEvent event) {
+        refreshRetrying(List.of(event.projectId()));
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCompanyChanged(final CompanyChangedEvent event) {
+        refreshRetrying(projectCardRepository.findIdsByOwnerCompanyId(event.companyId()));
+    }
+
+    private void rebuild() {
+        final RLock rebuildLock = redissonClient.getLock("PROJECT_CARDS_REBUILD_LOCK");
+        if (!rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            int cards = 0;
+            long lowerId = Long.MIN_VALUE;
+            while (true) {
+                final List<ProjectListProjection> batch = projectRepository.scroll(null, null, null, null, null, null,
+                        lowerId, Long.MAX_VALUE, PageRequest.of(0, batchSize, Sort.by("id")));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                refreshRetrying(batch.stream().map(ProjectListProjection::id).toList());
+                cards += batch.size();
+                lowerId = batch.getLast().id();
+            }
+            final int orphans = projectCardRepository.deleteOrphans();
+            log.info("project cards rebuilt, {} cards refreshed, {} orphans removed", cards, orphans);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * A concurrent refresh may insert the same new card first; the second attempt then updates it.
+     */
+    private void refreshRetrying(final Collection<Long> projectIds) {
+        try {
+            refresh(projectIds);
+        } catch (final DataIntegrityViolationException dataIntegrityViolationException) {
+            refresh(projectIds);
+        }
+    }
+
+    /**
+     * Reads the sources after locking the stored cards, so of two overlapping refreshes the one
+     * committing last has also read last. Cards whose content did not change are left untouched.
+     */
+    private void refresh(final Collection<Long> projectIds) {
+        if (projectIds.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            final Map<Long, ProjectCard> stored = projectCardRepository.findAllForUpdate(projectIds)
+                    .stream()
+                    .collect(Collectors.toMap(ProjectCard::getId, Function.identity()));
+            final List<ProjectListProjection> projects = projectRepository.listByIds(projectIds);
+            final Set<Long> missing = new HashSet<>(projectIds);
+            projects.forEach(project -> missing.remove(project.id()));
+            final Map<Long, String> companyNames = new HashMap<>();
+            companyRepository.findAllById(projects.stream()
+                            .map(ProjectListProjection::ownerCompanyId)
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toSet()))
+                    .forEach(company -> companyNames.put(company.getId(), company.getName()));
+            final Map<Long, Long> orderCounts = counts(orderRepository.countByProjects(projectIds));
+            final Map<Long, Long> favoriteCounts = counts(appUserRepository.countFavoritesByProjects(projectIds));
+            final OffsetDateTime now = OffsetDateTime.now();
+            for (final ProjectListProjection project : projects) {
+                final ProjectCardDTO cardDTO = new ProjectCardDTO();
+                cardDTO.setProject(projectMapper.updateProjectDTO(project, new ProjectDTO()));
+                cardDTO.setOwnerCompanyName(companyNames.get(project.ownerCompanyId()));
+                cardDTO.setAverageRating(project.rating().getAverage());
+                cardDTO.setReviewCount(project.rating().getReviewCount());
+                cardDTO.setOrderCount(orderCounts.getOrDefault(project.id(), 0L));
+                cardDTO.setFavoriteCount(favoriteCounts.getOrDefault(project.id(), 0L));
+                cardDTO.setRefreshedAt(now);
+                final ProjectCard card = stored.getOrDefault(project.id(), new ProjectCard());
+                // the columns are copies of the card, so an equal card needs no write
+                if (cardDTO.equals(card.getCard())) {
+                    continue;
+                }
+                card.setId(project.id());
+                card.setStatus(project.status());
+                card.setOwnerCompanyId(project.ownerCompanyId());
+                card.setUnitPrice(project.unitPrice());
+                card.setCreditAmount(project.creditAmount());
+                card.setAverageRating(cardDTO.getAverageRating());
+                card.setReviewCount(cardDTO.getReviewCount());
+                card.setOrderCount(cardDTO.getOrderCount());
+                card.setFavoriteCount(cardDTO.getFavoriteCount());
+                card.setCard(cardDTO);
+                card.setRefreshedAt(now);
+                projectCardRepository.save(card);
+            }
+            if (!missing.isEmpty()) {
+                projectCardRepository.deleteAllByIdInBatch(missing);
+            }
+        });
+    }
+
+    private static Map<Long, Long> counts(final List<ProjectCountProjection> rows) {
+        return rows.stream()
+                .collect(Collectors.toMap(ProjectCountProjection::projectId, ProjectCountProjection::count));
+    }
+
+}
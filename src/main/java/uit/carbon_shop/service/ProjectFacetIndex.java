@@ -0,0 +1,687 @@
+package uit.carbon_shop.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import uit.carbon_shop.domain.ProjectListProjection;
+import uit.carbon_shop.model.ProjectChangedEvent;
+import uit.carbon_shop.model.ProjectFacetsDTO;
+import uit.carbon_shop.model.ProjectListFilter;
+import uit.carbon_shop.model.ProjectStatus;
+import uit.carbon_shop.repos.ProjectRepository;
+
+
+/**
+ * In-process inverted index over all projects, answering the marketplace listings and their facet
+ * counts without a database round trip. Each project occupies a slot; bitsets per status and per
+ * owner company mark the slots, and slot orders by id, unit price and credit amount are kept sorted
+ * by binary search insertion as projects change.
+ * <p>
+ * The index is built on startup and follows {@link ProjectChangedEvent}s after commit. Changes made
+ * on other nodes arrive over a Redisson topic, and a periodic rebuild heals missed messages. Until
+ * the first build finishes, listings fall back to the database.
+ */
+@Service
+@Slf4j
+public class ProjectFacetIndex {
+
+    private static final String UNPRICED_BAND = "unpriced";
+    private static final int MAX_FACET_VALUES = 50;
+    private static final int REFRESH_STRIPES = 64;
+
+    private final ProjectRepository projectRepository;
+    private final RTopic changeTopic;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<BigDecimal> priceBands;
+    private final int rebuildBatchSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // serialize the refreshes of one project, so the row read last is applied last
+    private final ReentrantLock[] refreshLocks = new ReentrantLock[REFRESH_STRIPES];
+    // guarded by lock, null until the first build
+    private Slots slots;
+    // guarded by lock, collects the projects changed while a rebuild reads the table
+    private Set<Long> changedDuringRebuild;
+
+    public ProjectFacetIndex(final ProjectRepository projectRepository, final RedissonClient redissonClient,
+            @Value("${app.project-facets.price-bands}") final List<BigDecimal> priceBands,
+            @Value("${app.project-facets.rebuild-batch-size:1000}") final int rebuildBatchSize) {
+        this.projectRepository = projectRepository;
+        this.priceBands = priceBands.stream().sorted().toList();
+        this.rebuildBatchSize = rebuildBatchSize;
+        for (int stripe = 0; stripe < REFRESH_STRIPES; stripe++) {
+            refreshLocks[stripe] = new ReentrantLock();
+        }
+        this.changeTopic = redissonClient.getTopic("PROJECT_FACET_CHANGES", StringCodec.INSTANCE);
+        this.changeTopic.addListener(String.class, (channel, message) -> {
+            final int separator = message.indexOf(':');
+            if (!message.substring(0, separator).equals(nodeId)) {
+                refresh(Long.parseLong(message.substring(separator + 1)));
+            }
+        });
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.project-facets.rebuild-interval}",
+            initialDelayString = "${app.project-facets.rebuild-interval}")
+    public void rebuild() {
+        if (rebuildLock.tryLock()) {
+            try {
+                build();
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProjectChanged(final ProjectChangedEvent event) {
+        refresh(event.projectId());
+        try {
+            changeTopic.publish(nodeId + ":" + event.projectId());
+        } catch (final RedisException redisException) {
+            log.warn("publishing facet index change of project {} failed: {}", event.projectId(),
+                    redisException.getMessage());
+        }
+    }
+
+    /**
+     * Reload one project from the database into the index, or drop it when it no longer exists.
+     */
+    public void refresh(final Long projectId) {
+        final ReentrantLock refreshLock = refreshLocks[Long.hashCode(projectId) & (REFRESH_STRIPES - 1)];
+        refreshLock.lock();
+        try {
+            final List<ProjectListProjection> rows = projectRepository.listByIds(List.of(projectId));
+            lock.writeLock().lock();
+            try {
+                if (changedDuringRebuild != null) {
+                    changedDuringRebuild.add(projectId);
+                }
+                if (slots != null) {
+                    if (rows.isEmpty()) {
+                        slots.remove(projectId);
+                    } else {
+                        slots.put(rows.getFirst());
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Page of the projects with the given status (any when null) owned by a company other than
+     * {@code excludedCompany} (any project when null). Empty when the index isn't built yet or
+     * the pageable sorts by something other than a single id, unitPrice or creditAmount order.
+     */
+    public Optional<Page<ProjectListProjection>> find(final ProjectStatus status, final Long excludedCompany,
+            final ProjectListFilter listFilter, final Pageable pageable) {
+        if (pageable.isUnpaged() || pageable.getSort().stream().count() > 1) {
+            return Optional.empty();
+        }
+        final Sort.Order order = pageable.getSort().stream().findFirst().orElse(Sort.Order.asc("id"));
+        final SortKey sortKey = SortKey.of(order.getProperty());
+        if (sortKey == null) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            final Slots current = slots;
+            if (current == null) {
+                return Optional.empty();
+            }
+            final BitSet matching = current.match(status, excludedCompany, listFilter);
+            final int[] sorted = current.sorted(sortKey);
+            final int size = current.size();
+            final List<ProjectListProjection> content = new ArrayList<>(pageable.getPageSize());
+            long skip = pageable.getOffset();
+            for (int i = 0; i < size && content.size() < pageable.getPageSize(); i++) {
+                final int slot = sorted[order.isAscending() ? i : size - 1 - i];
+                if (!matching.get(slot)) {
+                    continue;
+                }
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                content.add(current.rows[slot]);
+            }
+            return Optional.of(new PageImpl<>(content, pageable, matching.cardinality()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Facet counts over the projects {@link #find} would list. Builds the index first if needed.
+     */
+    public ProjectFacetsDTO facets(final ProjectStatus status, final Long excludedCompany,
+            final ProjectListFilter listFilter) {
+        if (currentSlots() == null) {
+            rebuildLock.lock();
+            try {
+                if (currentSlots() == null) {
+                    build();
+                }
+            } finally {
+                rebuildLock.unlock();
+            }
+        }
+        lock.readLock().lock();
+        try {
+            final Slots current = slots;
+            final BitSet matching = current.match(status, excludedCompany, listFilter);
+            final BitSet anyStatus = status == null ? matching : current.match(null, excludedCompany, listFilter);
+            final Map<ProjectStatus, Long> statusCounts = new EnumMap<>(ProjectStatus.class);
+            for (int slot = anyStatus.nextSetBit(0); slot >= 0; slot = anyStatus.nextSetBit(slot + 1)) {
+                final ProjectStatus rowStatus = current.rows[slot].status();
+                if (rowStatus != null) {
+                    statusCounts.merge(rowStatus, 1L, Long::sum);
+                }
+            }
+            final Map<Long, Long> ownerCounts = new HashMap<>();
+            final Map<String, Long> auditByOrgCounts = new HashMap<>();
+            final Map<String, Long> certCounts = new HashMap<>();
+            final long[] bandCounts = new long[priceBands.size() + 2];
+            for (int slot = matching.nextSetBit(0); slot >= 0; slot = matching.nextSetBit(slot + 1)) {
+                final ProjectListProjection row = current.rows[slot];
+                if (row.ownerCompanyId() != null) {
+                    ownerCounts.merge(row.ownerCompanyId(), 1L, Long::sum);
+                }
+                if (row.auditByOrg() != null) {
+                    auditByOrgCounts.merge(row.auditByOrg(), 1L, Long::sum);
+                }
+                if (row.cert() != null) {
+                    certCounts.merge(row.cert(), 1L, Long::sum);
+                }
+                bandCounts[priceBand(row.unitPrice())]++;
+            }
+            final ProjectFacetsDTO facetsDTO = new ProjectFacetsDTO();
+            facetsDTO.setTotal(matching.cardinality());
+            facetsDTO.setStatus(statusCounts);
+            facetsDTO.setOwnerCompany(mostFrequent(ownerCounts));
+            facetsDTO.setAuditByOrg(mostFrequent(auditByOrgCounts));
+            facetsDTO.setCert(mostFrequent(certCounts));
+            final Map<String, Long> priceBandCounts = new LinkedHashMap<>();
+            for (int band = 0; band < bandCounts.length; band++) {
+                priceBandCounts.put(priceBandLabel(band), bandCounts[band]);
+            }
+            facetsDTO.setPriceBand(priceBandCounts);
+            return facetsDTO;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void build() {
+        lock.writeLock().lock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        final Slots rebuilt = new Slots();
+        Set<Long> changed = Collections.emptySet();
+        boolean complete = false;
+        try {
+            long lowerId = Long.MIN_VALUE;
+            while (true) {
+                final List<ProjectListProjection> batch = projectRepository.scroll(null, null, null, null, null, null,
+                        lowerId, Long.MAX_VALUE, PageRequest.of(0, rebuildBatchSize, Sort.by("id")));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                batch.forEach(rebuilt::add);
+                lowerId = batch.getLast().id();
+            }
+            rebuilt.sortOrders();
+            complete = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (complete) {
+                    slots = rebuilt;
+                    changed = changedDuringRebuild;
+                }
+                changedDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        // rows read before a concurrent change committed may be stale
+        changed.forEach(this::refresh);
+        log.info("project facet index built with {} projects", rebuilt.size());
+    }
+
+    private Slots currentSlots() {
+        lock.readLock().lock();
+        try {
+            return slots;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int priceBand(final BigDecimal unitPrice) {
+        if (unitPrice == null) {
+            return priceBands.size() + 1;
+        }
+        int band = 0;
+        while (band < priceBands.size() && unitPrice.compareTo(priceBands.get(band)) >= 0) {
+            band++;
+        }
+        return band;
+    }
+
+    private String priceBandLabel(final int band) {
+        if (band == priceBands.size() + 1) {
+            return UNPRICED_BAND;
+        }
+        if (band == 0) {
+            return "<" + priceBands.getFirst().toPlainString();
+        }
+        if (band == priceBands.size()) {
+            return priceBands.getLast().toPlainString() + "+";
+        }
+        return priceBands.get(band - 1).toPlainString() + "-" + priceBands.get(band).toPlainString();
+    }
+
+    private static <K> Map<K, Long> mostFrequent(final Map<K, Long> counts) {
+        final Map<K, Long> top = new LinkedHashMap<>();
+        counts.entrySet()
+                .stream()
+                .sorted(Map.Entry.<K, Long>comparingByValue().reversed())
+                .limit(MAX_FACET_VALUES)
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    private enum SortKey {
+
+        ID("id"),
+        UNIT_PRICE("unitPrice"),
+        CREDIT_AMOUNT("creditAmount");
+
+        private final String property;
+
+        SortKey(final String property) {
+            this.property = property;
+        }
+
+        private static SortKey of(final String property) {
+            return Arrays.stream(values())
+                    .filter(sortKey -> sortKey.property.equals(property))
+                    .findFirst()
+                    .orElse(null);
+        }
+
+    }
+
+
+    private static final class Slots {
+
+        private static final SortKey[] SORT_KEYS = SortKey.values();
+
+        private final SlotIndex slotById = new SlotIndex();
+        private final BitSet live = new BitSet();
+        private final Map<ProjectStatus, BitSet> byStatus = new EnumMap<>(ProjectStatus.class);
+        private final Map<Long, BitSet> byOwner = new HashMap<>();
+        // slots with an owner company, the union of byOwner
+        private final BitSet withOwner = new BitSet();
+        // per sort key the live slots in order, the first size entries are used
+        private final int[][] orders = new int[SORT_KEYS.length][1024];
+        private ProjectListProjection[] rows = new ProjectListProjection[1024];
+        private int size;
+
+        private int size() {
+            return size;
+        }
+
+        /**
+         * Add or replace a row, moving its slot to its new place in every order.
+         */
+        private void put(final ProjectListProjection row) {
+            int slot = slotById.get(row.id());
+            if (slot == SlotIndex.EMPTY) {
+                slot = allocate(row.id());
+            } else {
+                unorder(slot);
+                unindex(slot);
+            }
+            rows[slot] = row;
+            index(slot);
+            order(slot);
+        }
+
+        /**
+         * Add a row of a new project without ordering it, for bulk loads followed by {@link #sortOrders}.
+         */
+        private void add(final ProjectListProjection row) {
+            final int slot = allocate(row.id());
+            rows[slot] = row;
+            index(slot);
+            for (final int[] order : orders) {
+                order[size] = slot;
+            }
+            size++;
+        }
+
+        private void remove(final Long projectId) {
+            final int slot = slotById.remove(projectId);
+            if (slot != SlotIndex.EMPTY) {
+                unorder(slot);
+                unindex(slot);
+                live.clear(slot);
+                rows[slot] = null;
+            }
+        }
+
+        private int allocate(final long projectId) {
+            final int slot = live.nextClearBit(0);
+            if (slot >= rows.length) {
+                rows = Arrays.copyOf(rows, rows.length * 2);
+            }
+            if (size == orders[0].length) {
+                for (int key = 0; key < orders.length; key++) {
+                    orders[key] = Arrays.copyOf(orders[key], size * 2);
+                }
+            }
+            slotById.put(projectId, slot);
+            live.set(slot);
+            return slot;
+        }
+
+        private void index(final int slot) {
+            final ProjectListProjection row = rows[slot];
+            if (row.status() != null) {
+                byStatus.computeIfAbsent(row.status(), status -> new BitSet()).set(slot);
+            }
+            if (row.ownerCompanyId() != null) {
+                byOwner.computeIfAbsent(row.ownerCompanyId(), owner -> new BitSet()).set(slot);
+                withOwner.set(slot);
+            }
+        }
+
+        private void unindex(final int slot) {
+            final ProjectListProjection row = rows[slot];
+            if (row.status() != null) {
+                byStatus.get(row.status()).clear(slot);
+            }
+            if (row.ownerCompanyId() != null) {
+                final BitSet owned = byOwner.get(row.ownerCompanyId());
+                owned.clear(slot);
+                if (owned.isEmpty()) {
+                    byOwner.remove(row.ownerCompanyId());
+                }
+                withOwner.clear(slot);
+            }
+        }
+
+        private void order(final int slot) {
+            for (final SortKey sortKey : SORT_KEYS) {
+                final int[] order = orders[sortKey.ordinal()];
+                final int position = -search(sortKey, order, slot) - 1;
+                System.arraycopy(order, position, order, position + 1, size - position);
+                order[position] = slot;
+            }
+            size++;
+        }
+
+        /**
+         * Take a slot out of every order, while its row still holds the values it was ordered by.
+         */
+        private void unorder(final int slot) {
+            for (final SortKey sortKey : SORT_KEYS) {
+                final int[] order = orders[sortKey.ordinal()];
+                final int position = search(sortKey, order, slot);
+                System.arraycopy(order, position + 1, order, position, size - position - 1);
+            }
+            size--;
+        }
+
+        /**
+         * Binary search like {@link Arrays#binarySearch}; ties are broken by id, so every slot has
+         * exactly one place.
+         */
+        private int search(final SortKey sortKey, final int[] order, final int slot) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final int comparison = compare(sortKey, order[middle], slot);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void sortOrders() {
+            final int[] buffer = new int[size];
+            for (final SortKey sortKey : SORT_KEYS) {
+                mergeSort(sortKey, orders[sortKey.ordinal()], buffer, 0, size);
+            }
+        }
+
+        private void mergeSort(final SortKey sortKey, final int[] order, final int[] buffer, final int from,
+                final int to) {
+            if (to - from < 2) {
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            mergeSort(sortKey, order, buffer, from, middle);
+            mergeSort(sortKey, order, buffer, middle, to);
+            // rows are loaded by id, so the id order is already sorted
+            if (compare(sortKey, order[middle - 1], order[middle]) <= 0) {
+                return;
+            }
+            System.arraycopy(order, from, buffer, from, to - from);
+            for (int i = from, left = from, right = middle; i < to; i++) {
+                order[i] = right >= to || (left < middle && compare(sortKey, buffer[left], buffer[right]) <= 0)
+                        ? buffer[left++] : buffer[right++];
+            }
+        }
+
+        /**
+         * Nulls last ascending and first descending, like PostgreSQL, then by id.
+         */
+        private int compare(final SortKey sortKey, final int leftSlot, final int rightSlot) {
+            final ProjectListProjection left = rows[leftSlot];
+            final ProjectListProjection right = rows[rightSlot];
+            final int comparison = switch (sortKey) {
+                case ID -> 0;
+                case UNIT_PRICE -> compareNullsLast(left.unitPrice(), right.unitPrice());
+                case CREDIT_AMOUNT -> compareNullsLast(left.creditAmount(), right.creditAmount());
+            };
+            return comparison != 0 ? comparison : Long.compare(left.id(), right.id());
+        }
+
+        private static <T extends Comparable<T>> int compareNullsLast(final T left, final T right) {
+            if (left == null || right == null) {
+                return left == null ? (right == null ? 0 : 1) : -1;
+            }
+            return left.compareTo(right);
+        }
+
+        private BitSet match(final ProjectStatus status, final Long excludedCompany,
+                final ProjectListFilter listFilter) {
+            final BitSet matching = (BitSet) (status == null ? live
+                    : byStatus.getOrDefault(status, new BitSet())).clone();
+            // like ownerCompany <> :company in SQL, which is never true for projects without owner
+            if (excludedCompany != null) {
+                matching.and(withOwner);
+                if (byOwner.containsKey(excludedCompany)) {
+                    matching.andNot(byOwner.get(excludedCompany));
+                }
+            }
+            if (!listFilter.isEmpty()) {
+                for (int slot = matching.nextSetBit(0); slot >= 0; slot = matching.nextSetBit(slot + 1)) {
+                    if (!accepts(rows[slot], listFilter)) {
+                        matching.clear(slot);
+                    }
+                }
+            }
+            return matching;
+        }
+
+        private static boolean accepts(final ProjectListProjection row, final ProjectListFilter listFilter) {
+            // null columns never match a bound, as in SQL
+            if (listFilter.currency() != null && !listFilter.currency().equals(row.currency())) {
+                return false;
+            }
+            if (listFilter.minPrice() != null
+                    && (row.unitPrice() == null || row.unitPrice().compareTo(listFilter.minPrice()) < 0)) {
+                return false;
+            }
+            if (listFilter.maxPrice() != null
+                    && (row.unitPrice() == null || row.unitPrice().compareTo(listFilter.maxPrice()) > 0)) {
+                return false;
+            }
+            return listFilter.minCredits() == null
+                    || (row.creditAmount() != null && row.creditAmount() >= listFilter.minCredits());
+        }
+
+        private int[] sorted(final SortKey sortKey) {
+            return orders[sortKey.ordinal()];
+        }
+
+    }
+
+    /**
+     * Open addressing map from project id to slot, without boxing either.
+     */
+    private static final class SlotIndex {
+
+        private static final int EMPTY = -1;
+
+        private long[] ids = new long[1024];
+        private int[] slots = newSlots(1024);
+        private int size;
+
+        private int get(final long id) {
+            final int mask = ids.length - 1;
+            for (int bucket = bucket(id, mask); slots[bucket] != EMPTY; bucket = (bucket + 1) & mask) {
+                if (ids[bucket] == id) {
+                    return slots[bucket];
+                }
+            }
+            return EMPTY;
+        }
+
+        /**
+         * Map an id that isn't mapped yet.
+         */
+        private void put(final long id, final int slot) {
+            if ((size + 1) * 4L > ids.length * 3L) {
+                resize();
+            }
+            final int mask = ids.length - 1;
+            int bucket = bucket(id, mask);
+            while (slots[bucket] != EMPTY) {
+                bucket = (bucket + 1) & mask;
+            }
+            ids[bucket] = id;
+            slots[bucket] = slot;
+            size++;
+        }
+
+        /**
+         * @return the slot the id was mapped to, or {@link #EMPTY}
+         */
+        private int remove(final long id) {
+            final int mask = ids.length - 1;
+            int bucket = bucket(id, mask);
+            while (slots[bucket] == EMPTY || ids[bucket] != id) {
+                if (slots[bucket] == EMPTY) {
+                    return EMPTY;
+                }
+                bucket = (bucket + 1) & mask;
+            }
+            final int slot = slots[bucket];
+            // shift back following entries whose home bucket doesn't lie after the gap
+            int gap = bucket;
+            for (int next = (gap + 1) & mask; slots[next] != EMPTY; next = (next + 1) & mask) {
+                final int home = bucket(ids[next], mask);
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    ids[gap] = ids[next];
+                    slots[gap] = slots[next];
+                    gap = next;
+                }
+            }
+            slots[gap] = EMPTY;
+            size--;
+            return slot;
+        }
+
+        private void resize() {
+            final long[] oldIds = ids;
+            final int[] oldSlots = slots;
+            ids = new long[oldIds.length * 2];
+            slots = newSlots(oldSlots.length * 2);
+            size = 0;
+            for (int bucket = 0; bucket < oldIds.length; bucket++) {
+                if (oldSlots[bucket] != EMPTY) {
+                    put(oldIds[bucket], oldSlots[bucket]);
+                }
+            }
+        }
+
+        private static int bucket(final long id, final int mask) {
+            // ids are time ordered, spread them before masking
+            final long hash = id * 0x9e3779b97f4a7c15L;
+            return (int) (hash ^ hash >>> 32) & mask;
+        }
+
+        private static int[] newSlots(final int length) {
+            final int[] slots = new int[length];
+            Arrays.fill(slots, EMPTY);
+            return slots;
+        }
+
+    }
+
+}
@@ -10,15 +10,17 @@ import org.mapstruct.ReportingPolicy;
 import uit.carbon_shop.domain.AppUser;
 import uit.carbon_shop.domain.Company;
 import uit.carbon_shop.domain.Project;
+import uit.carbon_shop.domain.ProjectListProjection;
 import uit.carbon_shop.model.ProjectDTO;
 import uit.carbon_shop.repos.AppUserRepository;
 import uit.carbon_shop.repos.CompanyRepository;
-import uit.carbon_shop.util.NotFoundException;
+import uit.carbon_shop.util.PriceParser;
 
 
 @Mapper(
         componentModel = MappingConstants.ComponentModel.SPRING,
-        unmappedTargetPolicy = ReportingPolicy.IGNORE
+        unmappedTargetPolicy = ReportingPolicy.IGNORE,
+        uses = RatingMapper.class
 )
 public interface ProjectMapper {
 
@@ -33,9 +35,15 @@ public interface ProjectMapper {
         projectDTO.setAuditBy(project.getAuditBy() == null ? null : project.getAuditBy().getId());
     }
 
+    @Mapping(source = "id", target = "projectId")
+    @Mapping(source = "ownerCompanyId", target = "ownerCompany")
+    @Mapping(source = "auditById", target = "auditBy")
+    ProjectDTO updateProjectDTO(ProjectListProjection projection, @MappingTarget ProjectDTO projectDTO);
+
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "ownerCompany", ignore = true)
     @Mapping(target = "auditBy", ignore = true)
+    @Mapping(target = "rating", ignore = true)
     Project updateProject(ProjectDTO projectDTO, @MappingTarget Project project,
             @Context CompanyRepository companyRepository,
             @Context AppUserRepository appUserRepository);
@@ -44,12 +52,16 @@ public interface ProjectMapper {
     default void afterUpdateProject(ProjectDTO projectDTO, @MappingTarget Project project,
             @Context CompanyRepository companyRepository,
             @Context AppUserRepository appUserRepository) {
-        final Company ownerCompany = projectDTO.getOwnerCompany() == null ? null : companyRepository.findById(projectDTO.getOwnerCompany())
-                .orElseThrow(() -> new NotFoundException("ownerCompany not found"));
+        final Company ownerCompany = projectDTO.getOwnerCompany() == null ? null : companyRepository.getReferenceById(projectDTO.getOwnerCompany());
         project.setOwnerCompany(ownerCompany);
-        final AppUser auditBy = projectDTO.getAuditBy() == null ? null : appUserRepository.findById(projectDTO.getAuditBy())
-                .orElseThrow(() -> new NotFoundException("auditBy not found"));
+        final AppUser auditBy = projectDTO.getAuditBy() == null ? null : appUserRepository.getReferenceById(projectDTO.getAuditBy());
         project.setAuditBy(auditBy);
+        if (project.getUnitPrice() == null) {
+            project.setUnitPrice(PriceParser.parseAmount(projectDTO.getPrice()));
+        }
+        if (project.getCurrency() == null) {
+            project.setCurrency(PriceParser.parseCurrency(projectDTO.getPrice()));
+        }
     }
 
 }
@@ -13,7 +13,6 @@ import uit.carbon_shop.domain.ProjectReview;
 import uit.carbon_shop.model.ProjectReviewDTO;
 import uit.carbon_shop.repos.AppUserRepository;
 import uit.carbon_shop.repos.ProjectRepository;
-import uit.carbon_shop.util.NotFoundException;
 
 
 @Mapper(
@@ -24,7 +23,6 @@ public interface ProjectReviewMapper {
 
     @Mapping(target = "project", ignore = true)
     @Mapping(target = "reviewBy", ignore = true)
-    @Mapping(target = "likeCount", ignore = true)
     ProjectReviewDTO updateProjectReviewDTO(ProjectReview projectReview,
             @MappingTarget ProjectReviewDTO projectReviewDTO);
 
@@ -33,10 +31,10 @@ public interface ProjectReviewMapper {
             @MappingTarget ProjectReviewDTO projectReviewDTO) {
         projectReviewDTO.setProject(projectReview.getProject() == null ? null : projectReview.getProject().getId());
         projectReviewDTO.setReviewBy(projectReview.getReviewBy() == null ? null : projectReview.getReviewBy().getId());
-        projectReviewDTO.setLikeCount(projectReview.getLikeBy().size());
     }
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "likeCount", ignore = true)
     @Mapping(target = "project", ignore = true)
     @Mapping(target = "reviewBy", ignore = true)
     ProjectReview updateProjectReview(ProjectReviewDTO projectReviewDTO,
@@ -49,11 +47,9 @@ public interface ProjectReviewMapper {
             @MappingTarget ProjectReview projectReview,
             @Context ProjectRepository projectRepository,
             @Context AppUserRepository appUserRepository) {
-        final Project project = projectReviewDTO.getProject() == null ? null : projectRepository.findById(projectReviewDTO.getProject())
-                .orElseThrow(() -> new NotFoundException("project not found"));
+        final Project project = projectReviewDTO.getProject() == null ? null : projectRepository.getReferenceById(projectReviewDTO.getProject());
         projectReview.setProject(project);
-        final AppUser reviewBy = projectReviewDTO.getReviewBy() == null ? null : appUserRepository.findById(projectReviewDTO.getReviewBy())
-                .orElseThrow(() -> new NotFoundException("reviewBy not found"));
+        final AppUser reviewBy = projectReviewDTO.getReviewBy() == null ? null : appUserRepository.getReferenceById(projectReviewDTO.getReviewBy());
         projectReview.setReviewBy(reviewBy);
     }
 
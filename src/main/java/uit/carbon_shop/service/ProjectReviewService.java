@@ -1,16 +1,26 @@
 package uit.carbon_shop.service;
 
 import jakarta.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import uit.carbon_shop.domain.ProjectReview;
+import uit.carbon_shop.model.AppUserDTO;
+import uit.carbon_shop.model.CursorPagedModel;
+import uit.carbon_shop.model.CursorRequest;
 import uit.carbon_shop.model.ProjectReviewDTO;
+import uit.carbon_shop.model.ProjectStatsChangedEvent;
 import uit.carbon_shop.repos.AppUserRepository;
 import uit.carbon_shop.repos.ProjectRepository;
 import uit.carbon_shop.repos.ProjectReviewRepository;
+import uit.carbon_shop.util.CursorToken;
 import uit.carbon_shop.util.NotFoundException;
+import uit.carbon_shop.util.TwoTierCache;
 
 
 @Service
@@ -21,14 +31,22 @@ public class ProjectReviewService {
     private final ProjectRepository projectRepository;
     private final AppUserRepository appUserRepository;
     private final ProjectReviewMapper projectReviewMapper;
+    private final TwoTierCache<AppUserDTO> appUserCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RatingService ratingService;
+    private final FileDocumentService fileDocumentService;
 
     public ProjectReviewService(final ProjectReviewRepository projectReviewRepository,
             final ProjectRepository projectRepository, final AppUserRepository appUserRepository,
-            final ProjectReviewMapper projectReviewMapper) {
+            final ProjectReviewMapper projectReviewMapper, final TwoTierCache<AppUserDTO> appUserCache,
+            final ApplicationEventPublisher eventPublisher, final RatingService ratingService) {
         this.projectReviewRepository = projectReviewRepository;
         this.projectRepository = projectRepository;
         this.appUserRepository = appUserRepository;
         this.projectReviewMapper = projectReviewMapper;
+        this.appUserCache = appUserCache;
+        this.eventPublisher = eventPublisher;
+        this.ratingService = ratingService;
     }
 
     public Page<ProjectReviewDTO> findAll(final String filter, final Pageable pageable) {
@@ -60,8 +78,19 @@ public class ProjectReviewService {
                 pageable, page.getTotalElements());
     }
 
+    public CursorPagedModel<ProjectReviewDTO> scrollByProject(final Long projectId, final CursorRequest cursor) {
+        final List<ProjectReview> rows = projectReviewRepository.scrollByProject(projectId, cursor.lowerId(), cursor.upperId(),
+                cursor.pageable(Sort.Direction.ASC, "id"));
+        return CursorPagedModel.of(rows, cursor, projectReview -> CursorToken.encode(projectReview.getId()))
+                .map(projectReview -> projectReviewMapper.updateProjectReviewDTO(projectReview, new ProjectReviewDTO()));
+    }
+
     public int getLikeCount(final Long id) {
-        return projectReviewRepository.findById(id).map(ProjectReview::getLikeBy).orElseThrow(NotFoundException::new).size();
+        final Integer likeCount = projectReviewRepository.findLikeCount(id);
+        if (likeCount == null) {
+            throw new NotFoundException();
+        }
+        return likeCount;
     }
 
     public ProjectReviewDTO get(final Long id) {
@@ -74,14 +103,29 @@ public class ProjectReviewService {
         final ProjectReview projectReview = new ProjectReview();
         projectReview.setId(projectReviewDTO.getId());
         projectReviewMapper.updateProjectReview(projectReviewDTO, projectReview, projectRepository, appUserRepository);
-        return projectReviewRepository.save(projectReview).getId();
+        final Long id = projectReviewRepository.save(projectReview).getId();
+        ratingService.projectReviewChanged(null, null, projectId(projectReview), projectReview.getRate());
+        publishStatsChanged(projectReview);
+        return id;
     }
 
     public void update(final Long id, final ProjectReviewDTO projectReviewDTO) {
         final ProjectReview projectReview = projectReviewRepository.findById(id)
                 .orElseThrow(NotFoundException::new);
+        final Long previousProject = projectId(projectReview);
+        final Integer previousRate = projectReview.getRate();
+        // the mapper refills the image list in place
+        final List<Long> previousImages = projectReview.getImages() == null ? null
+                : new ArrayList<>(projectReview.getImages());
         projectReviewMapper.updateProjectReview(projectReviewDTO, projectReview, projectRepository, appUserRepository);
         projectReviewRepository.save(projectReview);
+        fileDocumentService.deleteDropped(previousImages, projectReview.getImages());
+        ratingService.projectReviewChanged(previousProject, previousRate, projectId(projectReview),
+                projectReview.getRate());
+        publishStatsChanged(projectReview);
+        if (previousProject != null && !previousProject.equals(projectId(projectReview))) {
+            eventPublisher.publishEvent(new ProjectStatsChangedEvent(previousProject));
+        }
     }
 
     public void delete(final Long id) {
@@ -89,8 +133,27 @@ public class ProjectReviewService {
                 .orElseThrow(NotFoundException::new);
         // remove many-to-many relations at owning side
         appUserRepository.findAllByLikeProjectReviews(projectReview)
-                .forEach(appUser -> appUser.getLikeProjectReviews().remove(projectReview));
+                .forEach(appUser -> {
+                    appUser.getLikeProjectReviews().remove(projectReview);
+                    appUserCache.evictOnCommit(appUser.getId().toString());
+                });
         projectReviewRepository.delete(projectReview);
+        fileDocumentService.deleteDropped(projectReview.getImages(), null);
+        ratingService.projectReviewChanged(projectId(projectReview), projectReview.getRate(), null, null);
+        publishStatsChanged(projectReview);
+    }
+
+    private static Long projectId(final ProjectReview projectReview) {
+        return projectReview.getProject() == null ? null : projectReview.getProject().getId();
+    }
+
+    /**
+     * Rating and review count are part of the project card.
+     */
+    private void publishStatsChanged(final ProjectReview projectReview) {
+        if (projectReview.getProject() != null) {
+            eventPublisher.publishEvent(new ProjectStatsChangedEvent(projectReview.getProject().getId()));
+        }
     }
 
 }
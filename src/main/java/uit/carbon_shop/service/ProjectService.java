@@ -1,26 +1,45 @@
 package uit.carbon_shop.service;
 
 import jakarta.transaction.Transactional;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import uit.carbon_shop.domain.Order;
 import uit.carbon_shop.domain.Project;
+import uit.carbon_shop.domain.ProjectListProjection;
 import uit.carbon_shop.domain.ProjectReview;
+import uit.carbon_shop.domain.SearchHit;
+import uit.carbon_shop.model.AppUserDTO;
+import uit.carbon_shop.model.CursorPagedModel;
+import uit.carbon_shop.model.CursorRequest;
+import uit.carbon_shop.model.ProjectChangedEvent;
 import uit.carbon_shop.model.ProjectDTO;
+import uit.carbon_shop.model.ProjectFacetsDTO;
+import uit.carbon_shop.model.ProjectListFilter;
 import uit.carbon_shop.model.ProjectStatus;
 import uit.carbon_shop.repos.AppUserRepository;
 import uit.carbon_shop.repos.CompanyRepository;
 import uit.carbon_shop.repos.OrderRepository;
 import uit.carbon_shop.repos.ProjectRepository;
 import uit.carbon_shop.repos.ProjectReviewRepository;
+import uit.carbon_shop.util.ConflictException;
+import uit.carbon_shop.util.CursorToken;
 import uit.carbon_shop.util.NotFoundException;
 import uit.carbon_shop.util.ReferencedWarning;
+import uit.carbon_shop.util.TwoTierCache;
 
 
 @Service
@@ -34,71 +53,100 @@ public class ProjectService {
     private final ProjectMapper projectMapper;
     private final OrderRepository orderRepository;
     private final ProjectReviewRepository projectReviewRepository;
-    private final RedissonClient redissonClient;
+    private final TwoTierCache<ProjectDTO> projectCache;
+    private final TwoTierCache<AppUserDTO> appUserCache;
+    private final ProjectFacetIndex projectFacetIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FileDocumentService fileDocumentService;
 
-    public Page<ProjectDTO> findAll(final String filter, final Pageable pageable) {
-        Page<Project> page;
+    public Page<ProjectDTO> findAll(final String filter, final ProjectListFilter listFilter,
+            final Pageable pageable) {
+        Page<ProjectListProjection> page;
         if (filter != null) {
             Long longFilter = null;
             try {
                 longFilter = Long.parseLong(filter);
             } catch (final NumberFormatException numberFormatException) {
-                // keep null - no parseable input
+                if (StringUtils.hasText(filter)) {
+                    return fullTextSearch(null, null, null, filter, listFilter, pageable);
+                }
             }
-            page = projectRepository.findAllById(longFilter, pageable);
+            page = projectRepository.listById(longFilter, pageable);
         } else {
-            page = projectRepository.findAll(pageable);
+            final ProjectListFilter sortedFilter = listFilter.sortedBy(pageable.getSort());
+            page = projectFacetIndex.find(null, null, sortedFilter, pageable)
+                    .orElseGet(() -> sortedFilter.isEmpty() ? projectRepository.listAll(pageable)
+                            : search(null, null, null, sortedFilter, pageable));
         }
-        return new PageImpl<>(page.getContent()
-                .stream()
-                .map(project -> projectMapper.updateProjectDTO(project, new ProjectDTO()))
-                .toList(),
-                pageable, page.getTotalElements());
+        return toPage(page, pageable);
     }
 
-    public Page<ProjectDTO> findAllByOwner(final Long ownerCompany, String filter, final Pageable pageable) {
-        final Page<Project> page =
-                StringUtils.hasText(filter) ? projectRepository.findByOwnerCompany_IdAndNameContainsIgnoreCase(
-                        ownerCompany, filter, pageable)
-                        : projectRepository.findByOwnerCompany_Id(ownerCompany, pageable);
-        return new PageImpl<>(page.getContent()
-                .stream()
-                .map(project -> projectMapper.updateProjectDTO(project, new ProjectDTO()))
-                .toList(),
-                pageable, page.getTotalElements());
+    public Page<ProjectDTO> findAllByOwner(final Long ownerCompany, String filter, final ProjectListFilter listFilter,
+            final Pageable pageable) {
+        if (StringUtils.hasText(filter)) {
+            return fullTextSearch(null, ownerCompany, null, filter, listFilter, pageable);
+        }
+        final ProjectListFilter sortedFilter = listFilter.sortedBy(pageable.getSort());
+        return toPage(sortedFilter.isEmpty() ? projectRepository.listByOwnerCompany(ownerCompany, pageable)
+                : search(null, ownerCompany, null, sortedFilter, pageable), pageable);
     }
 
     public Page<ProjectDTO> findAllByOwnerAndStatus(final Long ownerCompany, ProjectStatus status, String filter,
-            final Pageable pageable) {
-        final Page<Project> page =
-                StringUtils.hasText(filter) ? projectRepository.findByOwnerCompany_IdAndStatusAndNameContainsIgnoreCase(
-                        ownerCompany, status, filter, pageable)
-                        : projectRepository.findByOwnerCompany_IdAndStatus(ownerCompany, status, pageable);
-        return new PageImpl<>(page.getContent()
-                .stream()
-                .map(project -> projectMapper.updateProjectDTO(project, new ProjectDTO()))
-                .toList(),
-                pageable, page.getTotalElements());
+            final ProjectListFilter listFilter, final Pageable pageable) {
+        if (StringUtils.hasText(filter)) {
+            return fullTextSearch(status, ownerCompany, null, filter, listFilter, pageable);
+        }
+        final ProjectListFilter sortedFilter = listFilter.sortedBy(pageable.getSort());
+        return toPage(sortedFilter.isEmpty()
+                ? projectRepository.listByOwnerCompanyAndStatus(ownerCompany, status, pageable)
+                : search(status, ownerCompany, null, sortedFilter, pageable), pageable);
     }
 
-    public Page<ProjectDTO> findByStatus(ProjectStatus status, String filter, Pageable pageable) {
-        final Page<Project> page =
-                StringUtils.hasText(filter) ? projectRepository.findByStatusAndNameContainsIgnoreCase(
-                        status, filter, pageable)
-                        : projectRepository.findByStatus(status, pageable);
-        return new PageImpl<>(page.getContent()
-                .stream()
-                .map(project -> projectMapper.updateProjectDTO(project, new ProjectDTO()))
-                .toList(),
-                pageable, page.getTotalElements());
+    public Page<ProjectDTO> findByStatus(ProjectStatus status, String filter, final ProjectListFilter listFilter,
+            Pageable pageable) {
+        if (StringUtils.hasText(filter)) {
+            return fullTextSearch(status, null, null, filter, listFilter, pageable);
+        }
+        final ProjectListFilter sortedFilter = listFilter.sortedBy(pageable.getSort());
+        return toPage(sortedFilter.isEmpty() ? projectRepository.listByStatus(status, pageable)
+                : search(status, null, null, sortedFilter, pageable), pageable);
     }
 
     public Page<ProjectDTO> findByStatusButNotCompany(ProjectStatus status, Long companyId, String filter,
+            final ProjectListFilter listFilter, Pageable pageable) {
+        if (StringUtils.hasText(filter)) {
+            return fullTextSearch(status, null, companyId, filter, listFilter, pageable);
+        }
+        final ProjectListFilter sortedFilter = listFilter.sortedBy(pageable.getSort());
+        final Optional<Page<ProjectListProjection>> indexed = projectFacetIndex.find(status, companyId,
+                sortedFilter, pageable);
+        return toPage(indexed.orElseGet(() -> sortedFilter.isEmpty()
+                ? projectRepository.listByOwnerCompanyNotAndStatus(companyId, status, pageable)
+                : search(status, null, companyId, sortedFilter, pageable)), pageable);
+    }
+
+    public Page<ProjectDTO> findAllButNotCompany(Long companyId, String filter, final ProjectListFilter listFilter,
             Pageable pageable) {
-        final Page<Project> page = StringUtils.hasText(filter)
-                ? projectRepository.findByOwnerCompany_IdNotAndStatusAndNameContainsIgnoreCase(
-                companyId, status, filter, pageable)
-                : projectRepository.findByOwnerCompany_IdNotAndStatus(companyId, status, pageable);
+        if (StringUtils.hasText(filter)) {
+            return fullTextSearch(null, null, companyId, filter, listFilter, pageable);
+        }
+        final ProjectListFilter sortedFilter = listFilter.sortedBy(pageable.getSort());
+        final Optional<Page<ProjectListProjection>> indexed = projectFacetIndex.find(null, companyId,
+                sortedFilter, pageable);
+        return toPage(indexed.orElseGet(() -> sortedFilter.isEmpty()
+                ? projectRepository.listByOwnerCompanyNot(companyId, pageable)
+                : search(null, null, companyId, sortedFilter, pageable)), pageable);
+    }
+
+    /**
+     * Facet counts for the marketplace listings, see {@link #findByStatusButNotCompany}.
+     */
+    public ProjectFacetsDTO facets(final ProjectStatus status, final Long excludedCompany,
+            final ProjectListFilter listFilter) {
+        return projectFacetIndex.facets(status, excludedCompany, listFilter);
+    }
+
+    private Page<ProjectDTO> toPage(final Page<ProjectListProjection> page, final Pageable pageable) {
         return new PageImpl<>(page.getContent()
                 .stream()
                 .map(project -> projectMapper.updateProjectDTO(project, new ProjectDTO()))
@@ -106,71 +154,130 @@ public class ProjectService {
                 pageable, page.getTotalElements());
     }
 
-    public Page<ProjectDTO> findAllButNotCompany(Long companyId, String filter, Pageable pageable) {
-        final Page<Project> page =
-                StringUtils.hasText(filter) ? projectRepository.findByOwnerCompany_IdNotAndNameContainsIgnoreCase(
-                        companyId, filter, pageable)
-                        : projectRepository.findByOwnerCompany_IdNot(companyId, pageable);
-        return new PageImpl<>(page.getContent()
+    private Page<ProjectListProjection> search(final ProjectStatus status, final Long ownerCompany,
+            final Long excludedCompany, final ProjectListFilter listFilter, final Pageable pageable) {
+        return projectRepository.search(status, ownerCompany, excludedCompany, listFilter, pageable);
+    }
+
+    /**
+     * Ranked search over name, address, partner, auditor, certificate and owner company name. Results
+     * come best match first, so the sort of the pageable is ignored.
+     */
+    private Page<ProjectDTO> fullTextSearch(final ProjectStatus status, final Long ownerCompany,
+            final Long excludedCompany, final String text, final ProjectListFilter listFilter,
+            final Pageable pageable) {
+        final Page<SearchHit> hits = projectRepository.fullTextSearch(text.trim(),
+                status == null ? null : status.name(), ownerCompany, excludedCompany, listFilter.currency(),
+                listFilter.minPrice(), listFilter.maxPrice(), listFilter.minCredits(),
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+        final Map<Long, ProjectListProjection> projects = projectRepository.listByIds(
+                        hits.map(SearchHit::getId).toList())
                 .stream()
-                .map(project -> projectMapper.updateProjectDTO(project, new ProjectDTO()))
+                .collect(Collectors.toMap(ProjectListProjection::id, Function.identity()));
+        return new PageImpl<>(hits.getContent()
+                .stream()
+                .filter(hit -> projects.containsKey(hit.getId()))
+                .map(hit -> {
+                    final ProjectDTO projectDTO = projectMapper.updateProjectDTO(projects.get(hit.getId()),
+                            new ProjectDTO());
+                    projectDTO.setHighlight(hit.getHighlight());
+                    return projectDTO;
+                })
                 .toList(),
-                pageable, page.getTotalElements());
+                pageable, hits.getTotalElements());
     }
 
+    /**
+     * Id ordered keyset listing. Unlike the offset listings, {@code filter} only matches project
+     * names, as ranked full-text results have no stable keyset order.
+     */
+    public CursorPagedModel<ProjectDTO> scroll(final ProjectStatus status, final String filter,
+            final ProjectListFilter listFilter, final CursorRequest cursor) {
+        return toCursorPage(projectRepository.scroll(status, nameFilter(filter), listFilter.currency(),
+                listFilter.minPrice(), listFilter.maxPrice(), listFilter.minCredits(), cursor.lowerId(),
+                cursor.upperId(), cursor.pageable(Sort.Direction.ASC, "id")), cursor);
+    }
+
+    public CursorPagedModel<ProjectDTO> scrollByOwner(final Long ownerCompany, final ProjectStatus status,
+            final String filter, final ProjectListFilter listFilter, final CursorRequest cursor) {
+        return toCursorPage(projectRepository.scrollByOwnerCompany(ownerCompany, status, nameFilter(filter),
+                listFilter.currency(), listFilter.minPrice(), listFilter.maxPrice(), listFilter.minCredits(),
+                cursor.lowerId(), cursor.upperId(), cursor.pageable(Sort.Direction.ASC, "id")), cursor);
+    }
+
+    public CursorPagedModel<ProjectDTO> scrollButNotCompany(final Long companyId, final ProjectStatus status,
+            final String filter, final ProjectListFilter listFilter, final CursorRequest cursor) {
+        return toCursorPage(projectRepository.scrollByOwnerCompanyNot(companyId, status, nameFilter(filter),
+                listFilter.currency(), listFilter.minPrice(), listFilter.maxPrice(), listFilter.minCredits(),
+                cursor.lowerId(), cursor.upperId(), cursor.pageable(Sort.Direction.ASC, "id")), cursor);
+    }
+
+    private CursorPagedModel<ProjectDTO> toCursorPage(final List<ProjectListProjection> rows,
+            final CursorRequest cursor) {
+        return CursorPagedModel.of(rows, cursor, project -> CursorToken.encode(project.id()))
+                .map(project -> projectMapper.updateProjectDTO(project, new ProjectDTO()));
+    }
+
+    private static String nameFilter(final String filter) {
+        return StringUtils.hasText(filter) ? filter : null;
+    }
+
+    /**
+     * Read through the project cache - the returned DTO is shared and must not be modified.
+     */
     public ProjectDTO get(final Long projectId) {
-        return projectRepository.findById(projectId)
+        final ProjectDTO projectDTO = projectCache.get(projectId.toString(), key -> projectRepository.findById(projectId)
                 .map(project -> projectMapper.updateProjectDTO(project, new ProjectDTO()))
-                .orElseThrow(NotFoundException::new);
+                .orElse(null));
+        if (projectDTO == null) {
+            throw new NotFoundException();
+        }
+        return projectDTO;
     }
 
-    public Long create(final ProjectDTO projectDTO) {
+    public ProjectDTO create(final ProjectDTO projectDTO) {
         final Project project = new Project();
         project.setId(projectDTO.getProjectId());
         projectMapper.updateProject(projectDTO, project, companyRepository, appUserRepository);
-        return projectRepository.save(project).getId();
+        eventPublisher.publishEvent(new ProjectChangedEvent(project.getId()));
+        return projectMapper.updateProjectDTO(projectRepository.save(project), new ProjectDTO());
     }
 
     public void update(final Long projectId, final ProjectDTO projectDTO) {
         final Project project = projectRepository.findById(projectId)
                 .orElseThrow(NotFoundException::new);
+        // the mapper refills the image list in place
+        final List<Long> previousImages = project.getProjectImages() == null ? null
+                : new ArrayList<>(project.getProjectImages());
         projectMapper.updateProject(projectDTO, project, companyRepository, appUserRepository);
         projectRepository.save(project);
+        fileDocumentService.deleteDropped(previousImages, project.getProjectImages());
+        projectCache.evictOnCommit(projectId.toString());
+        eventPublisher.publishEvent(new ProjectChangedEvent(projectId));
     }
 
     public void updateStatus(final Long projectId, final ProjectStatus status) {
-        RLock projectLock = redissonClient.getLock("PROJECT_LOCK:" + projectId);
-        projectLock.lock();
-        try {
-            final Project project = projectRepository.findById(projectId)
-                    .orElseThrow(NotFoundException::new);
-            if (!project.getStatus().canUpdateTo(status)) {
-                throw new IllegalArgumentException(
-                        "Cannot update status from " + project.getStatus() + " to " + status);
-            }
-            project.setStatus(status);
-            projectRepository.save(project);
-        } finally {
-            projectLock.unlock();
+        if (projectRepository.updateStatus(projectId, status.updatableFrom(), status, OffsetDateTime.now()) == 0) {
+            throw statusConflict(projectId, status);
         }
+        projectCache.evictOnCommit(projectId.toString());
+        eventPublisher.publishEvent(new ProjectChangedEvent(projectId));
     }
 
     public void approve(final Long projectId, final Long approveBy) {
-        RLock projectLock = redissonClient.getLock("PROJECT_LOCK:" + projectId);
-        projectLock.lock();
-        try {
-            final Project project = projectRepository.findById(projectId)
-                    .orElseThrow(NotFoundException::new);
-            if (!project.getStatus().canUpdateTo(ProjectStatus.APPROVED)) {
-                throw new IllegalArgumentException(
-                        "Cannot update status from " + project.getStatus() + " to " + ProjectStatus.APPROVED);
-            }
-            project.setStatus(ProjectStatus.APPROVED);
-            project.setAuditBy(appUserRepository.findById(approveBy).orElseThrow(NotFoundException::new));
-            projectRepository.save(project);
-        } finally {
-            projectLock.unlock();
+        if (projectRepository.updateStatusAndAuditBy(projectId, ProjectStatus.APPROVED.updatableFrom(),
+                ProjectStatus.APPROVED, appUserRepository.getReferenceById(approveBy), OffsetDateTime.now()) == 0) {
+            throw statusConflict(projectId, ProjectStatus.APPROVED);
+        }
+        projectCache.evictOnCommit(projectId.toString());
+        eventPublisher.publishEvent(new ProjectChangedEvent(projectId));
+    }
+
+    private RuntimeException statusConflict(final Long projectId, final ProjectStatus status) {
+        if (!projectRepository.existsById(projectId)) {
+            return new NotFoundException();
         }
+        return new ConflictException("Cannot update status to " + status);
     }
 
     public void delete(final Long projectId) {
@@ -178,8 +285,14 @@ public class ProjectService {
                 .orElseThrow(NotFoundException::new);
         // remove many-to-many relations at owning side
         appUserRepository.findAllByFavoriteProjects(project)
-                .forEach(appUser -> appUser.getFavoriteProjects().remove(project));
+                .forEach(appUser -> {
+                    appUser.getFavoriteProjects().remove(project);
+                    appUserCache.evictOnCommit(appUser.getId().toString());
+                });
         projectRepository.delete(project);
+        fileDocumentService.deleteDropped(project.getProjectImages(), null);
+        projectCache.evictOnCommit(projectId.toString());
+        eventPublisher.publishEvent(new ProjectChangedEvent(projectId));
     }
 
     public ReferencedWarning getReferencedWarning(final Long projectId) {
@@ -11,7 +11,6 @@ import uit.carbon_shop.domain.AppUser;
 import uit.carbon_shop.domain.Question;
 import uit.carbon_shop.model.QuestionDTO;
 import uit.carbon_shop.repos.AppUserRepository;
-import uit.carbon_shop.util.NotFoundException;
 
 
 @Mapper(
@@ -36,8 +35,7 @@ public interface QuestionMapper {
     @AfterMapping
     default void afterUpdateQuestion(QuestionDTO questionDTO, @MappingTarget Question question,
             @Context AppUserRepository appUserRepository) {
-        final AppUser askedBy = questionDTO.getAskedBy() == null ? null : appUserRepository.findById(questionDTO.getAskedBy())
-                .orElseThrow(() -> new NotFoundException("askedBy not found"));
+        final AppUser askedBy = questionDTO.getAskedBy() == null ? null : appUserRepository.getReferenceById(questionDTO.getAskedBy());
         question.setAskedBy(askedBy);
     }
 
@@ -1,13 +1,18 @@
 package uit.carbon_shop.service;
 
+import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import uit.carbon_shop.domain.Question;
+import uit.carbon_shop.model.CursorPagedModel;
+import uit.carbon_shop.model.CursorRequest;
 import uit.carbon_shop.model.QuestionDTO;
 import uit.carbon_shop.repos.AppUserRepository;
 import uit.carbon_shop.repos.QuestionRepository;
+import uit.carbon_shop.util.CursorToken;
 import uit.carbon_shop.util.NotFoundException;
 
 
@@ -90,6 +95,19 @@ public class QuestionService {
                 pageable, page.getTotalElements());
     }
 
+    /**
+     * Keyset scroll over questions, optionally limited to one asker; {@code answered} null means
+     * both answered and open questions.
+     */
+    public CursorPagedModel<QuestionDTO> scroll(final Long askedBy, final Boolean answered,
+            final CursorRequest cursor) {
+        final List<Question> rows = questionRepository.scroll(askedBy, answered == null || answered,
+                answered == null || !answered, cursor.lowerId(), cursor.upperId(),
+                cursor.pageable(Sort.Direction.ASC, "id"));
+        return CursorPagedModel.of(rows, cursor, question -> CursorToken.encode(question.getId()))
+                .map(question -> questionMapper.updateQuestionDTO(question, new QuestionDTO()));
+    }
+
     public QuestionDTO get(final Long id) {
         return questionRepository.findById(id)
                 .map(question -> questionMapper.updateQuestionDTO(question, new QuestionDTO()))
@@ -0,0 +1,25 @@
+package uit.carbon_shop.service;
+
+import java.util.List;
+import org.mapstruct.Mapper;
+import org.mapstruct.MappingConstants;
+import uit.carbon_shop.domain.RatingAggregate;
+import uit.carbon_shop.model.RatingDTO;
+
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public interface RatingMapper {
+
+    default RatingDTO toRatingDTO(final RatingAggregate rating) {
+        if (rating == null) {
+            return null;
+        }
+        final RatingDTO ratingDTO = new RatingDTO();
+        ratingDTO.setCount(rating.getReviewCount());
+        ratingDTO.setAverage(rating.getAverage());
+        ratingDTO.setHistogram(List.of(rating.getStars1(), rating.getStars2(), rating.getStars3(),
+                rating.getStars4(), rating.getStars5()));
+        return ratingDTO;
+    }
+
+}
@@ -0,0 +1,161 @@
+package uit.carbon_shop.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import uit.carbon_shop.domain.RatingAggregate;
+import uit.carbon_shop.model.CompanyDTO;
+import uit.carbon_shop.model.ProjectDTO;
+import uit.carbon_shop.repos.CompanyRepository;
+import uit.carbon_shop.repos.ProjectRepository;
+import uit.carbon_shop.util.TwoTierCache;
+
+
+/**
+ * Keeps the {@link RatingAggregate} of companies and projects in step with their reviews. The
+ * review services call it inside their own transaction, so an aggregate changes atomically with
+ * the review, as one conditional update of the rated row. A scheduled job recomputes the
+ * aggregates from the reviews in batches and counts the rows that had drifted.
+ */
+@Service
+@Slf4j
+public class RatingService {
+
+    private final CompanyRepository companyRepository;
+    private final ProjectRepository projectRepository;
+    private final RedissonClient redissonClient;
+    private final TransactionTemplate transactionTemplate;
+    private final TwoTierCache<CompanyDTO> companyCache;
+    private final TwoTierCache<ProjectDTO> projectCache;
+    private final Counter companyDrift;
+    private final Counter projectDrift;
+    private final int batchSize;
+
+    public RatingService(final CompanyRepository companyRepository, final ProjectRepository projectRepository,
+            final RedissonClient redissonClient, final TransactionTemplate transactionTemplate,
+            final TwoTierCache<CompanyDTO> companyCache, final TwoTierCache<ProjectDTO> projectCache,
+            final MeterRegistry meterRegistry,
+            @Value("${app.rating.reconcile-batch-size:500}") final int batchSize) {
+        this.companyRepository = companyRepository;
+        this.projectRepository = projectRepository;
+        this.redissonClient = redissonClient;
+        this.transactionTemplate = transactionTemplate;
+        this.companyCache = companyCache;
+        this.projectCache = projectCache;
+        this.batchSize = batchSize;
+        this.companyDrift = Counter.builder("app.rating.drift")
+                .tag("target", "company")
+                .register(meterRegistry);
+        this.projectDrift = Counter.builder("app.rating.drift")
+                .tag("target", "project")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Move a company review's rate from the old to the new company and rate; nulls stand for a
+     * review that didn't exist before or doesn't exist anymore.
+     */
+    public void companyReviewChanged(final Long oldCompany, final Integer oldRate, final Long newCompany,
+            final Integer newRate) {
+        reviewChanged(oldCompany, oldRate, newCompany, newRate, companyRepository::addRating, companyCache);
+    }
+
+    /**
+     * See {@link #companyReviewChanged}.
+     */
+    public void projectReviewChanged(final Long oldProject, final Integer oldRate, final Long newProject,
+            final Integer newRate) {
+        reviewChanged(oldProject, oldRate, newProject, newRate, projectRepository::addRating, projectCache);
+    }
+
+    @Scheduled(fixedDelayString = "${app.rating.reconcile-interval}", initialDelay = 60_000)
+    public void reconcileRatings() {
+        final RLock reconcileLock = redissonClient.getLock("RATING_RECONCILE_LOCK");
+        if (!reconcileLock.tryLock()) {
+            return;
+        }
+        try {
+            final long companies = reconcile(companyRepository::findIdsAfter,
+                    companyRepository::lockForRatingReconcile, companyRepository::reconcileRatings);
+            final long projects = reconcile(projectRepository::findIdsAfter,
+                    projectRepository::lockForRatingReconcile, projectRepository::reconcileRatings);
+            companyDrift.increment(companies);
+            projectDrift.increment(projects);
+            if (companies > 0 || projects > 0) {
+                log.warn("reconciled drifted ratings of {} companies and {} projects", companies, projects);
+            }
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private long reconcile(final BiFunction<Long, Pageable, List<Long>> idsAfter,
+            final Function<Collection<Long>, List<Long>> lock, final Function<Collection<Long>, Integer> recompute) {
+        long drifted = 0;
+        long lowerId = Long.MIN_VALUE;
+        while (true) {
+            final List<Long> batch = idsAfter.apply(lowerId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            final Integer fixed = transactionTemplate.execute(status -> {
+                lock.apply(batch);
+                return recompute.apply(batch);
+            });
+            drifted += fixed == null ? 0 : fixed;
+            lowerId = batch.getLast();
+        }
+        return drifted;
+    }
+
+    private static void reviewChanged(final Long oldTarget, final Integer oldRate, final Long newTarget,
+            final Integer newRate, final RatingUpdate update, final TwoTierCache<?> cache) {
+        final Integer oldStars = stars(oldRate);
+        final Integer newStars = stars(newRate);
+        if (Objects.equals(oldTarget, newTarget) && Objects.equals(oldStars, newStars)) {
+            return;
+        }
+        apply(update, cache, oldTarget, oldStars, -1);
+        apply(update, cache, newTarget, newStars, 1);
+    }
+
+    private static void apply(final RatingUpdate update, final TwoTierCache<?> cache, final Long target,
+            final Integer stars, final int sign) {
+        if (target == null || stars == null) {
+            return;
+        }
+        // the rating is part of the cached DTO
+        cache.evictOnCommit(target.toString());
+        update.addRating(target, sign, (long) sign * stars, stars == 1 ? sign : 0, stars == 2 ? sign : 0,
+                stars == 3 ? sign : 0, stars == 4 ? sign : 0, stars == 5 ? sign : 0);
+    }
+
+    /**
+     * Rates outside 1 to 5 are left out of the aggregate, as in {@code reconcileRatings}.
+     */
+    private static Integer stars(final Integer rate) {
+        return rate != null && rate >= 1 && rate <= 5 ? rate : null;
+    }
+
+    @FunctionalInterface
+    private interface RatingUpdate {
+
+        int addRating(Long id, long count, long sum, long stars1, long stars2, long stars3, long stars4,
+                long stars5);
+
+    }
+
+}
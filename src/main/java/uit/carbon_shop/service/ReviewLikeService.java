@@ -0,0 +1,163 @@
+package uit.carbon_shop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uit.carbon_shop.model.AppUserDTO;
+import uit.carbon_shop.model.LikeResultDTO;
+import uit.carbon_shop.repos.CompanyReviewRepository;
+import uit.carbon_shop.repos.ProjectReviewRepository;
+import uit.carbon_shop.util.NotFoundException;
+import uit.carbon_shop.util.TwoTierCache;
+
+
+/**
+ * Likes of company and project reviews. A like is a single join table row plus an increment of
+ * the review's like counter, so the cost does not depend on how many likes a review or user has.
+ */
+@Service
+@Slf4j
+public class ReviewLikeService {
+
+    private final CompanyReviewRepository companyReviewRepository;
+    private final ProjectReviewRepository projectReviewRepository;
+    private final RedissonClient redissonClient;
+    private final LockService lockService;
+    private final TransactionTemplate transactionTemplate;
+    private final TwoTierCache<AppUserDTO> appUserCache;
+
+    public ReviewLikeService(final CompanyReviewRepository companyReviewRepository,
+            final ProjectReviewRepository projectReviewRepository, final RedissonClient redissonClient,
+            final LockService lockService, final PlatformTransactionManager transactionManager,
+            final TwoTierCache<AppUserDTO> appUserCache) {
+        this.companyReviewRepository = companyReviewRepository;
+        this.projectReviewRepository = projectReviewRepository;
+        this.redissonClient = redissonClient;
+        this.lockService = lockService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.appUserCache = appUserCache;
+    }
+
+    /**
+     * Set or, with {@code like} null, toggle the like of a company review by the given user.
+     */
+    public LikeResultDTO likeCompanyReview(final Long userId, final Long reviewId, final Boolean like) {
+        return setLike("COMPANY_REVIEW_LIKE_LOCK:" + reviewId + ":" + userId, userId, like, new LikeStore() {
+            @Override
+            public Integer likeCount() {
+                return companyReviewRepository.findLikeCount(reviewId);
+            }
+
+            @Override
+            public boolean liked() {
+                return companyReviewRepository.countLike(userId, reviewId) > 0;
+            }
+
+            @Override
+            public void insert() {
+                companyReviewRepository.insertLike(userId, reviewId);
+                companyReviewRepository.addLikeCount(reviewId, 1);
+            }
+
+            @Override
+            public void delete() {
+                if (companyReviewRepository.deleteLike(userId, reviewId) > 0) {
+                    companyReviewRepository.addLikeCount(reviewId, -1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Set or, with {@code like} null, toggle the like of a project review by the given user.
+     */
+    public LikeResultDTO likeProjectReview(final Long userId, final Long reviewId, final Boolean like) {
+        return setLike("PROJECT_REVIEW_LIKE_LOCK:" + reviewId + ":" + userId, userId, like, new LikeStore() {
+            @Override
+            public Integer likeCount() {
+                return projectReviewRepository.findLikeCount(reviewId);
+            }
+
+            @Override
+            public boolean liked() {
+                return projectReviewRepository.countLike(userId, reviewId) > 0;
+            }
+
+            @Override
+            public void insert() {
+                projectReviewRepository.insertLike(userId, reviewId);
+                projectReviewRepository.addLikeCount(reviewId, 1);
+            }
+
+            @Override
+            public void delete() {
+                if (projectReviewRepository.deleteLike(userId, reviewId) > 0) {
+                    projectReviewRepository.addLikeCount(reviewId, -1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Recompute counters which drifted from the join tables, e.g. through likes written by
+     * {@link AppUserService#update}.
+     */
+    @Scheduled(fixedDelayString = "${app.review-like.reconcile-interval}", initialDelay = 60_000)
+    public void reconcileLikeCounts() {
+        final RLock reconcileLock = redissonClient.getLock("REVIEW_LIKE_RECONCILE_LOCK");
+        if (!reconcileLock.tryLock()) {
+            return;
+        }
+        try {
+            final Integer fixed = transactionTemplate.execute(status ->
+                    companyReviewRepository.reconcileLikeCounts() + projectReviewRepository.reconcileLikeCounts());
+            if (fixed != null && fixed > 0) {
+                log.warn("reconciled like counters of {} reviews", fixed);
+            }
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private LikeResultDTO setLike(final String lockKey, final Long userId, final Boolean like,
+            final LikeStore store) {
+        // per user and review, so likes of different users on a hot review don't contend
+        return lockService.withLock(lockKey, () -> transactionTemplate.execute(status -> {
+            if (store.likeCount() == null) {
+                throw new NotFoundException();
+            }
+            final boolean liked = store.liked();
+            final boolean target = like == null ? !liked : like;
+            if (target != liked) {
+                if (target) {
+                    store.insert();
+                } else {
+                    store.delete();
+                }
+                // the liked review ids are part of the cached user
+                appUserCache.evictOnCommit(userId.toString());
+            }
+            final LikeResultDTO resultDTO = new LikeResultDTO();
+            resultDTO.setLike(target);
+            resultDTO.setLikeCount(store.likeCount());
+            return resultDTO;
+        }));
+    }
+
+    private interface LikeStore {
+
+        Integer likeCount();
+
+        boolean liked();
+
+        void insert();
+
+        void delete();
+
+    }
+
+}
@@ -3,7 +3,12 @@ package uit.carbon_shop.service;
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.auth0.jwt.interfaces.JWTVerifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +16,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import uit.carbon_shop.util.LruCache;
 
 
 @Service
@@ -19,12 +25,21 @@ public class UserTokenService {
 
     private static final Duration JWT_TOKEN_VALIDITY = Duration.ofDays(60);
 
-    private final Algorithm hmac512;
-    private final JWTVerifier verifier;
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException noSuchAlgorithmException) {
+            throw new IllegalStateException(noSuchAlgorithmException);
+        }
+    });
+
+    private final LruCache<TokenDigest, VerifiedToken> verifiedTokens;
+    private final Signer signer;
 
-    public UserTokenService(@Value("${user.secret}") final String secret) {
-        this.hmac512 = Algorithm.HMAC512(secret);
-        this.verifier = JWT.require(this.hmac512).build();
+    public UserTokenService(@Value("${user.secret}") final String secret,
+            @Value("${user.token-cache.max-size:10000}") final int tokenCacheMaxSize) {
+        this.signer = new Signer(secret);
+        this.verifiedTokens = new LruCache<>(tokenCacheMaxSize);
     }
 
     public String generateToken(final UserDetails userDetails) {
@@ -38,16 +53,64 @@ public class UserTokenService {
                 .withIssuer("app")
                 .withIssuedAt(now)
                 .withExpiresAt(now.plusMillis(JWT_TOKEN_VALIDITY.toMillis()))
-                .sign(this.hmac512);
+                .sign(signer.hmac512());
     }
 
+    /**
+     * Verify the token and return its subject. Tokens which already passed verification are
+     * remembered by their SHA-256 digest until they expire, so repeated calls with the same token
+     * skip the signature check and JSON decoding. The least recently used tokens are dropped once
+     * the cache is full.
+     */
     public String validateTokenAndGetUsername(final String token) {
+        final TokenDigest digest = TokenDigest.of(token);
+        final VerifiedToken cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (cached.expiresAt() > System.currentTimeMillis()) {
+                return cached.subject();
+            }
+            verifiedTokens.remove(digest);
+        }
+        final DecodedJWT decodedJWT;
         try {
-            return verifier.verify(token).getSubject();
+            decodedJWT = signer.verifier().verify(token);
         } catch (final JWTVerificationException verificationEx) {
             log.warn("token invalid: {}", verificationEx.getMessage());
             return null;
         }
+        if (decodedJWT.getExpiresAtAsInstant() != null && decodedJWT.getSubject() != null) {
+            verifiedTokens.put(digest, new VerifiedToken(decodedJWT.getSubject(),
+                    decodedJWT.getExpiresAtAsInstant().toEpochMilli()));
+        }
+        return decodedJWT.getSubject();
+    }
+
+    private record Signer(Algorithm hmac512, JWTVerifier verifier) {
+
+        Signer(final String secret) {
+            this(Algorithm.HMAC512(secret));
+        }
+
+        Signer(final Algorithm hmac512) {
+            this(hmac512, JWT.require(hmac512).build());
+        }
+
+    }
+
+    /**
+     * First 128 bits of the SHA-256 digest of a token.
+     */
+    private record TokenDigest(long high, long low) {
+
+        static TokenDigest of(final String token) {
+            final MessageDigest messageDigest = SHA_256.get();
+            final ByteBuffer hash = ByteBuffer.wrap(messageDigest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+            return new TokenDigest(hash.getLong(), hash.getLong());
+        }
+
+    }
+
+    private record VerifiedToken(String subject, long expiresAt) {
     }
 
 }
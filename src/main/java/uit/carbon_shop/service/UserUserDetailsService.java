@@ -1,15 +1,18 @@
 package uit.carbon_shop.service;
 
 import java.util.List;
+import java.util.Locale;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import uit.carbon_shop.domain.AppUser;
+import uit.carbon_shop.model.PrincipalCacheEntry;
 import uit.carbon_shop.model.UserStatus;
 import uit.carbon_shop.model.UserUserDetails;
 import uit.carbon_shop.repos.AppUserRepository;
+import uit.carbon_shop.util.TwoTierCache;
 
 
 @Service
@@ -17,13 +20,50 @@ import uit.carbon_shop.repos.AppUserRepository;
 public class UserUserDetailsService implements UserDetailsService {
 
     private final AppUserRepository appUserRepository;
+    private final TwoTierCache<PrincipalCacheEntry> principalCache;
 
-    public UserUserDetailsService(final AppUserRepository appUserRepository) {
+    public UserUserDetailsService(final AppUserRepository appUserRepository,
+            final TwoTierCache<PrincipalCacheEntry> principalCache) {
         this.appUserRepository = appUserRepository;
+        this.principalCache = principalCache;
     }
 
     @Override
     public UserUserDetails loadUserByUsername(final String username) {
+        final AppUser appUser = loadApprovedUser(username);
+        final List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority(appUser.getRole().name()));
+        return new UserUserDetails(appUser.getId(), username, appUser.getPassword(), authorities);
+    }
+
+    /**
+     * Load the principal for an already verified token subject. Only approved users are cached and
+     * the returned details carry no password, so they must not be used for authentication.
+     */
+    public UserUserDetails loadCachedUserByUsername(final String username) {
+        final PrincipalCacheEntry entry = principalCache.get(cacheKey(username), key -> {
+            final AppUser appUser = loadApprovedUser(username);
+            final PrincipalCacheEntry principalCacheEntry = new PrincipalCacheEntry();
+            principalCacheEntry.setUserId(appUser.getId());
+            principalCacheEntry.setUsername(username);
+            principalCacheEntry.setRole(appUser.getRole());
+            return principalCacheEntry;
+        });
+        final List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority(entry.getRole().name()));
+        return new UserUserDetails(entry.getUserId(), entry.getUsername(), "", authorities);
+    }
+
+    /**
+     * Drop the cached principal of the given user. When called inside a transaction the entry is
+     * evicted again after commit, so a concurrent request can't cache the pre-commit state.
+     */
+    public void evictCachedUser(final String username) {
+        if (username == null) {
+            return;
+        }
+        principalCache.evictOnCommit(cacheKey(username));
+    }
+
+    private AppUser loadApprovedUser(final String username) {
         final AppUser appUser = appUserRepository.findByEmailIgnoreCase(username);
         if (appUser == null) {
             log.warn("user not found: {}", username);
@@ -33,8 +73,11 @@ public class UserUserDetailsService implements UserDetailsService {
             log.warn("user not approved: {}", username);
             throw new UsernameNotFoundException("User " + username + " not approved");
         }
-        final List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority(appUser.getRole().name()));
-        return new UserUserDetails(appUser.getId(), username, appUser.getPassword(), authorities);
+        return appUser;
+    }
+
+    private static String cacheKey(final String username) {
+        return username.toLowerCase(Locale.ROOT);
     }
 
 }
@@ -0,0 +1,70 @@
+package uit.carbon_shop.util;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.zip.CRC32C;
+
+
+/**
+ * Opaque keyset position: the sort key values of a row (ending with its id), packed as longs with a
+ * CRC32C checksum and Base64url encoded. The checksum rejects edited or truncated cursors with a
+ * 400 instead of scrolling from an arbitrary position; it is no access control, every position can
+ * be listed anyway.
+ */
+public class CursorToken {
+
+    private static final byte VERSION = 2;
+    private static final int CHECKSUM_BYTES = Integer.BYTES;
+
+    private CursorToken() {
+    }
+
+    public static String encode(final long... keys) {
+        final ByteBuffer buffer = ByteBuffer.allocate(1 + keys.length * Long.BYTES + CHECKSUM_BYTES);
+        buffer.put(VERSION);
+        for (final long key : keys) {
+            buffer.putLong(key);
+        }
+        buffer.putInt(checksum(buffer.array(), buffer.position()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public static long[] decode(final String token, final int keyCount) {
+        final byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (final IllegalArgumentException illegalArgumentException) {
+            throw new InvalidCursorException("malformed cursor");
+        }
+        final int length = 1 + keyCount * Long.BYTES;
+        if (bytes.length != length + CHECKSUM_BYTES || bytes[0] != VERSION
+                || ByteBuffer.wrap(bytes, length, CHECKSUM_BYTES).getInt() != checksum(bytes, length)) {
+            throw new InvalidCursorException("malformed cursor");
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, length - 1);
+        final long[] keys = new long[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = buffer.getLong();
+        }
+        return keys;
+    }
+
+    public static long toEpochMicros(final OffsetDateTime dateTime) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, dateTime.toInstant());
+    }
+
+    public static OffsetDateTime fromEpochMicros(final long epochMicros) {
+        return Instant.EPOCH.plus(epochMicros, ChronoUnit.MICROS).atOffset(ZoneOffset.UTC);
+    }
+
+    private static int checksum(final byte[] bytes, final int length) {
+        final CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+}
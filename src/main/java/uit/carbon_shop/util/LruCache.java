@@ -0,0 +1,87 @@
+package uit.carbon_shop.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Size bounded map evicting the least recently used entries. Keys are spread over independently
+ * locked segments, each an access ordered {@link LinkedHashMap}, so concurrent callers rarely
+ * wait on each other; recency and the bound are tracked per segment.
+ */
+public class LruCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    public LruCache(final int maxSize) {
+        final int segmentSize = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        this.segments = new Segment[SEGMENTS];
+        for (int index = 0; index < SEGMENTS; index++) {
+            segments[index] = new Segment<>(segmentSize);
+        }
+    }
+
+    public V get(final K key) {
+        final Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    public void put(final K key, final V value) {
+        final Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    public void remove(final K key) {
+        final Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    public void clear() {
+        for (final Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (final Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment<K, V> segment(final K key) {
+        final int hash = key.hashCode() * 0x9e3779b9;
+        return segments[(hash ^ hash >>> 16) & (SEGMENTS - 1)];
+    }
+
+    private static class Segment<K, V> extends LinkedHashMap<K, V> {
+
+        private final int maxSize;
+
+        Segment(final int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+        }
+
+    }
+
+}
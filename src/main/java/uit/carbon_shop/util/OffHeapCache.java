@@ -0,0 +1,283 @@
+package uit.carbon_shop.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * Size bounded cache of small contents kept outside the heap in one direct buffer, used as a ring:
+ * contents are appended at the head and the oldest are evicted as the head laps them. Once the ring
+ * is full, a TinyLFU frequency sketch decides admission - a new content only displaces the oldest
+ * ones when it was requested more often recently than each of them, so one-off reads don't flush
+ * popular content.
+ * Keys and metadata stay on the heap; a hit copies the content out.
+ */
+public class OffHeapCache<K, M> {
+
+    private final ByteBuffer arena;
+    private final int capacity;
+    private final int maxEntrySize;
+    private final Map<K, Slot<M>> slots = new HashMap<>();
+    // oldest first, may hold slots removed since
+    private final ArrayDeque<Keyed<K, M>> order = new ArrayDeque<>();
+    private final FrequencySketch sketch;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter rejections;
+    // absolute write position, the arena offset is head % capacity; guarded by the write lock
+    private long head;
+    private volatile long residentBytes;
+    private volatile int size;
+
+    public OffHeapCache(final String name, final MeterRegistry meterRegistry, final int capacity,
+            final int maxEntrySize) {
+        this.arena = ByteBuffer.allocateDirect(capacity);
+        this.capacity = capacity;
+        this.maxEntrySize = Math.min(maxEntrySize, capacity);
+        this.sketch = new FrequencySketch(Math.max(capacity / Math.max(1, maxEntrySize / 4), 64));
+        this.hits = Counter.builder("app.offheap.cache.gets")
+                .tag("cache", name).tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("app.offheap.cache.gets")
+                .tag("cache", name).tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("app.offheap.cache.evictions")
+                .tag("cache", name)
+                .register(meterRegistry);
+        this.rejections = Counter.builder("app.offheap.cache.rejections")
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("app.offheap.cache.hit.ratio", this, OffHeapCache::hitRatio)
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("app.offheap.cache.resident", this, cache -> cache.residentBytes)
+                .tag("cache", name)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("app.offheap.cache.size", this, cache -> cache.size)
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    public record Hit<M>(M metadata, byte[] content) {
+    }
+
+    public Optional<Hit<M>> get(final K key) {
+        sketch.increment(key.hashCode());
+        lock.readLock().lock();
+        try {
+            final Slot<M> slot = slots.get(key);
+            if (slot == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            final byte[] content = new byte[slot.length()];
+            arena.get(position(slot.start()), content);
+            hits.increment();
+            return Optional.of(new Hit<>(slot.metadata(), content));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether {@link #put} would store content of the given length now, to skip reading contents
+     * that would be rejected.
+     */
+    public boolean admits(final K key, final int length) {
+        if (length > maxEntrySize) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return !slots.containsKey(key) && admitsLocked(key, start(length) + length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(final K key, final M metadata, final byte[] content) {
+        final int length = content.length;
+        if (length > maxEntrySize) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (slots.containsKey(key)) {
+                return;
+            }
+            final long start = start(length);
+            final long end = start + length;
+            if (!admitsLocked(key, end)) {
+                rejections.increment();
+                return;
+            }
+            while (!order.isEmpty() && order.peekFirst().slot().start() < end - capacity) {
+                final Keyed<K, M> oldest = order.pollFirst();
+                if (slots.remove(oldest.key(), oldest.slot())) {
+                    residentBytes -= oldest.slot().length();
+                    evictions.increment();
+                }
+            }
+            arena.put(position(start), content);
+            final Slot<M> slot = new Slot<>(start, length, metadata);
+            slots.put(key, slot);
+            order.addLast(new Keyed<>(key, slot));
+            head = end;
+            residentBytes += length;
+            size = slots.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void invalidate(final K key) {
+        lock.writeLock().lock();
+        try {
+            final Slot<M> slot = slots.remove(key);
+            if (slot != null) {
+                residentBytes -= slot.length();
+                size = slots.size();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Contents never wrap around the end of the arena; the tail is skipped instead.
+     */
+    private long start(final int length) {
+        final int position = position(head);
+        return position + length > capacity ? head + capacity - position : head;
+    }
+
+    /**
+     * Whether the key is more popular than every live content a write ending at the given position
+     * would evict.
+     */
+    private boolean admitsLocked(final K key, final long end) {
+        int frequency = -1;
+        for (final Keyed<K, M> victim : order) {
+            if (victim.slot().start() >= end - capacity) {
+                break;
+            }
+            if (slots.get(victim.key()) != victim.slot()) {
+                continue;
+            }
+            if (frequency == -1) {
+                frequency = sketch.frequency(key.hashCode());
+            }
+            if (frequency <= sketch.frequency(victim.key().hashCode())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int position(final long start) {
+        return (int) (start % capacity);
+    }
+
+    private double hitRatio() {
+        final double requests = hits.count() + misses.count();
+        return requests == 0 ? 0 : hits.count() / requests;
+    }
+
+    private record Slot<M>(long start, int length, M metadata) {
+    }
+
+    private record Keyed<K, M>(K key, Slot<M> slot) {
+    }
+
+    /**
+     * Count-min sketch of 4 bit counters, four per key, halved after ten times as many additions
+     * as counters so the estimates follow recent popularity. Every read increments it, so counters
+     * are updated by compare and set instead of under a lock; an increment racing with the halving
+     * may get lost, which only blurs the estimate.
+     */
+    private static class FrequencySketch {
+
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final AtomicLongArray table;
+        private final int mask;
+        private final int sampleSize;
+        private final AtomicInteger additions = new AtomicInteger();
+
+        FrequencySketch(final int expectedEntries) {
+            final int length = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+            this.table = new AtomicLongArray(length);
+            this.mask = length - 1;
+            this.sampleSize = 10 * length;
+        }
+
+        int frequency(final int hashCode) {
+            final int hash = spread(hashCode);
+            int frequency = 15;
+            for (int depth = 0; depth < SEEDS.length; depth++) {
+                frequency = Math.min(frequency, (int) (table.get(index(hash, depth)) >>> shift(hash, depth)) & 15);
+            }
+            return frequency;
+        }
+
+        void increment(final int hashCode) {
+            final int hash = spread(hashCode);
+            boolean added = false;
+            for (int depth = 0; depth < SEEDS.length; depth++) {
+                added |= increment(index(hash, depth), shift(hash, depth));
+            }
+            // only the addition reaching the sample size halves, later ones count towards the next
+            if (added && additions.incrementAndGet() == sampleSize) {
+                for (int index = 0; index < table.length(); index++) {
+                    table.getAndUpdate(index, counters -> (counters >>> 1) & RESET_MASK);
+                }
+                additions.addAndGet(-sampleSize / 2);
+            }
+        }
+
+        private boolean increment(final int index, final int shift) {
+            long counters = table.get(index);
+            while (((counters >>> shift) & 15) < 15) {
+                final long witness = table.compareAndExchange(index, counters, counters + (1L << shift));
+                if (witness == counters) {
+                    return true;
+                }
+                counters = witness;
+            }
+            return false;
+        }
+
+        private int index(final int hash, final int depth) {
+            long mixed = (hash + SEEDS[depth]) * SEEDS[depth];
+            mixed += mixed >>> 32;
+            return (int) mixed & mask;
+        }
+
+        // one of the 16 counters of a table entry
+        private static int shift(final int hash, final int depth) {
+            return ((hash >>> (depth << 3)) & 15) << 2;
+        }
+
+        private static int spread(final int hashCode) {
+            final int hash = hashCode * 0x9e3779b9;
+            return hash ^ hash >>> 16;
+        }
+
+    }
+
+}
@@ -0,0 +1,68 @@
+package uit.carbon_shop.util;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+
+/**
+ * Best-effort parsing of the free-form price strings entered before prices were stored as
+ * numbers, e.g. {@code "150.000 VND"}, {@code "$12.5"} or {@code "1,250.75"}.
+ */
+public class PriceParser {
+
+    private PriceParser() {
+    }
+
+    /**
+     * @return the amount, or null when the text contains no number
+     */
+    public static BigDecimal parseAmount(final String price) {
+        if (price == null) {
+            return null;
+        }
+        final String number = price.replaceAll("[^0-9.,]", "");
+        if (number.chars().noneMatch(Character::isDigit)) {
+            return null;
+        }
+        final int lastDot = number.lastIndexOf('.');
+        final int lastComma = number.lastIndexOf(',');
+        final String normalized;
+        if (lastDot >= 0 && lastComma >= 0) {
+            // the separator which comes last is the decimal one
+            final char decimal = lastDot > lastComma ? '.' : ',';
+            final char grouping = decimal == '.' ? ',' : '.';
+            normalized = number.replace(String.valueOf(grouping), "").replace(decimal, '.');
+        } else if (lastDot >= 0 || lastComma >= 0) {
+            final char separator = lastDot >= 0 ? '.' : ',';
+            final int last = Math.max(lastDot, lastComma);
+            final boolean grouping = number.indexOf(separator) != last || number.length() - last - 1 == 3;
+            normalized = grouping ? number.replace(String.valueOf(separator), "")
+                    : number.replace(separator, '.');
+        } else {
+            normalized = number;
+        }
+        try {
+            return new BigDecimal(normalized);
+        } catch (final NumberFormatException numberFormatException) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the ISO 4217 code mentioned in the text, or the default currency
+     */
+    public static String parseCurrency(final String price) {
+        if (price == null) {
+            return StaticConstants.DEFAULT_CURRENCY;
+        }
+        final String lower = price.toLowerCase(Locale.ROOT);
+        if (lower.contains("$") || lower.contains("usd")) {
+            return "USD";
+        }
+        if (lower.contains("€") || lower.contains("eur")) {
+            return "EUR";
+        }
+        return StaticConstants.DEFAULT_CURRENCY;
+    }
+
+}
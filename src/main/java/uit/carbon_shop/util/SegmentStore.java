@@ -0,0 +1,419 @@
+package uit.carbon_shop.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Small blobs packed into memory-mapped segment files, so they cost neither an inode nor an
+ * open/close per read. Records are appended to the newest segment as magic, 32 byte key, length,
+ * state and content; the magic is written last, so a record torn by a crash ends the segment on
+ * the next start. Deleting a record only flags it; {@link #compact} copies the live records of
+ * mostly deleted segments to the newest one and drops the old file. A crash in the middle of a move
+ * leaves the record live in both segments; the next start keeps the copy in the newest segment.
+ * <p>
+ * The index maps the first 8 key bytes to the record location in an open addressing table, rebuilt
+ * by scanning the segments on start. Entries sharing a prefix are told apart by the full key in the
+ * record header. Reads return a read-only view of the mapped region, which stays valid even after
+ * the segment is compacted away.
+ */
+@Slf4j
+public class SegmentStore implements Closeable {
+
+    public static final int KEY_LENGTH = 32;
+
+    private static final int MAGIC = 0x53454731;
+    private static final int HEADER_LENGTH = 4 + KEY_LENGTH + 4 + 1;
+    private static final int KEY_OFFSET = 4;
+    private static final int LENGTH_OFFSET = KEY_OFFSET + KEY_LENGTH;
+    private static final int STATE_OFFSET = LENGTH_OFFSET + 4;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 0;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Index index = new Index();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FileChannel lockChannel;
+
+    public SegmentStore(final Path directory, final int segmentSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        // segments are appended without coordination, so only one store may open the directory
+        this.lockChannel = FileChannel.open(directory.resolve("lock"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        if (lockChannel.tryLock() == null) {
+            lockChannel.close();
+            throw new IllegalStateException("segment store " + directory + " is in use by another process");
+        }
+        final List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "segment-*.dat")) {
+            for (final Path file : stream) {
+                final String name = file.getFileName().toString();
+                ids.add(Integer.parseInt(name.substring("segment-".length(), name.length() - ".dat".length())));
+            }
+        }
+        // oldest first, so a record found again in a later segment is the newer copy
+        ids.sort(null);
+        for (final int id : ids) {
+            open(id);
+        }
+        if (segments.isEmpty()) {
+            open(0);
+        }
+        log.info("segment store {} opened, {} segments, {} records", directory, segments.size(), index.size());
+    }
+
+    /**
+     * Largest content that fits a segment.
+     */
+    public int maxLength() {
+        return segmentSize - HEADER_LENGTH;
+    }
+
+    public boolean contains(final byte[] key) {
+        lock.readLock().lock();
+        try {
+            return find(key) != -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<ByteBuffer> get(final byte[] key) {
+        lock.readLock().lock();
+        try {
+            final long location = find(key);
+            if (location == -1) {
+                return Optional.empty();
+            }
+            final MappedByteBuffer buffer = segments.get(segmentId(location)).buffer;
+            final int position = offset(location);
+            return Optional.of(buffer.slice(position + HEADER_LENGTH, buffer.getInt(position + LENGTH_OFFSET))
+                    .asReadOnlyBuffer());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Store the content under the key unless present already.
+     */
+    public void put(final byte[] key, final ByteBuffer content) throws IOException {
+        if (key.length != KEY_LENGTH || content.remaining() > maxLength()) {
+            throw new IllegalArgumentException("key of " + key.length + " or content of " + content.remaining()
+                    + " bytes doesn't fit");
+        }
+        lock.writeLock().lock();
+        try {
+            if (find(key) == -1) {
+                index.put(prefix(key), append(key, content));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean delete(final byte[] key) {
+        lock.writeLock().lock();
+        try {
+            final long location = find(key);
+            if (location == -1) {
+                return false;
+            }
+            markDeleted(location);
+            index.remove(prefix(key), location);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrite every segment but the newest whose deleted records take more than the given share of
+     * its size. Returns the number of segments dropped.
+     */
+    public int compact(final double deadShare) throws IOException {
+        int compacted = 0;
+        for (final Segment segment : segments.headMap(segments.lastKey()).values()) {
+            if (segment.deadBytes <= deadShare * segment.end) {
+                continue;
+            }
+            int position = 0;
+            while (position < segment.end) {
+                final int length = segment.buffer.getInt(position + LENGTH_OFFSET);
+                moveIfLive(segment, position, length);
+                position += HEADER_LENGTH + length;
+            }
+            lock.writeLock().lock();
+            try {
+                segments.remove(segment.id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            // readers may still hold views of the mapping, which outlives the channel and the file
+            segment.channel.close();
+            Files.delete(file(segment.id));
+            compacted++;
+        }
+        return compacted;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public long deadBytes() {
+        return segments.values().stream().mapToLong(segment -> segment.deadBytes).sum();
+    }
+
+    public long usedBytes() {
+        return segments.values().stream().mapToLong(segment -> segment.end).sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (final Segment segment : segments.values()) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+        lockChannel.close();
+    }
+
+    private void moveIfLive(final Segment segment, final int position, final int length) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (segment.buffer.get(position + STATE_OFFSET) != LIVE) {
+                return;
+            }
+            final byte[] key = new byte[KEY_LENGTH];
+            segment.buffer.get(position + KEY_OFFSET, key);
+            final long location = append(key, segment.buffer.slice(position + HEADER_LENGTH, length));
+            // a crash before this flag leaves two live copies, the next start keeps the new one
+            segment.buffer.put(position + STATE_OFFSET, DELETED);
+            segment.buffer.force(position + STATE_OFFSET, 1);
+            index.remove(prefix(key), location(segment.id, position));
+            index.put(prefix(key), location);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long append(final byte[] key, final ByteBuffer content) throws IOException {
+        Segment segment = segments.lastEntry().getValue();
+        final int length = content.remaining();
+        if (segment.end + HEADER_LENGTH + length > segmentSize) {
+            segment.buffer.force();
+            segment = open(segment.id + 1);
+        }
+        final int position = segment.end;
+        final MappedByteBuffer buffer = segment.buffer;
+        buffer.put(position + KEY_OFFSET, key);
+        buffer.putInt(position + LENGTH_OFFSET, length);
+        buffer.put(position + STATE_OFFSET, LIVE);
+        buffer.put(position + HEADER_LENGTH, content, content.position(), length);
+        buffer.force(position + KEY_OFFSET, HEADER_LENGTH - KEY_OFFSET + length);
+        buffer.putInt(position, MAGIC);
+        buffer.force(position, 4);
+        segment.end = position + HEADER_LENGTH + length;
+        return location(segment.id, position);
+    }
+
+    private void markDeleted(final long location) {
+        final Segment segment = segments.get(segmentId(location));
+        final int position = offset(location);
+        segment.buffer.put(position + STATE_OFFSET, DELETED);
+        segment.buffer.force(position + STATE_OFFSET, 1);
+        segment.deadBytes += HEADER_LENGTH + segment.buffer.getInt(position + LENGTH_OFFSET);
+    }
+
+    private long find(final byte[] key) {
+        return index.find(prefix(key), location -> {
+            final MappedByteBuffer buffer = segments.get(segmentId(location)).buffer;
+            final byte[] stored = new byte[KEY_LENGTH];
+            buffer.get(offset(location) + KEY_OFFSET, stored);
+            return Arrays.equals(stored, key);
+        });
+    }
+
+    /**
+     * Map and register a segment and index its live records. A key live in an older segment as well
+     * was being moved by an interrupted compaction, so the older copy is flagged deleted.
+     */
+    private Segment open(final int id) throws IOException {
+        final FileChannel channel = FileChannel.open(file(id), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        final Segment segment = new Segment(id, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        segments.put(id, segment);
+        final MappedByteBuffer buffer = segment.buffer;
+        final byte[] key = new byte[KEY_LENGTH];
+        int position = 0;
+        while (position + HEADER_LENGTH <= segmentSize && buffer.getInt(position) == MAGIC) {
+            final int length = buffer.getInt(position + LENGTH_OFFSET);
+            if (buffer.get(position + STATE_OFFSET) == LIVE) {
+                buffer.get(position + KEY_OFFSET, key);
+                final long older = find(key);
+                if (older != -1) {
+                    markDeleted(older);
+                    index.remove(prefix(key), older);
+                }
+                index.put(prefix(key), location(id, position));
+            } else {
+                segment.deadBytes += HEADER_LENGTH + length;
+            }
+            position += HEADER_LENGTH + length;
+        }
+        segment.end = position;
+        return segment;
+    }
+
+    private Path file(final int id) {
+        return directory.resolve("segment-%05d.dat".formatted(id));
+    }
+
+    private static long prefix(final byte[] key) {
+        return ByteBuffer.wrap(key).getLong();
+    }
+
+    private static long location(final int segmentId, final int offset) {
+        return (long) segmentId << 32 | offset;
+    }
+
+    private static int segmentId(final long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(final long location) {
+        return (int) location;
+    }
+
+    private static class Segment {
+
+        private final int id;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        // guarded by the write lock
+        private int end;
+        private long deadBytes;
+
+        private Segment(final int id, final FileChannel channel, final MappedByteBuffer buffer) {
+            this.id = id;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+    }
+
+    /**
+     * Linear probing table of key prefix to location, with backward shift deletion so it needs no
+     * tombstones. A prefix may occur more than once. Not thread safe.
+     */
+    private static class Index {
+
+        private static final long EMPTY = -1;
+
+        private long[] prefixes = new long[1024];
+        private long[] locations = newLocations(1024);
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        long find(final long prefix, final LocationMatcher matcher) {
+            final int mask = prefixes.length - 1;
+            for (int slot = slot(prefix, mask); locations[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (prefixes[slot] == prefix && matcher.matches(locations[slot])) {
+                    return locations[slot];
+                }
+            }
+            return EMPTY;
+        }
+
+        void put(final long prefix, final long location) {
+            if ((size + 1) * 4L > prefixes.length * 3L) {
+                resize();
+            }
+            final int mask = prefixes.length - 1;
+            int slot = slot(prefix, mask);
+            while (locations[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            prefixes[slot] = prefix;
+            locations[slot] = location;
+            size++;
+        }
+
+        void remove(final long prefix, final long location) {
+            final int mask = prefixes.length - 1;
+            int slot = slot(prefix, mask);
+            while (locations[slot] != location) {
+                if (locations[slot] == EMPTY) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            // shift back following entries whose home slot doesn't lie after the gap
+            int gap = slot;
+            for (int next = (gap + 1) & mask; locations[next] != EMPTY; next = (next + 1) & mask) {
+                final int home = slot(prefixes[next], mask);
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    prefixes[gap] = prefixes[next];
+                    locations[gap] = locations[next];
+                    gap = next;
+                }
+            }
+            locations[gap] = EMPTY;
+            size--;
+        }
+
+        private void resize() {
+            final long[] oldPrefixes = prefixes;
+            final long[] oldLocations = locations;
+            prefixes = new long[oldPrefixes.length * 2];
+            locations = newLocations(oldLocations.length * 2);
+            size = 0;
+            for (int slot = 0; slot < oldPrefixes.length; slot++) {
+                if (oldLocations[slot] != EMPTY) {
+                    put(oldPrefixes[slot], oldLocations[slot]);
+                }
+            }
+        }
+
+        private static int slot(final long prefix, final int mask) {
+            // the prefix is a hash already
+            return (int) (prefix ^ prefix >>> 32) & mask;
+        }
+
+        private static long[] newLocations(final int length) {
+            final long[] locations = new long[length];
+            Arrays.fill(locations, EMPTY);
+            return locations;
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface LocationMatcher {
+
+        boolean matches(long location);
+
+    }
+
+}
@@ -4,4 +4,6 @@ public class StaticConstants {
 
     public static final Long DEFAULT_AVATAR_ID = 972L;
 
+    public static final String DEFAULT_CURRENCY = "VND";
+
 }
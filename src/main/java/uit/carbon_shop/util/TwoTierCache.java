@@ -0,0 +1,222 @@
+package uit.carbon_shop.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+
+/**
+ * Read-through cache with a bounded, access ordered in-process tier in front of a Redisson map
+ * shared by all replicas. Evictions are broadcast over a Redisson topic so that every node drops
+ * its local copy. When Redis is unavailable the cache degrades to the local tier and the loader.
+ * Concurrent misses of the same key on one node share a single load. Cached values are shared
+ * between callers and must not be modified.
+ */
+@Slf4j
+public class TwoTierCache<V> {
+
+    @Getter
+    private final String name;
+    private final int maxLocalSize;
+    private final long localTtlNanos;
+    private final long remoteTtlMillis;
+    private final LinkedHashMap<String, LocalEntry<V>> local;
+    private final RMapCache<String, V> remote;
+    private final RTopic invalidationTopic;
+    private final Counter localHits;
+    private final Counter remoteHits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Map<String, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public TwoTierCache(final String name, final RedissonClient redissonClient, final Codec codec,
+            final MeterRegistry meterRegistry, final int maxLocalSize, final Duration localTtl,
+            final Duration remoteTtl) {
+        this.name = name;
+        this.maxLocalSize = maxLocalSize;
+        this.localTtlNanos = localTtl.toNanos();
+        this.remoteTtlMillis = remoteTtl.toMillis();
+        this.local = new LinkedHashMap<>(16, 0.75f, true);
+        this.remote = redissonClient.getMapCache("CACHE:" + name, codec);
+        this.invalidationTopic = redissonClient.getTopic("CACHE_INVALIDATION:" + name, StringCodec.INSTANCE);
+        this.invalidationTopic.addListener(String.class, (channel, key) -> {
+            invalidations.incrementAndGet();
+            removeLocal(key);
+        });
+        this.localHits = Counter.builder("app.cache.gets")
+                .tag("cache", name).tag("tier", "local").tag("result", "hit")
+                .register(meterRegistry);
+        this.remoteHits = Counter.builder("app.cache.gets")
+                .tag("cache", name).tag("tier", "remote").tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("app.cache.gets")
+                .tag("cache", name).tag("tier", "remote").tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("app.cache.evictions")
+                .tag("cache", name)
+                .register(meterRegistry);
+        Gauge.builder("app.cache.size", this, TwoTierCache::localSize)
+                .tag("cache", name).tag("tier", "local")
+                .register(meterRegistry);
+        Gauge.builder("app.cache.hit.ratio", this, TwoTierCache::hitRatio)
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    public V get(final String key, final Function<String, V> loader) {
+        final V localValue = getLocal(key);
+        if (localValue != null) {
+            localHits.increment();
+            return localValue;
+        }
+        final V remoteValue = getRemote(key);
+        if (remoteValue != null) {
+            remoteHits.increment();
+            putLocal(key, remoteValue);
+            return remoteValue;
+        }
+        misses.increment();
+        return load(key, loader);
+    }
+
+    /**
+     * Remove the key from the shared tier and from the local tier of every node.
+     */
+    public void evict(final String key) {
+        invalidations.incrementAndGet();
+        removeLocal(key);
+        try {
+            remote.fastRemove(key);
+            invalidationTopic.publish(key);
+        } catch (final RedisException redisException) {
+            log.warn("cache {}: remote evict of {} failed: {}", name, key, redisException.getMessage());
+        }
+    }
+
+    /**
+     * Evict the key now and, when called inside a transaction, again after commit, so that a
+     * concurrent request can't cache the pre-commit state.
+     */
+    public void evictOnCommit(final String key) {
+        evict(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(key);
+                }
+            });
+        }
+    }
+
+    private V load(final String key, final Function<String, V> loader) {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (final CompletionException completionException) {
+                if (completionException.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw completionException;
+            }
+        }
+        try {
+            final long invalidationsBefore = invalidations.get();
+            final V value = loader.apply(key);
+            // skip the put when an eviction raced with the load - the value may already be stale
+            if (value != null && invalidations.get() == invalidationsBefore) {
+                putRemote(key, value);
+                putLocal(key, value);
+            }
+            future.complete(value);
+            return value;
+        } catch (final RuntimeException | Error exception) {
+            future.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private V getRemote(final String key) {
+        try {
+            return remote.get(key);
+        } catch (final RedisException redisException) {
+            log.warn("cache {}: remote get of {} failed: {}", name, key, redisException.getMessage());
+            return null;
+        }
+    }
+
+    private void putRemote(final String key, final V value) {
+        try {
+            remote.fastPut(key, value, remoteTtlMillis, TimeUnit.MILLISECONDS);
+        } catch (final RedisException redisException) {
+            log.warn("cache {}: remote put of {} failed: {}", name, key, redisException.getMessage());
+        }
+    }
+
+    private synchronized V getLocal(final String key) {
+        final LocalEntry<V> entry = local.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() - System.nanoTime() <= 0) {
+            local.remove(key);
+            evictions.increment();
+            return null;
+        }
+        return entry.value();
+    }
+
+    private synchronized void putLocal(final String key, final V value) {
+        local.put(key, new LocalEntry<>(value, System.nanoTime() + localTtlNanos));
+        final Iterator<Map.Entry<String, LocalEntry<V>>> iterator = local.entrySet().iterator();
+        while (local.size() > maxLocalSize && iterator.hasNext()) {
+            // access order - the first entry is the least recently used one
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private synchronized void removeLocal(final String key) {
+        local.remove(key);
+    }
+
+    private synchronized int localSize() {
+        return local.size();
+    }
+
+    private double hitRatio() {
+        final double hits = localHits.count() + remoteHits.count();
+        final double total = hits + misses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private record LocalEntry<V>(V value, long expiresAt) {
+    }
+
+}
@@ -0,0 +1,3 @@
+-- Price bounds and price sorts always come with a currency, see ProjectListFilter.
+create index if not exists idx_projects_status_currency_unit_price on projects (status, currency, unit_price);
+drop index if exists idx_projects_status_unit_price;
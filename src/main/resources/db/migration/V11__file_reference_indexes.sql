@@ -0,0 +1,21 @@
+-- Serve FileDocumentRepository.findReferenced, which keeps a dropped file while anything else still
+-- refers to it. Built concurrently so that writes continue meanwhile; Flyway runs this script
+-- outside a transaction.
+create index concurrently if not exists idx_app_users_avatar on app_users (avatar);
+create index concurrently if not exists idx_projects_project_images on projects
+    using gin (project_images jsonb_path_ops);
+create index concurrently if not exists idx_orders_payment_bill_file on orders (payment_bill_file);
+create index concurrently if not exists idx_orders_contract_file on orders (contract_file);
+create index concurrently if not exists idx_orders_cert_images on orders using gin (cert_images jsonb_path_ops);
+create index concurrently if not exists idx_company_reviews_images on company_reviews
+    using gin (images jsonb_path_ops);
+create index concurrently if not exists idx_project_reviews_images on project_reviews
+    using gin (images jsonb_path_ops);
+create index concurrently if not exists idx_chat_messages_file_id on chat_messages (file_id)
+    where file_id is not null;
+create index concurrently if not exists idx_chat_messages_image_id on chat_messages (image_id)
+    where image_id is not null;
+create index concurrently if not exists idx_chat_messages_video_id on chat_messages (video_id)
+    where video_id is not null;
+create index concurrently if not exists idx_chat_messages_audio_id on chat_messages (audio_id)
+    where audio_id is not null;
@@ -0,0 +1,4 @@
+-- Validate the seller company key V3 added as not valid. The key has been checked on every write
+-- since, the backfill included, so this only scans the rows before V3, whose seller company is
+-- null. Validating takes a share update exclusive lock, so order reads and writes continue.
+alter table orders validate constraint fk_orders_seller_company;
@@ -0,0 +1,20 @@
+-- Inbox read model, one row per participant of a conversation; ConversationBackfillService fills it
+-- from the existing chat messages. "if not exists" keeps it safe where the table was created already.
+create table if not exists conversations (
+    id bigint not null,
+    conversation_id uuid not null,
+    owner_id bigint not null,
+    peer_id bigint not null,
+    last_message_id bigint,
+    last_activity_at timestamp(6) with time zone not null,
+    unread_count integer not null,
+    created_at timestamp(6) with time zone not null,
+    updated_at timestamp(6) with time zone not null,
+    primary key (id),
+    constraint uk_conversations_owner_conversation unique (owner_id, conversation_id),
+    constraint fk_conversations_owner foreign key (owner_id) references app_users,
+    constraint fk_conversations_peer foreign key (peer_id) references app_users,
+    constraint fk_conversations_last_message foreign key (last_message_id) references chat_messages
+);
+
+create index if not exists idx_conversations_owner_activity on conversations (owner_id, last_activity_at);
@@ -0,0 +1,12 @@
+-- Denormalized like counters of reviews, counted once from the like tables here and kept up to
+-- date by ReviewLikeService.
+alter table company_reviews add column if not exists like_count integer default 0 not null;
+alter table project_reviews add column if not exists like_count integer default 0 not null;
+
+update company_reviews r
+set like_count = (select count(*) from like_company_reviews l where l.company_review_id = r.id)
+where exists (select 1 from like_company_reviews l where l.company_review_id = r.id);
+
+update project_reviews r
+set like_count = (select count(*) from like_project_reviews l where l.project_review_id = r.id)
+where exists (select 1 from like_project_reviews l where l.project_review_id = r.id);
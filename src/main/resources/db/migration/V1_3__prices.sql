@@ -0,0 +1,9 @@
+-- Numeric prices next to the free-text ones; PriceBackfillService parses the existing rows.
+alter table projects add column if not exists unit_price numeric(19, 4);
+alter table projects add column if not exists currency varchar(3);
+alter table orders add column if not exists unit_price numeric(19, 4);
+alter table orders add column if not exists currency varchar(3);
+alter table orders add column if not exists total_amount numeric(19, 4);
+
+create index if not exists idx_projects_status_unit_price on projects (status, unit_price);
+create index if not exists idx_projects_status_credit_amount on projects (status, credit_amount);
@@ -0,0 +1,177 @@
+-- Schema as previously created by Hibernate (ddl-auto: update) at the last release before Flyway.
+-- Databases that already hold it are baselined at this version and start with V1.1, so everything
+-- added since belongs in a later migration, not here.
+
+create table companies (
+    id bigint not null,
+    name varchar(255),
+    address varchar(255),
+    tax_code varchar(255),
+    email varchar(255),
+    industry varchar(255),
+    status varchar(255) check (status in ('INIT', 'APPROVED', 'REJECTED')),
+    created_at timestamp(6) with time zone not null,
+    updated_at timestamp(6) with time zone not null,
+    primary key (id)
+);
+
+create table app_users (
+    id bigint not null,
+    password varchar(255) not null,
+    reset_password_uid varchar(255),
+    reset_password_start timestamp(6) with time zone,
+    name varchar(255),
+    phone varchar(255),
+    email varchar(255),
+    avatar bigint,
+    role varchar(255) not null check (role in ('SELLER_OR_BUYER', 'MEDIATOR')),
+    approved_at timestamp(6),
+    rejected_at timestamp(6),
+    status varchar(255) check (status in ('INIT', 'APPROVED', 'REJECTED')),
+    company_id bigint,
+    created_at timestamp(6) with time zone not null,
+    updated_at timestamp(6) with time zone not null,
+    primary key (id),
+    constraint uk_app_users_company unique (company_id),
+    constraint fk_app_users_company foreign key (company_id) references companies
+);
+
+create table projects (
+    id bigint not null,
+    name text,
+    address text,
+    size varchar(255),
+    time_start timestamp(6),
+    time_end timestamp(6),
+    produce_carbon_rate varchar(255),
+    partner varchar(255),
+    audit_by_org varchar(255),
+    credit_amount bigint,
+    cert varchar(255),
+    price varchar(255),
+    method_payment varchar(255),
+    project_images jsonb,
+    status varchar(255) check (status in ('INIT', 'APPROVED', 'REJECTED')),
+    owner_company_id bigint,
+    audit_by_id bigint,
+    created_at timestamp(6) with time zone not null,
+    updated_at timestamp(6) with time zone not null,
+    primary key (id),
+    constraint fk_projects_owner_company foreign key (owner_company_id) references companies,
+    constraint fk_projects_audit_by foreign key (audit_by_id) references app_users
+);
+
+create table orders (
+    id bigint not null,
+    credit_amount bigint,
+    unit varchar(255),
+    price varchar(255),
+    total varchar(255),
+    status varchar(255) check (status in ('INIT', 'PROCESSING', 'CANCELLED', 'DONE')),
+    payment_bill_file bigint,
+    contract_file bigint,
+    cert_images jsonb,
+    contract_sign_date timestamp(6),
+    pay_date timestamp(6),
+    delivery_date timestamp(6),
+    project_id bigint,
+    process_by_id bigint,
+    created_by_id bigint,
+    created_at timestamp(6) with time zone not null,
+    updated_at timestamp(6) with time zone not null,
+    primary key (id),
+    constraint fk_orders_project foreign key (project_id) references projects,
+    constraint fk_orders_process_by foreign key (process_by_id) references app_users,
+    constraint fk_orders_created_by foreign key (created_by_id) references app_users
+);
+
+create table favorite_projectses (
+    user_id bigint not null,
+    project_id bigint not null,
+    primary key (user_id, project_id),
+    constraint fk_favorite_projectses_user foreign key (user_id) references app_users,
+    constraint fk_favorite_projectses_project foreign key (project_id) references projects
+);
+
+create table company_reviews (
+    id bigint not null,
+    message varchar(255),
+    rate integer,
+    images jsonb,
+    company_id bigint,
+    review_by_id bigint,
+    created_at timestamp(6) with time zone not null,
+    updated_at timestamp(6) with time zone not null,
+    primary key (id),
+    constraint fk_company_reviews_company foreign key (company_id) references companies,
+    constraint fk_company_reviews_review_by foreign key (review_by_id) references app_users
+);
+
+create table project_reviews (
+    id bigint not null,
+    message varchar(255),
+    rate integer,
+    images jsonb,
+    project_id bigint,
+    review_by_id bigint,
+    created_at timestamp(6) with time zone not null,
+    updated_at timestamp(6) with time zone not null,
+    primary key (id),
+    constraint fk_project_reviews_project foreign key (project_id) references projects,
+    constraint fk_project_reviews_review_by foreign key (review_by_id) references app_users
+);
+
+create table like_company_reviews (
+    app_user_id bigint not null,
+    company_review_id bigint not null,
+    primary key (app_user_id, company_review_id),
+    constraint fk_like_company_reviews_app_user foreign key (app_user_id) references app_users,
+    constraint fk_like_company_reviews_review foreign key (company_review_id) references company_reviews
+);
+
+create table like_project_reviews (
+    app_user_id bigint not null,
+    project_review_id bigint not null,
+    primary key (app_user_id, project_review_id),
+    constraint fk_like_project_reviews_app_user foreign key (app_user_id) references app_users,
+    constraint fk_like_project_reviews_review foreign key (project_review_id) references project_reviews
+);
+
+create table questions (
+    id bigint not null,
+    question varchar(255),
+    answer varchar(255),
+    asked_by_id bigint,
+    created_at timestamp(6) with time zone not null,
+    updated_at timestamp(6) with time zone not null,
+    primary key (id),
+    constraint fk_questions_asked_by foreign key (asked_by_id) references app_users
+);
+
+create table chat_messages (
+    id bigint not null,
+    content varchar(255),
+    file_id bigint,
+    image_id bigint,
+    video_id bigint,
+    audio_id bigint,
+    conversation_id uuid not null,
+    sender_id bigint,
+    receiver_id bigint,
+    created_at timestamp(6) with time zone not null,
+    updated_at timestamp(6) with time zone not null,
+    primary key (id),
+    constraint fk_chat_messages_sender foreign key (sender_id) references app_users,
+    constraint fk_chat_messages_receiver foreign key (receiver_id) references app_users
+);
+
+create table file_documents (
+    id bigint not null,
+    name varchar(255),
+    content_type varchar(255),
+    content_id varchar(255),
+    content_length bigint,
+    created_at timestamp(6) with time zone not null,
+    updated_at timestamp(6) with time zone not null,
+    primary key (id)
+);
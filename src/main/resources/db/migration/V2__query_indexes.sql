@@ -0,0 +1,48 @@
+-- Indexes for the lookups and listings in uit.carbon_shop.repos. "if not exists" keeps this
+-- safe on databases baselined from a Hibernate generated schema.
+
+-- AppUserRepository: findByEmailIgnoreCase/existsByEmailIgnoreCase compare upper(email),
+-- findByResetPasswordUid, findByStatus
+create index if not exists idx_app_users_upper_email on app_users (upper(email));
+create index if not exists idx_app_users_reset_password_uid on app_users (reset_password_uid)
+    where reset_password_uid is not null;
+create index if not exists idx_app_users_status_id on app_users (status, id);
+
+-- join tables are keyed by the owning user; lookups from the other side need their own index
+create index if not exists idx_favorite_projectses_project on favorite_projectses (project_id);
+create index if not exists idx_like_company_reviews_review on like_company_reviews (company_review_id);
+create index if not exists idx_like_project_reviews_review on like_project_reviews (project_review_id);
+
+-- ProjectRepository: listBy(OwnerCompany|Status)*, findFirstByAuditBy
+create index if not exists idx_projects_owner_company_status_id on projects (owner_company_id, status, id);
+create index if not exists idx_projects_status_id on projects (status, id);
+create index if not exists idx_projects_audit_by on projects (audit_by_id);
+
+-- OrderRepository: listByCreatedBy*, listByStatus, listByOwnerCompany* (via project),
+-- findFirstByProcessBy
+create index if not exists idx_orders_created_by_status_id on orders (created_by_id, status, id);
+create index if not exists idx_orders_status_id on orders (status, id);
+create index if not exists idx_orders_project on orders (project_id);
+create index if not exists idx_orders_process_by on orders (process_by_id);
+
+-- ChatMessageRepository: conversation history and keyset scrolling, sender/receiver lookups
+create index if not exists idx_chat_messages_conversation_created on chat_messages
+    (conversation_id, created_at desc, id desc);
+create index if not exists idx_chat_messages_sender_receiver on chat_messages (sender_id, receiver_id);
+create index if not exists idx_chat_messages_receiver on chat_messages (receiver_id);
+
+-- ConversationRepository: findFirstByOwner_IdAndPeer_Id, existsByConversationId, findByLastMessage_Id
+create index if not exists idx_conversations_owner_peer on conversations (owner_id, peer_id);
+create index if not exists idx_conversations_conversation on conversations (conversation_id);
+create index if not exists idx_conversations_last_message on conversations (last_message_id);
+
+-- review repositories: listings and scrolling per company/project, findFirstByReviewBy
+create index if not exists idx_company_reviews_company_id on company_reviews (company_id, id);
+create index if not exists idx_company_reviews_review_by on company_reviews (review_by_id);
+create index if not exists idx_project_reviews_project_id on project_reviews (project_id, id);
+create index if not exists idx_project_reviews_review_by on project_reviews (review_by_id);
+
+-- QuestionRepository: per user listings and the answered/unanswered queues
+create index if not exists idx_questions_asked_by_id on questions (asked_by_id, id);
+create index if not exists idx_questions_unanswered on questions (id) where answer is null;
+create index if not exists idx_questions_answered on questions (id) where answer is not null;
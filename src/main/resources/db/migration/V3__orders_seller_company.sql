@@ -0,0 +1,8 @@
+-- Seller company copied onto orders at creation, see OrderSellerCompanyBackfillService for
+-- existing rows. The foreign key is not validated here to avoid scanning orders under an
+-- exclusive lock; the backfilled values come from projects.owner_company_id, which is constrained.
+
+alter table orders add column if not exists seller_company_id bigint;
+
+alter table orders add constraint fk_orders_seller_company foreign key (seller_company_id)
+    references companies not valid;
@@ -0,0 +1,4 @@
+-- Built concurrently so that order writes continue meanwhile; Flyway runs this script outside a
+-- transaction.
+create index concurrently if not exists idx_orders_seller_company_status_created on orders
+    (seller_company_id, status, created_at);
@@ -0,0 +1,96 @@
+-- Full-text search over projects and companies. The search vectors are maintained by triggers and
+-- are not mapped by Hibernate. The 'simple' configuration is used because names and addresses are
+-- mostly Vietnamese, which has no stemmer; pg_trgm covers typos in names.
+
+create extension if not exists pg_trgm;
+
+alter table companies add column search_vector tsvector;
+alter table projects add column search_vector tsvector;
+
+create function company_search_vector(name text, industry text, address text) returns tsvector
+    language sql immutable as
+$$
+select setweight(to_tsvector('simple', coalesce(name, '')), 'A')
+           || setweight(to_tsvector('simple', concat_ws(' ', industry, address)), 'C')
+$$;
+
+create function project_search_vector(name text, address text, partner text, audit_by_org text, cert text,
+                                      company_name text) returns tsvector
+    language sql immutable as
+$$
+select setweight(to_tsvector('simple', coalesce(name, '')), 'A')
+           || setweight(to_tsvector('simple', coalesce(company_name, '')), 'B')
+           || setweight(to_tsvector('simple', concat_ws(' ', address, partner, audit_by_org, cert)), 'C')
+$$;
+
+-- HTML escaped fragments of the document with the matched terms wrapped in <mark>
+create function search_headline(document text, query tsquery) returns text
+    language sql immutable as
+$$
+select ts_headline('simple',
+                   replace(replace(replace(document, '&', '&amp;'), '<', '&lt;'), '>', '&gt;'),
+                   query,
+                   'StartSel=<mark>, StopSel=</mark>, MaxFragments=2, MaxWords=20, MinWords=5')
+$$;
+
+create function companies_search_vector_refresh() returns trigger
+    language plpgsql as
+$$
+begin
+    new.search_vector := company_search_vector(new.name, new.industry, new.address);
+    return new;
+end
+$$;
+
+create trigger companies_search_vector_refresh
+    before insert or update of name, industry, address
+    on companies
+    for each row
+execute function companies_search_vector_refresh();
+
+create function projects_search_vector_refresh() returns trigger
+    language plpgsql as
+$$
+begin
+    new.search_vector := project_search_vector(new.name, new.address, new.partner, new.audit_by_org, new.cert,
+                                               (select c.name from companies c where c.id = new.owner_company_id));
+    return new;
+end
+$$;
+
+create trigger projects_search_vector_refresh
+    before insert or update of name, address, partner, audit_by_org, cert, owner_company_id
+    on projects
+    for each row
+execute function projects_search_vector_refresh();
+
+-- a renamed company changes the vectors of all its projects
+create function companies_search_name_propagate() returns trigger
+    language plpgsql as
+$$
+begin
+    update projects p
+    set search_vector = project_search_vector(p.name, p.address, p.partner, p.audit_by_org, p.cert, new.name)
+    where p.owner_company_id = new.id;
+    return null;
+end
+$$;
+
+create trigger companies_search_name_propagate
+    after update of name
+    on companies
+    for each row
+    when (old.name is distinct from new.name)
+execute function companies_search_name_propagate();
+
+update companies
+set search_vector = company_search_vector(name, industry, address);
+
+update projects p
+set search_vector = project_search_vector(p.name, p.address, p.partner, p.audit_by_org, p.cert,
+                                          (select c.name from companies c where c.id = p.owner_company_id));
+
+create index idx_companies_search_vector on companies using gin (search_vector);
+create index idx_companies_name_trgm on companies using gin (lower(name) gin_trgm_ops);
+create index idx_projects_search_vector on projects using gin (search_vector);
+create index idx_projects_name_trgm on projects using gin (lower(name) gin_trgm_ops);
@@ -0,0 +1,2 @@
+-- Serves the approved company scroll that builds the name suggestions.
+create index if not exists idx_companies_status_id on companies (status, id);
@@ -0,0 +1,18 @@
+-- Read model behind the project card listing, filled by ProjectCardService on first startup.
+create table project_cards (
+    id bigint not null,
+    status varchar(255),
+    owner_company_id bigint,
+    unit_price numeric(19, 4),
+    credit_amount bigint,
+    average_rating float(53),
+    review_count bigint not null,
+    order_count bigint not null,
+    favorite_count bigint not null,
+    card jsonb not null,
+    refreshed_at timestamp(6) with time zone not null,
+    primary key (id)
+);
+
+create index idx_project_cards_status_id on project_cards (status, id);
+create index idx_project_cards_owner_company on project_cards (owner_company_id);
@@ -0,0 +1,60 @@
+-- Rating aggregates of companies and projects, kept in step by RatingService and filled here from
+-- the existing reviews. Rates outside 1 to 5 are not counted.
+alter table companies
+    add column rating_count bigint not null default 0,
+    add column rating_sum bigint not null default 0,
+    add column rating_star1 bigint not null default 0,
+    add column rating_star2 bigint not null default 0,
+    add column rating_star3 bigint not null default 0,
+    add column rating_star4 bigint not null default 0,
+    add column rating_star5 bigint not null default 0,
+    add column rating_average float(53);
+
+alter table projects
+    add column rating_count bigint not null default 0,
+    add column rating_sum bigint not null default 0,
+    add column rating_star1 bigint not null default 0,
+    add column rating_star2 bigint not null default 0,
+    add column rating_star3 bigint not null default 0,
+    add column rating_star4 bigint not null default 0,
+    add column rating_star5 bigint not null default 0,
+    add column rating_average float(53);
+
+update companies c
+set rating_count = a.rating_count,
+    rating_sum = a.rating_sum,
+    rating_star1 = a.star1,
+    rating_star2 = a.star2,
+    rating_star3 = a.star3,
+    rating_star4 = a.star4,
+    rating_star5 = a.star5,
+    rating_average = a.average
+from (select company_id, count(*) as rating_count, sum(rate) as rating_sum,
+             count(*) filter (where rate = 1) as star1, count(*) filter (where rate = 2) as star2,
+             count(*) filter (where rate = 3) as star3, count(*) filter (where rate = 4) as star4,
+             count(*) filter (where rate = 5) as star5, avg(rate) as average
+      from company_reviews
+      where rate between 1 and 5
+      group by company_id) a
+where c.id = a.company_id;
+
+update projects p
+set rating_count = a.rating_count,
+    rating_sum = a.rating_sum,
+    rating_star1 = a.star1,
+    rating_star2 = a.star2,
+    rating_star3 = a.star3,
+    rating_star4 = a.star4,
+    rating_star5 = a.star5,
+    rating_average = a.average
+from (select project_id, count(*) as rating_count, sum(rate) as rating_sum,
+             count(*) filter (where rate = 1) as star1, count(*) filter (where rate = 2) as star2,
+             count(*) filter (where rate = 3) as star3, count(*) filter (where rate = 4) as star4,
+             count(*) filter (where rate = 5) as star5, avg(rate) as average
+      from project_reviews
+      where rate between 1 and 5
+      group by project_id) a
+where p.id = a.project_id;
+
+create index idx_companies_rating_average on companies (rating_average);
+create index idx_projects_status_rating_average on projects (status, rating_average);
@@ -0,0 +1,13 @@
+-- Deduplicated file content, see ContentBlobService. Files uploaded before keep their content id.
+create table content_blobs (
+    id varchar(64) not null,
+    length bigint not null,
+    ref_count bigint not null,
+    created_at timestamp(6) with time zone not null,
+    updated_at timestamp(6) with time zone not null,
+    primary key (id)
+);
+
+create index idx_content_blobs_unreferenced on content_blobs (updated_at) where ref_count = 0;
+
+alter table file_documents add column content_hash varchar(64);
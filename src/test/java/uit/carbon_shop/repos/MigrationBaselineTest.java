@@ -0,0 +1,131 @@
+package uit.carbon_shop.repos;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.orm.jpa.EntityManagerFactoryBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import uit.carbon_shop.CarbonShopApplication;
+import uit.carbon_shop.config.BaseIntegrationTestByTestContainer;
+
+
+/**
+ * Upgrades a database as the last release before Flyway left it: V1 is applied by hand like
+ * Hibernate used to, Flyway baselines it with the settings of {@code application.yml} and runs the
+ * rest, and Hibernate then validates the mapping against the result like {@code ddl-auto: validate}
+ * does on start.
+ */
+@Tag("TestContainer")
+public class MigrationBaselineTest extends BaseIntegrationTestByTestContainer {
+
+    private static final String DATABASE = "baseline_check";
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManagerFactoryBuilder entityManagerFactoryBuilder;
+
+    @Autowired
+    JpaProperties jpaProperties;
+
+    @Autowired
+    HibernateProperties hibernateProperties;
+
+    @Test
+    void migrate_upgradesBaselinedDatabase() throws SQLException {
+        jdbcTemplate.execute("drop database if exists " + DATABASE + " with (force)");
+        jdbcTemplate.execute("create database " + DATABASE);
+        final HikariDataSource baseline = baselineDataSource();
+        try {
+            new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline.sql"))
+                    .execute(baseline);
+            seed(new JdbcTemplate(baseline));
+
+            final MigrateResult result = Flyway.configure()
+                    .dataSource(baseline)
+                    .baselineOnMigrate(true)
+                    .baselineVersion("1")
+                    .load()
+                    .migrate();
+            Assertions.assertTrue(result.success);
+            Assertions.assertTrue(result.migrationsExecuted > 0);
+
+            final JdbcTemplate migrated = new JdbcTemplate(baseline);
+            Assertions.assertEquals(1, migrated.queryForObject(
+                    "select like_count from company_reviews where id = 1", Integer.class));
+            Assertions.assertEquals(0, migrated.queryForObject(
+                    "select like_count from company_reviews where id = 2", Integer.class));
+            Assertions.assertEquals(Boolean.TRUE, migrated.queryForObject(
+                    "select convalidated from pg_constraint where conname = 'fk_orders_seller_company'",
+                    Boolean.class));
+            validate(baseline);
+        } finally {
+            baseline.close();
+            jdbcTemplate.execute("drop database if exists " + DATABASE + " with (force)");
+        }
+    }
+
+    private HikariDataSource baselineDataSource() throws SQLException {
+        final HikariDataSource current = dataSource.unwrap(HikariDataSource.class);
+        final HikariDataSource baseline = new HikariDataSource();
+        baseline.setJdbcUrl(current.getJdbcUrl().replaceFirst("/[^/?]+(\\?|$)", "/" + DATABASE + "$1"));
+        baseline.setUsername(current.getUsername());
+        baseline.setPassword(current.getPassword());
+        baseline.setMaximumPoolSize(2);
+        return baseline;
+    }
+
+    /**
+     * Rows the later migrations have to carry over: a liked and an unliked review, and an order
+     * from before orders had a seller company.
+     */
+    private static void seed(final JdbcTemplate baseline) {
+        baseline.update("insert into companies (id, name, created_at, updated_at) values (1, 'c', now(), now())");
+        baseline.update("insert into app_users (id, password, role, status, company_id, created_at, updated_at) "
+                + "values (1, 'p', 'SELLER_OR_BUYER', 'APPROVED', 1, now(), now())");
+        baseline.update("insert into projects (id, name, price, status, owner_company_id, created_at, updated_at) "
+                + "values (1, 'p', '150.000 VND', 'APPROVED', 1, now(), now())");
+        baseline.update("insert into company_reviews (id, rate, company_id, review_by_id, created_at, updated_at) "
+                + "values (1, 5, 1, 1, now(), now()), (2, 4, 1, 1, now(), now())");
+        baseline.update("insert into like_company_reviews (app_user_id, company_review_id) values (1, 1)");
+        baseline.update("insert into orders (id, status, project_id, created_at, updated_at) "
+                + "values (1, 'INIT', 1, now(), now())");
+        baseline.update("insert into chat_messages (id, content, conversation_id, sender_id, receiver_id, "
+                + "created_at, updated_at) values (1, 'hi', gen_random_uuid(), 1, 1, now(), now())");
+    }
+
+    private void validate(final DataSource baseline) {
+        final Map<String, Object> properties = new LinkedHashMap<>(hibernateProperties.determineHibernateProperties(
+                jpaProperties.getProperties(), new HibernateSettings()));
+        properties.put(AvailableSettings.HBM2DDL_AUTO, "validate");
+        final LocalContainerEntityManagerFactoryBean entityManagerFactory = entityManagerFactoryBuilder
+                .dataSource(baseline)
+                .packages(CarbonShopApplication.class)
+                .properties(properties)
+                .persistenceUnit(DATABASE)
+                .build();
+        // fails with a SchemaManagementException when a mapped table or column is missing
+        entityManagerFactory.afterPropertiesSet();
+        entityManagerFactory.destroy();
+    }
+
+}
@@ -0,0 +1,275 @@
+package uit.carbon_shop.repos;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
+import org.springframework.transaction.support.TransactionTemplate;
+import uit.carbon_shop.config.BaseIntegrationTestByTestContainer;
+import uit.carbon_shop.model.ProjectListFilter;
+
+
+/**
+ * Runs every query method declared in {@code uit.carbon_shop.repos} against the migrated and seeded
+ * schema, records the SQL Hibernate prepares and fails when its generic plan still scans a table
+ * sequentially. Sequential scans are disabled while explaining, so one only shows up when no index
+ * can serve the query.
+ */
+@Sql(value = "/data/queryPlanSeed.sql", executionPhase = ExecutionPhase.BEFORE_TEST_CLASS)
+@TestPropertySource(properties = {
+        "spring.flyway.enabled=true",
+        "spring.flyway.clean-disabled=false",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "uit.carbon_shop.repos.RepositoryQueryPlanTest$SqlRecorder"
+})
+@Tag("TestContainer")
+public class RepositoryQueryPlanTest extends BaseIntegrationTestByTestContainer {
+
+    /**
+     * Methods that read the whole table by design: unfiltered listings, "not owned by" listings,
+     * the like count reconciliation and the orphaned card cleanup.
+     */
+    private static final Set<String> FULL_SCAN_ALLOWED = Set.of(
+            "ProjectRepository.listAll",
+            "ProjectRepository.listByOwnerCompanyNot",
+            "OrderRepository.listAll",
+            "CompanyReviewRepository.reconcileLikeCounts",
+            "ProjectReviewRepository.reconcileLikeCounts",
+            "ProjectCardRepository.deleteOrphans"
+    );
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+
+    @Autowired
+    ApplicationContext applicationContext;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void repositoryQueries_useIndexes() {
+        final List<String> failures = new ArrayList<>();
+        final Repositories repositories = new Repositories(applicationContext);
+        for (final Class<?> domainType : repositories) {
+            final Class<?> repositoryInterface = repositories.getRepositoryInformationFor(domainType)
+                    .orElseThrow()
+                    .getRepositoryInterface();
+            if (!repositoryInterface.getPackageName().equals(getClass().getPackageName())) {
+                continue;
+            }
+            final Object repository = repositories.getRepositoryFor(domainType).orElseThrow();
+            for (final Method method : queryMethods(repositoryInterface)) {
+                if (method.isDefault() || method.isSynthetic() || Modifier.isStatic(method.getModifiers())) {
+                    continue;
+                }
+                final String name = repositoryInterface.getSimpleName() + "." + method.getName();
+                if (FULL_SCAN_ALLOWED.contains(name)) {
+                    continue;
+                }
+                for (final String sql : record(repository, method)) {
+                    try {
+                        final Matcher seqScan = SEQ_SCAN.matcher(explain(sql));
+                        while (seqScan.find()) {
+                            failures.add(name + ": sequential scan on " + seqScan.group(1) + " in " + sql);
+                        }
+                    } catch (final RuntimeException exception) {
+                        failures.add(name + ": explain failed for " + sql + ": " + exception.getMessage());
+                    }
+                }
+            }
+        }
+        Assertions.assertTrue(failures.isEmpty(), () -> String.join("\n", failures));
+    }
+
+    /**
+     * Methods declared by the repository and by its custom fragments in the same package.
+     */
+    private static List<Method> queryMethods(final Class<?> repositoryInterface) {
+        final List<Method> methods = new ArrayList<>(Arrays.asList(repositoryInterface.getDeclaredMethods()));
+        for (final Class<?> fragment : repositoryInterface.getInterfaces()) {
+            if (fragment.getPackageName().equals(repositoryInterface.getPackageName())) {
+                methods.addAll(Arrays.asList(fragment.getDeclaredMethods()));
+            }
+        }
+        return methods;
+    }
+
+    private List<String> record(final Object repository, final Method method) {
+        final List<String> recorded;
+        SqlRecorder.start();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                final Object[] arguments = Arrays.stream(method.getParameters())
+                        .map(this::argument)
+                        .toArray();
+                try {
+                    method.invoke(repository, arguments);
+                } catch (final ReflectiveOperationException | RuntimeException exception) {
+                    // statements are recorded when prepared, a failed execution still leaves its SQL
+                }
+            });
+        } finally {
+            recorded = SqlRecorder.stop();
+        }
+        return recorded;
+    }
+
+    private String explain(final String sql) {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            jdbcTemplate.execute("set local enable_seqscan = off");
+            return String.join("\n",
+                    jdbcTemplate.queryForList("explain (generic_plan) " + numberParameters(sql), String.class));
+        });
+    }
+
+    /**
+     * Generic plans need numbered placeholders instead of JDBC's {@code ?}.
+     */
+    private static String numberParameters(final String sql) {
+        final StringBuilder numbered = new StringBuilder(sql.length() + 16);
+        boolean inLiteral = false;
+        int parameter = 0;
+        for (final char c : sql.toCharArray()) {
+            if (c == '\'') {
+                inLiteral = !inLiteral;
+            }
+            if (c == '?' && !inLiteral) {
+                numbered.append('$').append(++parameter);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return numbered.toString();
+    }
+
+    private Object argument(final Parameter parameter) {
+        if (Collection.class.isAssignableFrom(parameter.getType())) {
+            final ParameterizedType collectionType = (ParameterizedType) parameter.getParameterizedType();
+            return List.of(sample((Class<?>) collectionType.getActualTypeArguments()[0]));
+        }
+        return sample(parameter.getType());
+    }
+
+    private Object sample(final Class<?> type) {
+        if (type == Long.class || type == long.class) {
+            return 1L;
+        }
+        if (type == Integer.class || type == int.class) {
+            return 1;
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return true;
+        }
+        if (type == String.class) {
+            return "a";
+        }
+        if (type == UUID.class) {
+            return UUID.randomUUID();
+        }
+        if (type == BigDecimal.class) {
+            return BigDecimal.ONE;
+        }
+        if (type == OffsetDateTime.class) {
+            return OffsetDateTime.now();
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.now();
+        }
+        if (type == ProjectListFilter.class) {
+            return new ProjectListFilter(BigDecimal.ONE, BigDecimal.TEN, 1L, "VND");
+        }
+        if (type == Pageable.class) {
+            return PageRequest.of(0, 20);
+        }
+        if (type.isEnum()) {
+            return type.getEnumConstants()[0];
+        }
+        if (type.isAnnotationPresent(Entity.class)) {
+            return entityManager.getReference(type, 1L);
+        }
+        throw new IllegalArgumentException("no sample value for " + type.getName());
+    }
+
+    /**
+     * Collects the SQL prepared on the current thread while recording.
+     */
+    public static class SqlRecorder implements StatementInspector {
+
+        private static final ThreadLocal<List<String>> RECORDED = new ThreadLocal<>();
+
+        static void start() {
+            RECORDED.set(new ArrayList<>());
+        }
+
+        static List<String> stop() {
+            final List<String> recorded = RECORDED.get();
+            RECORDED.remove();
+            return recorded;
+        }
+
+        @Override
+        public String inspect(final String sql) {
+            final List<String> recorded = RECORDED.get();
+            if (recorded != null) {
+                recorded.add(sql);
+            }
+            return sql;
+        }
+
+    }
+
+    @TestConfiguration
+    static class CleanMigrationConfig {
+
+        /**
+         * The Testcontainers database is reused and other tests let Hibernate create the schema,
+         * so start from an empty schema and run every migration.
+         */
+        @Bean
+        FlywayMigrationStrategy cleanMigrationStrategy() {
+            return flyway -> {
+                flyway.clean();
+                flyway.migrate();
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,113 @@
+package uit.carbon_shop.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import uit.carbon_shop.domain.FileDocument;
+import uit.carbon_shop.repos.FileDocumentRepository;
+import uit.carbon_shop.util.StaticConstants;
+
+
+class FileUrlServiceTest {
+
+    private static final String SECRET = "0123456789ABCDEF0123456789ABCDEF";
+    private static final Long FILE_ID = 7L;
+
+    private final FileDocumentRepository fileDocumentRepository = Mockito.mock(FileDocumentRepository.class);
+    private final RTopic evictionTopic = Mockito.mock(RTopic.class);
+    private final FileUrlService fileUrlService = fileUrlService(SECRET, Duration.ofHours(1));
+
+    FileUrlServiceTest() {
+        final FileDocument fileDocument = new FileDocument();
+        fileDocument.setId(FILE_ID);
+        fileDocument.setContentId("ab12");
+        fileDocument.setContentHash("ab12");
+        fileDocument.setContentType("image/png");
+        Mockito.when(fileDocumentRepository.findAllById(Mockito.any())).thenReturn(List.of(fileDocument));
+    }
+
+    @Test
+    void signedUrls_verify_roundTrip() {
+        final Map<Long, String> urls = fileUrlService.signedUrls(List.of(FILE_ID, StaticConstants.DEFAULT_AVATAR_ID));
+        Assertions.assertEquals("/api/file/" + StaticConstants.DEFAULT_AVATAR_ID,
+                urls.get(StaticConstants.DEFAULT_AVATAR_ID));
+
+        final FileUrlService.SignedFile signedFile = fileUrlService.verify(token(urls)).orElseThrow();
+        Assertions.assertEquals(FILE_ID, signedFile.fileId());
+        Assertions.assertEquals("ab12", signedFile.contentId());
+        Assertions.assertTrue(signedFile.hashed());
+        Assertions.assertEquals("image/png", signedFile.contentType());
+        Assertions.assertFalse(signedFile.expiresAt().isBefore(Instant.now().plus(Duration.ofHours(1))));
+    }
+
+    @Test
+    void signedUrls_loadsEachFileOnce() {
+        fileUrlService.prefetch(List.of(FILE_ID));
+        final String url = fileUrlService.signedUrls(List.of(FILE_ID)).get(FILE_ID);
+        Assertions.assertEquals(url, fileUrlService.signedUrls(List.of(FILE_ID)).get(FILE_ID));
+        Mockito.verify(fileDocumentRepository, Mockito.times(1)).findAllById(Mockito.any());
+
+        fileUrlService.evict(FILE_ID);
+        Mockito.verify(evictionTopic).publish(Mockito.anyString());
+        fileUrlService.signedUrls(List.of(FILE_ID));
+        Mockito.verify(fileDocumentRepository, Mockito.times(2)).findAllById(Mockito.any());
+    }
+
+    @Test
+    void verify_rejectsTamperedPayload() {
+        final String[] parts = token(fileUrlService.signedUrls(List.of(FILE_ID))).split("\\.");
+        final byte[] payload = Base64.getUrlDecoder().decode(parts[0]);
+        // the file id is the first field
+        payload[7] ^= 1;
+        final String tampered = Base64.getUrlEncoder().withoutPadding().encodeToString(payload) + "." + parts[1];
+        Assertions.assertTrue(fileUrlService.verify(tampered).isEmpty());
+    }
+
+    @Test
+    void verify_rejectsTamperedSignature() {
+        final String token = token(fileUrlService.signedUrls(List.of(FILE_ID)));
+        final String[] parts = token.split("\\.");
+        final byte[] signature = Base64.getUrlDecoder().decode(parts[1]);
+        signature[0] ^= 1;
+        Assertions.assertTrue(fileUrlService.verify(parts[0] + "."
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(signature)).isEmpty());
+        Assertions.assertTrue(fileUrlService.verify(parts[0] + ".").isEmpty());
+        Assertions.assertTrue(fileUrlService(SECRET.toLowerCase(), Duration.ofHours(1)).verify(token).isEmpty());
+    }
+
+    @Test
+    void verify_rejectsExpiredToken() {
+        final FileUrlService expiring = fileUrlService(SECRET, Duration.ofHours(-1));
+        final String token = token(expiring.signedUrls(List.of(FILE_ID)));
+        Assertions.assertTrue(expiring.verify(token).isEmpty());
+        Assertions.assertTrue(fileUrlService.verify(token).isEmpty());
+    }
+
+    @Test
+    void verify_rejectsMalformedToken() {
+        for (final String token : List.of("", ".", "abc", "abc.", "!!.??", "a.b.c", "AAAA.AAAA")) {
+            Assertions.assertTrue(fileUrlService.verify(token).isEmpty(), token);
+        }
+    }
+
+    private FileUrlService fileUrlService(final String secret, final Duration ttl) {
+        final RedissonClient redissonClient = Mockito.mock(RedissonClient.class);
+        Mockito.when(redissonClient.getTopic(Mockito.anyString(), Mockito.any())).thenReturn(evictionTopic);
+        return new FileUrlService(fileDocumentRepository, redissonClient, secret, ttl, Duration.ofMinutes(10), 100);
+    }
+
+    private static String token(final Map<Long, String> urls) {
+        final String url = urls.get(FILE_ID);
+        Assertions.assertNotNull(url);
+        Assertions.assertTrue(url.startsWith(FileUrlService.SIGNED_PATH), url);
+        return url.substring(FileUrlService.SIGNED_PATH.length());
+    }
+
+}
@@ -0,0 +1,71 @@
+package uit.carbon_shop.service;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Runs with a configured node id, which needs no Redis lease.
+ */
+class IdGeneratorServiceTest {
+
+    private static final long EPOCH_MILLIS = 1704067200000L;
+    private static final long NODE_ID = 723;
+
+    private final IdGeneratorService idGeneratorService = new IdGeneratorService(null, NODE_ID);
+
+    @Test
+    void generateId_layout() {
+        final long before = System.currentTimeMillis();
+        final long id = idGeneratorService.generateId();
+        final long after = System.currentTimeMillis();
+
+        Assertions.assertTrue(id > 0);
+        final long millis = (id >>> 22) + EPOCH_MILLIS;
+        // the sequence may borrow the next millisecond
+        Assertions.assertTrue(millis >= before && millis <= after + 1, () -> "timestamp " + millis);
+        Assertions.assertEquals(NODE_ID, (id >>> 12) & 1023);
+    }
+
+    @Test
+    void generateId_monotonicBeyondSequence() {
+        // several times the 4096 ids of one millisecond
+        final long[] ids = new long[50_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = idGeneratorService.generateId();
+        }
+        for (int i = 1; i < ids.length; i++) {
+            Assertions.assertTrue(ids[i] > ids[i - 1]);
+            Assertions.assertEquals(NODE_ID, (ids[i] >>> 12) & 1023);
+        }
+    }
+
+    @Test
+    void generateIds_consecutiveRange() {
+        final long before = idGeneratorService.generateId();
+        final long[] ids = idGeneratorService.generateIds(10_000);
+        final long after = idGeneratorService.generateId();
+
+        Assertions.assertEquals(10_000, ids.length);
+        Assertions.assertTrue(ids[0] > before);
+        Assertions.assertTrue(after > ids[ids.length - 1]);
+        for (int i = 1; i < ids.length; i++) {
+            Assertions.assertTrue(ids[i] > ids[i - 1]);
+            Assertions.assertEquals(NODE_ID, (ids[i] >>> 12) & 1023);
+        }
+        Assertions.assertEquals(ids.length, Arrays.stream(ids).distinct().count());
+    }
+
+    @Test
+    void generateIds_nonPositiveCount() {
+        Assertions.assertEquals(0, idGeneratorService.generateIds(0).length);
+        Assertions.assertEquals(0, idGeneratorService.generateIds(-1).length);
+    }
+
+    @Test
+    void constructor_rejectsNodeIdOutOfRange() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new IdGeneratorService(null, 1024));
+    }
+
+}
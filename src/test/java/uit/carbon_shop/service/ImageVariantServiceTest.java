@@ -0,0 +1,201 @@
+package uit.carbon_shop.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.DescriptiveResource;
+import org.springframework.http.MediaType;
+import uit.carbon_shop.model.ImageVariant;
+
+
+class ImageVariantServiceTest {
+
+    private static final String PNG = "image/png";
+
+    private final ContentBlobService contentBlobService = Mockito.mock(ContentBlobService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // the uploaded content and the stored variants, by hash and by hash and variant name
+    private final Map<String, byte[]> blobs = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> variants = new ConcurrentHashMap<>();
+    private ImageVariantService imageVariantService;
+
+    ImageVariantServiceTest() throws IOException {
+        Mockito.when(contentBlobService.getResource(Mockito.anyString()))
+                .thenAnswer(invocation -> new ByteArrayResource(blobs.get(invocation.<String>getArgument(0))));
+        Mockito.when(contentBlobService.getVariantResource(Mockito.anyString(), Mockito.anyString()))
+                .thenAnswer(invocation -> {
+                    final byte[] variant = variants.get(invocation.getArgument(0) + "/" + invocation.getArgument(1));
+                    return variant == null
+                            ? new DescriptiveResource("missing variant")
+                            : new ByteArrayResource(variant);
+                });
+        // content of swept blobs is still readable, but no variant can be stored for it
+        Mockito.when(contentBlobService.storeVariant(Mockito.anyString(), Mockito.anyString(), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    final String hash = invocation.getArgument(0);
+                    if (hash.startsWith("swept")) {
+                        return false;
+                    }
+                    variants.put(hash + "/" + invocation.getArgument(1), invocation.getArgument(2));
+                    return true;
+                });
+    }
+
+    @AfterEach
+    void shutdown() {
+        imageVariantService.shutdown();
+    }
+
+    @Test
+    void submit_scalesDownAndKeepsTransparencyAsPng() throws Exception {
+        imageVariantService = imageVariantService(1, 10);
+        blobs.put("opaque", image(1000, 500, false));
+        blobs.put("transparent", image(200, 400, true));
+        blobs.put("small", image(100, 50, false));
+        imageVariantService.submit("opaque", PNG);
+        imageVariantService.submit("transparent", PNG);
+        imageVariantService.submit("small", PNG);
+        awaitJobs("generated", 3);
+
+        assertVariant("opaque", MediaType.IMAGE_JPEG, 320, 160, false);
+        assertVariant("transparent", MediaType.IMAGE_PNG, 160, 320, true);
+        // never scaled up
+        assertVariant("small", MediaType.IMAGE_JPEG, 100, 50, false);
+        Assertions.assertTrue(imageVariantService.find("missing", ImageVariant.THUMB).isEmpty());
+    }
+
+    @Test
+    void submit_dropsAndCountsWorkBeyondTheQueue() throws Exception {
+        imageVariantService = imageVariantService(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        blobs.put("slow", image(10, 10, false));
+        Mockito.when(contentBlobService.getResource("slow")).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return new ByteArrayResource(blobs.get("slow"));
+        });
+        blobs.put("queued", image(10, 10, false));
+        blobs.put("dropped", image(10, 10, false));
+
+        // the single worker takes the first job and the queue holds one more
+        imageVariantService.submit("slow", PNG);
+        imageVariantService.submit("queued", PNG);
+        imageVariantService.submit("dropped", PNG);
+        Assertions.assertEquals(1.0, jobs("rejected"), 0);
+        release.countDown();
+        awaitJobs("generated", 2);
+        Assertions.assertTrue(imageVariantService.find("dropped", ImageVariant.THUMB).isEmpty());
+
+        // dropped work is not remembered and runs when submitted again
+        imageVariantService.submit("dropped", PNG);
+        awaitJobs("generated", 3);
+        Assertions.assertTrue(imageVariantService.find("dropped", ImageVariant.THUMB).isPresent());
+        Assertions.assertEquals(1.0, jobs("rejected"), 0);
+    }
+
+    @Test
+    void submit_skipsContentThatFailedBefore() throws Exception {
+        imageVariantService = imageVariantService(1, 10);
+        blobs.put("broken", "not an image".getBytes());
+        blobs.put("first", image(10, 10, false));
+        blobs.put("second", image(10, 10, false));
+        imageVariantService.submit("broken", PNG);
+        // the single worker runs jobs in order, so the failed job has ended once the next one has
+        imageVariantService.submit("first", PNG);
+        awaitJobs("generated", 1);
+        Assertions.assertEquals(1.0, jobs("failed"), 0);
+
+        imageVariantService.submit("broken", PNG);
+        imageVariantService.submit("second", PNG);
+        awaitJobs("generated", 2);
+        Assertions.assertEquals(1.0, jobs("failed"), 0);
+        Mockito.verify(contentBlobService, Mockito.times(1)).getResource("broken");
+        Assertions.assertTrue(imageVariantService.find("broken", ImageVariant.THUMB).isEmpty());
+    }
+
+    @Test
+    void submit_ignoresContentThatIsNoImage() {
+        imageVariantService = imageVariantService(1, 10);
+        imageVariantService.submit("document", "application/pdf");
+        imageVariantService.submit("unknown", null);
+        Mockito.verify(contentBlobService, Mockito.never()).getResource(Mockito.anyString());
+    }
+
+    @Test
+    void submit_storesNothingForSweptContent() throws Exception {
+        imageVariantService = imageVariantService(1, 10);
+        blobs.put("swept", image(10, 10, false));
+        blobs.put("kept", image(10, 10, false));
+        imageVariantService.submit("swept", PNG);
+        imageVariantService.submit("kept", PNG);
+        awaitJobs("generated", 1);
+
+        Assertions.assertTrue(imageVariantService.find("swept", ImageVariant.THUMB).isEmpty());
+        Assertions.assertEquals(1, variants.size());
+        // a swept blob is neither a failure nor remembered as one
+        Assertions.assertEquals(0.0, jobs("failed"), 0);
+        imageVariantService.submit("swept", PNG);
+        imageVariantService.submit("kept", PNG);
+        awaitJobs("generated", 2);
+        Mockito.verify(contentBlobService, Mockito.times(2)).getResource("swept");
+        Assertions.assertEquals(2.0, jobs("generated"), 0);
+    }
+
+    private ImageVariantService imageVariantService(final int workers, final int queue) {
+        return new ImageVariantService(contentBlobService, meterRegistry, workers, queue, 40_000_000, 100);
+    }
+
+    private void assertVariant(final String hash, final MediaType mediaType, final int width, final int height,
+            final boolean alpha) throws IOException {
+        final ImageVariantService.VariantContent variant = imageVariantService.find(hash, ImageVariant.THUMB)
+                .orElseThrow();
+        Assertions.assertEquals(mediaType, variant.mediaType(), hash);
+        final BufferedImage image = ImageIO.read(variant.resource().getInputStream());
+        Assertions.assertEquals(width, image.getWidth(), hash);
+        Assertions.assertEquals(height, image.getHeight(), hash);
+        Assertions.assertEquals(alpha, image.getColorModel().hasAlpha(), hash);
+    }
+
+    private double jobs(final String result) {
+        return meterRegistry.get("app.images.variants.jobs").tag("result", result).counter().count();
+    }
+
+    private void awaitJobs(final String result, final double count) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (jobs(result) < count) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "no " + count + " " + result + " jobs");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * A PNG of the size, opaque or with a half transparent pixel.
+     */
+    private static byte[] image(final int width, final int height, final boolean alpha) throws IOException {
+        final BufferedImage image = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, Color.GREEN.getRGB());
+            }
+        }
+        if (alpha) {
+            image.setRGB(0, 0, 0x80ff0000);
+        }
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+}
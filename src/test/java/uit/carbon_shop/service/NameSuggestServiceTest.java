@@ -0,0 +1,221 @@
+package uit.carbon_shop.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.domain.Pageable;
+import uit.carbon_shop.domain.SuggestionSourceProjection;
+import uit.carbon_shop.model.CompanyChangedEvent;
+import uit.carbon_shop.model.ProjectChangedEvent;
+import uit.carbon_shop.model.SuggestionDTO;
+import uit.carbon_shop.model.SuggestionType;
+import uit.carbon_shop.repos.CompanyRepository;
+import uit.carbon_shop.repos.ProjectRepository;
+
+
+class NameSuggestServiceTest {
+
+    private static final String[] WORDS = {"solar", "sol", "solaris", "wind", "wine", "winery", "farm", "green",
+            "điện", "mặt", "trời", "a", "z"};
+
+    private final ProjectRepository projectRepository = Mockito.mock(ProjectRepository.class);
+    private final CompanyRepository companyRepository = Mockito.mock(CompanyRepository.class);
+    // the approved projects and companies, by id
+    private final Map<Long, SuggestionSourceProjection> projects = new TreeMap<>();
+    private final Map<Long, SuggestionSourceProjection> companies = new TreeMap<>();
+    private final NameSuggestService nameSuggestService;
+
+    NameSuggestServiceTest() {
+        Mockito.when(projectRepository.scrollSuggestionSources(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> scroll(projects, invocation.getArgument(1), invocation.getArgument(2)));
+        Mockito.when(projectRepository.findSuggestionSource(Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> Optional.ofNullable(projects.get(invocation.<Long>getArgument(0))));
+        Mockito.when(companyRepository.scrollSuggestionSources(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> scroll(companies, invocation.getArgument(1), invocation.getArgument(2)));
+        Mockito.when(companyRepository.findSuggestionSource(Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> Optional.ofNullable(companies.get(invocation.<Long>getArgument(0))));
+        final RedissonClient redissonClient = Mockito.mock(RedissonClient.class);
+        Mockito.when(redissonClient.getTopic(Mockito.anyString(), Mockito.any()))
+                .thenReturn(Mockito.mock(RTopic.class));
+        // small batches and a small delta, so rebuilds read several batches and changes get merged
+        nameSuggestService = new NameSuggestService(projectRepository, companyRepository, redissonClient,
+                new SimpleMeterRegistry(), 3, 2);
+    }
+
+    @Test
+    void normalize_stripsCaseDiacriticsAndPunctuation() {
+        Assertions.assertEquals("dien mat troi ninh thuan",
+                NameSuggestService.normalize("  Điện Mặt Trời—Ninh Thuận! "));
+        Assertions.assertEquals("co2 2024 phase ii", NameSuggestService.normalize("CO2-2024 (Phase II)"));
+        Assertions.assertEquals("", NameSuggestService.normalize(" -- "));
+        Assertions.assertEquals("", NameSuggestService.normalize(null));
+    }
+
+    @Test
+    void suggest_matchesWordStartsWithinThePrefixRange() {
+        projects.put(1L, source(1, "Green Solar Farm", 5));
+        projects.put(2L, source(2, "Solarix", 4));
+        projects.put(3L, source(3, "Consolar", 9));
+        projects.put(4L, source(4, "Solar Solar", 3));
+        projects.put(5L, source(5, "Wind", 1));
+        projects.put(6L, source(6, "Wine", 2));
+        projects.put(7L, source(7, "Winery", 3));
+        projects.put(8L, source(8, "Điện Mặt Trời", 6));
+        nameSuggestService.rebuild();
+
+        Assertions.assertEquals(List.of("Green Solar Farm", "Solarix", "Solar Solar"), names("sol"));
+        Assertions.assertEquals(List.of("Winery", "Wine", "Wind"), names("WIN"));
+        Assertions.assertEquals(List.of("Winery", "Wine"), names("wine"));
+        Assertions.assertEquals(List.of("Winery"), names("winer"));
+        Assertions.assertEquals(List.of("Điện Mặt Trời"), names("mat"));
+        Assertions.assertEquals(List.of("Điện Mặt Trời"), names("Điện m"));
+        Assertions.assertEquals(List.of(), names("winez"));
+        Assertions.assertEquals(List.of(), names("aaa"));
+        Assertions.assertEquals(List.of(), names("zzz"));
+        Assertions.assertEquals(List.of(), names(" . "));
+        Assertions.assertEquals(List.of(), nameSuggestService.suggest("sol", 0));
+    }
+
+    @Test
+    void suggest_takesMostPopularFirst() {
+        for (long id = 1; id <= 30; id++) {
+            // weights 0 to 9 three times, ties ordered by name and then id
+            projects.put(id, source(id, "Solar " + (char) ('a' + id % 3), id % 10));
+        }
+        nameSuggestService.rebuild();
+
+        final List<SuggestionDTO> top = nameSuggestService.suggest("solar", 5);
+        Assertions.assertEquals(List.of(9L, 19L, 29L, 18L, 28L), top.stream().map(SuggestionDTO::getId).toList());
+        Assertions.assertEquals(30, nameSuggestService.suggest("solar", 40).size());
+        Assertions.assertEquals(List.of(19L, 28L, 7L), nameSuggestService.suggest("solar b", 3)
+                .stream()
+                .map(SuggestionDTO::getId)
+                .toList());
+    }
+
+    @Test
+    void refresh_overlaysAndRemovesNames() {
+        projects.put(1L, source(1, "Solar One", 5));
+        projects.put(2L, source(2, "Solar Two", 4));
+        companies.put(1L, source(1, "Solar Company", 3));
+        nameSuggestService.rebuild();
+        Assertions.assertEquals(List.of("Solar One", "Solar Two", "Solar Company"), names("solar"));
+
+        // a new name and a popularity change stay in the delta
+        projects.put(3L, source(3, "Solar Three", 6));
+        nameSuggestService.onProjectChanged(new ProjectChangedEvent(3L));
+        projects.put(2L, source(2, "Solar Two", 7));
+        nameSuggestService.onProjectChanged(new ProjectChangedEvent(2L));
+        Assertions.assertEquals(List.of("Solar Two", "Solar Three", "Solar One", "Solar Company"), names("solar"));
+
+        // a third change outgrows the delta and is merged into a new snapshot
+        companies.remove(1L);
+        nameSuggestService.onCompanyChanged(new CompanyChangedEvent(1L));
+        Assertions.assertEquals(List.of("Solar Two", "Solar Three", "Solar One"), names("solar"));
+
+        // renamed and removed names of the merged snapshot are hidden by the next delta
+        projects.put(3L, source(3, "Wind Three", 6));
+        nameSuggestService.onProjectChanged(new ProjectChangedEvent(3L));
+        projects.remove(1L);
+        nameSuggestService.onProjectChanged(new ProjectChangedEvent(1L));
+        Assertions.assertEquals(List.of("Solar Two"), names("solar"));
+        Assertions.assertEquals(List.of("Wind Three"), names("three"));
+
+        nameSuggestService.rebuild();
+        Assertions.assertEquals(List.of("Solar Two"), names("solar"));
+        Assertions.assertEquals(List.of("Wind Three"), names("three"));
+    }
+
+    @Test
+    void suggest_matchesScanOfAllNames() {
+        final Random random = new Random(7);
+        for (long id = 1; id <= 200; id++) {
+            projects.put(id, randomSource(random, id));
+            companies.put(1000 + id, randomSource(random, 1000 + id));
+        }
+        nameSuggestService.rebuild();
+        final List<String> prefixes = List.of("s", "sol", "sola", "solar", "solaris", "w", "win", "wine", "f", "a",
+                "z", "d", "dien", "mat troi", "green s", "x");
+        for (int change = 0; change <= 60; change++) {
+            if (change % 10 == 0) {
+                for (final String prefix : prefixes) {
+                    for (final int limit : new int[] {1, 5, 20}) {
+                        Assertions.assertEquals(scan(prefix, limit), suggestions(prefix, limit),
+                                prefix + " " + limit + " after " + change + " changes");
+                    }
+                }
+            }
+            final long id = 1 + random.nextInt(220);
+            if (random.nextInt(3) == 0) {
+                projects.remove(id);
+            } else {
+                projects.put(id, randomSource(random, id));
+            }
+            nameSuggestService.onProjectChanged(new ProjectChangedEvent(id));
+        }
+    }
+
+    private List<String> names(final String query) {
+        return nameSuggestService.suggest(query, 10).stream().map(SuggestionDTO::getName).toList();
+    }
+
+    private List<String> suggestions(final String query, final int limit) {
+        return nameSuggestService.suggest(query, limit)
+                .stream()
+                .map(suggestion -> suggestion.getType() + " " + suggestion.getId() + " " + suggestion.getName())
+                .toList();
+    }
+
+    /**
+     * What {@link NameSuggestService#suggest} answers, from a scan of every name.
+     */
+    private List<String> scan(final String query, final int limit) {
+        final String prefix = NameSuggestService.normalize(query);
+        final List<Map.Entry<SuggestionType, SuggestionSourceProjection>> matching = new ArrayList<>();
+        projects.values().forEach(source -> matching.add(Map.entry(SuggestionType.PROJECT, source)));
+        companies.values().forEach(source -> matching.add(Map.entry(SuggestionType.COMPANY, source)));
+        matching.removeIf(entry -> !(" " + NameSuggestService.normalize(entry.getValue().name())).contains(
+                " " + prefix));
+        return matching.stream()
+                .sorted(Comparator.<Map.Entry<SuggestionType, SuggestionSourceProjection>>comparingLong(
+                                entry -> entry.getValue().weight())
+                        .reversed()
+                        .thenComparing(entry -> NameSuggestService.normalize(entry.getValue().name()))
+                        .thenComparingLong(entry -> entry.getValue().id()))
+                .limit(limit)
+                .map(entry -> entry.getKey() + " " + entry.getValue().id() + " " + entry.getValue().name())
+                .toList();
+    }
+
+    private static List<SuggestionSourceProjection> scroll(final Map<Long, SuggestionSourceProjection> sources,
+            final Long lowerId, final Pageable pageable) {
+        return sources.values()
+                .stream()
+                .filter(source -> source.id() > lowerId)
+                .limit(pageable.getPageSize())
+                .toList();
+    }
+
+    private static SuggestionSourceProjection randomSource(final Random random, final long id) {
+        final StringBuilder name = new StringBuilder();
+        for (int word = random.nextInt(4); word >= 0; word--) {
+            name.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextBoolean() ? " " : "-");
+        }
+        return source(id, name.toString(), random.nextInt(8));
+    }
+
+    private static SuggestionSourceProjection source(final long id, final String name, final long weight) {
+        return new SuggestionSourceProjection(id, name, weight);
+    }
+
+}
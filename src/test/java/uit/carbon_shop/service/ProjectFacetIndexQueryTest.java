@@ -0,0 +1,124 @@
+package uit.carbon_shop.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import uit.carbon_shop.config.BaseIntegrationTestByTestContainer;
+import uit.carbon_shop.domain.ProjectListProjection;
+import uit.carbon_shop.model.ProjectFacetsDTO;
+import uit.carbon_shop.model.ProjectListFilter;
+import uit.carbon_shop.model.ProjectStatus;
+import uit.carbon_shop.repos.ProjectRepository;
+
+
+/**
+ * Lists the same projects through {@link ProjectFacetIndex} and through the SQL listing it stands
+ * in for, {@link ProjectRepository#search}, and expects the same pages and counts. Sort values are
+ * unique apart from one null each, as the SQL listing leaves the order of ties open.
+ */
+@Sql("/data/clearAll.sql")
+@Tag("TestContainer")
+public class ProjectFacetIndexQueryTest extends BaseIntegrationTestByTestContainer {
+
+    private static final List<ProjectListFilter> FILTERS = List.of(
+            new ProjectListFilter(null, null, null, null),
+            new ProjectListFilter(new BigDecimal("20"), new BigDecimal("80.5"), null, null),
+            new ProjectListFilter(null, null, 30L, "USD"));
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ProjectRepository projectRepository;
+
+    @Autowired
+    ProjectFacetIndex projectFacetIndex;
+
+    @Test
+    void findAndFacets_matchSqlListing() {
+        jdbcTemplate.update("""
+                insert into companies (id, name, status, rating_count, rating_sum, rating_star1, rating_star2,
+                        rating_star3, rating_star4, rating_star5, created_at, updated_at)
+                select g, 'Company ' || g, 'APPROVED', 0, 0, 0, 0, 0, 0, 0, now(), now()
+                from generate_series(1, 3) g
+                """);
+        // every tenth project has no owner, project 7 no unit price and project 11 no credit amount
+        jdbcTemplate.update("""
+                insert into projects (id, name, price, unit_price, currency, credit_amount, status,
+                        owner_company_id, rating_count, rating_sum, rating_star1, rating_star2, rating_star3,
+                        rating_star4, rating_star5, created_at, updated_at)
+                select g, 'Project ' || g, null, case when g <> 7 then g * 37 % 101 + 0.5 end,
+                       case when g % 4 = 0 then 'USD' else 'VND' end, case when g <> 11 then g * 53 % 97 end,
+                       (array ['INIT', 'APPROVED', 'REJECTED'])[1 + g % 3],
+                       case when g % 10 <> 0 then 1 + g % 3 end, 0, 0, 0, 0, 0, 0, 0, now(), now()
+                from generate_series(1, 60) g
+                """);
+        projectFacetIndex.rebuild();
+
+        for (final ProjectStatus status : new ProjectStatus[] {null, ProjectStatus.APPROVED}) {
+            for (final Long excludedCompany : new Long[] {null, 1L}) {
+                for (final ProjectListFilter listFilter : FILTERS) {
+                    assertSameListings(status, excludedCompany, listFilter);
+                    assertSameFacets(status, excludedCompany, listFilter);
+                }
+            }
+        }
+    }
+
+    private void assertSameListings(final ProjectStatus status, final Long excludedCompany,
+            final ProjectListFilter listFilter) {
+        for (final String property : List.of("id", "unitPrice", "creditAmount")) {
+            for (final Sort sort : List.of(Sort.by(property).ascending(), Sort.by(property).descending())) {
+                for (final Pageable pageable : List.of(PageRequest.of(0, 100, sort), PageRequest.of(1, 7, sort))) {
+                    final String listing = status + " " + excludedCompany + " " + listFilter + " " + pageable;
+                    final Page<ProjectListProjection> indexed = projectFacetIndex.find(status, excludedCompany,
+                            listFilter, pageable).orElseThrow();
+                    final Page<ProjectListProjection> queried = projectRepository.search(status, null,
+                            excludedCompany, listFilter, pageable);
+                    Assertions.assertEquals(ids(queried), ids(indexed), listing);
+                    Assertions.assertEquals(queried.getTotalElements(), indexed.getTotalElements(), listing);
+                }
+            }
+        }
+    }
+
+    private void assertSameFacets(final ProjectStatus status, final Long excludedCompany,
+            final ProjectListFilter listFilter) {
+        final String listing = status + " " + excludedCompany + " " + listFilter;
+        final ProjectFacetsDTO facets = projectFacetIndex.facets(status, excludedCompany, listFilter);
+        final List<ProjectListProjection> queried = projectRepository.search(status, null, excludedCompany,
+                listFilter, Pageable.unpaged()).getContent();
+        Assertions.assertEquals(queried.size(), facets.getTotal(), listing);
+        Assertions.assertEquals(queried.stream()
+                .map(ProjectListProjection::ownerCompanyId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting())),
+                facets.getOwnerCompany(), listing);
+        // the status counts ignore the status filter
+        Assertions.assertEquals(projectRepository.search(null, null, excludedCompany, listFilter, Pageable.unpaged())
+                .getContent()
+                .stream()
+                .collect(Collectors.groupingBy(ProjectListProjection::status, Collectors.counting())),
+                facets.getStatus(), listing);
+        Assertions.assertEquals(queried.size(), facets.getPriceBand().values().stream()
+                .mapToLong(Long::longValue)
+                .sum(), listing);
+    }
+
+    private static List<Long> ids(final Page<ProjectListProjection> page) {
+        return page.getContent().stream().map(ProjectListProjection::id).toList();
+    }
+
+}
@@ -0,0 +1,278 @@
+package uit.carbon_shop.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import uit.carbon_shop.domain.ProjectListProjection;
+import uit.carbon_shop.domain.RatingAggregate;
+import uit.carbon_shop.model.ProjectFacetsDTO;
+import uit.carbon_shop.model.ProjectListFilter;
+import uit.carbon_shop.model.ProjectStatus;
+import uit.carbon_shop.repos.ProjectRepository;
+import uit.carbon_shop.util.StaticConstants;
+
+
+class ProjectFacetIndexTest {
+
+    private static final ProjectListFilter NO_FILTER = new ProjectListFilter(null, null, null, null);
+    private static final ProjectListFilter FILTER = new ProjectListFilter(null, new BigDecimal("1000"), 20L, null);
+    private static final List<String> SORT_PROPERTIES = List.of("id", "unitPrice", "creditAmount");
+    // unit prices with ties and nulls, so orders fall back to the id
+    private static final String[] PRICES = {null, "50", "150", "150", "999.5", "2000"};
+
+    private final ProjectRepository projectRepository = Mockito.mock(ProjectRepository.class);
+    // the projects table, by id
+    private final Map<Long, ProjectListProjection> table = new TreeMap<>();
+    private final ProjectFacetIndex projectFacetIndex;
+
+    ProjectFacetIndexTest() {
+        Mockito.when(projectRepository.listByIds(Mockito.any())).thenAnswer(invocation -> {
+            final Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(table::get).filter(Objects::nonNull).toList();
+        });
+        Mockito.when(projectRepository.scroll(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+            final Long lowerId = invocation.getArgument(6);
+            final Pageable pageable = invocation.getArgument(8);
+            return table.values()
+                    .stream()
+                    .filter(row -> row.id() > lowerId)
+                    .limit(pageable.getPageSize())
+                    .toList();
+        });
+        final RedissonClient redissonClient = Mockito.mock(RedissonClient.class);
+        Mockito.when(redissonClient.getTopic(Mockito.anyString(), Mockito.any()))
+                .thenReturn(Mockito.mock(RTopic.class));
+        // small batches, so a rebuild reads several
+        projectFacetIndex = new ProjectFacetIndex(projectRepository, redissonClient,
+                List.of(new BigDecimal("100"), new BigDecimal("1000")), 7);
+    }
+
+    @Test
+    void find_isEmptyUntilBuiltAndForUnsupportedSorts() {
+        save(row(1, ProjectStatus.APPROVED, 1L, "50", 10L));
+        Assertions.assertTrue(projectFacetIndex.find(null, null, NO_FILTER, PageRequest.of(0, 10)).isEmpty());
+
+        projectFacetIndex.rebuild();
+        Assertions.assertTrue(projectFacetIndex.find(null, null, NO_FILTER, PageRequest.of(0, 10)).isPresent());
+        Assertions.assertTrue(projectFacetIndex.find(null, null, NO_FILTER,
+                PageRequest.of(0, 10, Sort.by("name"))).isEmpty());
+        Assertions.assertTrue(projectFacetIndex.find(null, null, NO_FILTER,
+                PageRequest.of(0, 10, Sort.by("unitPrice", "id"))).isEmpty());
+        Assertions.assertTrue(projectFacetIndex.find(null, null, NO_FILTER, Pageable.unpaged()).isEmpty());
+    }
+
+    @Test
+    void refresh_keepsOrdersAcrossInsertUpdateAndRemove() {
+        final Random random = new Random(42);
+        for (long id = 1; id <= 40; id++) {
+            table.put(id, randomRow(random, id));
+        }
+        projectFacetIndex.rebuild();
+        assertListings();
+
+        for (int change = 1; change <= 600; change++) {
+            final long id = 1 + random.nextInt(80);
+            if (random.nextInt(4) == 0) {
+                delete(id);
+            } else {
+                save(randomRow(random, id));
+            }
+            if (change % 50 == 0) {
+                assertListings();
+            }
+        }
+        projectFacetIndex.rebuild();
+        assertListings();
+    }
+
+    @Test
+    void refresh_followsSlotIndexRemovalChains() {
+        // three ids share the last bucket and wrap around to the first ones, where the ids at home
+        // in buckets 0 and 1 land behind them; the id at home in bucket 4 sits in its own bucket and
+        // must stay there when the chain in front of it shrinks, the one at home in 2 must move
+        final long[] ids = {idInBucket(1023, 0), idInBucket(1023, 1), idInBucket(1023, 2), idInBucket(0, 0),
+                idInBucket(1, 0), idInBucket(4, 0), idInBucket(2, 0)};
+        projectFacetIndex.rebuild();
+        for (final long id : ids) {
+            save(row(id, ProjectStatus.APPROVED, 1L, "50", 10L));
+        }
+        for (int deleted = 0; deleted < ids.length; deleted++) {
+            delete(ids[deleted]);
+            // an id the index lost track of would get a second slot here
+            for (int n = deleted + 1; n < ids.length; n++) {
+                save(row(ids[n], ProjectStatus.APPROVED, 2L, String.valueOf(100 + deleted), 10L));
+            }
+            final Page<ProjectListProjection> page = projectFacetIndex.find(null, null, NO_FILTER,
+                    PageRequest.of(0, 20)).orElseThrow();
+            Assertions.assertEquals(ids.length - deleted - 1, page.getTotalElements());
+            Assertions.assertEquals(table.keySet().stream().toList(), ids(page));
+        }
+    }
+
+    @Test
+    void find_excludedCompanyDropsProjectsWithoutOwner() {
+        save(row(1, ProjectStatus.APPROVED, 1L, "50", 10L));
+        save(row(2, ProjectStatus.APPROVED, 2L, "50", 10L));
+        save(row(3, ProjectStatus.APPROVED, null, "50", 10L));
+        projectFacetIndex.rebuild();
+
+        Assertions.assertEquals(List.of(1L, 2L, 3L), find(null, null, NO_FILTER));
+        Assertions.assertEquals(List.of(2L), find(null, 1L, NO_FILTER));
+        Assertions.assertEquals(List.of(1L, 2L), find(ProjectStatus.APPROVED, 9L, NO_FILTER));
+        Assertions.assertEquals(1, projectFacetIndex.facets(null, 1L, NO_FILTER).getTotal());
+
+        // losing the owner drops the project from the exclusions as well
+        save(row(2, ProjectStatus.APPROVED, null, "50", 10L));
+        Assertions.assertEquals(List.of(), find(null, 1L, NO_FILTER));
+    }
+
+    @Test
+    void facets_countMatchingProjects() {
+        save(row(1, ProjectStatus.APPROVED, 1L, "50", 10L));
+        save(row(2, ProjectStatus.APPROVED, 2L, "100", 30L));
+        save(row(3, ProjectStatus.INIT, 2L, "999.5", 40L));
+        save(row(4, ProjectStatus.APPROVED, 3L, "1000", 50L));
+        save(row(5, ProjectStatus.APPROVED, 2L, null, 60L));
+        save(row(6, ProjectStatus.REJECTED, 1L, "5000", 70L));
+        projectFacetIndex.rebuild();
+
+        final ProjectFacetsDTO facets = projectFacetIndex.facets(ProjectStatus.APPROVED, 1L, NO_FILTER);
+        Assertions.assertEquals(3, facets.getTotal());
+        // the status counts ignore the status filter
+        Assertions.assertEquals(Map.of(ProjectStatus.APPROVED, 3L, ProjectStatus.INIT, 1L), facets.getStatus());
+        Assertions.assertEquals(Map.of(2L, 2L, 3L, 1L), facets.getOwnerCompany());
+        Assertions.assertEquals(List.of("<100", "100-1000", "1000+", "unpriced"),
+                new ArrayList<>(facets.getPriceBand().keySet()));
+        Assertions.assertEquals(List.of(0L, 1L, 1L, 1L), new ArrayList<>(facets.getPriceBand().values()));
+        Assertions.assertEquals(3L, facets.getCert().values().stream().mapToLong(Long::longValue).sum());
+
+        final ProjectFacetsDTO filtered = projectFacetIndex.facets(null, null, FILTER);
+        Assertions.assertEquals(expected(null, null, FILTER, Sort.Order.asc("id")).size(), filtered.getTotal());
+        Assertions.assertEquals(Map.of(ProjectStatus.APPROVED, 2L, ProjectStatus.INIT, 1L), filtered.getStatus());
+    }
+
+    /**
+     * Every order and direction of a few listings, as a whole and as a middle page, against the
+     * same listing computed from the table.
+     */
+    private void assertListings() {
+        for (final String property : SORT_PROPERTIES) {
+            for (final Sort.Order order : List.of(Sort.Order.asc(property), Sort.Order.desc(property))) {
+                assertListing(null, null, NO_FILTER, order);
+                assertListing(ProjectStatus.APPROVED, null, NO_FILTER, order);
+                assertListing(null, 1L, NO_FILTER, order);
+                assertListing(ProjectStatus.APPROVED, 2L, FILTER, order);
+            }
+        }
+    }
+
+    private void assertListing(final ProjectStatus status, final Long excludedCompany,
+            final ProjectListFilter listFilter, final Sort.Order order) {
+        final List<Long> expected = expected(status, excludedCompany, listFilter, order);
+        final String listing = status + " " + excludedCompany + " " + listFilter + " " + order;
+        final Page<ProjectListProjection> all = projectFacetIndex.find(status, excludedCompany, listFilter,
+                PageRequest.of(0, 1000, Sort.by(order))).orElseThrow();
+        Assertions.assertEquals(expected, ids(all), listing);
+        Assertions.assertEquals(expected.size(), all.getTotalElements(), listing);
+        final Page<ProjectListProjection> page = projectFacetIndex.find(status, excludedCompany, listFilter,
+                PageRequest.of(1, 5, Sort.by(order))).orElseThrow();
+        Assertions.assertEquals(expected.subList(Math.min(5, expected.size()), Math.min(10, expected.size())),
+                ids(page), listing);
+        Assertions.assertEquals(expected.size(), page.getTotalElements(), listing);
+    }
+
+    /**
+     * The listing as the SQL path selects it: nulls last ascending and first descending, ties by id.
+     */
+    private List<Long> expected(final ProjectStatus status, final Long excludedCompany,
+            final ProjectListFilter listFilter, final Sort.Order order) {
+        Comparator<ProjectListProjection> comparator = switch (order.getProperty()) {
+            case "unitPrice" -> Comparator.comparing(ProjectListProjection::unitPrice,
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            case "creditAmount" -> Comparator.comparing(ProjectListProjection::creditAmount,
+                    Comparator.nullsLast(Comparator.naturalOrder()));
+            default -> (left, right) -> 0;
+        };
+        comparator = comparator.thenComparing(ProjectListProjection::id);
+        return table.values()
+                .stream()
+                .filter(row -> status == null || row.status() == status)
+                .filter(row -> excludedCompany == null
+                        || row.ownerCompanyId() != null && !row.ownerCompanyId().equals(excludedCompany))
+                .filter(row -> listFilter.currency() == null || listFilter.currency().equals(row.currency()))
+                .filter(row -> listFilter.maxPrice() == null
+                        || row.unitPrice() != null && row.unitPrice().compareTo(listFilter.maxPrice()) <= 0)
+                .filter(row -> listFilter.minCredits() == null
+                        || row.creditAmount() != null && row.creditAmount() >= listFilter.minCredits())
+                .sorted(order.isAscending() ? comparator : comparator.reversed())
+                .map(ProjectListProjection::id)
+                .toList();
+    }
+
+    private List<Long> find(final ProjectStatus status, final Long excludedCompany,
+            final ProjectListFilter listFilter) {
+        return ids(projectFacetIndex.find(status, excludedCompany, listFilter, PageRequest.of(0, 100))
+                .orElseThrow());
+    }
+
+    private void save(final ProjectListProjection row) {
+        table.put(row.id(), row);
+        projectFacetIndex.refresh(row.id());
+    }
+
+    private void delete(final long id) {
+        table.remove(id);
+        projectFacetIndex.refresh(id);
+    }
+
+    private static List<Long> ids(final Page<ProjectListProjection> page) {
+        return page.getContent().stream().map(ProjectListProjection::id).toList();
+    }
+
+    private static ProjectListProjection randomRow(final Random random, final long id) {
+        final ProjectStatus[] statuses = ProjectStatus.values();
+        return row(id, statuses[random.nextInt(statuses.length)],
+                random.nextInt(5) == 0 ? null : (long) (1 + random.nextInt(3)),
+                PRICES[random.nextInt(PRICES.length)],
+                random.nextInt(6) == 0 ? null : (long) (10 * random.nextInt(5)));
+    }
+
+    private static ProjectListProjection row(final long id, final ProjectStatus status, final Long ownerCompanyId,
+            final String unitPrice, final Long creditAmount) {
+        return new ProjectListProjection(id, "project " + id, null, null, null, null, null, null, "org " + id % 3,
+                creditAmount, "cert " + id % 2, null, unitPrice == null ? null : new BigDecimal(unitPrice),
+                StaticConstants.DEFAULT_CURRENCY, null, List.of(), status, ownerCompanyId, null,
+                new RatingAggregate());
+    }
+
+    /**
+     * The n-th positive id whose home is the given bucket of the initial 1024 bucket slot table,
+     * hashed the way the index does.
+     */
+    private static long idInBucket(final int bucket, final int n) {
+        int found = 0;
+        for (long id = 1; ; id++) {
+            final long hash = id * 0x9e3779b97f4a7c15L;
+            if (((int) (hash ^ hash >>> 32) & 1023) == bucket && found++ == n) {
+                return id;
+            }
+        }
+    }
+
+}
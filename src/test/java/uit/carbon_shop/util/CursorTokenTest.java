@@ -0,0 +1,62 @@
+package uit.carbon_shop.util;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class CursorTokenTest {
+
+    @Test
+    void encode_decode_roundTrip() {
+        final long[] keys = {Long.MIN_VALUE, -1, 0, 42, Long.MAX_VALUE};
+        Assertions.assertArrayEquals(keys, CursorToken.decode(CursorToken.encode(keys), keys.length));
+        Assertions.assertArrayEquals(new long[] {7}, CursorToken.decode(CursorToken.encode(7), 1));
+    }
+
+    @Test
+    void encode_isUrlSafe() {
+        final String token = CursorToken.encode(-1, Long.MAX_VALUE);
+        Assertions.assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void epochMicros_roundTrip() {
+        final OffsetDateTime dateTime = OffsetDateTime.of(2025, 3, 4, 5, 6, 7, 123_456_000, ZoneOffset.UTC);
+        Assertions.assertEquals(dateTime, CursorToken.fromEpochMicros(CursorToken.toEpochMicros(dateTime)));
+    }
+
+    @Test
+    void decode_rejectsEveryFlippedBit() {
+        final byte[] bytes = Base64.getUrlDecoder().decode(CursorToken.encode(1234567, 89));
+        for (int bit = 0; bit < bytes.length * 8; bit++) {
+            final byte[] tampered = bytes.clone();
+            tampered[bit / 8] ^= (byte) (1 << (bit % 8));
+            final String token = Base64.getUrlEncoder().withoutPadding().encodeToString(tampered);
+            Assertions.assertThrows(InvalidCursorException.class, () -> CursorToken.decode(token, 2));
+        }
+    }
+
+    @Test
+    void decode_rejectsMalformed() {
+        final String token = CursorToken.encode(1, 2);
+        Assertions.assertThrows(InvalidCursorException.class, () -> CursorToken.decode("not base64!", 2));
+        Assertions.assertThrows(InvalidCursorException.class, () -> CursorToken.decode("", 2));
+        Assertions.assertThrows(InvalidCursorException.class,
+                () -> CursorToken.decode(token.substring(0, token.length() - 2), 2));
+        Assertions.assertThrows(InvalidCursorException.class, () -> CursorToken.decode(token + "AA", 2));
+        // a valid token of another key count
+        Assertions.assertThrows(InvalidCursorException.class, () -> CursorToken.decode(token, 1));
+    }
+
+    @Test
+    void decode_rejectsOtherVersion() {
+        final byte[] bytes = Base64.getUrlDecoder().decode(CursorToken.encode(5));
+        bytes[0] = 1;
+        final String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        Assertions.assertThrows(InvalidCursorException.class, () -> CursorToken.decode(token, 1));
+    }
+
+}
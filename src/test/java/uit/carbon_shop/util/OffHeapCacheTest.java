@@ -0,0 +1,109 @@
+package uit.carbon_shop.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class OffHeapCacheTest {
+
+    private final OffHeapCache<String, String> cache = new OffHeapCache<>("test", new SimpleMeterRegistry(), 1000,
+            400);
+
+    @Test
+    void put_get_invalidate() {
+        cache.put("a", "metadata", content(1, 100));
+        final OffHeapCache.Hit<String> hit = cache.get("a").orElseThrow();
+        Assertions.assertEquals("metadata", hit.metadata());
+        Assertions.assertArrayEquals(content(1, 100), hit.content());
+
+        cache.invalidate("a");
+        Assertions.assertTrue(cache.get("a").isEmpty());
+        Assertions.assertFalse(cache.admits("b", 401));
+        cache.put("b", "metadata", content(2, 401));
+        Assertions.assertTrue(cache.get("b").isEmpty());
+    }
+
+    @Test
+    void put_skipsTailInsteadOfWrapping() {
+        cache.put("a", "a", content(1, 300));
+        cache.put("b", "b", content(2, 300));
+        cache.put("c", "c", content(3, 300));
+        request("d", 1);
+
+        // 100 bytes are left at the end of the arena, so d starts over at the beginning on top of a
+        cache.put("d", "d", content(4, 300));
+        Assertions.assertTrue(cache.get("a").isEmpty());
+        Assertions.assertArrayEquals(content(2, 300), cache.get("b").orElseThrow().content());
+        Assertions.assertArrayEquals(content(3, 300), cache.get("c").orElseThrow().content());
+        Assertions.assertArrayEquals(content(4, 300), cache.get("d").orElseThrow().content());
+    }
+
+    @Test
+    void put_evictsEveryOverwrittenEntry() {
+        fill();
+        request("x", 1);
+
+        cache.put("x", "x", content(10, 250));
+        Assertions.assertArrayEquals(content(10, 250), cache.get("x").orElseThrow().content());
+        for (int n = 0; n < 10; n++) {
+            Assertions.assertEquals(n >= 3, cache.get(String.valueOf(n)).isPresent(), "entry " + n);
+        }
+    }
+
+    @Test
+    void put_rejectsKeyLessPopularThanAnyEvictedEntry() {
+        fill();
+        // only the second oldest entry is popular
+        request("1", 3);
+        request("x", 2);
+
+        Assertions.assertFalse(cache.admits("x", 250));
+        cache.put("x", "x", content(10, 250));
+        Assertions.assertTrue(cache.get("x").isEmpty());
+        Assertions.assertTrue(cache.get("0").isPresent());
+
+        // a key fitting before the popular entry is admitted
+        request("y", 2);
+        Assertions.assertTrue(cache.admits("y", 100));
+        cache.put("y", "y", content(11, 100));
+        Assertions.assertTrue(cache.get("y").isPresent());
+        Assertions.assertTrue(cache.get("0").isEmpty());
+        Assertions.assertTrue(cache.get("1").isPresent());
+    }
+
+    @Test
+    void put_ignoresInvalidatedEntries() {
+        fill();
+        request("0", 5);
+        request("1", 5);
+        request("x", 1);
+        Assertions.assertFalse(cache.admits("x", 150));
+
+        cache.invalidate("0");
+        cache.invalidate("1");
+        cache.put("x", "x", content(10, 150));
+        Assertions.assertTrue(cache.get("x").isPresent());
+        Assertions.assertTrue(cache.get("2").isPresent());
+    }
+
+    private void fill() {
+        for (int n = 0; n < 10; n++) {
+            cache.put(String.valueOf(n), "metadata", content(n, 100));
+        }
+    }
+
+    private void request(final String key, final int times) {
+        for (int n = 0; n < times; n++) {
+            cache.get(key);
+        }
+    }
+
+    private static byte[] content(final int n, final int length) {
+        final byte[] content = new byte[length];
+        Arrays.fill(content, (byte) n);
+        return content;
+    }
+
+}
@@ -0,0 +1,54 @@
+package uit.carbon_shop.util;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+
+class PriceParserTest {
+
+    @ParameterizedTest
+    @CsvSource(nullValues = "null", value = {
+            "'150.000 VND', 150000",
+            "'150,000 VND', 150000",
+            "$12.5, 12.5",
+            "'12,5 EUR', 12.5",
+            "'1,250.75', 1250.75",
+            "'1.250,75', 1250.75",
+            "'1.000.000', 1000000",
+            "'1,000,000', 1000000",
+            "12.500, 12500",
+            "0.5, 0.5",
+            "100, 100",
+            "'  42 credits ', 42",
+            "null, null",
+            "'', null",
+            "'price on request', null",
+            "'.,', null"
+    })
+    void parseAmount(final String price, final String expected) {
+        final BigDecimal amount = PriceParser.parseAmount(price);
+        if (expected == null) {
+            Assertions.assertNull(amount);
+        } else {
+            Assertions.assertNotNull(amount, price);
+            Assertions.assertEquals(0, new BigDecimal(expected).compareTo(amount), () -> price + " -> " + amount);
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource(nullValues = "null", value = {
+            "$12.5, USD",
+            "'12 usd', USD",
+            "€5, EUR",
+            "'5 EUR', EUR",
+            "'150.000 VND', VND",
+            "100, VND",
+            "null, VND"
+    })
+    void parseCurrency(final String price, final String expected) {
+        Assertions.assertEquals(expected, PriceParser.parseCurrency(price));
+    }
+
+}
@@ -0,0 +1,166 @@
+package uit.carbon_shop.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+class SegmentStoreTest {
+
+    private static final int HEADER_LENGTH = 41;
+    private static final int CONTENT_LENGTH = 100;
+    private static final int RECORD_LENGTH = HEADER_LENGTH + CONTENT_LENGTH;
+    // holds seven records
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void put_get_delete() throws IOException {
+        try (SegmentStore store = new SegmentStore(directory, SEGMENT_SIZE)) {
+            store.put(key(1, 0), content(1));
+            store.put(key(1, 0), content(2));
+            Assertions.assertTrue(store.contains(key(1, 0)));
+            Assertions.assertFalse(store.contains(key(2, 0)));
+            assertContent(1, store, key(1, 0));
+            Assertions.assertEquals(SEGMENT_SIZE - HEADER_LENGTH, store.maxLength());
+
+            Assertions.assertTrue(store.delete(key(1, 0)));
+            Assertions.assertFalse(store.delete(key(1, 0)));
+            Assertions.assertTrue(store.get(key(1, 0)).isEmpty());
+            Assertions.assertEquals(RECORD_LENGTH, store.deadBytes());
+        }
+        try (SegmentStore store = new SegmentStore(directory, SEGMENT_SIZE)) {
+            Assertions.assertFalse(store.contains(key(1, 0)));
+        }
+    }
+
+    @Test
+    void put_rejectsOversizedContent() throws IOException {
+        try (SegmentStore store = new SegmentStore(directory, SEGMENT_SIZE)) {
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> store.put(key(1, 0), ByteBuffer.allocate(store.maxLength() + 1)));
+            Assertions.assertThrows(IllegalArgumentException.class,
+                    () -> store.put(new byte[8], ByteBuffer.allocate(1)));
+        }
+    }
+
+    @Test
+    void compact_keepsLiveRecordsAcrossReopen() throws IOException {
+        try (SegmentStore store = new SegmentStore(directory, SEGMENT_SIZE)) {
+            for (int n = 0; n < 20; n++) {
+                store.put(key(n, 0), content(n));
+            }
+            Assertions.assertEquals(3, store.segmentCount());
+            for (int n = 0; n < 6; n++) {
+                store.delete(key(n, 0));
+            }
+            final ByteBuffer view = store.get(key(6, 0)).orElseThrow();
+
+            Assertions.assertEquals(1, store.compact(0.5));
+            Assertions.assertEquals(0, store.deadBytes());
+            Assertions.assertEquals(CONTENT_LENGTH, view.remaining());
+            Assertions.assertEquals(6, view.get(0));
+            for (int n = 6; n < 20; n++) {
+                assertContent(n, store, key(n, 0));
+            }
+        }
+        try (SegmentStore store = new SegmentStore(directory, SEGMENT_SIZE)) {
+            Assertions.assertEquals(0, store.deadBytes());
+            for (int n = 0; n < 6; n++) {
+                Assertions.assertFalse(store.contains(key(n, 0)));
+            }
+            for (int n = 6; n < 20; n++) {
+                assertContent(n, store, key(n, 0));
+            }
+        }
+    }
+
+    @Test
+    void open_keepsNewestOfTwoLiveCopies() throws IOException {
+        try (SegmentStore store = new SegmentStore(directory, SEGMENT_SIZE)) {
+            store.put(key(1, 0), content(1));
+            store.put(key(2, 0), content(2));
+        }
+        // what a compaction leaves when it stops between copying a record and flagging the original
+        Files.copy(directory.resolve("segment-00000.dat"), directory.resolve("segment-00001.dat"),
+                StandardCopyOption.REPLACE_EXISTING);
+        try (SegmentStore store = new SegmentStore(directory, SEGMENT_SIZE)) {
+            Assertions.assertEquals(2 * RECORD_LENGTH, store.deadBytes());
+            assertContent(1, store, key(1, 0));
+            Assertions.assertTrue(store.delete(key(1, 0)));
+        }
+        try (SegmentStore store = new SegmentStore(directory, SEGMENT_SIZE)) {
+            Assertions.assertFalse(store.contains(key(1, 0)));
+            assertContent(2, store, key(2, 0));
+            Assertions.assertEquals(1, store.compact(0.5));
+        }
+    }
+
+    @Test
+    void open_dropsTornRecord() throws IOException {
+        try (SegmentStore store = new SegmentStore(directory, SEGMENT_SIZE)) {
+            store.put(key(1, 0), content(1));
+            store.put(key(2, 0), content(2));
+        }
+        // the magic is written last, so a record torn by a crash lacks it
+        try (FileChannel channel = FileChannel.open(directory.resolve("segment-00000.dat"),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), RECORD_LENGTH);
+        }
+        try (SegmentStore store = new SegmentStore(directory, SEGMENT_SIZE)) {
+            assertContent(1, store, key(1, 0));
+            Assertions.assertFalse(store.contains(key(2, 0)));
+            Assertions.assertEquals(RECORD_LENGTH, store.usedBytes());
+
+            store.put(key(3, 0), content(3));
+            Assertions.assertEquals(2 * RECORD_LENGTH, store.usedBytes());
+            assertContent(3, store, key(3, 0));
+        }
+    }
+
+    @Test
+    void delete_shiftsCollidingEntriesBack() throws IOException {
+        // prefixes 1023, 2047 and 3071 share the last slot of the 1024 slot table and wrap around to
+        // the first slots, where the entry at home in slot 1 lands behind them
+        final byte[][] keys = {key(1023, 0), key(2047, 0), key(3071, 0), key(1, 0), key(1023, 1)};
+        try (SegmentStore store = new SegmentStore(directory, 4 * SEGMENT_SIZE)) {
+            for (int n = 0; n < keys.length; n++) {
+                store.put(keys[n], content(n));
+            }
+            for (int deleted = 0; deleted < keys.length; deleted++) {
+                Assertions.assertTrue(store.delete(keys[deleted]));
+                for (int n = 0; n < keys.length; n++) {
+                    Assertions.assertEquals(n > deleted, store.contains(keys[n]), "key " + n);
+                }
+                for (int n = deleted + 1; n < keys.length; n++) {
+                    assertContent(n, store, keys[n]);
+                }
+            }
+        }
+    }
+
+    private static byte[] key(final long prefix, final int tail) {
+        return ByteBuffer.allocate(SegmentStore.KEY_LENGTH).putLong(prefix).putInt(tail).array();
+    }
+
+    private static ByteBuffer content(final int n) {
+        final byte[] content = new byte[CONTENT_LENGTH];
+        Arrays.fill(content, (byte) n);
+        return ByteBuffer.wrap(content);
+    }
+
+    private static void assertContent(final int n, final SegmentStore store, final byte[] key) {
+        Assertions.assertEquals(content(n), store.get(key).orElseThrow(), "content " + n);
+    }
+
+}
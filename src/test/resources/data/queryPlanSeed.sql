@@ -0,0 +1,59 @@
+INSERT INTO companies (id, name, status, created_at, updated_at)
+SELECT g, 'Company ' || g, 'APPROVED', now(), now()
+FROM generate_series(1, 500) g;
+
+INSERT INTO app_users (id, password, email, name, role, status, company_id, created_at, updated_at)
+SELECT g, 'x', 'user' || g || '@test.com', 'User ' || g, 'SELLER_OR_BUYER',
+       (ARRAY ['INIT', 'APPROVED', 'REJECTED'])[1 + g % 3], CASE WHEN g <= 500 THEN g END, now(), now()
+FROM generate_series(1, 5000) g;
+
+INSERT INTO projects (id, name, price, unit_price, currency, credit_amount, status, owner_company_id, audit_by_id,
+                      created_at, updated_at)
+SELECT g, 'Project ' || g, (g % 90 + 10) || ' USD', g % 90 + 10, 'USD', g % 1000,
+       (ARRAY ['INIT', 'APPROVED', 'REJECTED'])[1 + g % 3], 1 + g % 500, 1 + g % 5000, now(), now()
+FROM generate_series(1, 20000) g;
+
+INSERT INTO orders (id, credit_amount, price, unit_price, currency, total_amount, status, project_id,
+                    seller_company_id, process_by_id, created_by_id, created_at, updated_at)
+SELECT g, 10, '10 USD', 10, 'USD', 100, (ARRAY ['INIT', 'PROCESSING', 'CANCELLED', 'DONE'])[1 + g % 4],
+       1 + g % 20000, 1 + (1 + g % 20000) % 500, 1 + g % 5000, 1 + (g * 7) % 5000, now(), now()
+FROM generate_series(1, 50000) g;
+
+INSERT INTO favorite_projectses (user_id, project_id)
+SELECT 1 + g % 5000, 1 + (g * 13) % 20000
+FROM generate_series(1, 20000) g
+ON CONFLICT DO NOTHING;
+
+INSERT INTO company_reviews (id, message, rate, company_id, review_by_id, like_count, created_at, updated_at)
+SELECT g, 'Review ' || g, 1 + g % 5, 1 + g % 500, 1 + g % 5000, 0, now(), now()
+FROM generate_series(1, 20000) g;
+
+INSERT INTO project_reviews (id, message, rate, project_id, review_by_id, like_count, created_at, updated_at)
+SELECT g, 'Review ' || g, 1 + g % 5, 1 + g % 20000, 1 + g % 5000, 0, now(), now()
+FROM generate_series(1, 20000) g;
+
+INSERT INTO like_company_reviews (app_user_id, company_review_id)
+SELECT 1 + g % 5000, 1 + (g * 11) % 20000
+FROM generate_series(1, 40000) g
+ON CONFLICT DO NOTHING;
+
+INSERT INTO like_project_reviews (app_user_id, project_review_id)
+SELECT 1 + g % 5000, 1 + (g * 11) % 20000
+FROM generate_series(1, 40000) g
+ON CONFLICT DO NOTHING;
+
+INSERT INTO questions (id, question, answer, asked_by_id, created_at, updated_at)
+SELECT g, 'Question ' || g, CASE WHEN g % 2 = 0 THEN 'Answer ' || g END, 1 + g % 5000, now(), now()
+FROM generate_series(1, 20000) g;
+
+INSERT INTO chat_messages (id, content, conversation_id, sender_id, receiver_id, created_at, updated_at)
+SELECT g, 'Message ' || g, md5((g % 5000)::text)::uuid, 1 + g % 5000, 1 + (g + 1) % 5000,
+       now() - g * interval '1 second', now()
+FROM generate_series(1, 100000) g;
+
+INSERT INTO conversations (id, conversation_id, owner_id, peer_id, last_message_id, last_activity_at, unread_count,
+                           created_at, updated_at)
+SELECT g, md5(g::text)::uuid, 1 + g % 5000, 1 + (g + 1) % 5000, g, now(), 0, now(), now()
+FROM generate_series(1, 10000) g;
+
+ANALYZE;